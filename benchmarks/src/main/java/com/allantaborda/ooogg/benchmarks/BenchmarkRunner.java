@@ -0,0 +1,33 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line options and always enables the GC profiler, so the allocation rate
+ * per operation ({@code gc.alloc.rate.norm}) is reported with every result.
+ * @author Allan Taborda dos Santos
+ */
+public class BenchmarkRunner{
+	/** This class only has the main method. */
+	private BenchmarkRunner(){}
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args The JMH command line options (for example, a benchmark name regular expression, or {@code -rf json} for machine-readable results).
+	 * @throws RunnerException If a benchmark fails.
+	 * @throws CommandLineOptionException If command line options are invalid.
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException{
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+	}
+}
\ No newline at end of file
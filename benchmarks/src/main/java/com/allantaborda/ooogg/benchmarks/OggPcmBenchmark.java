@@ -0,0 +1,91 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.spi.pcm.OggPcmFormatProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the full {@code AudioSystem} write, read and convert path with the built-in OggPCM format, which has no codec cost, so
+ * the results measure the overhead of the OGG container and of the {@code javax.sound} services.
+ * @author Allan Taborda dos Santos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OggPcmBenchmark{
+	/** Duration of the audio in seconds. */
+	@Param({"10"})
+	public int seconds;
+	/** The audio format: 16-bit stereo at 44.1 kHz. */
+	private AudioFormat format = new AudioFormat(44100.0F, 16, 2, true, false);
+	/** The uncompressed audio. */
+	private byte[] pcm;
+	/** The OggPCM audio file. */
+	private byte[] file;
+
+	/**
+	 * Generates the uncompressed audio and encodes it.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		pcm = new byte[seconds * 44100 * 4];
+		new Random(42L).nextBytes(pcm);
+		file = write();
+	}
+
+	/**
+	 * Writes the uncompressed audio in an OggPCM audio file.
+	 * @return The OggPCM audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] write() throws IOException{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(pcm.length + 65536);
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length / 4), OggPcmFormatProvider.OGG_PCM, baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Reads and decodes the OggPCM audio file.
+	 * @return The number of decoded bytes.
+	 * @throws IOException If I/O error occurs.
+	 * @throws UnsupportedAudioFileException If the audio file is not supported.
+	 */
+	@Benchmark
+	public long read() throws IOException, UnsupportedAudioFileException{
+		long total = 0L;
+		byte[] b = new byte[65536];
+		try(AudioInputStream ais = AudioSystem.getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, AudioSystem.getAudioInputStream(new ByteArrayInputStream(file)))){
+			for(int n; (n = ais.read(b)) > 0;) total += n;
+		}
+		return total;
+	}
+}
\ No newline at end of file
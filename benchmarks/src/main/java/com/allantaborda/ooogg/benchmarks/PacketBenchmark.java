@@ -0,0 +1,79 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.PaginationPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@code OggPacket.getSegments}, {@code OggUtils.getPacketsFromPages} and {@code OggUtils.toOggPages} over a synthetic stream.
+ * @author Allan Taborda dos Santos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PacketBenchmark{
+	/** The packet size distribution. */
+	@Param({"fixed-200", "uniform-50-1500", "normal-4000-1500", "fixed-70000"})
+	public String distribution;
+	/** The packets of the stream. */
+	private OggPacket[] packets;
+	/** The pages of the stream. */
+	private OggPage[] pages;
+
+	/** Generates the synthetic stream. */
+	@Setup(Level.Trial)
+	public void setup(){
+		packets = SyntheticStreams.packets(distribution, distribution.equals("fixed-70000") ? 50 : 2000, 42L);
+		pages = SyntheticStreams.pages(packets, PaginationPolicy.DEFAULT);
+	}
+
+	/**
+	 * Splits all packets in segments.
+	 * @param bh The blackhole.
+	 */
+	@Benchmark
+	public void getSegments(Blackhole bh){
+		for(OggPacket p : packets) bh.consume(p.getSegments());
+	}
+
+	/**
+	 * Reassembles the packets from the pages.
+	 * @return The packets.
+	 */
+	@Benchmark
+	public OggPacket[] getPacketsFromPages(){
+		return OggUtils.getPacketsFromPages(pages);
+	}
+
+	/**
+	 * Puts the packets in pages.
+	 * @return The pages.
+	 */
+	@Benchmark
+	public OggPage[] toOggPages(){
+		return OggUtils.toOggPages(SyntheticStreams.SERIAL_NUMBER, 0, packets);
+	}
+}
\ No newline at end of file
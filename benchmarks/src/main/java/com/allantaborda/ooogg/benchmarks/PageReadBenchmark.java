@@ -0,0 +1,130 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.PaginationPolicy;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@code OggUtils.readOggPage} and {@code OggUtils.readNextOggPage}, reading all pages of a synthetic stream from an
+ * {@code InputStream} and from a {@code RandomAccessFile}. The resync variants put garbage bytes before the stream.
+ * @author Allan Taborda dos Santos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageReadBenchmark{
+	/** The packet size distribution. */
+	@Param({"fixed-200", "uniform-50-1500", "normal-4000-1500"})
+	public String distribution;
+	/** The number of packets of the stream. */
+	@Param({"2000"})
+	public int packets;
+	/** The serialized stream. */
+	private byte[] stream;
+	/** The serialized stream, preceded by garbage bytes. */
+	private byte[] garbageStream;
+	/** The number of pages of the stream. */
+	private int pageCount;
+	/** Temporary file containing the serialized stream. */
+	private File file;
+	/** The temporary file, opened for reading. */
+	private RandomAccessFile raf;
+
+	/**
+	 * Generates the synthetic stream and writes it in a temporary file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException{
+		OggPage[] pages = SyntheticStreams.pages(SyntheticStreams.packets(distribution, packets, 42L), PaginationPolicy.DEFAULT);
+		pageCount = pages.length;
+		stream = SyntheticStreams.serialize(pages);
+		garbageStream = new byte[stream.length + 1000];
+		System.arraycopy(stream, 0, garbageStream, 1000, stream.length);
+		file = File.createTempFile("ooogg-bench", ".ogg");
+		Files.write(file.toPath(), stream);
+		raf = new RandomAccessFile(file, "r");
+	}
+
+	/**
+	 * Closes and deletes the temporary file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException{
+		raf.close();
+		file.delete();
+	}
+
+	/**
+	 * Reads all pages from an input stream.
+	 * @param bh The blackhole.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Benchmark
+	public void readOggPageStream(Blackhole bh) throws IOException{
+		ByteArrayInputStream is = new ByteArrayInputStream(stream);
+		for(int c = 0; c < pageCount; c++) bh.consume(OggUtils.readOggPage(is));
+	}
+
+	/**
+	 * Reads all pages from an input stream, searching for the first page after garbage bytes.
+	 * @param bh The blackhole.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Benchmark
+	public void readNextOggPageStream(Blackhole bh) throws IOException{
+		ByteArrayInputStream is = new ByteArrayInputStream(garbageStream);
+		for(int c = 0; c < pageCount; c++) bh.consume(OggUtils.readNextOggPage(is));
+	}
+
+	/**
+	 * Reads all pages from a file.
+	 * @param bh The blackhole.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Benchmark
+	public void readOggPageFile(Blackhole bh) throws IOException{
+		raf.seek(0L);
+		for(int c = 0; c < pageCount; c++) bh.consume(OggUtils.readOggPage(raf));
+	}
+
+	/**
+	 * Reads all pages from a file with {@code readNextOggPage}.
+	 * @param bh The blackhole.
+	 * @throws IOException If I/O error occurs.
+	 */
+	@Benchmark
+	public void readNextOggPageFile(Blackhole bh) throws IOException{
+		raf.seek(0L);
+		for(int c = 0; c < pageCount; c++) bh.consume(OggUtils.readNextOggPage(raf));
+	}
+}
\ No newline at end of file
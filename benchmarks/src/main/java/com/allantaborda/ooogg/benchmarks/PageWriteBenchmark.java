@@ -0,0 +1,65 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.PaginationPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of {@code OggPage.computeAndSetCrcChecksum} and {@code OggPage.getBytes} over all pages of a synthetic stream.
+ * @author Allan Taborda dos Santos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageWriteBenchmark{
+	/** The packet size distribution. */
+	@Param({"fixed-200", "uniform-50-1500", "normal-4000-1500"})
+	public String distribution;
+	/** The pagination policy: default or archival. */
+	@Param({"DEFAULT", "ARCHIVAL"})
+	public String pagination;
+	/** The pages of the stream. */
+	private OggPage[] pages;
+
+	/** Generates the synthetic stream. */
+	@Setup(Level.Trial)
+	public void setup(){
+		pages = SyntheticStreams.pages(SyntheticStreams.packets(distribution, 2000, 42L), "ARCHIVAL".equals(pagination) ? PaginationPolicy.ARCHIVAL : PaginationPolicy.DEFAULT);
+	}
+
+	/** Computes the CRC checksum of all pages. */
+	@Benchmark
+	public void computeAndSetCrcChecksum(){
+		for(OggPage p : pages) p.computeAndSetCrcChecksum();
+	}
+
+	/**
+	 * Serializes all pages.
+	 * @param bh The blackhole.
+	 */
+	@Benchmark
+	public void getBytes(Blackhole bh){
+		for(OggPage p : pages) bh.consume(p.getBytes());
+	}
+}
\ No newline at end of file
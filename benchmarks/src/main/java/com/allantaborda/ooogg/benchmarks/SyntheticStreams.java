@@ -0,0 +1,100 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggPaginator;
+import com.allantaborda.ooogg.PaginationPolicy;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic OGG packets, pages and page streams for benchmarks. The packet sizes follow a distribution given by a specification string:
+ * <ul>
+ * <li>{@code fixed-N}: all packets have N bytes;</li>
+ * <li>{@code uniform-MIN-MAX}: packet sizes are uniformly distributed between MIN and MAX bytes;</li>
+ * <li>{@code normal-MEAN-STDDEV}: packet sizes are normally distributed, with the given mean and standard deviation (at least one byte).</li>
+ * </ul>
+ * The generated data depends only on the specification, the number of packets and the seed, so runs are reproducible.
+ * @author Allan Taborda dos Santos
+ */
+public class SyntheticStreams{
+	/** Serial number of the generated logical streams. */
+	public static final int SERIAL_NUMBER = 0x4f4f4f47;
+
+	/** This class only has static methods. */
+	private SyntheticStreams(){}
+
+	/**
+	 * Generates OGG packets with random content whose sizes follow the given distribution.
+	 * @param distribution The packet size distribution specification.
+	 * @param count The number of packets.
+	 * @param seed The seed of the random number generator.
+	 * @return The generated packets.
+	 * @throws IllegalArgumentException If the distribution specification is invalid.
+	 */
+	public static OggPacket[] packets(String distribution, int count, long seed){
+		String[] spec = distribution.split("-");
+		Random rnd = new Random(seed);
+		OggPacket[] packets = new OggPacket[count];
+		for(int c = 0; c < count; c++){
+			int size;
+			switch(spec[0]){
+				case "fixed":
+					size = Integer.parseInt(spec[1]);
+					break;
+				case "uniform":
+					int min = Integer.parseInt(spec[1]);
+					size = min + rnd.nextInt(Integer.parseInt(spec[2]) - min + 1);
+					break;
+				case "normal":
+					size = (int) Math.max(1L, Math.round(Integer.parseInt(spec[1]) + rnd.nextGaussian() * Integer.parseInt(spec[2])));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown distribution: " + distribution);
+			}
+			byte[] content = new byte[size];
+			rnd.nextBytes(content);
+			packets[c] = new OggPacket(content);
+		}
+		return packets;
+	}
+
+	/**
+	 * Puts the given packets in OGG pages, with a BOS flag in the first page and an EOS flag in the last page. Each packet advances the granule position by 960.
+	 * @param packets The packets.
+	 * @param policy The pagination policy.
+	 * @return The generated pages.
+	 */
+	public static OggPage[] pages(OggPacket[] packets, PaginationPolicy policy){
+		OggPaginator pag = new OggPaginator(SERIAL_NUMBER, 0, policy);
+		List<OggPage> pages = new ArrayList<>();
+		long granule = 0L;
+		for(OggPacket p : packets) for(OggPage page : pag.addPacket(p, granule += 960L)) pages.add(page);
+		for(OggPage page : pag.flush(true)) pages.add(page);
+		OggPage first = pages.get(0);
+		first.setBeginningOfStream(true);
+		first.computeAndSetCrcChecksum();
+		return pages.toArray(new OggPage[pages.size()]);
+	}
+
+	/**
+	 * Serializes the given pages in a byte array, as they are stored in an OGG file.
+	 * @param pages The pages.
+	 * @return The serialized pages.
+	 */
+	public static byte[] serialize(OggPage[] pages){
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(pages.length * 4096);
+		for(OggPage p : pages){
+			byte[] b = p.getBytes();
+			baos.write(b, 0, b.length);
+		}
+		return baos.toByteArray();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.TagKeys;
+import com.allantaborda.ooogg.Tags;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@code Tags.fromOggPacket} and {@code Tags.toOggPacket}, with a comment header containing the given number of comments
+ * and, optionally, a large binary comment (such as an embedded picture).
+ * @author Allan Taborda dos Santos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TagsBenchmark{
+	/** The number of comments. */
+	@Param({"10", "100"})
+	public int comments;
+	/** The size of an additional large comment, or zero for none. */
+	@Param({"0", "262144"})
+	public int pictureSize;
+	/** The tags. */
+	private Tags tags;
+	/** The tags in an OGG packet. */
+	private OggPacket packet;
+
+	/** Generates the tags. */
+	@Setup(Level.Trial)
+	public void setup(){
+		tags = new Tags("\u0003vorbis", true);
+		String[] keys = {TagKeys.TITLE, TagKeys.ARTIST, TagKeys.ALBUM, TagKeys.TRACKNUMBER, "COMMENT"};
+		for(int c = 0; c < comments; c++) tags.add(keys[c % keys.length], "Value number " + c);
+		if(pictureSize > 0){
+			char[] pic = new char[pictureSize * 4 / 3];
+			Random rnd = new Random(42L);
+			for(int c = 0; c < pic.length; c++) pic[c] = (char) ('A' + rnd.nextInt(26));
+			tags.add("METADATA_BLOCK_PICTURE", new String(pic));
+		}
+		packet = tags.toOggPacket();
+	}
+
+	/**
+	 * Parses the tags from the OGG packet.
+	 * @return The parsed tags.
+	 */
+	@Benchmark
+	public Tags fromOggPacket(){
+		Tags t = new Tags("\u0003vorbis", true);
+		t.fromOggPacket(packet);
+		return t;
+	}
+
+	/**
+	 * Converts the tags to an OGG packet.
+	 * @return The OGG packet.
+	 */
+	@Benchmark
+	public OggPacket toOggPacket(){
+		return tags.toOggPacket();
+	}
+}
\ No newline at end of file
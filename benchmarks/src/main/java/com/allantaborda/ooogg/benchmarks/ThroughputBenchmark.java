@@ -0,0 +1,415 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.benchmarks;
+
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggPageIndex;
+import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.spi.OggFormatConversionProvider;
+import com.allantaborda.ooogg.spi.pcm.OggPcmFormatProvider;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * End-to-end throughput harness. It writes a synthetic OggPCM file of the given size with {@code AudioSystem.write}, decodes it fully through
+ * {@code OggFormatConversionProvider}, probes its metadata repeatedly and performs a storm of random seeks, reporting for each scenario
+ * the throughput (MB/s and pages/s), the 99th percentile latency of its operations and the peak heap usage as JSON.<br/><br/>
+ * Usage: {@code java -cp benchmarks.jar com.allantaborda.ooogg.benchmarks.ThroughputBenchmark [options]}, where the options are:
+ * <ul>
+ * <li>{@code --size <bytes>}: size of the uncompressed audio, with an optional K, M or G suffix (default 256M);</li>
+ * <li>{@code --dir <directory>}: directory of the temporary file (default: the system temporary directory);</li>
+ * <li>{@code --probes <n>}: number of metadata probes (default 1000);</li>
+ * <li>{@code --seeks <n>}: number of random seeks (default 10000);</li>
+ * <li>{@code --output <file>}: file where the JSON report is written, in addition to the standard output;</li>
+ * <li>{@code --baseline <file>}: JSON report of a previous run. If any scenario regresses past the threshold, the exit status is 1;</li>
+ * <li>{@code --threshold <percent>}: maximum allowed throughput loss or p99 latency increase relative to the baseline (default 10).</li>
+ * </ul>
+ * @author Allan Taborda dos Santos
+ */
+public class ThroughputBenchmark{
+	/** The audio format of the synthetic audio: 16-bit stereo at 48 kHz. */
+	private static final AudioFormat FORMAT = new AudioFormat(48000.0F, 16, 2, true, false);
+	/** Size of the buffer used to read decoded audio. */
+	private static final int READ_SIZE = 65536;
+	/** The synthetic OggPCM file. */
+	private File file;
+	/** Size of the file in bytes. */
+	private long fileSize;
+	/** Number of OGG pages of the file. */
+	private int pages;
+	/** The results of the scenarios. */
+	private List<Result> results = new ArrayList<>();
+
+	/**
+	 * Runs the harness.
+	 * @param args The command line options.
+	 * @throws Exception If any scenario fails.
+	 */
+	public static void main(String[] args) throws Exception{
+		Map<String, String> opts = new HashMap<>();
+		for(int c = 0; c < args.length; c += 2){
+			if(!args[c].startsWith("--") || c + 1 >= args.length) throw new IllegalArgumentException("Invalid option: " + args[c]);
+			opts.put(args[c].substring(2), args[c + 1]);
+		}
+		long size = parseSize(opts.getOrDefault("size", "256M"));
+		String dir = opts.get("dir");
+		ThroughputBenchmark tb = new ThroughputBenchmark();
+		tb.file = File.createTempFile("ooogg-throughput", ".oga", dir == null ? null : new File(dir));
+		try{
+			tb.write(size);
+			tb.decode();
+			tb.probe(Integer.parseInt(opts.getOrDefault("probes", "1000")));
+			tb.seek(Integer.parseInt(opts.getOrDefault("seeks", "10000")));
+		}finally{
+			tb.file.delete();
+		}
+		String json = tb.toJson(size);
+		System.out.println(json);
+		if(opts.containsKey("output")) Files.write(new File(opts.get("output")).toPath(), json.getBytes(StandardCharsets.UTF_8));
+		if(opts.containsKey("baseline")){
+			String baseline = new String(Files.readAllBytes(new File(opts.get("baseline")).toPath()), StandardCharsets.UTF_8);
+			List<String> regressions = tb.compare(baseline, Double.parseDouble(opts.getOrDefault("threshold", "10")) / 100.0);
+			for(String r : regressions) System.err.println("REGRESSION: " + r);
+			if(!regressions.isEmpty()) System.exit(1);
+		}
+	}
+
+	/**
+	 * Parses a size with an optional K, M or G suffix.
+	 * @param s The size.
+	 * @return The size in bytes.
+	 */
+	private static long parseSize(String s){
+		char u = Character.toUpperCase(s.charAt(s.length() - 1));
+		int shift = u == 'K' ? 10 : u == 'M' ? 20 : u == 'G' ? 30 : 0;
+		return Long.parseLong(shift == 0 ? s : s.substring(0, s.length() - 1)) << shift;
+	}
+
+	/**
+	 * Writes the synthetic audio in the OggPCM file with {@code AudioSystem.write}. The latency is the time between consecutive reads of the
+	 * source stream, which covers encoding and writing each audio packet.
+	 * @param size The size of the uncompressed audio.
+	 * @throws Exception If writing fails.
+	 */
+	private void write(long size) throws Exception{
+		Recorder rec = new Recorder("write");
+		long frames = size / FORMAT.getFrameSize();
+		InputStream src = new FilterInputStream(new SyntheticPcmInputStream(frames * FORMAT.getFrameSize())){
+			public int read(byte[] b, int off, int len) throws IOException{
+				rec.lap();
+				return super.read(b, off, len);
+			}
+		};
+		rec.start();
+		AudioSystem.write(new AudioInputStream(src, FORMAT, frames), OggPcmFormatProvider.OGG_PCM, file);
+		rec.stop();
+		fileSize = file.length();
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r")){
+			pages = OggPageIndex.build(raf).size();
+		}
+		results.add(rec.toResult(fileSize, pages));
+	}
+
+	/**
+	 * Decodes the OggPCM file fully through {@code OggFormatConversionProvider}. The latency is the time of each read of decoded audio.
+	 * @throws Exception If decoding fails.
+	 */
+	private void decode() throws Exception{
+		Recorder rec = new Recorder("decode");
+		byte[] b = new byte[READ_SIZE];
+		rec.start();
+		try(AudioInputStream ais = new OggFormatConversionProvider().getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, AudioSystem.getAudioInputStream(file))){
+			for(int n = 0; n >= 0;){
+				long t = System.nanoTime();
+				n = ais.read(b);
+				rec.add(System.nanoTime() - t);
+			}
+		}
+		rec.stop();
+		results.add(rec.toResult(fileSize, pages));
+	}
+
+	/**
+	 * Reads the audio file format of the OggPCM file repeatedly. The latency is the time of each probe, and the throughput is reported in
+	 * pages per second only, counting the two header pages read by each probe.
+	 * @param probes The number of probes.
+	 * @throws Exception If probing fails.
+	 */
+	private void probe(int probes) throws Exception{
+		Recorder rec = new Recorder("probe");
+		rec.start();
+		for(int c = 0; c < probes; c++){
+			long t = System.nanoTime();
+			AudioSystem.getAudioFileFormat(file);
+			rec.add(System.nanoTime() - t);
+		}
+		rec.stop();
+		results.add(rec.toResult(0L, 2L * probes));
+	}
+
+	/**
+	 * Seeks to random granule positions of the OggPCM file with an {@code OggPageIndex}, reading the OGG page at each position and its
+	 * packets. The latency is the time of each seek, and the index is built before the scenario starts.
+	 * @param seeks The number of seeks.
+	 * @throws Exception If seeking fails.
+	 */
+	private void seek(int seeks) throws Exception{
+		Recorder rec = new Recorder("seek");
+		long bytes = 0L;
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r")){
+			OggPageIndex idx = OggPageIndex.build(raf);
+			long last = idx.getGranulePosition(idx.size() - 1);
+			Random rnd = new Random(42L);
+			rec.start();
+			for(int c = 0; c < seeks; c++){
+				long t = System.nanoTime();
+				int p = idx.findPage(1L + (long) (rnd.nextDouble() * last));
+				raf.seek(idx.getOffset(p));
+				OggPage page = OggUtils.readOggPage(raf);
+				OggUtils.getPacketsFromPages(page);
+				bytes += idx.getPageSize(p);
+				rec.add(System.nanoTime() - t);
+			}
+			rec.stop();
+		}
+		results.add(rec.toResult(bytes, seeks));
+	}
+
+	/**
+	 * Converts the results to JSON.
+	 * @param size The size of the uncompressed audio.
+	 * @return The JSON report.
+	 */
+	private String toJson(long size){
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("{\n  \"audioBytes\": ").append(size).append(",\n  \"fileBytes\": ").append(fileSize).append(",\n  \"pages\": ").append(pages);
+		sb.append(",\n  \"java\": \"").append(System.getProperty("java.version")).append("\",\n  \"results\": [");
+		for(int c = 0; c < results.size(); c++) sb.append(c == 0 ? "\n    " : ",\n    ").append(results.get(c).toJson());
+		return sb.append("\n  ]\n}").toString();
+	}
+
+	/**
+	 * Compares the results to a baseline report.
+	 * @param baseline The JSON report of the baseline.
+	 * @param threshold The maximum allowed throughput loss or p99 latency increase, as a fraction of the baseline values.
+	 * @return Descriptions of the regressions found. The returned list is empty if no scenario regressed.
+	 */
+	private List<String> compare(String baseline, double threshold){
+		Map<String, Map<String, Double>> base = new HashMap<>();
+		Matcher m = Pattern.compile("\\{\"name\": \"(\\w+)\"([^}]*)\\}").matcher(baseline);
+		while(m.find()){
+			Map<String, Double> values = new HashMap<>();
+			Matcher v = Pattern.compile("\"(\\w+)\": ([-0-9.Ee]+)").matcher(m.group(2));
+			while(v.find()) values.put(v.group(1), Double.valueOf(v.group(2)));
+			base.put(m.group(1), values);
+		}
+		List<String> regressions = new ArrayList<>();
+		for(Result r : results){
+			Map<String, Double> b = base.get(r.name);
+			if(b == null) continue;
+			Double mbps = b.get("mbPerSecond"), p99 = b.get("p99LatencyMillis");
+			if(mbps != null && r.mbPerSecond() < mbps * (1.0 - threshold)){
+				regressions.add(String.format(Locale.ROOT, "%s throughput %.2f MB/s, baseline %.2f MB/s", r.name, r.mbPerSecond(), mbps));
+			}
+			if(p99 != null && p99 > 0.0 && r.p99Millis() > p99 * (1.0 + threshold)){
+				regressions.add(String.format(Locale.ROOT, "%s p99 latency %.3f ms, baseline %.3f ms", r.name, r.p99Millis(), p99));
+			}
+		}
+		return regressions;
+	}
+
+	/** Records the duration, the operation latencies and the peak heap usage of a scenario. */
+	private static class Recorder{
+		/** The scenario name. */
+		private String name;
+		/** The operation latencies in nanoseconds. */
+		private long[] latencies = new long[1024];
+		/** Number of recorded latencies. */
+		private int count;
+		/** Value of {@code System.nanoTime()} when the scenario or the last lap started. */
+		private long start, lapStart;
+		/** Duration of the scenario in nanoseconds. */
+		private long elapsed;
+
+		/**
+		 * Creates a recorder for a scenario.
+		 * @param name The scenario name.
+		 */
+		Recorder(String name){
+			this.name = name;
+		}
+
+		/** Starts the scenario, resetting the peak heap usage. */
+		void start(){
+			System.gc();
+			for(MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans()) if(mp.getType() == MemoryType.HEAP) mp.resetPeakUsage();
+			start = lapStart = System.nanoTime();
+		}
+
+		/** Records the time since the previous lap as an operation latency. */
+		void lap(){
+			long t = System.nanoTime();
+			add(t - lapStart);
+			lapStart = t;
+		}
+
+		/**
+		 * Records an operation latency.
+		 * @param nanos The latency in nanoseconds.
+		 */
+		void add(long nanos){
+			if(count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+			latencies[count++] = nanos;
+		}
+
+		/** Stops the scenario. */
+		void stop(){
+			elapsed = System.nanoTime() - start;
+		}
+
+		/**
+		 * Creates the result of the scenario.
+		 * @param bytes The number of bytes processed.
+		 * @param pages The number of OGG pages processed.
+		 * @return The result.
+		 */
+		Result toResult(long bytes, long pages){
+			long heap = 0L;
+			for(MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans()) if(mp.getType() == MemoryType.HEAP) heap += mp.getPeakUsage().getUsed();
+			long[] l = Arrays.copyOf(latencies, count);
+			Arrays.sort(l);
+			long p99 = count == 0 ? 0L : l[Math.min(count - 1, (int) Math.ceil(count * 0.99) - 1)];
+			return new Result(name, elapsed, bytes, pages, count, p99, heap);
+		}
+	}
+
+	/** The result of a scenario. */
+	private static class Result{
+		/** The scenario name. */
+		private String name;
+		/** Duration of the scenario in nanoseconds. */
+		private long nanos;
+		/** Number of bytes processed. */
+		private long bytes;
+		/** Number of OGG pages processed. */
+		private long pages;
+		/** Number of operations. */
+		private int operations;
+		/** The 99th percentile operation latency in nanoseconds. */
+		private long p99;
+		/** The peak heap usage in bytes. */
+		private long peakHeap;
+
+		/**
+		 * Creates a result.
+		 * @param name The scenario name.
+		 * @param nanos Duration of the scenario in nanoseconds.
+		 * @param bytes Number of bytes processed.
+		 * @param pages Number of OGG pages processed.
+		 * @param operations Number of operations.
+		 * @param p99 The 99th percentile operation latency in nanoseconds.
+		 * @param peakHeap The peak heap usage in bytes.
+		 */
+		Result(String name, long nanos, long bytes, long pages, int operations, long p99, long peakHeap){
+			this.name = name;
+			this.nanos = nanos;
+			this.bytes = bytes;
+			this.pages = pages;
+			this.operations = operations;
+			this.p99 = p99;
+			this.peakHeap = peakHeap;
+		}
+
+		/**
+		 * Returns the throughput in megabytes per second.
+		 * @return The throughput in MB/s.
+		 */
+		double mbPerSecond(){
+			return bytes / 1048576.0 / (nanos / 1e9);
+		}
+
+		/**
+		 * Returns the 99th percentile operation latency in milliseconds.
+		 * @return The p99 latency in milliseconds.
+		 */
+		double p99Millis(){
+			return p99 / 1e6;
+		}
+
+		/**
+		 * Converts this result to JSON.
+		 * @return The JSON object.
+		 */
+		String toJson(){
+			return String.format(Locale.ROOT, "{\"name\": \"%s\", \"seconds\": %.3f, \"bytes\": %d, \"pages\": %d, \"operations\": %d, \"mbPerSecond\": %.2f, \"pagesPerSecond\": %.1f, \"p99LatencyMillis\": %.3f, \"peakHeapBytes\": %d}",
+				name, nanos / 1e9, bytes, pages, operations, mbPerSecond(), pages / (nanos / 1e9), p99Millis(), peakHeap);
+		}
+	}
+
+	/** Input stream of synthetic audio of a given length, generated by a xorshift random number generator without storing it. */
+	private static class SyntheticPcmInputStream extends InputStream{
+		/** Number of bytes left. */
+		private long remaining;
+		/** State of the random number generator. */
+		private long state = 0x9e3779b97f4a7c15L;
+
+		/**
+		 * Creates a synthetic audio stream.
+		 * @param length The length of the stream.
+		 */
+		SyntheticPcmInputStream(long length){
+			remaining = length;
+		}
+
+		public int read(){
+			if(remaining <= 0L) return -1;
+			remaining--;
+			return (int) next() & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len){
+			if(remaining <= 0L) return -1;
+			int n = (int) Math.min(len, remaining);
+			for(int c = 0; c < n; c += 8){
+				long r = next();
+				for(int d = c; d < Math.min(n, c + 8); d++, r >>>= 8) b[off + d] = (byte) r;
+			}
+			remaining -= n;
+			return n;
+		}
+
+		/**
+		 * Returns the next random value.
+		 * @return The next random value.
+		 */
+		private long next(){
+			state ^= state << 13;
+			state ^= state >>> 7;
+			state ^= state << 17;
+			return state;
+		}
+	}
+}
\ No newline at end of file
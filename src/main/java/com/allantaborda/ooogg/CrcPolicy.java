@@ -0,0 +1,225 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy that decides which OGG pages have their CRC checksum verified when read. Verifying all pages protects against corrupted data
+ * received from the network, while a trusted local archive can skip or sample the verification. When a verified page has an invalid
+ * CRC checksum, the reading methods of {@link OggUtils} throw {@code StreamCorruptedException}.<br/><br/>
+ * The default policy, used by the reading methods that don't receive a policy, is {@link #ALWAYS}. It can be changed with
+ * {@link #setDefault(CrcPolicy)} or with the {@code ooogg.crc} system property, whose value can be {@code always}, {@code headers},
+ * {@code never}, {@code sampled:N} or {@code deferred}.
+ * @author Allan Taborda dos Santos
+ */
+public class CrcPolicy{
+	/** Policy that verifies the CRC checksum of all pages. */
+	public static final CrcPolicy ALWAYS = new CrcPolicy(Mode.ALWAYS, 1, null);
+	/** Policy that verifies the CRC checksum of the pages that begin a logical stream or have granule position zero, which are the pages containing codec headers. */
+	public static final CrcPolicy HEADERS_ONLY = new CrcPolicy(Mode.HEADERS_ONLY, 1, null);
+	/** Policy that never verifies the CRC checksum. */
+	public static final CrcPolicy NEVER = new CrcPolicy(Mode.NEVER, 1, null);
+	/** The default policy. */
+	private static volatile CrcPolicy defaultPolicy = fromProperty(System.getProperty("ooogg.crc"));
+	/** The worker that verifies the pages of the deferred policies, created when the first deferred page is submitted. */
+	private static ThreadPoolExecutor worker;
+	/** The policy mode. */
+	private final Mode mode;
+	/** Interval between sampled pages. */
+	private final int interval;
+	/** Listener notified of the pages whose deferred verification failed. */
+	private final FailureListener listener;
+	/** Number of pages read with this policy, used to sample pages. */
+	private final AtomicLong pages = new AtomicLong();
+
+	/** The modes of CRC verification. */
+	public enum Mode{
+		/** All pages are verified. */
+		ALWAYS,
+		/** Only the pages that begin a logical stream or have granule position zero are verified. */
+		HEADERS_ONLY,
+		/** One of every N pages is verified. */
+		SAMPLED,
+		/** All pages are verified by a background worker, which reports failures to a listener. */
+		DEFERRED,
+		/** No page is verified. */
+		NEVER
+	}
+
+	/** Listener notified when the deferred verification of an OGG page fails. */
+	public interface FailureListener{
+		/**
+		 * Called by the background worker when an OGG page has an invalid CRC checksum.
+		 * @param page The OGG page.
+		 */
+		void crcFailed(OggPage page);
+	}
+
+	/**
+	 * Creates a CRC policy.
+	 * @param mode The policy mode.
+	 * @param interval The interval between sampled pages.
+	 * @param listener The listener notified of failed deferred verifications, or {@code null}.
+	 */
+	private CrcPolicy(Mode mode, int interval, FailureListener listener){
+		this.mode = mode;
+		this.interval = interval;
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates a policy that verifies the CRC checksum of the first page read and then of one of every N pages.
+	 * @param interval The interval between verified pages (N).
+	 * @return The CRC policy.
+	 * @throws IllegalArgumentException If the interval is less than one.
+	 */
+	public static CrcPolicy sampled(int interval){
+		if(interval < 1) throw new IllegalArgumentException("Invalid sample interval: " + interval);
+		return new CrcPolicy(Mode.SAMPLED, interval, null);
+	}
+
+	/**
+	 * Creates a policy that verifies the CRC checksum of all pages in a background worker, so reading is not delayed by the verification.
+	 * Pages with invalid CRC checksum are not rejected; they are reported to the given listener, called from the worker thread, and
+	 * counted in {@link OggMetrics} when metrics are enabled. If the worker falls behind, the pages are verified by the reading thread.
+	 * The worker verifies a copy of each page taken when it is read, so the read page can be changed or refilled by the reader, and the
+	 * page reported to the listener is a copy of the page as read.
+	 * @param listener The listener notified of failed verifications, or {@code null}.
+	 * @return The CRC policy.
+	 */
+	public static CrcPolicy deferred(FailureListener listener){
+		return new CrcPolicy(Mode.DEFERRED, 1, listener);
+	}
+
+	/**
+	 * Returns the default policy, used by the reading methods that don't receive a policy.
+	 * @return The default policy.
+	 */
+	public static CrcPolicy getDefault(){
+		return defaultPolicy;
+	}
+
+	/**
+	 * Changes the default policy, used by the reading methods that don't receive a policy.
+	 * @param policy The new default policy.
+	 */
+	public static void setDefault(CrcPolicy policy){
+		if(policy == null) throw new NullPointerException("CRC policy is null");
+		defaultPolicy = policy;
+	}
+
+	/**
+	 * Returns the policy described by the value of the {@code ooogg.crc} system property.
+	 * @param value The property value.
+	 * @return The policy, or {@link #ALWAYS} if the value is not set or is not valid.
+	 */
+	private static CrcPolicy fromProperty(String value){
+		if(value == null) return ALWAYS;
+		switch(value){
+			case "headers":
+				return HEADERS_ONLY;
+			case "never":
+				return NEVER;
+			case "deferred":
+				return deferred(null);
+			default:
+				if(value.startsWith("sampled:")){
+					try{
+						return sampled(Integer.parseInt(value.substring(8)));
+					}catch(IllegalArgumentException e){}
+				}
+				return ALWAYS;
+		}
+	}
+
+	/**
+	 * Returns the policy mode.
+	 * @return The policy mode.
+	 */
+	public Mode getMode(){
+		return mode;
+	}
+
+	/**
+	 * Returns the interval between verified pages of a sampled policy.
+	 * @return The sample interval, or 1 if this policy is not sampled.
+	 */
+	public int getSampleInterval(){
+		return interval;
+	}
+
+	/**
+	 * Checks if the CRC checksum of the given page must be verified by the reading thread.
+	 * @param page The read OGG page.
+	 * @return {@code true} if the CRC checksum must be verified now, {@code false} otherwise.
+	 */
+	boolean verifiesNow(OggPage page){
+		switch(mode){
+			case ALWAYS:
+				return true;
+			case HEADERS_ONLY:
+				return page.isBeginningOfStream() || page.getGranulePosition() == 0L;
+			case SAMPLED:
+				return pages.getAndIncrement() % interval == 0L;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Submits the given page to the background worker, if this policy is deferred. The page is serialized by the calling thread in a buffer borrowed
+	 * from the shared buffer pool, so the worker verifies the page as read even if the caller changes or refills it before the verification.
+	 * @param page The read OGG page.
+	 */
+	void defer(OggPage page){
+		if(mode == Mode.DEFERRED){
+			byte[] b = OggBufferPool.getShared().acquire(OggPage.MAX_SIZE);
+			int size = page.getBytes(b, 0);
+			worker().execute(() -> verify(b, size));
+		}
+	}
+
+	/**
+	 * Verifies the CRC checksum of a serialized deferred page, reporting the failure to the listener. The buffer returns to the shared buffer pool.
+	 * @param b The buffer containing the serialized page.
+	 * @param size The page size in bytes.
+	 */
+	private void verify(byte[] b, int size){
+		try{
+			if(OggPage.computeCrcChecksum(ByteBuffer.wrap(b), 0, size) != OggUtils.getIntFromByteArray(b, 22)){
+				if(OggMetrics.isEnabled()) OggMetrics.recordCrcFailure();
+				if(listener != null) listener.crcFailed(OggUtils.readOggPage(new ByteArrayInputStream(b, 0, size), NEVER));
+			}
+		}catch(IOException e){
+			// Never thrown, since the buffer contains a whole serialized page
+		}finally{
+			OggBufferPool.getShared().release(b);
+		}
+	}
+
+	/**
+	 * Returns the worker that verifies the pages of the deferred policies, creating it if needed. The worker has a single daemon thread and a bounded
+	 * queue; when the queue is full, the page is verified by the submitting thread.
+	 * @return The worker.
+	 */
+	private static synchronized ThreadPoolExecutor worker(){
+		if(worker == null){
+			worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(4096), r -> {
+				Thread t = new Thread(r, "OOOGG CRC verifier");
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return worker;
+	}
+}
\ No newline at end of file
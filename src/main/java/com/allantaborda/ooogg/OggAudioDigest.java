@@ -0,0 +1,176 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Computes a digest of the audio packets of an OGG file without decoding them, to find files with the same audio content. Only the identification
+ * header, which is the first packet and describes the audio format, and the audio packets of the logical stream are hashed. The other header
+ * packets, such as the comment header and metadata headers that change with it, and the page framing (page boundaries, page numbers, serial
+ * number, granule positions and CRC checksums) are not, so the digest does not change when the tags are edited or the packets are repaginated.
+ * The hashed logical stream is the first one of the file that is not a Skeleton stream, up to its end of stream page; pages of other logical
+ * streams are skipped.<br/><br/>
+ * The header packets are the packets that end in pages with granule position zero at the beginning of the logical stream, as required by the
+ * mappings of the Xiph.Org codecs, which begin the audio data in a new page. The audio packets are streamed straight from the segments of the
+ * pages, and each packet is hashed followed by its size, so moving bytes from a packet to another changes the digest.<br/><br/>
+ * The {@link Mode#LAYOUT} mode hashes only the identification header and the size of each audio packet, which is much cheaper than hashing the
+ * audio content and can be used as a prefilter: files with different layout digests certainly have different audio content, and only the files
+ * with equal layout digests need to be compared by their content digests.
+ * @author Allan Taborda dos Santos
+ */
+public class OggAudioDigest{
+	/** The default message digest algorithm. */
+	public static final String DEFAULT_ALGORITHM = "SHA-256";
+
+	/** What is hashed for each audio packet. */
+	public enum Mode{
+		/** The content and the size of each audio packet are hashed. */
+		CONTENT,
+		/** Only the size of each audio packet is hashed, besides the identification header. */
+		LAYOUT
+	}
+
+	/** What is hashed for each audio packet. */
+	private final Mode mode;
+	/** The message digest algorithm. */
+	private final String algorithm;
+
+	/** Creates an audio digest that hashes the content of the audio packets with the default algorithm. */
+	public OggAudioDigest(){
+		this(Mode.CONTENT, DEFAULT_ALGORITHM);
+	}
+
+	/**
+	 * Creates an audio digest that uses the default algorithm.
+	 * @param mode What is hashed for each audio packet.
+	 */
+	public OggAudioDigest(Mode mode){
+		this(mode, DEFAULT_ALGORITHM);
+	}
+
+	/**
+	 * Creates an audio digest.
+	 * @param mode What is hashed for each audio packet.
+	 * @param algorithm The name of the message digest algorithm, as accepted by {@link MessageDigest#getInstance(String)}.
+	 * @throws IllegalArgumentException If mode or algorithm is {@code null} or the algorithm is not available.
+	 */
+	public OggAudioDigest(Mode mode, String algorithm){
+		if(mode == null || algorithm == null) throw new IllegalArgumentException("Mode and algorithm cannot be null");
+		this.mode = mode;
+		this.algorithm = algorithm;
+		newMessageDigest();
+	}
+
+	/**
+	 * Returns what is hashed for each audio packet.
+	 * @return The mode.
+	 */
+	public Mode getMode(){
+		return mode;
+	}
+
+	/**
+	 * Returns the name of the message digest algorithm.
+	 * @return The algorithm.
+	 */
+	public String getAlgorithm(){
+		return algorithm;
+	}
+
+	/**
+	 * Computes the digest of the audio packets of the given OGG file.
+	 * @param f The OGG file.
+	 * @return The digest.
+	 * @throws StreamCorruptedException If OGG structure is corrupted, data structure is not an OGG container or there is no logical stream.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public byte[] digest(File f) throws StreamCorruptedException, IOException{
+		try(OggSource src = OggSource.of(f)){
+			return digest(src);
+		}
+	}
+
+	/**
+	 * Computes the digest of the audio packets read from the current position of the given source, which must be at the beginning of an OGG
+	 * page. The CRC checksums of the pages are not verified. The source is not closed.
+	 * @param src The source.
+	 * @return The digest.
+	 * @throws StreamCorruptedException If OGG structure is corrupted, data structure is not an OGG container or there is no logical stream.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public byte[] digest(OggSource src) throws StreamCorruptedException, IOException{
+		MessageDigest md = newMessageDigest();
+		OggPageReader reader = new OggPageReader(src, 1, CrcPolicy.NEVER);
+		boolean found = false, skeleton = false, headers = true, content = mode == Mode.CONTENT;
+		int serial = 0, skeletonSerial = 0, size = 0, packets = 0;
+		byte[] pending = new byte[4096], sizeBytes = new byte[4];
+		for(OggPage page; (page = reader.next()) != null;){
+			if(!found){
+				if(OggSkeleton.isSkeletonHead(page)){
+					skeleton = true;
+					skeletonSerial = page.getSerialNumber();
+				}
+				if(skeleton && page.getSerialNumber() == skeletonSerial) continue;
+				found = true;
+				serial = page.getSerialNumber();
+			}else if(page.getSerialNumber() != serial) continue;
+			long granule = page.getGranulePosition();
+			for(int c = 0, n = page.getSegmentCount(); c < n; c++){
+				byte[] seg = page.getSegment(c);
+				if(headers){
+					if(size + seg.length > pending.length) pending = Arrays.copyOf(pending, Math.max(pending.length * 2, size + seg.length));
+					System.arraycopy(seg, 0, pending, size, seg.length);
+				}else if(content) md.update(seg);
+				size += seg.length;
+				if(seg.length < 255){
+					if(headers && granule != 0L){
+						headers = false;
+						if(content) md.update(pending, 0, size);
+					}else if(headers && packets == 0) md.update(pending, 0, size);
+					if(!headers || packets == 0){
+						OggBytes.putInt(sizeBytes, 0, size);
+						md.update(sizeBytes);
+					}
+					size = 0;
+					packets++;
+				}
+			}
+			if(page.isEndOfStream()) break;
+		}
+		if(!found) throw new StreamCorruptedException("No logical stream found");
+		return md.digest();
+	}
+
+	/**
+	 * Formats a digest as a string of lowercase hexadecimal digits, suitable as a key of deduplication tables.
+	 * @param digest The digest.
+	 * @return The hexadecimal string.
+	 */
+	public static String toHexString(byte[] digest){
+		StringBuilder sb = new StringBuilder(digest.length * 2);
+		for(byte b : digest) sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return sb.toString();
+	}
+
+	/**
+	 * Creates a message digest of the algorithm of this audio digest.
+	 * @return The message digest.
+	 * @throws IllegalArgumentException If the algorithm is not available.
+	 */
+	private MessageDigest newMessageDigest(){
+		try{
+			return MessageDigest.getInstance(algorithm);
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalArgumentException("Message digest algorithm not available: " + algorithm, e);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,269 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the OGG pages of a live stream to many subscribers. Each page is serialized once in a read-only buffer shared by all subscribers.<br/><br/>
+ * Each subscriber has its own bounded queue of pages, written to its channel by its own thread, so a slow subscriber does not delay the others.
+ * When the queue of a subscriber is full, the drop policy decides what happens. The header pages (the initial pages of the stream, whose
+ * granule position is zero, and the pages with granule position -1 whose packet ends in one of them) are cached and delivered to subscribers
+ * that join later, before any audio page.
+ * @author Allan Taborda dos Santos
+ */
+public class OggBroadcaster implements AutoCloseable{
+	/** Buffer that signals the end of the delivery to a subscriber. */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+	/** The subscribers. */
+	private List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	/** The cached header pages, serialized. */
+	private List<ByteBuffer> headerPages = new ArrayList<>();
+	/** The pages with granule position -1 received after the header pages, serialized, whose packet does not end yet. */
+	private List<ByteBuffer> pendingPages = new ArrayList<>();
+	/** Flag indicating if all header pages were received. */
+	private boolean headersComplete;
+	/** Capacity of the queue of each subscriber, in pages. */
+	private int queueCapacity;
+	/** The policy applied when the queue of a subscriber is full. */
+	private DropPolicy dropPolicy;
+	/** The executor that runs the delivery threads. */
+	private ExecutorService executor;
+	/** Flag indicating if the broadcaster was closed. */
+	private volatile boolean closed;
+
+	/**
+	 * Creates a broadcaster.
+	 * @param queueCapacity The capacity of the queue of each subscriber, in pages.
+	 * @param dropPolicy The policy applied when the queue of a subscriber is full.
+	 * @throws IllegalArgumentException If queue capacity is less than one.
+	 */
+	public OggBroadcaster(int queueCapacity, DropPolicy dropPolicy){
+		if(queueCapacity < 1) throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+		this.queueCapacity = queueCapacity;
+		this.dropPolicy = dropPolicy;
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "OGG broadcaster subscriber");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Delivers an OGG page to all subscribers. The page must have its CRC checksum set. The page is queued to the subscribers while holding the same
+	 * lock as {@link #subscribe(WritableByteChannel)}, so a subscriber that joins concurrently receives it either as a cached header page or as a
+	 * queued page, but never twice. A subscriber that joined after the header pages skips the pages that continue a packet begun before it joined.
+	 * @param page The OGG page.
+	 * @throws IllegalStateException If the broadcaster was closed.
+	 */
+	public void broadcast(OggPage page){
+		ByteBuffer buf = ByteBuffer.wrap(page.getBytes()).asReadOnlyBuffer();
+		synchronized(this){
+			if(closed) throw new IllegalStateException("Broadcaster closed");
+			if(page.isBeginningOfStream() && headersComplete){
+				headerPages.clear();
+				pendingPages.clear();
+				headersComplete = false;
+			}
+			if(!headersComplete){
+				long granule = page.getGranulePosition();
+				if(granule == -1L) pendingPages.add(buf);
+				else{
+					if(granule == 0L){
+						headerPages.addAll(pendingPages);
+						headerPages.add(buf);
+					}else headersComplete = true;
+					pendingPages.clear();
+				}
+			}
+			for(Subscriber s : subscribers){
+				if(!s.synced){
+					if(page.isContinuation()) continue;
+					s.synced = true;
+				}
+				s.offer(buf);
+			}
+		}
+	}
+
+	/**
+	 * Adds a subscriber that receives the pages in the given channel. The cached header pages are delivered first. If the subscriber joins after the
+	 * header pages, the following pages are delivered from the first page that does not continue a packet, so the subscriber never receives a part
+	 * of a packet whose beginning it did not receive. The channel is closed when the subscriber is removed.
+	 * @param channel The channel where pages are written.
+	 * @return The subscriber.
+	 * @throws IllegalStateException If the broadcaster was closed.
+	 */
+	public Subscriber subscribe(WritableByteChannel channel){
+		Subscriber s = new Subscriber(channel);
+		synchronized(this){
+			if(closed) throw new IllegalStateException("Broadcaster closed");
+			s.headers = new ArrayList<>(headerPages);
+			s.headers.addAll(pendingPages);
+			s.synced = !headersComplete;
+			subscribers.add(s);
+		}
+		executor.execute(s::deliver);
+		return s;
+	}
+
+	/**
+	 * Returns the number of subscribers.
+	 * @return The number of subscribers.
+	 */
+	public int getSubscriberCount(){
+		return subscribers.size();
+	}
+
+	/** Removes all subscribers, after they receive the pages already queued, and stops accepting pages. */
+	public void close(){
+		synchronized(this){
+			closed = true;
+		}
+		for(Subscriber s : subscribers) s.finish();
+		executor.shutdown();
+	}
+
+	/** Policies applied when the queue of a subscriber is full. */
+	public static enum DropPolicy{
+		/** The oldest queued page is discarded to make room for the new page. */
+		DROP_OLDEST,
+		/** The new page is discarded. */
+		DROP_NEWEST,
+		/** The subscriber is removed. */
+		DISCONNECT
+	}
+
+	/** A subscriber of the broadcaster. */
+	public class Subscriber{
+		/** The channel where pages are written. */
+		private WritableByteChannel ch;
+		/** The header pages to be delivered before the queued pages. */
+		private List<ByteBuffer> headers;
+		/** Flag indicating if the next broadcast pages can be delivered, because the subscriber received the beginning of their packets. Guarded by the broadcaster lock. */
+		private boolean synced;
+		/** The queue of pages to be delivered. */
+		private ArrayBlockingQueue<ByteBuffer> queue = new ArrayBlockingQueue<>(queueCapacity + 1);
+		/** Number of pages discarded because the queue was full. */
+		private AtomicLong dropped = new AtomicLong();
+		/** Flag indicating if the subscriber is connected. */
+		private volatile boolean connected = true;
+		/** The error that disconnected the subscriber, if any. */
+		private volatile IOException error;
+
+		/**
+		 * Creates a subscriber.
+		 * @param channel The channel where pages are written.
+		 */
+		Subscriber(WritableByteChannel channel){
+			ch = channel;
+		}
+
+		/**
+		 * Queues a page to be delivered, applying the drop policy if the queue is full.
+		 * @param buf The serialized page.
+		 */
+		private void offer(ByteBuffer buf){
+			if(!connected) return;
+			while(queue.size() >= queueCapacity || !queue.offer(buf)){
+				switch(dropPolicy){
+					case DROP_OLDEST:
+						if(queue.poll() != null) dropped.incrementAndGet();
+						break;
+					case DROP_NEWEST:
+						dropped.incrementAndGet();
+						return;
+					default:
+						dropped.incrementAndGet();
+						disconnect();
+						return;
+				}
+			}
+		}
+
+		/** Writes the header pages and the queued pages in the channel, until the subscriber is removed. */
+		private void deliver(){
+			try{
+				for(ByteBuffer b : headers) write(b);
+				headers = null;
+				while(connected){
+					ByteBuffer b = queue.take();
+					if(b == END) break;
+					write(b);
+				}
+			}catch(IOException e){
+				error = e;
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}finally{
+				connected = false;
+				subscribers.remove(this);
+				queue.clear();
+				try{
+					ch.close();
+				}catch(IOException e){
+					if(error == null) error = e;
+				}
+			}
+		}
+
+		/**
+		 * Writes a serialized page in the channel.
+		 * @param buf The serialized page.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void write(ByteBuffer buf) throws IOException{
+			ByteBuffer b = buf.duplicate();
+			while(b.hasRemaining()) ch.write(b);
+		}
+
+		/** Stops the delivery after the pages already queued. */
+		private void finish(){
+			while(!queue.offer(END)) queue.poll();
+		}
+
+		/** Removes this subscriber from the broadcaster, discarding the queued pages. */
+		public void disconnect(){
+			connected = false;
+			subscribers.remove(this);
+			queue.clear();
+			queue.offer(END);
+		}
+
+		/**
+		 * Returns if this subscriber is still receiving pages.
+		 * @return {@code true} if this subscriber is connected, {@code false} otherwise.
+		 */
+		public boolean isConnected(){
+			return connected;
+		}
+
+		/**
+		 * Returns the number of pages discarded because the queue of this subscriber was full.
+		 * @return The number of discarded pages.
+		 */
+		public long getDroppedPages(){
+			return dropped.get();
+		}
+
+		/**
+		 * Returns the error that disconnected this subscriber, if any.
+		 * @return The error, or {@code null} if no error occurred.
+		 */
+		public IOException getError(){
+			return error;
+		}
+	}
+}
\ No newline at end of file
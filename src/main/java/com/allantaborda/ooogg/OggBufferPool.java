@@ -0,0 +1,268 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte arrays that can be borrowed and explicitly released, so components that repeatedly need arrays of the same size (decoded and
+ * uncompressed audio buffers and serialized pages) reuse them instead of allocating new ones. A borrowed array always has exactly the requested
+ * size, so it can be used wherever a newly allocated array is expected, and an idle array is only reused by a request of its own size. Therefore,
+ * the pool is meant for buffers whose size is fixed for a whole stream or writer, not for buffers sized by their content, such as packet contents,
+ * which would seldom be reused. The idle arrays are kept in buckets by the smallest power of two equal or greater than their size, so a request only
+ * scans the bucket of its size for an idle array of exactly that size; each bucket keeps a bounded number of the most recently released arrays.
+ * The pool keeps idle arrays up to a maximum number of bytes, and reports the number of bytes borrowed and its peak. A borrowed array that is never
+ * released is counted as borrowed until the garbage collector discards it.
+ * <p>
+ * The shared pool, returned by {@link #getShared()}, is used by the decoding streams, the encoder boxes and the audio file writer. Its maximum
+ * number of idle bytes can be set with the system property {@code ooogg.bufferPool}, and zero disables the reuse of arrays.
+ * @author Allan Taborda dos Santos
+ */
+public class OggBufferPool{
+	/** Default maximum number of bytes kept by the idle arrays of the shared pool. */
+	private static final long DEFAULT_MAX_IDLE = 33554432L;
+	/** Size of the largest pooled array. Larger arrays are allocated when borrowed and discarded when released. */
+	private static final int MAX_POOLED_SIZE = 1 << 20;
+	/** Maximum number of idle arrays of each bucket. When a bucket is full, its least recently released array is discarded. */
+	private static final int CLASS_CAPACITY = 64;
+	/** The shared pool. */
+	private static final OggBufferPool shared = new OggBufferPool(Long.getLong("ooogg.bufferPool", DEFAULT_MAX_IDLE));
+	/** The idle arrays of each bucket, the most recently released first. */
+	private final ArrayDeque<byte[]>[] classes;
+	/** Maximum number of bytes kept by the idle arrays. */
+	private final long maxIdle;
+	/** Weak references to the borrowed arrays not yet released, so arrays that are never released can be discarded by the garbage collector. */
+	private final Map<BorrowedArray, BorrowedArray> borrowed = new HashMap<>();
+	/** Queue of the references to borrowed arrays discarded by the garbage collector without being released. */
+	private final ReferenceQueue<byte[]> collected = new ReferenceQueue<>();
+	/** Number of bytes of the borrowed arrays. */
+	private final AtomicLong used = new AtomicLong();
+	/** Peak number of bytes of the borrowed arrays. */
+	private final AtomicLong peakUsed = new AtomicLong();
+	/** Number of bytes of the idle arrays. */
+	private final AtomicLong idle = new AtomicLong();
+	/** Number of arrays borrowed from the idle arrays. */
+	private final AtomicLong hits = new AtomicLong();
+	/** Number of arrays allocated because no idle array had the requested size. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a pool.
+	 * @param maxIdle The maximum number of bytes kept by the idle arrays.
+	 */
+	public OggBufferPool(long maxIdle){
+		this.maxIdle = maxIdle;
+		classes = newClasses(bucket(MAX_POOLED_SIZE) + 1);
+		for(int c = 0; c < classes.length; c++) classes[c] = new ArrayDeque<>();
+	}
+
+	/**
+	 * Creates the array of the idle arrays of each bucket.
+	 * @param n The number of buckets.
+	 * @return The array, whose elements are {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ArrayDeque<byte[]>[] newClasses(int n){
+		return (ArrayDeque<byte[]>[]) new ArrayDeque<?>[n];
+	}
+
+	/**
+	 * Returns the shared pool.
+	 * @return The shared pool.
+	 */
+	public static OggBufferPool getShared(){
+		return shared;
+	}
+
+	/**
+	 * Borrows an array with the given size, reusing an idle array if possible. The content of a reused array is not cleared.
+	 * The array should be returned to the pool with {@link #release(byte[])} when it is no longer in use.
+	 * @param size The array size.
+	 * @return The array.
+	 * @throws IllegalArgumentException If size is negative.
+	 */
+	public byte[] acquire(int size){
+		if(size < 0) throw new IllegalArgumentException("Negative size: " + size);
+		byte[] b = null;
+		if(size <= MAX_POOLED_SIZE){
+			ArrayDeque<byte[]> q = classes[bucket(size)];
+			synchronized(q){
+				for(Iterator<byte[]> it = q.iterator(); it.hasNext();){
+					byte[] i = it.next();
+					if(i.length == size){
+						it.remove();
+						b = i;
+						break;
+					}
+				}
+			}
+		}
+		if(b == null){
+			b = new byte[size];
+			misses.incrementAndGet();
+		}else{
+			idle.addAndGet(-size);
+			hits.incrementAndGet();
+		}
+		synchronized(borrowed){
+			expunge();
+			BorrowedArray r = new BorrowedArray(b, collected);
+			borrowed.put(r, r);
+		}
+		peakUsed.accumulateAndGet(used.addAndGet(size), Math::max);
+		return b;
+	}
+
+	/**
+	 * Returns a borrowed array to the pool. The array is kept for reuse if it is not larger than the largest pooled array and the idle arrays don't
+	 * exceed the maximum number of bytes, or discarded otherwise. The array must not be used after it is released. Releasing an array that was
+	 * already released, or that was not borrowed from this pool, has no effect.
+	 * @param b The borrowed array, or {@code null}.
+	 */
+	public void release(byte[] b){
+		if(b == null) return;
+		synchronized(borrowed){
+			expunge();
+			BorrowedArray r = borrowed.remove(new BorrowedArray(b, null));
+			if(r == null) return;
+			r.clear();
+		}
+		used.addAndGet(-b.length);
+		if(b.length <= MAX_POOLED_SIZE){
+			ArrayDeque<byte[]> q = classes[bucket(b.length)];
+			synchronized(q){
+				if(idle.get() + b.length <= maxIdle){
+					if(q.size() == CLASS_CAPACITY) idle.addAndGet(-q.removeLast().length);
+					q.push(b);
+					idle.addAndGet(b.length);
+				}
+			}
+		}
+	}
+
+	/** Stops tracking the borrowed arrays discarded by the garbage collector without being released, subtracting their size from the borrowed bytes. */
+	private void expunge(){
+		for(Reference<? extends byte[]> r; (r = collected.poll()) != null;){
+			BorrowedArray ba = (BorrowedArray) r;
+			if(borrowed.remove(ba) != null) used.addAndGet(-ba.length);
+		}
+	}
+
+	/** Discards all idle arrays. */
+	public void clear(){
+		for(ArrayDeque<byte[]> q : classes){
+			synchronized(q){
+				for(byte[] b : q) idle.addAndGet(-b.length);
+				q.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the arrays borrowed and not yet released, excluding the arrays discarded by the garbage collector.
+	 * @return The number of borrowed bytes.
+	 */
+	public long getUsedBytes(){
+		synchronized(borrowed){
+			expunge();
+		}
+		return used.get();
+	}
+
+	/**
+	 * Returns the peak number of bytes of the arrays borrowed at the same time, since the pool was created or the peak was reset.
+	 * @return The peak number of borrowed bytes.
+	 */
+	public long getPeakUsedBytes(){
+		return peakUsed.get();
+	}
+
+	/** Resets the peak number of borrowed bytes to the current number of borrowed bytes. */
+	public void resetPeak(){
+		peakUsed.set(used.get());
+	}
+
+	/**
+	 * Returns the number of bytes of the idle arrays kept by the pool.
+	 * @return The number of idle bytes.
+	 */
+	public long getIdleBytes(){
+		return idle.get();
+	}
+
+	/**
+	 * Returns the maximum number of bytes kept by the idle arrays.
+	 * @return The maximum number of idle bytes.
+	 */
+	public long getMaxIdleBytes(){
+		return maxIdle;
+	}
+
+	/**
+	 * Returns the number of borrowed arrays that reused an idle array.
+	 * @return The number of reused arrays.
+	 */
+	public long getHitCount(){
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of borrowed arrays that were allocated because no idle array had the requested size.
+	 * @return The number of allocated arrays.
+	 */
+	public long getMissCount(){
+		return misses.get();
+	}
+
+	/**
+	 * Returns the bucket of an array size, that is, the exponent of the smallest power of two equal or greater than the size.
+	 * @param size The array size.
+	 * @return The bucket.
+	 */
+	private static int bucket(int size){
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+
+	/**
+	 * Weak reference to a borrowed array, which keeps the array size so it can be subtracted from the borrowed bytes after the array is discarded
+	 * by the garbage collector. References compare by the identity of their arrays, or by their own identity after the arrays are discarded.
+	 */
+	private static class BorrowedArray extends WeakReference<byte[]>{
+		/** The array size. */
+		private final int length;
+		/** The identity hash code of the array. */
+		private final int hash;
+
+		/**
+		 * Creates a reference to a borrowed array.
+		 * @param b The borrowed array.
+		 * @param q The queue where the reference is put when the array is discarded, or {@code null} if the reference is only used to find another one.
+		 */
+		BorrowedArray(byte[] b, ReferenceQueue<byte[]> q){
+			super(b, q);
+			length = b.length;
+			hash = System.identityHashCode(b);
+		}
+
+		public boolean equals(Object o){
+			if(this == o) return true;
+			if(!(o instanceof BorrowedArray)) return false;
+			byte[] b = get();
+			return b != null && b == ((BorrowedArray) o).get();
+		}
+
+		public int hashCode(){
+			return hash;
+		}
+	}
+}
\ No newline at end of file
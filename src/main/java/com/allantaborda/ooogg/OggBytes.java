@@ -0,0 +1,120 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes the little-endian numeric fields of OGG structures and searches for the capture pattern of OGG pages. This is the Java 8
+ * implementation, which works byte by byte. The multi-release jar contains the Java 17 implementation, with the same methods, which reads and
+ * writes whole fields with little-endian array views and scans eight bytes at a time.
+ * @author Allan Taborda dos Santos
+ */
+final class OggBytes{
+	/** This class only has static methods. */
+	private OggBytes(){}
+
+	/**
+	 * Reads a little-endian short.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The short value.
+	 */
+	static short getShort(byte[] b, int off){
+		return (short) ((b[off] & 0xff) | ((b[off + 1] & 0xff) << 8));
+	}
+
+	/**
+	 * Reads a little-endian int.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The int value.
+	 */
+	static int getInt(byte[] b, int off){
+		return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+	}
+
+	/**
+	 * Reads a little-endian long.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The long value.
+	 */
+	static long getLong(byte[] b, int off){
+		return (getInt(b, off) & 0xffffffffL) | ((long) getInt(b, off + 4) << 32);
+	}
+
+	/**
+	 * Writes a little-endian int.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @param v The int value.
+	 */
+	static void putInt(byte[] b, int off, int v){
+		b[off] = (byte) v;
+		b[off + 1] = (byte) (v >>> 8);
+		b[off + 2] = (byte) (v >>> 16);
+		b[off + 3] = (byte) (v >>> 24);
+	}
+
+	/**
+	 * Writes a little-endian long.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @param v The long value.
+	 */
+	static void putLong(byte[] b, int off, long v){
+		putInt(b, off, (int) v);
+		putInt(b, off + 4, (int) (v >>> 32));
+	}
+
+	/**
+	 * Checks if the capture pattern of OGG pages is at the given position of an array.
+	 * @param b The array.
+	 * @param off The position in the array.
+	 * @return {@code true} if the four bytes at the position are the capture pattern, {@code false} otherwise.
+	 */
+	static boolean isCapturePattern(byte[] b, int off){
+		return b[off] == 'O' && b[off + 1] == 'g' && b[off + 2] == 'g' && b[off + 3] == 'S';
+	}
+
+	/**
+	 * Searches for the first capture pattern of OGG pages in a range of an array.
+	 * @param b The array.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int indexOfCapturePattern(byte[] b, int from, int to){
+		for(int p = from; p <= to - 4; p++) if(b[p] == 'O' && isCapturePattern(b, p)) return p;
+		return -1;
+	}
+
+	/**
+	 * Searches for the last capture pattern of OGG pages in a range of an array.
+	 * @param b The array.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int lastIndexOfCapturePattern(byte[] b, int from, int to){
+		for(int p = to - 4; p >= from; p--) if(b[p] == 'O' && isCapturePattern(b, p)) return p;
+		return -1;
+	}
+
+	/**
+	 * Searches for the first capture pattern of OGG pages in a range of a byte buffer, using absolute positions. The position and limit of the
+	 * buffer are not changed.
+	 * @param buf The byte buffer.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int indexOfCapturePattern(ByteBuffer buf, int from, int to){
+		for(int p = from; p <= to - 4; p++) if(buf.get(p) == 'O' && buf.get(p + 1) == 'g' && buf.get(p + 2) == 'g' && buf.get(p + 3) == 'S') return p;
+		return -1;
+	}
+}
\ No newline at end of file
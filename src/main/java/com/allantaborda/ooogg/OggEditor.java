@@ -0,0 +1,392 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Lossless editing operations over OGG files: cut of a granule position range, split at a granule position and join of files with compatible
+ * headers. The packets are never decoded: the header pages are copied, the pages inside the edited range are copied with their headers changed
+ * (page number, serial number and granule position) and only the pages at the boundaries of the range are rebuilt, to drop the parts of the
+ * packets that are outside the range. Runs of pages whose headers do not change are transferred from file to file by the operating system with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, and the CRC checksum of the pages whose headers change is adjusted from the
+ * original CRC checksum, without reading the page body again.<br/><br/>
+ * Since the duration of each packet is only known by the codec, the boundaries of the ranges are aligned to OGG pages: a cut begins with the
+ * first packet that ends in the page containing the first granule position of the range and ends with the last packet that ends in the page
+ * containing the last granule position of the range. The edited logical stream is the first one of the file that is not a Skeleton stream;
+ * pages of other logical streams are not copied.
+ * @author Allan Taborda dos Santos
+ */
+public class OggEditor{
+	/** Maximum number of bytes of OGG pages with changed headers that are read and written at once. */
+	private static final int BUFFER_SIZE = 1048576;
+
+	/**
+	 * Copies the packets of the given granule position range of a file to another file. The granule positions of the copied pages are rebased,
+	 * so the cut begins at granule position zero.
+	 * @param in The source OGG file.
+	 * @param out The destination OGG file.
+	 * @param from The first granule position of the range.
+	 * @param to The granule position of the end of the range (exclusive).
+	 * @throws IllegalArgumentException If the range is empty or begins after the end of the logical stream.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static void cut(File in, File out, long from, long to) throws StreamCorruptedException, IOException{
+		if(from >= to) throw new IllegalArgumentException("Invalid granule position range: " + from + " to " + to);
+		try(Source src = new Source(in); Sink sink = new Sink(out, src.serial)){
+			sink.copy(src, src.headers, 0, src.headers.length, 0L);
+			copyRange(src, sink, from, to);
+		}
+	}
+
+	/**
+	 * Splits a file in two files at the given granule position. The first file ends with the last packet that ends in the page containing
+	 * the granule position, and the second file begins with the next packet, so each packet of the source file is in exactly one of the files.
+	 * Both files have the header pages of the source file, and the granule positions of the second file are rebased to begin at zero.
+	 * @param in The source OGG file.
+	 * @param granule The granule position where the file is split.
+	 * @param first The OGG file with the packets before the split.
+	 * @param second The OGG file with the packets after the split.
+	 * @return The granule position of the source file where the file was actually split, that is, the granule position of the last page of the first file.
+	 * @throws IllegalArgumentException If the granule position is after the end of the logical stream.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static long split(File in, long granule, File first, File second) throws StreamCorruptedException, IOException{
+		try(Source src = new Source(in)){
+			if(granule >= src.lastGranule()) throw new IllegalArgumentException("Granule position " + granule + " is not before the end of the logical stream");
+			long end;
+			try(Sink sink = new Sink(first, src.serial)){
+				sink.copy(src, src.headers, 0, src.headers.length, 0L);
+				end = copyRange(src, sink, Long.MIN_VALUE, granule);
+			}
+			try(Sink sink = new Sink(second, src.serial)){
+				sink.copy(src, src.headers, 0, src.headers.length, 0L);
+				copyRange(src, sink, end, Long.MAX_VALUE);
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * Joins files with compatible headers in a single file. The header pages of the first file are copied, followed by the data pages of all
+	 * files, with page numbers and serial numbers renumbered and granule positions shifted to continue the previous file. Files have compatible
+	 * headers if all their header packets, except the second one (the comment header of most codecs), are equal.
+	 * @param out The destination OGG file.
+	 * @param in The OGG files to join, in order.
+	 * @throws IllegalArgumentException If no file is given or the headers of a file are not compatible with the headers of the first file.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static void join(File out, File... in) throws StreamCorruptedException, IOException{
+		if(in.length == 0) throw new IllegalArgumentException("No file to join");
+		Source[] sources = new Source[in.length];
+		try{
+			for(int c = 0; c < in.length; c++) sources[c] = new Source(in[c]);
+			OggPacket[] headers = sources[0].readHeaderPackets();
+			for(int c = 1; c < in.length; c++) if(!compatible(headers, sources[c].readHeaderPackets())) throw new IllegalArgumentException("The headers of " + in[c] + " are not compatible with the headers of " + in[0]);
+			try(Sink sink = new Sink(out, sources[0].serial)){
+				sink.copy(sources[0], sources[0].headers, 0, sources[0].headers.length, 0L);
+				long offset = 0L;
+				for(int c = 0; c < in.length; c++){
+					Source src = sources[c];
+					int last = src.data.length - 1;
+					sink.copy(src, src.data, 0, last, offset);
+					OggPage page = src.readPage(src.data[last]);
+					long granule = page.getGranulePosition();
+					if(granule != -1L) page.setGranulePosition(granule + offset);
+					page.setEndOfStream(c == in.length - 1);
+					sink.writePage(page);
+					offset += src.lastGranule();
+				}
+			}
+		}finally{
+			for(Source src : sources) if(src != null) src.close();
+		}
+	}
+
+	/**
+	 * Copies the data pages of the given granule position range, rebuilding the boundary pages and rebasing the granule positions.
+	 * @param src The source file.
+	 * @param sink The destination file.
+	 * @param from The granule position before the range; the range begins with the first page whose granule position is greater.
+	 * @param to The granule position of the end of the range; the range ends with the first page whose granule position is equal or greater.
+	 * @return The original granule position of the last copied page.
+	 * @throws IllegalArgumentException If the range begins after the end of the logical stream.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static long copyRange(Source src, Sink sink, long from, long to) throws StreamCorruptedException, IOException{
+		OggPageIndex index = src.index;
+		int[] data = src.data;
+		int first = 0, last;
+		while(first < data.length && (index.getGranulePosition(data[first]) == -1L || index.getGranulePosition(data[first]) <= from)) first++;
+		if(first == data.length) throw new IllegalArgumentException("Granule position " + from + " is after the end of the logical stream");
+		for(last = first; last < data.length - 1; last++){
+			long granule = index.getGranulePosition(data[last]);
+			if(granule != -1L && granule >= to) break;
+		}
+		// The first packet of the range may begin in a previous page, after packets that are outside the range
+		int start = first;
+		while(start > 0 && index.isContinuation(data[start])){
+			start--;
+			if(index.getGranulePosition(data[start]) != -1L) break;
+		}
+		boolean partial = start < first && index.getGranulePosition(data[start]) != -1L;
+		long base = 0L;
+		for(int c = partial ? start : start - 1; c >= 0; c--){
+			if(index.getGranulePosition(data[c]) != -1L){
+				base = index.getGranulePosition(data[c]);
+				break;
+			}
+		}
+		if(partial){
+			byte[][] st = src.readPage(data[start++]).getSegmentTable();
+			OggPage page = new OggPage();
+			for(int c = packetsEnd(st); c < st.length; c++) page.addSegment(st[c]);
+			page.setGranulePosition(-1L);
+			sink.writePage(page);
+		}
+		sink.copy(src, data, start, last, -base);
+		OggPage end = src.readPage(data[last]);
+		byte[][] st = end.getSegmentTable();
+		OggPage page = new OggPage();
+		page.setContinuation(end.isContinuation());
+		page.setEndOfStream(true);
+		for(int c = 0, n = packetsEnd(st); c < n; c++) page.addSegment(st[c]);
+		page.setGranulePosition(end.getGranulePosition() == -1L ? -1L : end.getGranulePosition() - base);
+		sink.writePage(page);
+		return end.getGranulePosition();
+	}
+
+	/**
+	 * Returns the number of segments of a page before the unfinished packet that continues in the next page.
+	 * @param st The segment table of the page.
+	 * @return The position of the first segment after the last packet that ends in the page.
+	 */
+	private static int packetsEnd(byte[][] st){
+		int c = st.length;
+		while(c > 0 && st[c - 1].length == 255) c--;
+		return c;
+	}
+
+	/**
+	 * Checks if two sets of header packets are compatible, that is, if all packets except the second one are equal.
+	 * @param h1 The first header packets.
+	 * @param h2 The second header packets.
+	 * @return {@code true} if the header packets are compatible, {@code false} otherwise.
+	 */
+	private static boolean compatible(OggPacket[] h1, OggPacket[] h2){
+		if(h1.length != h2.length) return false;
+		for(int c = 0; c < h1.length; c++) if(c != 1 && !Arrays.equals(h1[c].getContent(), h2[c].getContent())) return false;
+		return true;
+	}
+
+	/**
+	 * An OGG file being edited, with the index of its pages and the positions in the index of the header and data pages of the edited logical stream.
+	 */
+	private static class Source implements Closeable{
+		/** The OGG file. */
+		private RandomAccessFile file;
+		/** The channel of the OGG file. */
+		private FileChannel channel;
+		/** The index of the OGG pages of the file. */
+		private OggPageIndex index;
+		/** The serial number of the edited logical stream. */
+		private int serial;
+		/** The positions in the index of the header pages of the edited logical stream. */
+		private int[] headers;
+		/** The positions in the index of the data pages of the edited logical stream. */
+		private int[] data;
+
+		/**
+		 * Opens and indexes an OGG file.
+		 * @param f The OGG file.
+		 * @throws StreamCorruptedException If OGG structure is corrupted, data structure is not an OGG container or there is no logical stream with data pages.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private Source(File f) throws StreamCorruptedException, IOException{
+			file = new RandomAccessFile(f, "r");
+			try{
+				channel = file.getChannel();
+				index = OggPageIndex.build(file);
+				OggSkeleton skeleton = OggSkeleton.read(file);
+				int c = 0;
+				while(c < index.size() && skeleton != null && index.getSerialNumber(c) == skeleton.getSerialNumber()) c++;
+				if(c == index.size()) throw new StreamCorruptedException("No logical stream found in " + f);
+				serial = index.getSerialNumber(c);
+				int[] pages = new int[index.size()];
+				int n = 0, h = 0;
+				for(; c < index.size(); c++) if(index.getSerialNumber(c) == serial) pages[n++] = c;
+				for(c = 0; c < n && index.getGranulePosition(pages[c]) < 1L; c++) if(index.getGranulePosition(pages[c]) == 0L) h = c + 1;
+				if(h == n) throw new StreamCorruptedException("No data pages found in " + f);
+				headers = Arrays.copyOf(pages, h);
+				data = Arrays.copyOfRange(pages, h, n);
+			}catch(IOException e){
+				file.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Reads the OGG page in the given position of the index.
+		 * @param page The position of the OGG page in the index.
+		 * @return The OGG page.
+		 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is not valid.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private OggPage readPage(int page) throws StreamCorruptedException, IOException{
+			file.seek(index.getOffset(page));
+			return OggUtils.readOggPage(file);
+		}
+
+		/**
+		 * Returns the granule position of the last data page of the edited logical stream that has a granule position.
+		 * @return The last granule position, or zero if no data page has a granule position.
+		 */
+		private long lastGranule(){
+			for(int c = data.length - 1; c >= 0; c--) if(index.getGranulePosition(data[c]) != -1L) return index.getGranulePosition(data[c]);
+			return 0L;
+		}
+
+		/**
+		 * Reads the header packets of the edited logical stream.
+		 * @return The header packets.
+		 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is not valid.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private OggPacket[] readHeaderPackets() throws StreamCorruptedException, IOException{
+			OggPage[] pages = new OggPage[headers.length];
+			for(int c = 0; c < pages.length; c++) pages[c] = readPage(headers[c]);
+			return OggUtils.getPacketsFromPages(pages);
+		}
+
+		public void close() throws IOException{
+			file.close();
+		}
+	}
+
+	/**
+	 * An OGG file being written, which numbers its pages sequentially and gives them the same serial number.
+	 */
+	private static class Sink implements Closeable{
+		/** The output stream of the OGG file. */
+		private FileOutputStream stream;
+		/** The channel of the OGG file. */
+		private FileChannel channel;
+		/** The serial number of the written pages. */
+		private int serial;
+		/** The page number of the next written page. */
+		private int pageNumber;
+		/** Buffer where pages with changed headers are stored, borrowed from the shared buffer pool, or {@code null} if no such page was copied yet. */
+		private ByteBuffer buffer;
+
+		/**
+		 * Creates an OGG file.
+		 * @param f The OGG file.
+		 * @param serial The serial number of the written pages.
+		 * @throws IOException If the file cannot be created.
+		 */
+		private Sink(File f, int serial) throws IOException{
+			stream = new FileOutputStream(f);
+			channel = stream.getChannel();
+			this.serial = serial;
+		}
+
+		/**
+		 * Writes a rebuilt OGG page, setting its serial number, page number and CRC checksum.
+		 * @param page The OGG page.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void writePage(OggPage page) throws IOException{
+			page.setSerialNumber(serial);
+			page.setPageNumber(pageNumber++);
+			page.computeAndSetCrcChecksum();
+			write(ByteBuffer.wrap(page.getBytes()));
+		}
+
+		/**
+		 * Copies OGG pages of a source file. Runs of pages that are contiguous in the source file and whose headers do not change are transferred
+		 * directly; the other pages are read in blocks, their headers are changed and their CRC checksums are adjusted.
+		 * @param src The source file.
+		 * @param pages The positions in the index of the OGG pages.
+		 * @param from The first position in the array of the pages to copy.
+		 * @param to The position in the array after the last page to copy.
+		 * @param granuleOffset The value added to the granule positions of the pages.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void copy(Source src, int[] pages, int from, int to, long granuleOffset) throws IOException{
+			OggPageIndex index = src.index;
+			for(int a = from, b; a < to; a = b){
+				boolean unchanged = granuleOffset == 0L && src.serial == serial && index.getPageNumber(pages[a]) == pageNumber;
+				for(b = a + 1; b < to && pages[b] == pages[b - 1] + 1; b++) if(index.getPageNumber(pages[b]) != pageNumber + b - a) unchanged = false;
+				long offset = index.getOffset(pages[a]), end = index.getOffset(pages[b - 1]) + index.getPageSize(pages[b - 1]);
+				if(unchanged){
+					while(offset < end) offset += src.channel.transferTo(offset, end - offset, channel);
+					pageNumber += b - a;
+				}else{
+					if(buffer == null) buffer = ByteBuffer.wrap(OggBufferPool.getShared().acquire(BUFFER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+					for(int c = a, d; c < b; c = d){
+						int size = 0;
+						for(d = c; d < b && size + index.getPageSize(pages[d]) <= BUFFER_SIZE; d++) size += index.getPageSize(pages[d]);
+						buffer.clear().limit(size);
+						while(buffer.hasRemaining()) if(src.channel.read(buffer, offset + buffer.position()) < 0) throw new EOFException();
+						for(int p = 0; c < d; c++){
+							patch(p, index.getPageSize(pages[c]), granuleOffset);
+							p += index.getPageSize(pages[c]);
+						}
+						buffer.flip();
+						write(buffer);
+						offset += size;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Changes the serial number, page number and granule position of an OGG page stored in the buffer, adjusting its CRC checksum.
+		 * @param pos The position of the OGG page in the buffer.
+		 * @param size The OGG page size in bytes.
+		 * @param granuleOffset The value added to the granule position of the page.
+		 */
+		private void patch(int pos, int size, long granuleOffset){
+			byte[] oldHeader = new byte[22], newHeader = new byte[22];
+			for(int c = 0; c < 22; c++) oldHeader[c] = buffer.get(pos + c);
+			long granule = buffer.getLong(pos + 6);
+			if(granule != -1L) buffer.putLong(pos + 6, granule + granuleOffset);
+			buffer.putInt(pos + 14, serial);
+			buffer.putInt(pos + 18, pageNumber++);
+			for(int c = 0; c < 22; c++) newHeader[c] = buffer.get(pos + c);
+			buffer.putInt(pos + 22, OggPage.adjustCrcChecksum(buffer.getInt(pos + 22), oldHeader, newHeader, size));
+		}
+
+		/**
+		 * Writes all remaining bytes of a buffer.
+		 * @param b The buffer.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void write(ByteBuffer b) throws IOException{
+			while(b.hasRemaining()) channel.write(b);
+		}
+
+		public void close() throws IOException{
+			if(buffer != null) OggBufferPool.getShared().release(buffer.array());
+			buffer = null;
+			stream.close();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,229 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Input stream that reads a file that is still being written, such as an OGG file written continuously by a recorder. When the end of the file
+ * is reached, the stream waits for the file to grow, polling its length, instead of returning end of stream. Since reads block in the middle of an
+ * incomplete OGG page until the rest of the page is written, the page and packet readers of {@link OggUtils} and the {@code OggAudioInputStream}
+ * based on this stream resume parsing exactly where they stopped, without reopening or rescanning the file.<br/><br/>
+ * The stream stops following the file, returning end of stream when the end of the file is reached, after {@link #stopFollowing()} is called,
+ * after the idle timeout elapses with no growth of the file or after the stream is closed.<br/><br/>
+ * The stream is guarded by a lock instead of its monitor, so a virtual thread waiting for the file to grow does not pin its carrier thread.
+ * @author Allan Taborda dos Santos
+ */
+public class OggFollowInputStream extends InputStream{
+	/** The followed file. */
+	private RandomAccessFile file;
+	/** Buffer where read data is stored. */
+	private byte[] buf = new byte[65536];
+	/** Position in buffer of the next byte to be read. */
+	private int pos;
+	/** Number of valid bytes in buffer. */
+	private int count;
+	/** Interval in milliseconds between checks of the file length while waiting for the file to grow. */
+	private long pollInterval = 50L;
+	/** Time in milliseconds with no growth of the file after which the stream stops following the file, or zero to wait forever. */
+	private long idleTimeout;
+	/** Flag indicating if the stream waits for the file to grow when the end of the file is reached. */
+	private volatile boolean following = true;
+	/** Flag indicating if the stream was closed. */
+	private volatile boolean closed;
+	/** The index of the OGG pages of the file, or {@code null} if it was never requested. */
+	private OggPageIndex index;
+	/** Lock that guards the buffer, the file and the index. */
+	private final ReentrantLock lock = new ReentrantLock();
+	/** Condition signaled when the stream stops following the file or is closed. */
+	private final Condition stopped = lock.newCondition();
+
+	/**
+	 * Creates a stream that follows the given file, starting at its beginning.
+	 * @param f The followed file.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public OggFollowInputStream(File f) throws IOException{
+		file = new RandomAccessFile(f, "r");
+	}
+
+	/**
+	 * Returns the interval between checks of the file length while waiting for the file to grow.
+	 * @return The poll interval in milliseconds.
+	 */
+	public long getPollInterval(){
+		return pollInterval;
+	}
+
+	/**
+	 * Changes the interval between checks of the file length while waiting for the file to grow. This interval is the maximum delay between
+	 * the writing of data in the file and its reading.
+	 * @param millis The new poll interval in milliseconds.
+	 */
+	public void setPollInterval(long millis){
+		if(millis < 1L) throw new IllegalArgumentException("Invalid poll interval: " + millis);
+		pollInterval = millis;
+	}
+
+	/**
+	 * Returns the time with no growth of the file after which the stream stops following the file.
+	 * @return The idle timeout in milliseconds, or zero if the stream waits forever.
+	 */
+	public long getIdleTimeout(){
+		return idleTimeout;
+	}
+
+	/**
+	 * Changes the time with no growth of the file after which the stream stops following the file, returning end of stream.
+	 * @param millis The new idle timeout in milliseconds, or zero to wait forever.
+	 */
+	public void setIdleTimeout(long millis){
+		if(millis < 0L) throw new IllegalArgumentException("Invalid idle timeout: " + millis);
+		idleTimeout = millis;
+	}
+
+	/**
+	 * Returns if the stream waits for the file to grow when the end of the file is reached.
+	 * @return {@code true} if the stream is following the file, {@code false} otherwise.
+	 */
+	public boolean isFollowing(){
+		return following;
+	}
+
+	/**
+	 * Stops following the file. The data already written in the file is still read, and then the stream returns end of stream.
+	 * This method can be called from any thread, including while another thread is waiting for the file to grow.
+	 */
+	public void stopFollowing(){
+		following = false;
+		lock.lock();
+		try{
+			stopped.signalAll();
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the position in the file of the next byte to be read.
+	 * @return The position of the next byte.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public long getPosition() throws IOException{
+		lock.lock();
+		try{
+			return file.getFilePointer() - (count - pos);
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Updates the index of the OGG pages of the file with the complete pages written since the last update, and returns it. The index is built
+	 * in the first call; each subsequent call only reads the headers of the new pages.
+	 * @return The updated OGG page index.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public OggPageIndex updatePageIndex() throws StreamCorruptedException, IOException{
+		lock.lock();
+		try{
+			if(index == null) index = OggPageIndex.build(file);
+			else index.update(file);
+			return index;
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public int read() throws IOException{
+		lock.lock();
+		try{
+			if(pos >= count && !fill()) return -1;
+			return buf[pos++] & 0xff;
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException{
+		if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+		if(len == 0) return 0;
+		lock.lock();
+		try{
+			if(pos >= count && !fill()) return -1;
+			int n = Math.min(len, count - pos);
+			System.arraycopy(buf, pos, b, off, n);
+			pos += n;
+			return n;
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public int available() throws IOException{
+		lock.lock();
+		try{
+			if(closed) return 0;
+			return (int) Math.min(Integer.MAX_VALUE, count - pos + Math.max(0L, file.length() - file.getFilePointer()));
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Fills the buffer with the next bytes of the file, waiting for the file to grow if its end was reached. Must be called holding the lock.
+	 * @return {@code true} if bytes were read, {@code false} if the end of the file was reached and the stream is not following the file.
+	 * @throws IOException If the file was truncated, the waiting thread was interrupted or I/O error occurs.
+	 */
+	private boolean fill() throws IOException{
+		long lastGrowth = System.currentTimeMillis();
+		while(!closed){
+			int r = file.read(buf);
+			if(r > 0){
+				pos = 0;
+				count = r;
+				return true;
+			}
+			if(!following) return false;
+			if(file.length() < file.getFilePointer()) throw new IOException("Followed file was truncated");
+			if(idleTimeout > 0L && System.currentTimeMillis() - lastGrowth >= idleTimeout){
+				following = false;
+				return false;
+			}
+			try{
+				stopped.await(pollInterval, TimeUnit.MILLISECONDS);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the file to grow");
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Closes this stream and the file. A thread waiting for the file to grow returns end of stream.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void close() throws IOException{
+		closed = true;
+		lock.lock();
+		try{
+			stopped.signalAll();
+			file.close();
+		}finally{
+			lock.unlock();
+		}
+	}
+}
\ No newline at end of file
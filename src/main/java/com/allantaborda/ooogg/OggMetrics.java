@@ -0,0 +1,433 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of runtime metrics of OGG reading, decoding, encoding and writing: counters of parsed pages and bytes, CRC failures, bytes
+ * discarded while searching for the next page and gaps in page sequences, and histograms of packets per page and of decoding, encoding
+ * and writing times. These metrics tell whether a stall is caused by I/O, by corrupted data or by the codec.<br/><br/>
+ * Metrics are disabled by default, and can be enabled with {@link #setEnabled(boolean)} or with the {@code ooogg.metrics} system
+ * property. When disabled, each instrumented operation only reads a flag. The metrics can be read with {@link #snapshot()} or through
+ * JMX, after registering the MBean with {@link #registerMBean()}.
+ * @author Allan Taborda dos Santos
+ */
+public final class OggMetrics{
+	/** The name of the MBean. */
+	public static final String MBEAN_NAME = "com.allantaborda.ooogg:type=Metrics";
+	/** Flag indicating if metrics are recorded. */
+	private static volatile boolean enabled = Boolean.getBoolean("ooogg.metrics");
+	/** Number of parsed OGG pages. */
+	private static final LongAdder pages = new LongAdder();
+	/** Number of parsed bytes, including page headers. */
+	private static final LongAdder bytes = new LongAdder();
+	/** Number of OGG pages with invalid CRC checksum. */
+	private static final LongAdder crcFailures = new LongAdder();
+	/** Number of bytes discarded while searching for the next OGG page. */
+	private static final LongAdder resyncBytes = new LongAdder();
+	/** Number of gaps in the sequence of page numbers. */
+	private static final LongAdder sequenceGaps = new LongAdder();
+	/** Histogram of packets finished per OGG page. */
+	private static final Histogram packetsPerPage = new Histogram();
+	/** Histogram of decoding time per packet, in nanoseconds. */
+	private static final Histogram decodeTime = new Histogram();
+	/** Histogram of encoding time per packet, in nanoseconds. */
+	private static final Histogram encodeTime = new Histogram();
+	/** Histogram of writing time per packet, in nanoseconds. */
+	private static final Histogram writeTime = new Histogram();
+
+	/** This class only has static methods. */
+	private OggMetrics(){}
+
+	/**
+	 * Returns if metrics are recorded.
+	 * @return {@code true} if metrics are recorded, {@code false} otherwise.
+	 */
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the recording of metrics. Recorded values are kept when metrics are disabled.
+	 * @param enable {@code true} to record metrics, {@code false} otherwise.
+	 */
+	public static void setEnabled(boolean enable){
+		enabled = enable;
+	}
+
+	/** Resets all counters and histograms. */
+	public static void reset(){
+		pages.reset();
+		bytes.reset();
+		crcFailures.reset();
+		resyncBytes.reset();
+		sequenceGaps.reset();
+		packetsPerPage.reset();
+		decodeTime.reset();
+		encodeTime.reset();
+		writeTime.reset();
+	}
+
+	/**
+	 * Returns a snapshot of the current values of all metrics.
+	 * @return The snapshot.
+	 */
+	public static Snapshot snapshot(){
+		return new Snapshot();
+	}
+
+	/**
+	 * Registers the metrics MBean in the platform MBean server, with the name {@link #MBEAN_NAME}. If the MBean is already registered, nothing is done.
+	 * @return The name of the MBean.
+	 * @throws JMException If the MBean cannot be registered.
+	 */
+	public static synchronized ObjectName registerMBean() throws JMException{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(MBEAN_NAME);
+		if(!server.isRegistered(name)) server.registerMBean(new MBean(), name);
+		return name;
+	}
+
+	/**
+	 * Unregisters the metrics MBean from the platform MBean server, if it is registered.
+	 * @throws JMException If the MBean cannot be unregistered.
+	 */
+	public static synchronized void unregisterMBean() throws JMException{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(MBEAN_NAME);
+		if(server.isRegistered(name)) server.unregisterMBean(name);
+	}
+
+	/**
+	 * Records a parsed OGG page. Callers should check {@link #isEnabled()} first.
+	 * @param size The page size in bytes, including the header.
+	 * @param packets The number of packets finished in the page.
+	 */
+	public static void recordPage(int size, int packets){
+		pages.increment();
+		bytes.add(size);
+		packetsPerPage.record(packets);
+	}
+
+	/** Records an OGG page with invalid CRC checksum. Callers should check {@link #isEnabled()} first. */
+	public static void recordCrcFailure(){
+		crcFailures.increment();
+	}
+
+	/**
+	 * Records bytes discarded while searching for the next OGG page. Callers should check {@link #isEnabled()} first.
+	 * @param discarded The number of discarded bytes.
+	 */
+	public static void recordResync(long discarded){
+		resyncBytes.add(discarded);
+	}
+
+	/** Records a gap in the sequence of page numbers of a logical stream. Callers should check {@link #isEnabled()} first. */
+	public static void recordSequenceGap(){
+		sequenceGaps.increment();
+	}
+
+	/**
+	 * Records the time spent decoding a packet. Callers should check {@link #isEnabled()} first.
+	 * @param nanos The decoding time in nanoseconds.
+	 */
+	public static void recordDecode(long nanos){
+		decodeTime.record(nanos);
+	}
+
+	/**
+	 * Records the time spent encoding a packet. Callers should check {@link #isEnabled()} first.
+	 * @param nanos The encoding time in nanoseconds.
+	 */
+	public static void recordEncode(long nanos){
+		encodeTime.record(nanos);
+	}
+
+	/**
+	 * Records the time spent writing the pages completed by a packet. Callers should check {@link #isEnabled()} first.
+	 * @param nanos The writing time in nanoseconds.
+	 */
+	public static void recordWrite(long nanos){
+		writeTime.record(nanos);
+	}
+
+	/** Histogram of non-negative values, with buckets whose bounds are powers of two. Recording is lock-free. */
+	private static class Histogram{
+		/** Counts of the buckets. The bucket {@code n} contains the values from 2<sup>n-1</sup> to 2<sup>n</sup>-1 (bucket zero contains only zero). */
+		private final LongAdder[] buckets = new LongAdder[64];
+		/** Sum of the recorded values. */
+		private final LongAdder sum = new LongAdder();
+		/** Maximum recorded value. */
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+		/** Creates an empty histogram. */
+		Histogram(){
+			for(int c = 0; c < buckets.length; c++) buckets[c] = new LongAdder();
+		}
+
+		/**
+		 * Records a value.
+		 * @param value The value. Negative values are recorded as zero.
+		 */
+		void record(long value){
+			if(value < 0L) value = 0L;
+			buckets[64 - Long.numberOfLeadingZeros(value) & 63].increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+
+		/** Resets the histogram. */
+		void reset(){
+			for(LongAdder b : buckets) b.reset();
+			sum.reset();
+			max.reset();
+		}
+	}
+
+	/** Immutable snapshot of a histogram. */
+	public static class HistogramSnapshot{
+		/** Counts of the buckets. */
+		private final long[] counts = new long[64];
+		/** Number of recorded values. */
+		private final long count;
+		/** Sum of the recorded values. */
+		private final long sum;
+		/** Maximum recorded value. */
+		private final long max;
+
+		/**
+		 * Creates a snapshot of a histogram.
+		 * @param h The histogram.
+		 */
+		HistogramSnapshot(Histogram h){
+			long n = 0L;
+			for(int c = 0; c < counts.length; c++) n += counts[c] = h.buckets[c].sum();
+			count = n;
+			sum = h.sum.sum();
+			max = h.max.get();
+		}
+
+		/**
+		 * Returns the number of recorded values.
+		 * @return The number of recorded values.
+		 */
+		public long getCount(){
+			return count;
+		}
+
+		/**
+		 * Returns the sum of the recorded values.
+		 * @return The sum of the recorded values.
+		 */
+		public long getSum(){
+			return sum;
+		}
+
+		/**
+		 * Returns the maximum recorded value.
+		 * @return The maximum recorded value, or zero if no value was recorded.
+		 */
+		public long getMax(){
+			return max;
+		}
+
+		/**
+		 * Returns the mean of the recorded values.
+		 * @return The mean, or zero if no value was recorded.
+		 */
+		public double getMean(){
+			return count == 0L ? 0.0 : (double) sum / count;
+		}
+
+		/**
+		 * Returns an estimate of the given percentile of the recorded values, which is the upper bound of the bucket that contains the percentile.
+		 * @param percentile The percentile, from 0 to 100.
+		 * @return The estimated percentile, or zero if no value was recorded.
+		 * @throws IllegalArgumentException If percentile is out of range.
+		 */
+		public long getPercentile(double percentile){
+			if(percentile < 0.0 || percentile > 100.0) throw new IllegalArgumentException("Invalid percentile: " + percentile);
+			long target = (long) Math.ceil(count * percentile / 100.0), n = 0L;
+			for(int c = 0; c < counts.length; c++){
+				n += counts[c];
+				if(n >= target && n > 0L) return Math.min(max, c == 0 ? 0L : c == 63 ? Long.MAX_VALUE : (1L << c) - 1L);
+			}
+			return max;
+		}
+
+		/**
+		 * Returns the count, sum, maximum, mean and 50th, 90th and 99th percentiles in a map.
+		 * @return The map.
+		 */
+		Map<String, Long> toMap(){
+			Map<String, Long> m = new LinkedHashMap<>();
+			m.put("count", count);
+			m.put("sum", sum);
+			m.put("max", max);
+			m.put("mean", Math.round(getMean()));
+			m.put("p50", getPercentile(50.0));
+			m.put("p90", getPercentile(90.0));
+			m.put("p99", getPercentile(99.0));
+			return m;
+		}
+	}
+
+	/** Immutable snapshot of all metrics. */
+	public static class Snapshot{
+		/** Number of parsed OGG pages. */
+		private final long pagesParsed = pages.sum();
+		/** Number of parsed bytes. */
+		private final long bytesParsed = bytes.sum();
+		/** Number of OGG pages with invalid CRC checksum. */
+		private final long crcFailureCount = crcFailures.sum();
+		/** Number of bytes discarded while searching for the next OGG page. */
+		private final long resyncBytesDiscarded = resyncBytes.sum();
+		/** Number of gaps in the sequence of page numbers. */
+		private final long sequenceGapCount = sequenceGaps.sum();
+		/** Histogram of packets finished per OGG page. */
+		private final HistogramSnapshot packetsPerPageHistogram = new HistogramSnapshot(packetsPerPage);
+		/** Histogram of decoding time per packet. */
+		private final HistogramSnapshot decodeTimeHistogram = new HistogramSnapshot(decodeTime);
+		/** Histogram of encoding time per packet. */
+		private final HistogramSnapshot encodeTimeHistogram = new HistogramSnapshot(encodeTime);
+		/** Histogram of writing time per packet. */
+		private final HistogramSnapshot writeTimeHistogram = new HistogramSnapshot(writeTime);
+
+		/** Creates a snapshot of the current values. */
+		Snapshot(){}
+
+		/**
+		 * Returns the number of parsed OGG pages.
+		 * @return The number of parsed OGG pages.
+		 */
+		public long getPagesParsed(){
+			return pagesParsed;
+		}
+
+		/**
+		 * Returns the number of parsed bytes, including page headers.
+		 * @return The number of parsed bytes.
+		 */
+		public long getBytesParsed(){
+			return bytesParsed;
+		}
+
+		/**
+		 * Returns the number of OGG pages with invalid CRC checksum.
+		 * @return The number of CRC failures.
+		 */
+		public long getCrcFailures(){
+			return crcFailureCount;
+		}
+
+		/**
+		 * Returns the number of bytes discarded while searching for the next OGG page.
+		 * @return The number of discarded bytes.
+		 */
+		public long getResyncBytes(){
+			return resyncBytesDiscarded;
+		}
+
+		/**
+		 * Returns the number of gaps in the sequence of page numbers of logical streams.
+		 * @return The number of sequence gaps.
+		 */
+		public long getSequenceGaps(){
+			return sequenceGapCount;
+		}
+
+		/**
+		 * Returns the histogram of packets finished per OGG page.
+		 * @return The histogram of packets per page.
+		 */
+		public HistogramSnapshot getPacketsPerPage(){
+			return packetsPerPageHistogram;
+		}
+
+		/**
+		 * Returns the histogram of decoding time per packet, in nanoseconds.
+		 * @return The histogram of decoding time.
+		 */
+		public HistogramSnapshot getDecodeTime(){
+			return decodeTimeHistogram;
+		}
+
+		/**
+		 * Returns the histogram of encoding time per packet, in nanoseconds.
+		 * @return The histogram of encoding time.
+		 */
+		public HistogramSnapshot getEncodeTime(){
+			return encodeTimeHistogram;
+		}
+
+		/**
+		 * Returns the histogram of time spent writing the pages completed by each packet, in nanoseconds.
+		 * @return The histogram of writing time.
+		 */
+		public HistogramSnapshot getWriteTime(){
+			return writeTimeHistogram;
+		}
+	}
+
+	/** Implementation of the metrics MBean. */
+	private static class MBean implements OggMetricsMXBean{
+		public boolean isEnabled(){
+			return OggMetrics.isEnabled();
+		}
+
+		public void setEnabled(boolean enable){
+			OggMetrics.setEnabled(enable);
+		}
+
+		public long getPagesParsed(){
+			return pages.sum();
+		}
+
+		public long getBytesParsed(){
+			return bytes.sum();
+		}
+
+		public long getCrcFailures(){
+			return crcFailures.sum();
+		}
+
+		public long getResyncBytes(){
+			return resyncBytes.sum();
+		}
+
+		public long getSequenceGaps(){
+			return sequenceGaps.sum();
+		}
+
+		public Map<String, Long> getPacketsPerPage(){
+			return new HistogramSnapshot(packetsPerPage).toMap();
+		}
+
+		public Map<String, Long> getDecodeTimeNanos(){
+			return new HistogramSnapshot(decodeTime).toMap();
+		}
+
+		public Map<String, Long> getEncodeTimeNanos(){
+			return new HistogramSnapshot(encodeTime).toMap();
+		}
+
+		public Map<String, Long> getWriteTimeNanos(){
+			return new HistogramSnapshot(writeTime).toMap();
+		}
+
+		public void reset(){
+			OggMetrics.reset();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.util.Map;
+
+/**
+ * Management interface of the OGG metrics, registered by {@link OggMetrics#registerMBean()}. Each histogram is exposed as a map with
+ * the keys count, sum, max, mean, p50, p90 and p99.
+ * @author Allan Taborda dos Santos
+ */
+public interface OggMetricsMXBean{
+	/**
+	 * Returns if metrics are recorded.
+	 * @return {@code true} if metrics are recorded, {@code false} otherwise.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enables or disables the recording of metrics.
+	 * @param enable {@code true} to record metrics, {@code false} otherwise.
+	 */
+	void setEnabled(boolean enable);
+
+	/**
+	 * Returns the number of parsed OGG pages.
+	 * @return The number of parsed OGG pages.
+	 */
+	long getPagesParsed();
+
+	/**
+	 * Returns the number of parsed bytes, including page headers.
+	 * @return The number of parsed bytes.
+	 */
+	long getBytesParsed();
+
+	/**
+	 * Returns the number of OGG pages with invalid CRC checksum.
+	 * @return The number of CRC failures.
+	 */
+	long getCrcFailures();
+
+	/**
+	 * Returns the number of bytes discarded while searching for the next OGG page.
+	 * @return The number of discarded bytes.
+	 */
+	long getResyncBytes();
+
+	/**
+	 * Returns the number of gaps in the sequence of page numbers of logical streams.
+	 * @return The number of sequence gaps.
+	 */
+	long getSequenceGaps();
+
+	/**
+	 * Returns the histogram of packets finished per OGG page.
+	 * @return The histogram of packets per page.
+	 */
+	Map<String, Long> getPacketsPerPage();
+
+	/**
+	 * Returns the histogram of decoding time per packet, in nanoseconds.
+	 * @return The histogram of decoding time.
+	 */
+	Map<String, Long> getDecodeTimeNanos();
+
+	/**
+	 * Returns the histogram of encoding time per packet, in nanoseconds.
+	 * @return The histogram of encoding time.
+	 */
+	Map<String, Long> getEncodeTimeNanos();
+
+	/**
+	 * Returns the histogram of time spent writing the pages completed by each packet, in nanoseconds.
+	 * @return The histogram of writing time.
+	 */
+	Map<String, Long> getWriteTimeNanos();
+
+	/** Resets all counters and histograms. */
+	void reset();
+}
\ No newline at end of file
@@ -5,7 +5,7 @@
  */
 package com.allantaborda.ooogg;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 
 /**
  * This class represents an OGG packet.
@@ -77,35 +77,19 @@ public class OggPacket implements OggPackable{
 	}
 
 	/**
-	 * Splits OGG packet content in segments.
+	 * Splits OGG packet content in segments of 255 bytes, followed by a last segment with less than 255 bytes (possibly empty). Each segment is copied
+	 * only once from the content, and a content with less than 256 bytes is not copied.
 	 * @param content The OGG packet content.
 	 * @return The OGG packet segments.
 	 */
 	private byte[][] split(byte[] content){
+		byte[][] op = new byte[content.length / 255 + 1][];
 		if(content.length < 256){
-			if(content.length == 255){
-				byte[][] op = new byte[2][];
-				op[0] = content;
-				op[1] = new byte[0];
-				return op;
-			}else{
-				byte[][] op = new byte[1][];
-				op[0] = content;
-				return op;
-			}
+			op[0] = content;
+			if(op.length == 2) op[1] = new byte[0];
+			return op;
 		}
-		LinkedList<byte[]> bs = new LinkedList<>();
-		do{
-			byte[] p1 = new byte[255], p2 = new byte[content.length - 255];
-			System.arraycopy(content, 0, p1, 0, 255);
-			System.arraycopy(content, 255, p2, 0, p2.length);
-			bs.add(p1);
-			content = p2;
-		}while(content.length > 255);
-		for(byte[] p : split(content)) bs.add(p);
-		byte[][] op = new byte[bs.size()][];
-		int c = -1;
-		for(byte[] p : bs) op[++c] = p;
+		for(int c = 0; c < op.length; c++) op[c] = Arrays.copyOfRange(content, c * 255, Math.min(content.length, c * 255 + 255));
 		return op;
 	}
 
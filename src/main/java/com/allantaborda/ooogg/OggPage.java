@@ -5,17 +5,27 @@
  */
 package com.allantaborda.ooogg;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * This class represents an OGG page.
+ * This class represents an OGG page. An OGG page can be reused for another page by calling {@link #reset()}, which keeps the storage of its fields,
+ * segment table and segment contents read into it, so loops that read or write many pages don't need to allocate them per page.
  * @author Allan Taborda dos Santos
  */
 public class OggPage{
 	/** The OGG page's capture pattern. All OGG pages must start with these four characters. */
 	public static final String CAPTURE_PATTERN = "OggS";
+	/** The maximum size in bytes of an OGG page: the header, a segment table with 255 entries and 255 segments of 255 bytes. */
+	public static final int MAX_SIZE = 27 + 255 + 255 * 255;
+	/** The content of empty segments, shared by all pages read. */
+	private static final byte[] EMPTY_SEGMENT = new byte[0];
 	/** The CRC lookup table for CRC checksum computing. */
 	private static final long[] crcLookup = new long[256];
+	/** The polynomials x^(8 * 2^n) modulo the CRC polynomial, used to append runs of zero bytes to a CRC checksum. */
+	private static final int[] crcZeros = new int[16];
 	/** Flag indicating if this OGG page is a continuation of another OGG page. */
 	private boolean continuation;
 	/** Flag indicating if this OGG page is the beginning of a stream. */
@@ -32,6 +42,14 @@ public class OggPage{
 	private byte[] crcChecksum;
 	/** The segment table. */
 	private SegmentList segmentTable = new SegmentList();
+	/** The header fields and segment sizes of the last page read into this OGG page, or {@code null} if no page was read. */
+	private byte[] header;
+	/** Number of segments at the beginning of the segment table whose contents were allocated when this OGG page was read. */
+	private int ownedSegments;
+	/** Segment contents allocated when this OGG page was read and no longer in use, indexed by segment size, or {@code null} if none. */
+	private byte[][][] spareSegments;
+	/** Number of spare segment contents of each segment size. */
+	private int[] spareCounts;
 
 	static{
 		for(int c = 0; c < crcLookup.length; c++){
@@ -42,6 +60,8 @@ public class OggPage{
 			}
 			crcLookup[c] = r & 0xffffffff;
 		}
+		crcZeros[0] = 0x100;
+		for(int c = 1; c < crcZeros.length; c++) crcZeros[c] = multiplyCRC(crcZeros[c - 1], crcZeros[c - 1]);
 	}
 
 	/**
@@ -125,11 +145,12 @@ public class OggPage{
 	}
 
 	public void setGranulePosition(long gPosition){
-		granulePosition = OggUtils.getByteArrayFromLong(gPosition);
+		if(granulePosition == null) granulePosition = new byte[8];
+		OggBytes.putLong(granulePosition, 0, gPosition);
 	}
 
 	public void setGranulePosition(byte[] gPosition){
-		granulePosition = gPosition;
+		granulePosition = setField(granulePosition, gPosition, 0, gPosition.length);
 	}
 
 	public int getSerialNumber(){
@@ -137,11 +158,12 @@ public class OggPage{
 	}
 
 	public void setSerialNumber(int sNumber){
-		serialNumber = OggUtils.getByteArrayFromInt(sNumber);
+		if(serialNumber == null) serialNumber = new byte[4];
+		OggBytes.putInt(serialNumber, 0, sNumber);
 	}
 
 	public void setSerialNumber(byte[] sNumber){
-		serialNumber = sNumber;
+		serialNumber = setField(serialNumber, sNumber, 0, sNumber.length);
 	}
 
 	public int getPageNumber(){
@@ -149,11 +171,12 @@ public class OggPage{
 	}
 
 	public void setPageNumber(int pNumber){
-		pageNumber = OggUtils.getByteArrayFromInt(pNumber);
+		if(pageNumber == null) pageNumber = new byte[4];
+		OggBytes.putInt(pageNumber, 0, pNumber);
 	}
 
 	public void setPageNumber(byte[] pNumber){
-		pageNumber = pNumber;
+		pageNumber = setField(pageNumber, pNumber, 0, pNumber.length);
 	}
 
 	public int getCrcChecksum(){
@@ -161,16 +184,97 @@ public class OggPage{
 	}
 
 	public void setCrcChecksum(byte[] crc32){
-		crcChecksum = crc32;
+		crcChecksum = setField(crcChecksum, crc32, 0, crc32.length);
 	}
 
 	public boolean isCrcChecksumValid(){
-		return getCrcChecksum() == OggUtils.getIntFromByteArray(computeCRC());
+		return getCrcChecksum() == computeCRC();
 	}
 
 	/** Computes the CRC checksum and sets the value in its respective field. */
 	public void computeAndSetCrcChecksum(){
-		crcChecksum = computeCRC();
+		int crc = computeCRC();
+		if(crcChecksum == null) crcChecksum = new byte[4];
+		OggBytes.putInt(crcChecksum, 0, crc);
+	}
+
+	/**
+	 * Clears this OGG page, so it can be filled with another page: the flags are cleared and the segments are removed. The storage of the granule
+	 * position, serial number, page number and CRC checksum fields is kept, and these fields keep their values until they are set again. The contents
+	 * of segments read into this page are kept for reuse, so the segment table and the packets created from it without copying must not be used after
+	 * the page is refilled.
+	 */
+	public void reset(){
+		continuation = false;
+		beginningOfStream = false;
+		endOfStream = false;
+		for(int c = 0; c < ownedSegments; c++){
+			byte[] s = segmentTable.get(c);
+			if(s.length == 0) continue;
+			if(spareSegments == null){
+				spareSegments = new byte[256][][];
+				spareCounts = new int[256];
+			}
+			byte[][] spare = spareSegments[s.length];
+			int n = spareCounts[s.length];
+			if(spare == null) spareSegments[s.length] = spare = new byte[4][];
+			else if(n == spare.length) spareSegments[s.length] = spare = Arrays.copyOf(spare, n * 2);
+			spare[n] = s;
+			spareCounts[s.length]++;
+		}
+		ownedSegments = 0;
+		segmentTable.clear();
+		segmentTable.lastSegmentSize = 0;
+	}
+
+	/**
+	 * Reads the remaining of an OGG page, whose capture pattern and version were already read, into this OGG page. The page is reset before
+	 * reading, so its storage is reused.
+	 * @param src The source, positioned at the header type of the OGG page.
+	 * @throws IOException If I/O error occurs.
+	 */
+	void read(OggSource src) throws IOException{
+		reset();
+		if(header == null) header = new byte[22 + 255];
+		src.readFully(header, 0, 22);
+		setHeaderType(header[0]);
+		granulePosition = setField(granulePosition, header, 1, 8);
+		serialNumber = setField(serialNumber, header, 9, 4);
+		pageNumber = setField(pageNumber, header, 13, 4);
+		crcChecksum = setField(crcChecksum, header, 17, 4);
+		int n = header[21] & 0xff;
+		src.readFully(header, 22, n);
+		for(int c = 0; c < n; c++){
+			byte[] s = segmentBuffer(header[22 + c] & 0xff);
+			src.readFully(s, 0, s.length);
+			segmentTable.add(s);
+			ownedSegments++;
+		}
+	}
+
+	/**
+	 * Returns an array for the content of a segment read into this OGG page, reusing a spare segment content of the same size if possible.
+	 * @param size The segment size.
+	 * @return The array.
+	 */
+	private byte[] segmentBuffer(int size){
+		if(size == 0) return EMPTY_SEGMENT;
+		if(spareSegments != null && spareCounts[size] > 0) return spareSegments[size][--spareCounts[size]];
+		return new byte[size];
+	}
+
+	/**
+	 * Copies a value into the storage of a field, allocating the storage if it is not allocated or has another size.
+	 * @param field The storage of the field, or {@code null} if not allocated.
+	 * @param value The array containing the value.
+	 * @param off The position of the value in the array.
+	 * @param len The size of the value.
+	 * @return The storage of the field.
+	 */
+	private static byte[] setField(byte[] field, byte[] value, int off, int len){
+		if(field == null || field.length != len) field = new byte[len];
+		System.arraycopy(value, off, field, 0, len);
+		return field;
 	}
 
 	/**
@@ -181,6 +285,24 @@ public class OggPage{
 		return segmentTable.toArray(new byte[segmentTable.size()][]);
 	}
 
+	/**
+	 * Returns the number of segments, without copying the segment table.
+	 * @return The number of segments.
+	 */
+	public int getSegmentCount(){
+		return segmentTable.size();
+	}
+
+	/**
+	 * Returns the content of the segment in the given position, without copying the segment table.
+	 * @param index The position of the segment.
+	 * @return The segment content.
+	 * @throws IndexOutOfBoundsException If position is outside the segment table bounds.
+	 */
+	public byte[] getSegment(int index){
+		return segmentTable.get(index);
+	}
+
 	/**
 	 * Adds an OGG packet to OGG page.
 	 * @param packet The OGG packet.
@@ -243,7 +365,7 @@ public class OggPage{
 	 */
 	public int getTotalSegmentSize(){
 		int tss = 0;
-		for(byte[] s : segmentTable) tss += s.length;
+		for(int c = 0; c < segmentTable.size(); c++) tss += segmentTable.get(c).length;
 		return tss;
 	}
 
@@ -265,17 +387,113 @@ public class OggPage{
 	}
 
 	/**
-	 * Computes the CRC checksum based in OGG page content.
-	 * @return The computed CRC checksum.
+	 * Returns the OGG page size in bytes, including its header.
+	 * @return The OGG page size in bytes.
+	 */
+	public int getSize(){
+		return 27 + segmentTable.size() + getTotalSegmentSize();
+	}
+
+	/**
+	 * Stores the OGG page content in bytes in the given array, which can be reused for many pages instead of allocating an array per page.
+	 * @param dest The array where the content is stored, which must have at least {@link #getSize()} bytes from the given position, or
+	 * {@link #MAX_SIZE} bytes for any page.
+	 * @param off The position in the array of the first byte of the page.
+	 * @return The number of bytes stored, which is the OGG page size.
+	 * @throws IllegalStateException If granule position, serial number, page number or CRC fields is not set.
+	 */
+	public int getBytes(byte[] dest, int off){
+		if(crcChecksum == null) throw new IllegalStateException();
+		return getBytes(dest, off, true);
+	}
+
+	/**
+	 * Computes the CRC checksum of a raw OGG page stored in a byte buffer, considering the CRC field of the page as zero, so the
+	 * result can be compared with the CRC field. The position and limit of the buffer are not changed.
+	 * @param buf The byte buffer containing the OGG page.
+	 * @param offset The position of the OGG page in the buffer.
+	 * @param length The OGG page size in bytes, including its header.
+	 * @return The computed CRC checksum, in the same form returned by {@link #getCrcChecksum()}.
+	 */
+	public static int computeCrcChecksum(ByteBuffer buf, int offset, int length){
+		int crcReg = 0;
+		for(int c = 0; c < length; c++) crcReg = updateCRC(crcReg, c >= 22 && c < 26 ? 0 : buf.get(offset + c));
+		return crcReg;
+	}
+
+	/**
+	 * Computes the CRC checksum of a raw OGG page after changes in the first 22 bytes of its header (header type, granule position, serial
+	 * number and page number), from the CRC checksum of the unchanged page and without reading the page body. Since the OGG CRC has no initial
+	 * value or final XOR, the checksum of the changed page is the checksum of the unchanged page XOR the checksum of the changed bits followed
+	 * by zeros, and appending zeros is a multiplication modulo the CRC polynomial, which does not depend on the page size.
+	 * @param crc The CRC checksum of the unchanged page, in the same form returned by {@link #getCrcChecksum()}.
+	 * @param oldHeader The first 22 bytes of the unchanged page.
+	 * @param newHeader The first 22 bytes of the changed page.
+	 * @param length The OGG page size in bytes, including its header.
+	 * @return The CRC checksum of the changed page.
+	 */
+	static int adjustCrcChecksum(int crc, byte[] oldHeader, byte[] newHeader, int length){
+		int d = 0;
+		for(int c = 0; c < 22; c++) d = updateCRC(d, oldHeader[c] ^ newHeader[c]);
+		for(int c = 0, n = length - 22; n != 0; c++, n >>>= 1) if((n & 1) != 0) d = multiplyCRC(d, crcZeros[c]);
+		return crc ^ d;
+	}
+
+	/**
+	 * Multiplies two polynomials modulo the CRC polynomial.
+	 * @param a The first polynomial, with the coefficient of x^31 in the most significant bit.
+	 * @param b The second polynomial, with the coefficient of x^31 in the most significant bit.
+	 * @return The product modulo the CRC polynomial.
 	 */
-	private byte[] computeCRC(){
-		long crcReg = 0L;
-		for(byte b : getBytes(false)){
-			int tmp = ((int) ((crcReg >>> 24) & 0xff)) ^ (b & 0xff);
-			crcReg = (crcReg << 8) ^ crcLookup[tmp];
-			crcReg &= 0xffffffff;
+	private static int multiplyCRC(int a, int b){
+		int r = 0;
+		for(int c = 31; c >= 0; c--){
+			r = (r << 1) ^ (r < 0 ? 0x04c11db7 : 0);
+			if(((a >>> c) & 1) != 0) r ^= b;
 		}
-		return new byte[]{(byte) (crcReg & 0xff), (byte) ((crcReg >>> 8) & 0xff), (byte) ((crcReg >>> 16) & 0xff), (byte) ((crcReg >>> 24) & 0xff)};
+		return r;
+	}
+
+	/**
+	 * Computes the CRC checksum based in OGG page content. The page fields are read directly, without serializing the page.
+	 * @return The computed CRC checksum.
+	 * @throws IllegalStateException If granule position, serial number or page number fields is not set.
+	 */
+	private int computeCRC(){
+		if(granulePosition == null || serialNumber == null || pageNumber == null) throw new IllegalStateException();
+		int crcReg = 0;
+		for(int c = 0; c < 4; c++) crcReg = updateCRC(crcReg, CAPTURE_PATTERN.charAt(c));
+		crcReg = updateCRC(updateCRC(crcReg, 0), getHeaderType());
+		crcReg = updateCRC(crcReg, granulePosition);
+		crcReg = updateCRC(crcReg, serialNumber);
+		crcReg = updateCRC(crcReg, pageNumber);
+		for(int c = 0; c < 4; c++) crcReg = updateCRC(crcReg, 0);
+		int n = segmentTable.size();
+		crcReg = updateCRC(crcReg, n);
+		for(int c = 0; c < n; c++) crcReg = updateCRC(crcReg, segmentTable.get(c).length);
+		for(int c = 0; c < n; c++) crcReg = updateCRC(crcReg, segmentTable.get(c));
+		return crcReg;
+	}
+
+	/**
+	 * Updates a CRC checksum with a byte.
+	 * @param crcReg The CRC checksum.
+	 * @param b The byte.
+	 * @return The updated CRC checksum.
+	 */
+	private static int updateCRC(int crcReg, int b){
+		return (crcReg << 8) ^ (int) crcLookup[(crcReg >>> 24) ^ (b & 0xff)];
+	}
+
+	/**
+	 * Updates a CRC checksum with the bytes of an array.
+	 * @param crcReg The CRC checksum.
+	 * @param bytes The bytes.
+	 * @return The updated CRC checksum.
+	 */
+	private static int updateCRC(int crcReg, byte[] bytes){
+		for(byte b : bytes) crcReg = (crcReg << 8) ^ (int) crcLookup[(crcReg >>> 24) ^ (b & 0xff)];
+		return crcReg;
 	}
 
 	/**
@@ -286,23 +504,39 @@ public class OggPage{
 	 */
 	private byte[] getBytes(boolean includeCRC){
 		if(granulePosition == null || serialNumber == null || pageNumber == null || (includeCRC && crcChecksum == null)) throw new IllegalStateException();
-		byte[] sSizes = new byte[segmentTable.size()];
-		for(int c = 0; c < sSizes.length; c++) sSizes[c] = (byte) segmentTable.get(c).length;
-		byte[] bytes = new byte[sSizes.length + getTotalSegmentSize() + 27];
-		System.arraycopy(CAPTURE_PATTERN.getBytes(), 0, bytes, 0, 4);
-		bytes[5] = getHeaderType();
-		System.arraycopy(granulePosition, 0, bytes, 6, 8);
-		System.arraycopy(serialNumber, 0, bytes, 14, 4);
-		System.arraycopy(pageNumber, 0, bytes, 18, 4);
-		if(includeCRC) System.arraycopy(crcChecksum, 0, bytes, 22, 4);
-		bytes[26] = (byte) sSizes.length;
-		System.arraycopy(sSizes, 0, bytes, 27, sSizes.length);
-		int p = sSizes.length + 27;
-		for(byte[] s : segmentTable){
+		byte[] bytes = new byte[getSize()];
+		getBytes(bytes, 0, includeCRC);
+		return bytes;
+	}
+
+	/**
+	 * Stores the OGG page content in bytes in the given array.
+	 * @param bytes The array where the content is stored.
+	 * @param off The position in the array of the first byte of the page.
+	 * @param includeCRC If CRC field should be included in the content.
+	 * @return The number of bytes stored.
+	 * @throws IllegalStateException If granule position, serial number or page number fields is not set.
+	 */
+	private int getBytes(byte[] bytes, int off, boolean includeCRC){
+		if(granulePosition == null || serialNumber == null || pageNumber == null) throw new IllegalStateException();
+		for(int c = 0; c < 4; c++) bytes[off + c] = (byte) CAPTURE_PATTERN.charAt(c);
+		bytes[off + 4] = 0;
+		bytes[off + 5] = getHeaderType();
+		System.arraycopy(granulePosition, 0, bytes, off + 6, 8);
+		System.arraycopy(serialNumber, 0, bytes, off + 14, 4);
+		System.arraycopy(pageNumber, 0, bytes, off + 18, 4);
+		if(includeCRC) System.arraycopy(crcChecksum, 0, bytes, off + 22, 4);
+		else for(int c = 22; c < 26; c++) bytes[off + c] = 0;
+		int n = segmentTable.size();
+		bytes[off + 26] = (byte) n;
+		int p = off + 27 + n;
+		for(int c = 0; c < n; c++){
+			byte[] s = segmentTable.get(c);
+			bytes[off + 27 + c] = (byte) s.length;
 			System.arraycopy(s, 0, bytes, p, s.length);
 			p += s.length;
 		}
-		return bytes;
+		return p - off;
 	}
 
 	/** This extended version of {@code ArrayList} stores a maximum of 255 segments (the maximum segment number allowed per OGG page). */
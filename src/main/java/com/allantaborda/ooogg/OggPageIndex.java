@@ -0,0 +1,245 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+/**
+ * Index of the OGG pages contained in a file. For each page, the index stores its offset in the file, header type, granule position,
+ * serial number and page number. Only the page headers are read when building the index, the page contents are skipped.
+ * @author Allan Taborda dos Santos
+ */
+public class OggPageIndex{
+	/** Offsets of the OGG pages in the file. */
+	private long[] offsets = new long[1024];
+	/** Granule positions of the OGG pages. */
+	private long[] granules = new long[1024];
+	/** Serial numbers of the OGG pages. */
+	private int[] serials = new int[1024];
+	/** Page numbers of the OGG pages. */
+	private int[] pageNumbers = new int[1024];
+	/** Header types of the OGG pages. */
+	private byte[] headerTypes = new byte[1024];
+	/** Number of indexed OGG pages. */
+	private int size;
+	/** Offset where the next OGG page begins, that is, the end of the last indexed OGG page. */
+	private long end;
+
+	/**
+	 * Builds the index of all OGG pages contained in the given file. The file pointer is not changed.
+	 * @param file The OGG file.
+	 * @return The OGG page index.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPageIndex build(RandomAccessFile file) throws StreamCorruptedException, IOException{
+		return build(OggSource.of(file));
+	}
+
+	/**
+	 * Builds the index of all OGG pages contained in the given source. The position of a seekable source is not changed; a source that is not
+	 * seekable is read to its end.
+	 * @param src The source.
+	 * @return The OGG page index.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPageIndex build(OggSource src) throws StreamCorruptedException, IOException{
+		OggPageIndex index = new OggPageIndex();
+		index.update(src);
+		return index;
+	}
+
+	/**
+	 * Indexes the OGG pages written in the file after the last indexed OGG page. An incomplete OGG page at the end of the file (for example,
+	 * a file that is still being written) is not indexed, and it will be indexed in a subsequent call. The file pointer is not changed.
+	 * @param file The OGG file.
+	 * @return The number of OGG pages added to the index.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public int update(RandomAccessFile file) throws StreamCorruptedException, IOException{
+		return update(OggSource.of(file));
+	}
+
+	/**
+	 * Indexes the OGG pages of the given source after the last indexed OGG page. An incomplete OGG page at the end of the source is not indexed,
+	 * and it will be indexed in a subsequent call. The position of a seekable source is not changed; a source that is not seekable is read to its end.
+	 * @param src The source.
+	 * @return The number of OGG pages added to the index.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public int update(OggSource src) throws StreamCorruptedException, IOException{
+		long fp = src.getPosition(), length = src.length();
+		if(length < 0L) length = Long.MAX_VALUE;
+		int added = 0;
+		byte[] header = new byte[27], lacing = new byte[255];
+		try{
+			while(end + 27 <= length){
+				src.seek(end);
+				src.readFully(header, 0, 27);
+				if(!OggBytes.isCapturePattern(header, 0) || header[4] != 0) throw new StreamCorruptedException("This is not an OGG page at offset " + end);
+				int segments = header[26] & 0xff;
+				if(end + 27 + segments > length) break;
+				src.readFully(lacing, 0, segments);
+				long pageSize = 27 + segments;
+				for(int c = 0; c < segments; c++) pageSize += lacing[c] & 0xff;
+				if(end + pageSize > length || (length == Long.MAX_VALUE && pageSize > 27 + segments && src.read(end + pageSize - 1L, lacing, 0, 1) < 0)) break;
+				add(end, header[5], OggUtils.getLongFromByteArray(header, 6), OggUtils.getIntFromByteArray(header, 14), OggUtils.getIntFromByteArray(header, 18));
+				end += pageSize;
+				added++;
+			}
+		}catch(EOFException e){
+			// An incomplete OGG page at the end of a source of unknown length
+		}finally{
+			if(src.isSeekable()) src.seek(fp);
+		}
+		return added;
+	}
+
+	/**
+	 * Adds an OGG page to the index.
+	 * @param offset The page offset.
+	 * @param headerType The page header type.
+	 * @param granule The page granule position.
+	 * @param serial The page serial number.
+	 * @param pageNumber The page number.
+	 */
+	private void add(long offset, byte headerType, long granule, int serial, int pageNumber){
+		if(size == offsets.length){
+			int nc = size * 2;
+			offsets = Arrays.copyOf(offsets, nc);
+			granules = Arrays.copyOf(granules, nc);
+			serials = Arrays.copyOf(serials, nc);
+			pageNumbers = Arrays.copyOf(pageNumbers, nc);
+			headerTypes = Arrays.copyOf(headerTypes, nc);
+		}
+		offsets[size] = offset;
+		headerTypes[size] = headerType;
+		granules[size] = granule;
+		serials[size] = serial;
+		pageNumbers[size++] = pageNumber;
+	}
+
+	/**
+	 * Returns the number of indexed OGG pages.
+	 * @return The number of indexed OGG pages.
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns the offset where the indexed data ends, that is, the offset of the first byte after the last indexed OGG page.
+	 * @return The offset where the indexed data ends.
+	 */
+	public long getEnd(){
+		return end;
+	}
+
+	/**
+	 * Returns the offset in file of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The offset of the OGG page.
+	 */
+	public long getOffset(int page){
+		checkIndex(page);
+		return offsets[page];
+	}
+
+	/**
+	 * Returns the size in bytes of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The size of the OGG page.
+	 */
+	public int getPageSize(int page){
+		checkIndex(page);
+		return (int) ((page + 1 == size ? end : offsets[page + 1]) - offsets[page]);
+	}
+
+	/**
+	 * Returns the header type of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The header type of the OGG page.
+	 */
+	public byte getHeaderType(int page){
+		checkIndex(page);
+		return headerTypes[page];
+	}
+
+	/**
+	 * Returns if the OGG page in the given position of the index is a continuation of another OGG page.
+	 * @param page The position of the OGG page in the index.
+	 * @return {@code true} if the OGG page is a continuation of another OGG page, {@code false} otherwise.
+	 */
+	public boolean isContinuation(int page){
+		return (getHeaderType(page) & 0b1) != 0;
+	}
+
+	/**
+	 * Returns the granule position of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The granule position of the OGG page.
+	 */
+	public long getGranulePosition(int page){
+		checkIndex(page);
+		return granules[page];
+	}
+
+	/**
+	 * Returns the serial number of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The serial number of the OGG page.
+	 */
+	public int getSerialNumber(int page){
+		checkIndex(page);
+		return serials[page];
+	}
+
+	/**
+	 * Returns the page number of the OGG page in the given position of the index.
+	 * @param page The position of the OGG page in the index.
+	 * @return The page number of the OGG page.
+	 */
+	public int getPageNumber(int page){
+		checkIndex(page);
+		return pageNumbers[page];
+	}
+
+	/**
+	 * Returns the position in the index of the first OGG page whose granule position is equal or greater than the given granule position,
+	 * that is, the OGG page in which the packet containing the given granule position ends. Pages with no granule position (-1) are ignored.
+	 * @param granule The granule position.
+	 * @return The position of the OGG page in the index, or -1 if no OGG page contains the given granule position.
+	 */
+	public int findPage(long granule){
+		int lo = 0, hi = size - 1, found = -1;
+		while(lo <= hi){
+			int mid = (lo + hi) >>> 1, c = mid;
+			while(c <= hi && granules[c] == -1L) c++;
+			if(c > hi) hi = mid - 1;
+			else if(granules[c] >= granule){
+				found = c;
+				hi = mid - 1;
+			}else lo = c + 1;
+		}
+		return found;
+	}
+
+	/**
+	 * Checks if the given position is inside the index bounds.
+	 * @param page The position of the OGG page in the index.
+	 * @throws IndexOutOfBoundsException If position is outside the index bounds.
+	 */
+	private void checkIndex(int page){
+		if(page < 0 || page >= size) throw new IndexOutOfBoundsException("Index: " + page + ", Size: " + size);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads the OGG pages of a source sequentially into a small pool of reused pages, so the steady-state reading loop allocates no page, field,
+ * segment table or segment content per page. Each call of {@link #next()} refills the least recently returned page of the pool, so a returned
+ * page is valid until the pool size of further calls. This also applies to the packets created from its segments without copying, such as the
+ * packets returned by {@link OggUtils#getPacketsFromPages(OggPage...)} for packets contained in a single page; pages and packets that must be kept
+ * longer must be copied.
+ * @author Allan Taborda dos Santos
+ */
+public class OggPageReader{
+	/** The source. */
+	private OggSource src;
+	/** The CRC verification policy. */
+	private CrcPolicy policy;
+	/** The reused OGG pages. */
+	private OggPage[] pool;
+	/** The position in the pool of the next OGG page to be filled. */
+	private int next;
+	/** Buffer for the first byte of each OGG page. */
+	private byte[] first = new byte[1];
+
+	/**
+	 * Creates a reader with a single reused page, verifying CRC checksums according to the default policy.
+	 * @param src The source, which must be positioned at the beginning of an OGG page.
+	 */
+	public OggPageReader(OggSource src){
+		this(src, 1, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Creates a reader with the given number of reused pages.
+	 * @param src The source, which must be positioned at the beginning of an OGG page.
+	 * @param poolSize The number of reused pages, which is the number of returned pages that are valid at the same time.
+	 * @param policy The CRC verification policy.
+	 * @throws IllegalArgumentException If pool size is less than one.
+	 */
+	public OggPageReader(OggSource src, int poolSize, CrcPolicy policy){
+		if(poolSize < 1) throw new IllegalArgumentException("Pool size must be at least one");
+		this.src = src;
+		this.policy = policy;
+		pool = new OggPage[poolSize];
+		for(int c = 0; c < poolSize; c++) pool[c] = new OggPage();
+	}
+
+	/**
+	 * Reads the next OGG page into a page of the pool.
+	 * @return The OGG page, or {@code null} if the end of the source was reached.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public OggPage next() throws StreamCorruptedException, IOException{
+		if(src.read(first, 0, 1) <= 0) return null;
+		OggPage page = pool[next];
+		next = (next + 1) % pool.length;
+		return OggUtils.readOggPage(src, first[0], page, policy);
+	}
+
+	/**
+	 * Returns the source.
+	 * @return The source.
+	 */
+	public OggSource getSource(){
+		return src;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Puts the OGG packets of a logical stream in OGG pages, according to a pagination policy. Pages that continue a packet from the
+ * previous page are flagged as continuation, and the granule position of each page is the granule position of the last packet
+ * finished in the page, or -1 if no packet finishes in the page. Written pages can be returned to the paginator with {@link #recycle(OggPage...)},
+ * so they are reused for the following pages instead of allocating a page per page.
+ * @author Allan Taborda dos Santos
+ */
+public class OggPaginator{
+	/** Empty array of OGG pages, returned when no page is completed. */
+	private static final OggPage[] NO_PAGES = new OggPage[0];
+	/** The pagination policy. */
+	private PaginationPolicy policy;
+	/** The bitstream serial number. */
+	private int serialNumber;
+	/** The number of the next OGG page. */
+	private int pageNumber;
+	/** The OGG page being filled. */
+	private OggPage page;
+	/** Number of content bytes in the OGG page being filled. */
+	private int pageBytes;
+	/** Number of segments in the OGG page being filled. */
+	private int pageSegments;
+	/** Flag indicating if the OGG page being filled continues a packet from the previous page. */
+	private boolean continued;
+	/** Flag indicating if any packet finishes in the OGG page being filled. */
+	private boolean packetFinished;
+	/** Granule position of the last packet added. */
+	private long lastGranule = -1L;
+	/** Granule position of the last packet finished in a flushed OGG page. */
+	private long flushedGranule = -1L;
+	/** The OGG pages completed by the current call, reused between calls. */
+	private OggPage[] completed = new OggPage[2];
+	/** Number of OGG pages completed by the current call. */
+	private int completedCount;
+	/** Recycled OGG pages, reused for the following pages, or {@code null} if no page was recycled. */
+	private ArrayDeque<OggPage> recycled;
+	/** Reused arrays of completed OGG pages returned when pages are recycled, indexed by their size. */
+	private OggPage[][] results = new OggPage[3][];
+
+	/**
+	 * Creates a paginator for a logical stream.
+	 * @param serialNumber The bitstream serial number.
+	 * @param firstPageNumber The number of the first OGG page.
+	 * @param policy The pagination policy.
+	 */
+	public OggPaginator(int serialNumber, int firstPageNumber, PaginationPolicy policy){
+		this.serialNumber = serialNumber;
+		this.policy = policy;
+		pageNumber = firstPageNumber;
+		page = new OggPage();
+	}
+
+	/**
+	 * Returns the number of the next OGG page to be flushed.
+	 * @return The number of the next OGG page.
+	 */
+	public int getNextPageNumber(){
+		return pageNumber;
+	}
+
+	/**
+	 * Returns written OGG pages to this paginator, so they are reset and reused for the following pages. After a page is recycled, the arrays returned
+	 * by {@link #addPacket(OggPackable, long)} and {@link #flush(boolean)} are also reused, so they are valid until the next call of these methods.
+	 * @param pages The OGG pages returned by this paginator that were already written and will not be used anymore.
+	 */
+	public void recycle(OggPage... pages){
+		if(recycled == null) recycled = new ArrayDeque<>();
+		for(OggPage p : pages) recycled.add(p);
+	}
+
+	/**
+	 * Adds an OGG packet.
+	 * @param packet The OGG packet.
+	 * @param granulePosition The granule position at the end of the packet.
+	 * @return The OGG pages completed by this packet. The returned array may be empty.
+	 * @throws IllegalArgumentException If OGG packet is not valid.
+	 */
+	public OggPage[] addPacket(OggPackable packet, long granulePosition){
+		if(!packet.isValid()) throw new IllegalArgumentException("Invalid OGG packet");
+		byte[][] segs = packet.toOggPacket().getSegments();
+		int size = 0;
+		for(byte[] s : segs) size += s.length;
+		completedCount = 0;
+		if(pageSegments > 0 && !policy.isSplitPackets() && !policy.fits(pageBytes, pageSegments, size, segs.length)) complete(closePage(false));
+		boolean split = policy.isSplitPackets();
+		for(int c = 0; c < segs.length;){
+			while(c < segs.length && pageSegments < 255 && (pageSegments == 0 || !split || policy.fits(pageBytes, pageSegments, segs[c].length, 1))){
+				page.addSegment(segs[c]);
+				pageBytes += segs[c++].length;
+				pageSegments++;
+			}
+			if(c < segs.length){
+				complete(closePage(false));
+				continued = true;
+			}
+		}
+		lastGranule = granulePosition;
+		packetFinished = true;
+		if(policy.mustFlush(pageBytes, pageSegments, flushedGranule < 0L ? 0L : granulePosition - flushedGranule)) complete(closePage(false));
+		return completed();
+	}
+
+	/**
+	 * Flushes the OGG page being filled, if it contains any segment or if it is the end of the stream.
+	 * @param endOfStream {@code true} if the flushed page is the last page of the logical stream, {@code false} otherwise.
+	 * @return The flushed OGG pages. The returned array may be empty.
+	 */
+	public OggPage[] flush(boolean endOfStream){
+		if(pageSegments == 0 && !endOfStream) return NO_PAGES;
+		completedCount = 0;
+		complete(closePage(endOfStream));
+		return completed();
+	}
+
+	/**
+	 * Adds an OGG page to the pages completed by the current call.
+	 * @param p The completed OGG page.
+	 */
+	private void complete(OggPage p){
+		if(completedCount == completed.length) completed = Arrays.copyOf(completed, completedCount * 2);
+		completed[completedCount++] = p;
+	}
+
+	/**
+	 * Returns the pages completed by the current call, in a reused array if pages are recycled.
+	 * @return The completed OGG pages.
+	 */
+	private OggPage[] completed(){
+		if(completedCount == 0) return NO_PAGES;
+		OggPage[] out;
+		if(recycled == null) out = Arrays.copyOf(completed, completedCount);
+		else{
+			if(completedCount >= results.length) results = Arrays.copyOf(results, completedCount + 1);
+			if(results[completedCount] == null) results[completedCount] = new OggPage[completedCount];
+			out = results[completedCount];
+			System.arraycopy(completed, 0, out, 0, completedCount);
+		}
+		Arrays.fill(completed, 0, completedCount, null);
+		return out;
+	}
+
+	/**
+	 * Finishes the OGG page being filled and starts a new one.
+	 * @param endOfStream {@code true} if the page is the last page of the logical stream, {@code false} otherwise.
+	 * @return The finished OGG page.
+	 */
+	private OggPage closePage(boolean endOfStream){
+		OggPage p = page;
+		p.setContinuation(continued);
+		p.setEndOfStream(endOfStream);
+		p.setGranulePosition(packetFinished || (endOfStream && pageSegments == 0) ? lastGranule : -1L);
+		p.setSerialNumber(serialNumber);
+		p.setPageNumber(pageNumber++);
+		p.computeAndSetCrcChecksum();
+		if(packetFinished) flushedGranule = lastGranule;
+		if(recycled == null || recycled.isEmpty()) page = new OggPage();
+		else{
+			page = recycled.poll();
+			page.reset();
+		}
+		pageBytes = 0;
+		pageSegments = 0;
+		continued = false;
+		packetFinished = false;
+		return p;
+	}
+}
\ No newline at end of file
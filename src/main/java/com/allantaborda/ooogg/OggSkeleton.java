@@ -0,0 +1,189 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Ogg Skeleton stream of a file, which describes the other logical streams of the file and may contain keyframe indexes. The Skeleton stream
+ * begins in the first page of the file and ends before the first data page of the other streams, so it is read with the header pages, and an
+ * embedded index locates the page of any seek target without probing the file.
+ * @author Allan Taborda dos Santos
+ */
+public class OggSkeleton{
+	/** The serial number of the Skeleton stream. */
+	private int serialNumber;
+	/** The fishead packet. */
+	private SkeletonHead head;
+	/** The fisbone packets. */
+	private List<SkeletonBone> bones = new ArrayList<>();
+	/** The keyframe index packets. */
+	private List<SkeletonIndex> indexes = new ArrayList<>();
+
+	/**
+	 * Creates a Skeleton stream.
+	 * @param serial The serial number of the Skeleton stream.
+	 * @param head The fishead packet.
+	 */
+	private OggSkeleton(int serial, SkeletonHead head){
+		serialNumber = serial;
+		this.head = head;
+	}
+
+	/**
+	 * Checks if the given OGG page is the first page of a Skeleton stream, that is, a beginning of stream page that contains a fishead packet.
+	 * @param page The OGG page.
+	 * @return {@code true} if the page begins a Skeleton stream, {@code false} otherwise.
+	 */
+	public static boolean isSkeletonHead(OggPage page){
+		byte[][] st = page.getSegmentTable();
+		if(!page.isBeginningOfStream() || st.length == 0) return false;
+		byte[] seg = st[0];
+		if(seg.length < SkeletonHead.MAGIC.length()) return false;
+		for(int c = 0; c < SkeletonHead.MAGIC.length(); c++) if(seg[c] != SkeletonHead.MAGIC.charAt(c)) return false;
+		return true;
+	}
+
+	/**
+	 * Reads the Skeleton stream from the beginning of the given file. Only the pages before the end of the Skeleton stream are read,
+	 * and the file pointer is not changed.
+	 * @param file The OGG file.
+	 * @return The Skeleton stream, or {@code null} if the file has no Skeleton stream.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggSkeleton read(RandomAccessFile file) throws StreamCorruptedException, IOException{
+		return read(OggSource.of(file));
+	}
+
+	/**
+	 * Reads the Skeleton stream from the beginning of the given source. Only the pages before the end of the Skeleton stream are read,
+	 * and the position of the source is not changed.
+	 * @param src The source, which must be seekable.
+	 * @return The Skeleton stream, or {@code null} if the source has no Skeleton stream.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggSkeleton read(OggSource src) throws StreamCorruptedException, IOException{
+		long fp = src.getPosition(), length = src.length();
+		try{
+			src.seek(0L);
+			OggPage page = OggUtils.readOggPage(src);
+			if(!isSkeletonHead(page)) return null;
+			OggSkeleton skeleton = new OggSkeleton(page.getSerialNumber(), new SkeletonHead(new OggPacket(page.getSegmentTable()[0])));
+			ByteArrayOutputStream packet = new ByteArrayOutputStream(256);
+			while(!page.isEndOfStream() && (length < 0L || src.getPosition() < length)){
+				page = OggUtils.readOggPage(src);
+				if(page.getSerialNumber() != skeleton.serialNumber){
+					if(page.getGranulePosition() > 0L) break;
+					continue;
+				}
+				for(byte[] seg : page.getSegmentTable()){
+					packet.write(seg, 0, seg.length);
+					if(seg.length < 255){
+						skeleton.add(new OggPacket(packet.toByteArray()));
+						packet.reset();
+					}
+				}
+			}
+			return skeleton;
+		}finally{
+			src.seek(fp);
+		}
+	}
+
+	/**
+	 * Adds a secondary packet of the Skeleton stream, if it is a fisbone or index packet.
+	 * @param packet The OGG packet.
+	 */
+	private void add(OggPacket packet){
+		if(packet.headerMatches(SkeletonBone.MAGIC)){
+			SkeletonBone bone = new SkeletonBone(packet);
+			if(bone.isValid()) bones.add(bone);
+		}else if(packet.headerMatches(SkeletonIndex.MAGIC)){
+			SkeletonIndex index = new SkeletonIndex(packet);
+			if(index.isValid()) indexes.add(index);
+		}
+	}
+
+	/**
+	 * Returns the serial number of the Skeleton stream.
+	 * @return The serial number.
+	 */
+	public int getSerialNumber(){
+		return serialNumber;
+	}
+
+	/**
+	 * Returns the fishead packet.
+	 * @return The fishead packet.
+	 */
+	public SkeletonHead getHead(){
+		return head;
+	}
+
+	/**
+	 * Returns the fisbone packets, one for each described logical stream.
+	 * @return The fisbone packets.
+	 */
+	public List<SkeletonBone> getBones(){
+		return Collections.unmodifiableList(bones);
+	}
+
+	/**
+	 * Returns the fisbone packet that describes the given logical stream.
+	 * @param serial The serial number of the logical stream.
+	 * @return The fisbone packet, or {@code null} if the stream is not described.
+	 */
+	public SkeletonBone getBone(int serial){
+		for(SkeletonBone b : bones) if(b.getSerialNumber() == serial) return b;
+		return null;
+	}
+
+	/**
+	 * Returns the keyframe index of the given logical stream.
+	 * @param serial The serial number of the logical stream.
+	 * @return The keyframe index, or {@code null} if the stream is not indexed.
+	 */
+	public SkeletonIndex getIndex(int serial){
+		for(SkeletonIndex i : indexes) if(i.getSerialNumber() == serial) return i;
+		return null;
+	}
+
+	/**
+	 * Returns the offset of the page where decoding must begin to reach the given granule position of the given logical stream, according to
+	 * the keyframe index. Pages are read from this offset until the page containing the granule position is found.
+	 * @param serial The serial number of the logical stream.
+	 * @param granule The granule position.
+	 * @return The offset of the page, the offset of the first non-header page if the granule position is before the first keypoint, or -1 if
+	 * the stream is not indexed.
+	 */
+	public long findOffset(int serial, long granule){
+		SkeletonBone bone = getBone(serial);
+		SkeletonIndex index = getIndex(serial);
+		if(bone == null || index == null) return -1L;
+		int k = index.findKeypoint(bone.granuleToTime(granule, index.getTimestampDenominator()));
+		if(k >= 0) return index.getKeypointOffset(k);
+		return head.getContentOffset() > 0L ? head.getContentOffset() : -1L;
+	}
+
+	/**
+	 * Stores a little-endian number in a byte array.
+	 * @param b The byte array.
+	 * @param off The position of the number in the array.
+	 * @param value The number.
+	 * @param bytes The number of bytes of the number.
+	 */
+	static void putLong(byte[] b, int off, long value, int bytes){
+		for(int c = 0; c < bytes; c++) b[off + c] = (byte) (value >>> (c * 8));
+	}
+}
\ No newline at end of file
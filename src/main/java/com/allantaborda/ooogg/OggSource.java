@@ -0,0 +1,609 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source of OGG data, which is read sequentially from a current position, like a stream, or at any position, like a file. The page readers of
+ * {@link OggUtils}, the {@link OggPageIndex} and the {@link OggSkeleton} reader work on any source, so the same parsing, indexing and seeking
+ * algorithms apply to files, memory buffers, streams and remote storage. Sources are created by the {@code of} methods:
+ * <ul>
+ * <li>files and file channels are read with positional reads of the channel;</li>
+ * <li>byte arrays and byte buffers are read directly from memory;</li>
+ * <li>streams are read sequentially, so they can only seek forward;</li>
+ * <li>range readers, such as storage services accessed by HTTP range requests, are read in large blocks: each read that misses the cached blocks
+ * fetches a whole block of the read-ahead size, so the many small reads of the page parsers are coalesced in few requests.</li>
+ * </ul>
+ * Sources are not thread-safe.
+ * @author Allan Taborda dos Santos
+ */
+public abstract class OggSource implements Closeable{
+	/** The default number of bytes fetched by each request of the sources of range readers. */
+	public static final int DEFAULT_READ_AHEAD = 262144;
+	/** Position of the next byte read sequentially. */
+	private long position;
+	/** Flag indicating if the position is the offset from the beginning of the OGG data, which is false for streams wrapped in the middle. */
+	boolean positionKnown = true;
+	/** Buffer used to read a single byte. */
+	private final byte[] one = new byte[1];
+
+	/**
+	 * Reads bytes at the given position, without changing the current position.
+	 * @param pos The position of the first byte.
+	 * @param b The buffer where the bytes are stored.
+	 * @param off The position in the buffer of the first byte.
+	 * @param len The maximum number of bytes to read.
+	 * @return The number of bytes read, or -1 if the position is at the end of the source.
+	 * @throws IOException If the source cannot read at the given position or I/O error occurs.
+	 */
+	public abstract int read(long pos, byte[] b, int off, int len) throws IOException;
+
+	/**
+	 * Returns the length of the source in bytes.
+	 * @return The length of the source, or -1 if unknown.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public abstract long length() throws IOException;
+
+	/**
+	 * Returns if the source can read at any position. Sources that are not seekable only read forward.
+	 * @return {@code true} if the source is seekable, {@code false} otherwise.
+	 */
+	public boolean isSeekable(){
+		return true;
+	}
+
+	/**
+	 * Returns the position of the next byte read sequentially.
+	 * @return The current position.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public long getPosition() throws IOException{
+		return position;
+	}
+
+	/**
+	 * Changes the position of the next byte read sequentially.
+	 * @param pos The new position.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void seek(long pos) throws IOException{
+		if(pos < 0L) throw new IllegalArgumentException("Negative position: " + pos);
+		position = pos;
+	}
+
+	/**
+	 * Skips bytes, advancing the current position.
+	 * @param n The number of bytes to skip.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void skip(long n) throws IOException{
+		seek(getPosition() + n);
+	}
+
+	/**
+	 * Reads bytes from the current position, advancing it.
+	 * @param b The buffer where the bytes are stored.
+	 * @param off The position in the buffer of the first byte.
+	 * @param len The maximum number of bytes to read.
+	 * @return The number of bytes read, or -1 if the end of the source was reached.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException{
+		int r = read(position, b, off, len);
+		if(r > 0) position += r;
+		return r;
+	}
+
+	/**
+	 * Reads exactly the given number of bytes from the current position, advancing it.
+	 * @param b The buffer where the bytes are stored.
+	 * @param off The position in the buffer of the first byte.
+	 * @param len The number of bytes to read.
+	 * @throws EOFException If the end of the source is reached before all bytes are read.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void readFully(byte[] b, int off, int len) throws IOException{
+		while(len > 0){
+			int r = read(b, off, len);
+			if(r < 0) throw new EOFException();
+			off += r;
+			len -= r;
+		}
+	}
+
+	/**
+	 * Reads exactly the given number of bytes from the current position, advancing it.
+	 * @param length The number of bytes to read.
+	 * @return The bytes read.
+	 * @throws EOFException If the length is negative or the end of the source is reached before all bytes are read.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public byte[] readBytes(int length) throws IOException{
+		if(length < 0) throw new EOFException();
+		byte[] b = new byte[length];
+		readFully(b, 0, length);
+		return b;
+	}
+
+	/**
+	 * Reads a byte from the current position, advancing it.
+	 * @return The byte read.
+	 * @throws EOFException If the end of the source was reached.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public byte readByte() throws IOException{
+		if(read(one, 0, 1) <= 0) throw new EOFException();
+		return one[0];
+	}
+
+	/**
+	 * Returns an input stream that reads this source sequentially from the current position. Closing the stream closes the source.
+	 * @return The input stream.
+	 */
+	public InputStream asInputStream(){
+		return new SourceInputStream();
+	}
+
+	/**
+	 * Closes this source and the underlying file, channel, stream or reader.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void close() throws IOException{}
+
+	/**
+	 * Creates a source that reads the given file with positional reads of a file channel.
+	 * @param f The file.
+	 * @return The source.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public static OggSource of(File f) throws IOException{
+		return new ChannelSource(FileChannel.open(f.toPath(), StandardOpenOption.READ));
+	}
+
+	/**
+	 * Creates a source that reads the given file channel with positional reads, so the position of the channel is not changed.
+	 * @param channel The file channel.
+	 * @return The source.
+	 */
+	public static OggSource of(FileChannel channel){
+		return new ChannelSource(channel);
+	}
+
+	/**
+	 * Creates a source that reads the given file, whose file pointer is the current position of the source.
+	 * @param file The file.
+	 * @return The source.
+	 */
+	public static OggSource of(RandomAccessFile file){
+		return new FileSource(file);
+	}
+
+	/**
+	 * Creates a source that reads the given byte array.
+	 * @param b The byte array.
+	 * @return The source.
+	 */
+	public static OggSource of(byte[] b){
+		return of(ByteBuffer.wrap(b));
+	}
+
+	/**
+	 * Creates a source that reads the bytes of the given buffer between its position and its limit. The position and limit of the buffer are not changed.
+	 * @param buffer The byte buffer.
+	 * @return The source.
+	 */
+	public static OggSource of(ByteBuffer buffer){
+		return new BufferSource(buffer.slice());
+	}
+
+	/**
+	 * Creates a source that reads the given stream sequentially. The source only seeks forward, skipping bytes of the stream.
+	 * @param is The input stream.
+	 * @return The source.
+	 */
+	public static OggSource of(InputStream is){
+		return new StreamSource(is);
+	}
+
+	/**
+	 * Creates a source that reads the given range reader in blocks of the default read-ahead size.
+	 * @param reader The range reader.
+	 * @param length The length of the data in bytes, or -1 if unknown.
+	 * @return The source.
+	 */
+	public static OggSource of(RangeReader reader, long length){
+		return of(reader, length, DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 * Creates a source that reads the given range reader in blocks of the given read-ahead size. Reads that miss the cached blocks fetch
+	 * the whole aligned block that contains them, and reads larger than a block are sent directly to the reader in a single request.
+	 * @param reader The range reader.
+	 * @param length The length of the data in bytes, or -1 if unknown.
+	 * @param readAhead The number of bytes fetched by each request.
+	 * @return The source.
+	 */
+	public static OggSource of(RangeReader reader, long length, int readAhead){
+		if(readAhead < 1) throw new IllegalArgumentException("Invalid read-ahead size: " + readAhead);
+		return new RangeSource(reader, length, readAhead);
+	}
+
+	/**
+	 * Creates a source that reads the given URL. Files are read with a file channel. HTTP resources are read with range requests of the
+	 * default read-ahead size if the server supports them, and as a stream otherwise; other resources are read as a stream.
+	 * @param url The URL.
+	 * @return The source.
+	 * @throws IOException If the URL cannot be opened.
+	 */
+	public static OggSource of(URL url) throws IOException{
+		if("file".equals(url.getProtocol())){
+			try{
+				return of(new File(url.toURI()));
+			}catch(URISyntaxException | IllegalArgumentException e){}
+		}
+		URLConnection con = url.openConnection();
+		if(con instanceof HttpURLConnection){
+			HttpURLConnection http = (HttpURLConnection) con;
+			http.setRequestProperty("Range", "bytes=0-" + (DEFAULT_READ_AHEAD - 1));
+			if(http.getResponseCode() == HttpURLConnection.HTTP_PARTIAL){
+				String range = http.getHeaderField("Content-Range");
+				long length = -1L;
+				if(range != null && range.indexOf('/') >= 0){
+					try{
+						length = Long.parseLong(range.substring(range.indexOf('/') + 1).trim());
+					}catch(NumberFormatException e){}
+				}
+				RangeSource src = new RangeSource(new HttpRangeReader(url), length, DEFAULT_READ_AHEAD);
+				try(InputStream is = http.getInputStream()){
+					src.put(0L, is);
+				}
+				return src;
+			}
+		}
+		return of(con.getInputStream());
+	}
+
+	/**
+	 * Wraps a stream whose current position is unknown, without reading more bytes than requested.
+	 * @param is The input stream.
+	 * @return The source.
+	 */
+	static OggSource wrap(InputStream is){
+		OggSource src = new StreamSource(is);
+		src.positionKnown = false;
+		return src;
+	}
+
+	/**
+	 * Reader of byte ranges at any position, such as a storage service accessed by HTTP range requests. Each call is a request, so a source
+	 * coalesces small reads in few large calls.
+	 */
+	public interface RangeReader{
+		/**
+		 * Reads a byte range.
+		 * @param pos The position of the first byte.
+		 * @param b The buffer where the bytes are stored.
+		 * @param off The position in the buffer of the first byte.
+		 * @param len The maximum number of bytes to read.
+		 * @return The number of bytes read, or -1 if the position is at the end of the data.
+		 * @throws IOException If I/O error occurs.
+		 */
+		int read(long pos, byte[] b, int off, int len) throws IOException;
+	}
+
+	/** Input stream that reads the source sequentially. */
+	private class SourceInputStream extends InputStream{
+		public int read() throws IOException{
+			return read(one, 0, 1) <= 0 ? -1 : one[0] & 0xff;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException{
+			if(off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+			return len == 0 ? 0 : OggSource.this.read(b, off, len);
+		}
+
+		public long skip(long n) throws IOException{
+			if(n <= 0L) return 0L;
+			long length = length(), pos = getPosition();
+			if(length >= 0L) n = Math.min(n, Math.max(0L, length - pos));
+			OggSource.this.skip(n);
+			return n;
+		}
+
+		public int available() throws IOException{
+			long length = length();
+			return length < 0L ? 0 : (int) Math.max(0L, Math.min(Integer.MAX_VALUE, length - getPosition()));
+		}
+
+		public void close() throws IOException{
+			OggSource.this.close();
+		}
+	}
+
+	/** Source that reads a file channel with positional reads. */
+	private static class ChannelSource extends OggSource{
+		/** The file channel. */
+		private FileChannel channel;
+
+		/**
+		 * Creates a source of a file channel.
+		 * @param channel The file channel.
+		 */
+		ChannelSource(FileChannel channel){
+			this.channel = channel;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len), pos);
+		}
+
+		public long length() throws IOException{
+			return channel.size();
+		}
+
+		public void close() throws IOException{
+			channel.close();
+		}
+	}
+
+	/** Source that reads a file, whose file pointer is the current position. */
+	private static class FileSource extends OggSource{
+		/** The file. */
+		private RandomAccessFile file;
+
+		/**
+		 * Creates a source of a file.
+		 * @param file The file.
+		 */
+		FileSource(RandomAccessFile file){
+			this.file = file;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			return len == 0 ? 0 : file.getChannel().read(ByteBuffer.wrap(b, off, len), pos);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException{
+			return file.read(b, off, len);
+		}
+
+		public long length() throws IOException{
+			return file.length();
+		}
+
+		public long getPosition() throws IOException{
+			return file.getFilePointer();
+		}
+
+		public void seek(long pos) throws IOException{
+			file.seek(pos);
+		}
+
+		public void close() throws IOException{
+			file.close();
+		}
+	}
+
+	/** Source that reads a byte buffer. */
+	private static class BufferSource extends OggSource{
+		/** The byte buffer, whose position is changed by each read. */
+		private ByteBuffer buffer;
+
+		/**
+		 * Creates a source of a byte buffer.
+		 * @param buffer The byte buffer, beginning at position zero.
+		 */
+		BufferSource(ByteBuffer buffer){
+			this.buffer = buffer;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			if(pos >= buffer.limit()) return -1;
+			int n = (int) Math.min(len, buffer.limit() - pos);
+			buffer.position((int) pos);
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		public long length(){
+			return buffer.limit();
+		}
+	}
+
+	/** Source that reads a stream sequentially. */
+	private static class StreamSource extends OggSource{
+		/** The input stream. */
+		private InputStream is;
+		/** The number of bytes read or skipped from the stream. */
+		private long consumed;
+
+		/**
+		 * Creates a source of a stream.
+		 * @param is The input stream.
+		 */
+		StreamSource(InputStream is){
+			this.is = is;
+		}
+
+		public boolean isSeekable(){
+			return false;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			if(pos < consumed) throw new IOException("Stream source cannot seek backward");
+			while(consumed < pos){
+				long s = is.skip(pos - consumed);
+				if(s <= 0L){
+					if(is.read() < 0) return -1;
+					s = 1L;
+				}
+				consumed += s;
+			}
+			int r = is.read(b, off, len);
+			if(r > 0) consumed += r;
+			return r;
+		}
+
+		public long length(){
+			return -1L;
+		}
+
+		public void close() throws IOException{
+			is.close();
+		}
+	}
+
+	/** Source that reads a range reader in blocks, keeping the most recently used blocks. */
+	private static class RangeSource extends OggSource{
+		/** The number of cached blocks. */
+		private static final int CACHED_BLOCKS = 4;
+		/** The range reader. */
+		private RangeReader reader;
+		/** The length of the data, or -1 if unknown. */
+		private long length;
+		/** The block size. */
+		private int readAhead;
+		/** The cached blocks. */
+		private byte[][] blocks = new byte[CACHED_BLOCKS][];
+		/** The positions of the cached blocks. */
+		private long[] starts = new long[CACHED_BLOCKS];
+		/** The number of valid bytes of the cached blocks. */
+		private int[] sizes = new int[CACHED_BLOCKS];
+		/** The time of the last use of the cached blocks. */
+		private long[] used = new long[CACHED_BLOCKS];
+		/** Counter incremented at each use of a cached block. */
+		private long clock;
+
+		/**
+		 * Creates a source of a range reader.
+		 * @param reader The range reader.
+		 * @param length The length of the data, or -1 if unknown.
+		 * @param readAhead The block size.
+		 */
+		RangeSource(RangeReader reader, long length, int readAhead){
+			this.reader = reader;
+			this.length = length;
+			this.readAhead = readAhead;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			if(len == 0) return 0;
+			if(length >= 0L && pos >= length) return -1;
+			for(int c = 0; c < CACHED_BLOCKS; c++) if(sizes[c] > 0 && pos >= starts[c] && pos < starts[c] + sizes[c]) return copy(c, pos, b, off, len);
+			if(len >= readAhead) return fill(pos, b, off, len);
+			int c = leastRecentlyUsed();
+			long start = pos - pos % readAhead;
+			if(blocks[c] == null) blocks[c] = new byte[readAhead];
+			int n = fill(start, blocks[c], 0, length < 0L ? readAhead : (int) Math.min(readAhead, length - start));
+			starts[c] = start;
+			sizes[c] = Math.max(0, n);
+			if(length < 0L && sizes[c] < readAhead) length = start + sizes[c];
+			if(pos >= start + sizes[c]) return -1;
+			return copy(c, pos, b, off, len);
+		}
+
+		public long length(){
+			return length;
+		}
+
+		/**
+		 * Stores in the cache a block read from a stream, such as the body of a response to a range request.
+		 * @param start The position of the block.
+		 * @param is The input stream.
+		 * @throws IOException If I/O error occurs.
+		 */
+		void put(long start, InputStream is) throws IOException{
+			int c = leastRecentlyUsed(), n = 0;
+			if(blocks[c] == null) blocks[c] = new byte[readAhead];
+			for(int r; n < readAhead && (r = is.read(blocks[c], n, readAhead - n)) > 0;) n += r;
+			starts[c] = start;
+			sizes[c] = n;
+			used[c] = ++clock;
+		}
+
+		/**
+		 * Copies bytes from a cached block.
+		 * @param c The index of the block.
+		 * @param pos The position of the first byte.
+		 * @param b The buffer where the bytes are stored.
+		 * @param off The position in the buffer of the first byte.
+		 * @param len The maximum number of bytes to copy.
+		 * @return The number of bytes copied.
+		 */
+		private int copy(int c, long pos, byte[] b, int off, int len){
+			int n = (int) Math.min(len, starts[c] + sizes[c] - pos);
+			System.arraycopy(blocks[c], (int) (pos - starts[c]), b, off, n);
+			used[c] = ++clock;
+			return n;
+		}
+
+		/**
+		 * Returns the index of the least recently used cached block.
+		 * @return The index of the block.
+		 */
+		private int leastRecentlyUsed(){
+			int lru = 0;
+			for(int c = 1; c < CACHED_BLOCKS; c++) if(used[c] < used[lru]) lru = c;
+			return lru;
+		}
+
+		/**
+		 * Reads a byte range with the range reader, until the range is complete or the end of the data is reached.
+		 * @param pos The position of the first byte.
+		 * @param b The buffer where the bytes are stored.
+		 * @param off The position in the buffer of the first byte.
+		 * @param len The number of bytes to read.
+		 * @return The number of bytes read, or -1 if the position is at the end of the data.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private int fill(long pos, byte[] b, int off, int len) throws IOException{
+			int n = 0;
+			for(int r; n < len && (r = reader.read(pos + n, b, off + n, len - n)) > 0;) n += r;
+			return n == 0 ? -1 : n;
+		}
+	}
+
+	/** Range reader that sends HTTP range requests. */
+	private static class HttpRangeReader implements RangeReader{
+		/** The URL of the resource. */
+		private URL url;
+
+		/**
+		 * Creates a range reader of an HTTP resource.
+		 * @param url The URL of the resource.
+		 */
+		HttpRangeReader(URL url){
+			this.url = url;
+		}
+
+		public int read(long pos, byte[] b, int off, int len) throws IOException{
+			HttpURLConnection http = (HttpURLConnection) url.openConnection();
+			http.setRequestProperty("Range", "bytes=" + pos + "-" + (pos + len - 1L));
+			int code = http.getResponseCode();
+			if(code == 416) return -1;
+			if(code != HttpURLConnection.HTTP_PARTIAL) throw new IOException("Range request not supported by " + url + ": HTTP " + code);
+			try(InputStream is = http.getInputStream()){
+				int n = 0;
+				for(int r; n < len && (r = is.read(b, off + n, len - n)) > 0;) n += r;
+				return n == 0 ? -1 : n;
+			}
+		}
+	}
+}
\ No newline at end of file
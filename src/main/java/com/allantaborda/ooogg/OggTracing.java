@@ -0,0 +1,104 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+/**
+ * Emits Java Flight Recorder events for page reading, packet reassembly, resync scans, decoding and encoding. This is the Java 8
+ * implementation, in which every method does nothing, since Java 8 has no public JFR API. The multi-release jar contains the
+ * Java 11 implementation, with the same methods, which emits the events when they are enabled in a recording.<br/><br/>
+ * Each {@code begin} method returns an event handle, or {@code null} if the event is disabled, and the corresponding {@code end}
+ * method must be called with the handle only if it is not {@code null}, so disabled events cost a single check.
+ * @author Allan Taborda dos Santos
+ */
+public final class OggTracing{
+	/** This class only has static methods. */
+	private OggTracing(){}
+
+	/**
+	 * Begins a page read event, which covers reading and parsing an OGG page.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginPageRead(){
+		return null;
+	}
+
+	/**
+	 * Ends a page read event.
+	 * @param event The event handle.
+	 * @param offset The position of the page in the file, or -1 if unknown.
+	 * @param page The read page.
+	 * @param size The page size in bytes, including the header.
+	 * @param crcOk {@code true} if the CRC checksum is valid, {@code false} otherwise.
+	 */
+	public static void endPageRead(Object event, long offset, OggPage page, int size, boolean crcOk){}
+
+	/**
+	 * Begins a packet reassembly event, which covers the extraction of the packets of a group of OGG pages.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginPacketReassembly(){
+		return null;
+	}
+
+	/**
+	 * Ends a packet reassembly event.
+	 * @param event The event handle.
+	 * @param pages The number of OGG pages.
+	 * @param packets The number of extracted packets.
+	 */
+	public static void endPacketReassembly(Object event, int pages, int packets){}
+
+	/**
+	 * Begins a resync event, which covers the search for the next OGG page. The event is only recorded if bytes were discarded.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginResync(){
+		return null;
+	}
+
+	/**
+	 * Ends a resync event.
+	 * @param event The event handle.
+	 * @param discarded The number of bytes discarded before the next OGG page.
+	 */
+	public static void endResync(Object event, long discarded){}
+
+	/**
+	 * Begins a decode event, which covers the decoding of an audio packet.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginDecode(){
+		return null;
+	}
+
+	/**
+	 * Ends a decode event.
+	 * @param event The event handle.
+	 * @param decoder The name of the decoder class.
+	 * @param serialNumber The serial number of the logical stream.
+	 * @param packetSize The packet size in bytes.
+	 * @param success {@code true} if the packet was decoded, {@code false} otherwise.
+	 */
+	public static void endDecode(Object event, String decoder, int serialNumber, int packetSize, boolean success){}
+
+	/**
+	 * Begins an encode event, which covers the encoding of an audio packet.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginEncode(){
+		return null;
+	}
+
+	/**
+	 * Ends an encode event.
+	 * @param event The event handle.
+	 * @param encoder The name of the encoder.
+	 * @param serialNumber The serial number of the logical stream.
+	 * @param pcmBytes The number of bytes of uncompressed audio.
+	 * @param packetSize The size in bytes of the encoded packet.
+	 */
+	public static void endEncode(Object event, String encoder, int serialNumber, int pcmBytes, int packetSize){}
+}
\ No newline at end of file
@@ -11,6 +11,7 @@ import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.io.RandomAccessFile;
 import java.io.StreamCorruptedException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 
 /**
@@ -18,6 +19,9 @@ import java.util.LinkedList;
  * @author Allan Taborda dos Santos
  */
 public class OggUtils{
+	/** Number of bytes read at once when searching for the capture pattern of OGG pages in seekable sources. */
+	private static final int SCAN_CHUNK = 8192;
+
 	/**
 	 * 
 	 * @param is
@@ -26,8 +30,19 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage readOggPage(InputStream is) throws StreamCorruptedException, IOException{
-		if(!OggPage.CAPTURE_PATTERN.equals(new String(readByteArray(is, 4))) || readByte(is) != 0) throw new StreamCorruptedException("This is not an OGG page");
-		return readPage(is);
+		return readOggPage(is, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page, verifying its CRC checksum according to the given policy.
+	 * @param is The stream, which must be positioned at the beginning of the OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readOggPage(InputStream is, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readOggPage(OggSource.wrap(is), policy);
 	}
 
 	/**
@@ -38,32 +53,19 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage readNextOggPage(InputStream is) throws StreamCorruptedException, IOException{
-		byte[] oggs = readByteArray(is, 4);
-		while(!OggPage.CAPTURE_PATTERN.equals(new String(oggs))){
-			for(int c = 0; c < 3; c++) oggs[c] = oggs[c + 1];
-			oggs[3] = readByte(is);
-		}
-		if(readByte(is) != 0) throw new StreamCorruptedException("This is not an OGG page");
-		return readPage(is);
+		return readNextOggPage(is, CrcPolicy.getDefault());
 	}
 
 	/**
-	 * 
-	 * @param is
-	 * @return
-	 * @throws StreamCorruptedException
-	 * @throws IOException
+	 * Searches for the next OGG page and reads it, verifying its CRC checksum according to the given policy.
+	 * @param is The stream.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If the found OGG page has an unsupported version or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
 	 */
-	private static OggPage readPage(InputStream is) throws StreamCorruptedException, IOException{
-		OggPage page = new OggPage();
-		page.setHeaderType(readByte(is));
-		page.setGranulePosition(readByteArray(is, 8));
-		page.setSerialNumber(readByteArray(is, 4));
-		page.setPageNumber(readByteArray(is, 4));
-		page.setCrcChecksum(readByteArray(is, 4));
-		for(byte ss : readByteArray(is, is.read())) page.addSegment(readByteArray(is, ss & 0xff));
-		if(!page.isCrcChecksumValid()) throw new StreamCorruptedException("CRC is not valid");
-		return page;
+	public static OggPage readNextOggPage(InputStream is, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readNextOggPage(OggSource.wrap(is), policy);
 	}
 
 	/**
@@ -86,15 +88,20 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage[] readOggPages(InputStream is, boolean searchForNextPage) throws StreamCorruptedException, IOException{
-		OggPage page = searchForNextPage ? readNextOggPage(is) :  readOggPage(is);
-		if(!page.contentContinuesInNextPage()) return new OggPage[]{page};
-		LinkedList<OggPage> pages = new LinkedList<>();
-		pages.add(page);
-		do{
-			page = readOggPage(is);
-			pages.add(page);
-		}while(page.contentContinuesInNextPage());
-		return pages.toArray(new OggPage[pages.size()]);
+		return readOggPages(is, searchForNextPage, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page and the following pages in which its last packet continues, verifying their CRC checksums according to the given policy.
+	 * @param is The stream.
+	 * @param searchForNextPage If {@code true}, the next OGG page is searched if the stream is not positioned at the beginning of an OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage[] readOggPages(InputStream is, boolean searchForNextPage, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readOggPages(OggSource.wrap(is), searchForNextPage, policy);
 	}
 
 	/**
@@ -105,8 +112,19 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage readOggPage(RandomAccessFile file) throws StreamCorruptedException, IOException{
-		if(!OggPage.CAPTURE_PATTERN.equals(new String(readByteArray(file, 4))) || file.readByte() != 0) throw new StreamCorruptedException("This is not an OGG page");
-		return readPage(file);
+		return readOggPage(file, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page, verifying its CRC checksum according to the given policy.
+	 * @param file The file, which must be positioned at the beginning of the OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readOggPage(RandomAccessFile file, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readOggPage(OggSource.of(file), policy);
 	}
 
 	/**
@@ -117,31 +135,167 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage readNextOggPage(RandomAccessFile file) throws StreamCorruptedException, IOException{
-		byte[] oggs = readByteArray(file, 4);
-		while(!OggPage.CAPTURE_PATTERN.equals(new String(oggs))){
-			for(int c = 0; c < 3; c++) oggs[c] = oggs[c + 1];
-			oggs[3] = file.readByte();
+		return readNextOggPage(file, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Searches for the next OGG page and reads it, verifying its CRC checksum according to the given policy.
+	 * @param file The file.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If the found OGG page has an unsupported version or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readNextOggPage(RandomAccessFile file, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readNextOggPage(OggSource.of(file), policy);
+	}
+
+	/**
+	 * Reads an OGG page from the current position of the given source, verifying its CRC checksum according to the default policy.
+	 * @param src The source, which must be positioned at the beginning of the OGG page.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readOggPage(OggSource src) throws StreamCorruptedException, IOException{
+		return readOggPage(src, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page from the current position of the given source, verifying its CRC checksum according to the given policy.
+	 * @param src The source, which must be positioned at the beginning of the OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readOggPage(OggSource src, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		checkCapturePattern(src, src.readByte());
+		return readPage(src, new OggPage(), policy);
+	}
+
+	/**
+	 * Reads an OGG page from the current position of the given source into an existing OGG page, verifying its CRC checksum according to the given
+	 * policy. The given page is reset and its storage is reused, so a reading loop that refills the same pages allocates nothing per page.
+	 * @param src The source, which must be positioned at the beginning of the OGG page.
+	 * @param page The OGG page to be filled.
+	 * @param policy The CRC verification policy.
+	 * @return The filled OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 * @see OggPage#reset()
+	 */
+	public static OggPage readOggPage(OggSource src, OggPage page, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readOggPage(src, src.readByte(), page, policy);
+	}
+
+	/**
+	 * Reads an OGG page whose first byte was already read into an existing OGG page, verifying its CRC checksum according to the given policy.
+	 * @param src The source, positioned at the second byte of the OGG page.
+	 * @param first The first byte of the OGG page.
+	 * @param page The OGG page to be filled.
+	 * @param policy The CRC verification policy.
+	 * @return The filled OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	static OggPage readOggPage(OggSource src, byte first, OggPage page, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		checkCapturePattern(src, first);
+		return readPage(src, page, policy);
+	}
+
+	/**
+	 * Reads the rest of the capture pattern and the version of an OGG page whose first byte was already read, without allocating.
+	 * @param src The source, positioned at the second byte of the OGG page.
+	 * @param first The first byte of the OGG page.
+	 * @throws StreamCorruptedException If there is no OGG page at the current position.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static void checkCapturePattern(OggSource src, byte first) throws StreamCorruptedException, IOException{
+		boolean capture = first == OggPage.CAPTURE_PATTERN.charAt(0);
+		for(int c = 1; c < 4; c++) if(src.readByte() != OggPage.CAPTURE_PATTERN.charAt(c)) capture = false;
+		if(!capture || src.readByte() != 0) throw new StreamCorruptedException("This is not an OGG page");
+	}
+
+	/**
+	 * Searches for the next OGG page from the current position of the given source and reads it, verifying its CRC checksum according to the default policy.
+	 * @param src The source.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If the found OGG page has an unsupported version or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readNextOggPage(OggSource src) throws StreamCorruptedException, IOException{
+		return readNextOggPage(src, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Searches for the next OGG page from the current position of the given source and reads it, verifying its CRC checksum according to the given policy.
+	 * @param src The source.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If the found OGG page has an unsupported version or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage readNextOggPage(OggSource src, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		Object ev = OggTracing.beginResync();
+		long discarded = 0L;
+		if(src.isSeekable()){
+			long start = src.getPosition(), p = findCapturePattern(src, start);
+			src.seek(p + 4);
+			discarded = p - start;
+		}else{
+			byte[] oggs = src.readBytes(4);
+			while(!OggBytes.isCapturePattern(oggs, 0)){
+				for(int c = 0; c < 3; c++) oggs[c] = oggs[c + 1];
+				oggs[3] = src.readByte();
+				discarded++;
+			}
 		}
-		if(file.readByte() != 0) throw new StreamCorruptedException("This is not an OGG page");
-		return readPage(file);
+		if(ev != null) OggTracing.endResync(ev, discarded);
+		if(discarded > 0L && OggMetrics.isEnabled()) OggMetrics.recordResync(discarded);
+		if(src.readByte() != 0) throw new StreamCorruptedException("This is not an OGG page");
+		return readPage(src, new OggPage(), policy);
 	}
 
 	/**
-	 * 
-	 * @param file
-	 * @return
-	 * @throws StreamCorruptedException
-	 * @throws IOException
+	 * Reads the remaining of an OGG page whose capture pattern and version were already read.
+	 * @param src The source, positioned at the header type of the OGG page.
+	 * @param page The OGG page to be filled.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
 	 */
-	private static OggPage readPage(RandomAccessFile file) throws StreamCorruptedException, IOException{
-		OggPage page = new OggPage();
-		page.setHeaderType(file.readByte());
-		page.setGranulePosition(readByteArray(file, 8));
-		page.setSerialNumber(readByteArray(file, 4));
-		page.setPageNumber(readByteArray(file, 4));
-		page.setCrcChecksum(readByteArray(file, 4));
-		for(byte ss : readByteArray(file, file.read())) page.addSegment(readByteArray(file, ss & 0xff));
-		if(!page.isCrcChecksumValid()) throw new StreamCorruptedException("CRC is not valid");
+	private static OggPage readPage(OggSource src, OggPage page, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		Object ev = OggTracing.beginPageRead();
+		long offset = ev == null || !src.positionKnown ? -1L : src.getPosition() - 5L;
+		page.read(src);
+		return checkPage(page, ev, offset, policy);
+	}
+
+	/**
+	 * Checks the CRC checksum of a read OGG page according to the given policy, recording the page in the metrics and in the page read event.
+	 * Pages whose CRC checksum is not verified by the reading thread are recorded as valid.
+	 * @param page The read OGG page.
+	 * @param ev The page read event handle, or {@code null} if the event is disabled.
+	 * @param offset The position of the page in the file, or -1 if unknown.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG page.
+	 * @throws StreamCorruptedException If CRC checksum is verified and is not valid.
+	 */
+	private static OggPage checkPage(OggPage page, Object ev, long offset, CrcPolicy policy) throws StreamCorruptedException{
+		boolean crcOk = !policy.verifiesNow(page) || page.isCrcChecksumValid();
+		policy.defer(page);
+		if(ev != null) OggTracing.endPageRead(ev, offset, page, page.getSize(), crcOk);
+		if(!crcOk){
+			if(OggMetrics.isEnabled()) OggMetrics.recordCrcFailure();
+			throw new StreamCorruptedException("CRC is not valid");
+		}
+		if(OggMetrics.isEnabled()){
+			int packets = 0;
+			for(int c = 0; c < page.getSegmentCount(); c++) if(page.getSegment(c).length != 255) packets++;
+			OggMetrics.recordPage(page.getSize(), packets);
+		}
 		return page;
 	}
 
@@ -165,12 +319,51 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static OggPage[] readOggPages(RandomAccessFile file, boolean searchForNextPage) throws StreamCorruptedException, IOException{
-		OggPage page = searchForNextPage ? readNextOggPage(file) :  readOggPage(file);
+		return readOggPages(file, searchForNextPage, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page and the following pages in which its last packet continues, verifying their CRC checksums according to the given policy.
+	 * @param file The file.
+	 * @param searchForNextPage If {@code true}, the next OGG page is searched if the file is not positioned at the beginning of an OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage[] readOggPages(RandomAccessFile file, boolean searchForNextPage, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		return readOggPages(OggSource.of(file), searchForNextPage, policy);
+	}
+
+	/**
+	 * Reads an OGG page from the current position of the given source and the following pages in which its last packet continues, verifying
+	 * their CRC checksums according to the default policy.
+	 * @param src The source, which must be positioned at the beginning of an OGG page.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage[] readOggPages(OggSource src) throws StreamCorruptedException, IOException{
+		return readOggPages(src, false, CrcPolicy.getDefault());
+	}
+
+	/**
+	 * Reads an OGG page from the current position of the given source and the following pages in which its last packet continues, verifying
+	 * their CRC checksums according to the given policy.
+	 * @param src The source.
+	 * @param searchForNextPage If {@code true}, the next OGG page is searched if the source is not positioned at the beginning of an OGG page.
+	 * @param policy The CRC verification policy.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPage[] readOggPages(OggSource src, boolean searchForNextPage, CrcPolicy policy) throws StreamCorruptedException, IOException{
+		OggPage page = searchForNextPage ? readNextOggPage(src, policy) :  readOggPage(src, policy);
 		if(!page.contentContinuesInNextPage()) return new OggPage[]{page};
 		LinkedList<OggPage> pages = new LinkedList<>();
 		pages.add(page);
 		do{
-			page = readOggPage(file);
+			page = readOggPage(src, policy);
 			pages.add(page);
 		}while(page.contentContinuesInNextPage());
 		return pages.toArray(new OggPage[pages.size()]);
@@ -184,25 +377,23 @@ public class OggUtils{
 	 * @return
 	 */
 	public static OggPage[] toOggPages(int serialNumber, int firstPageNmber, OggPackable... packets){
-		OggPage page = new OggPage();
-		page.setGranulePosition(0L);
-		page.setSerialNumber(serialNumber);
-		page.setPageNumber(firstPageNmber++);
-		byte[][] overplus = page.addPackets(packets);
-		page.computeAndSetCrcChecksum();
-		if(overplus == null) return new OggPage[]{page};
+		return toOggPages(PaginationPolicy.ARCHIVAL, serialNumber, firstPageNmber, packets);
+	}
+
+	/**
+	 * Puts OGG packets in OGG pages according to the given pagination policy. The last page is flushed even if it is not full.
+	 * The granule position of the pages is zero, or -1 for pages in which no packet finishes.
+	 * @param policy The pagination policy.
+	 * @param serialNumber The bitstream serial number.
+	 * @param firstPageNumber The number of the first OGG page.
+	 * @param packets The OGG packets.
+	 * @return The OGG pages.
+	 */
+	public static OggPage[] toOggPages(PaginationPolicy policy, int serialNumber, int firstPageNumber, OggPackable... packets){
+		OggPaginator pag = new OggPaginator(serialNumber, firstPageNumber, policy);
 		LinkedList<OggPage> pages = new LinkedList<>();
-		pages.add(page);
-		while(overplus != null){
-			OggPacket op = new OggPacket(overplus);
-			page = new OggPage();
-			page.setGranulePosition(0L);
-			page.setSerialNumber(serialNumber);
-			page.setPageNumber(firstPageNmber++);
-			overplus = page.addPacket(op);
-			page.computeAndSetCrcChecksum();
-			pages.add(page);
-		}
+		for(OggPackable p : packets) for(OggPage page : pag.addPacket(p, 0L)) pages.add(page);
+		for(OggPage page : pag.flush(false)) pages.add(page);
 		return pages.toArray(new OggPage[pages.size()]);
 	}
 
@@ -214,7 +405,7 @@ public class OggUtils{
 	public static void skipOggPage(InputStream is) throws IOException{
 		if(is.markSupported()) is.mark(5);
 		byte[] b = readByteArray(is, 4);
-		if(OggPage.CAPTURE_PATTERN.equals(new String(b))){
+		if(OggBytes.isCapturePattern(b, 0)){
 			is.skip(22);
 			for(byte ss : readByteArray(is, is.read())) is.skip(ss & 0xff);
 		}else if(is instanceof PushbackInputStream){
@@ -222,7 +413,7 @@ public class OggUtils{
 				((PushbackInputStream) is).unread(b);
 				readByte(is);
 				b = readByteArray(is, 4);
-			}while(!OggPage.CAPTURE_PATTERN.equals(new String(b)));
+			}while(!OggBytes.isCapturePattern(b, 0));
 			((PushbackInputStream) is).unread(b);
 		}else if(is.markSupported()){
 			do{
@@ -230,7 +421,7 @@ public class OggUtils{
 				is.skip(1);
 				is.mark(5);
 				b = readByteArray(is, 4);
-			}while(!OggPage.CAPTURE_PATTERN.equals(new String(b)));
+			}while(!OggBytes.isCapturePattern(b, 0));
 			is.reset();
 		}else throw new IOException("Unable to skip OGG page");
 	}
@@ -241,17 +432,20 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static void skipOggPage(RandomAccessFile file) throws IOException{
-		if(OggPage.CAPTURE_PATTERN.equals(new String(readByteArray(file, 4)))){
-			file.skipBytes(22);
-			for(byte ss : readByteArray(file, file.read())) file.skipBytes(ss & 0xff);
-		}else{
-			byte[] b;
-			do{
-				file.seek(file.getFilePointer() - 3);
-				b = readByteArray(file, 4);
-			}while(!OggPage.CAPTURE_PATTERN.equals(new String(b)));
-			file.seek(file.getFilePointer() - 4);
-		}
+		skipOggPage(OggSource.of(file));
+	}
+
+	/**
+	 * Skips the OGG page at the current position of the given source. If the source is not positioned at the beginning of an OGG page, the
+	 * source is positioned at the beginning of the next OGG page instead.
+	 * @param src The source.
+	 * @throws IOException If I/O error occurs or the source is not seekable and is not positioned at the beginning of an OGG page.
+	 */
+	public static void skipOggPage(OggSource src) throws IOException{
+		if(OggBytes.isCapturePattern(src.readBytes(4), 0)){
+			src.skip(22);
+			for(byte ss : src.readBytes(src.readByte() & 0xff)) src.skip(ss & 0xff);
+		}else src.seek(findCapturePattern(src, src.getPosition() - 3));
 	}
 
 	/**
@@ -260,9 +454,61 @@ public class OggUtils{
 	 * @throws IOException
 	 */
 	public static void goToLastOggPageFilePointer(RandomAccessFile file) throws IOException{
-		file.seek(file.length() - 27);
-		while(!OggPage.CAPTURE_PATTERN.equals(new String(readByteArray(file, 4)))) file.seek(file.getFilePointer() - 5);
-		file.seek(file.getFilePointer() - 4);
+		goToLastOggPage(OggSource.of(file));
+	}
+
+	/**
+	 * Positions the given source at the beginning of its last OGG page, searching backward from its end.
+	 * @param src The source, which must be seekable and have a known length.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static void goToLastOggPage(OggSource src) throws IOException{
+		byte[] buf = new byte[SCAN_CHUNK];
+		for(long end = src.length() - 23L;;){
+			long start = Math.max(0L, end - buf.length);
+			int p = OggBytes.lastIndexOfCapturePattern(buf, 0, readChunk(src, start, buf, (int) (end - start)));
+			if(p >= 0){
+				src.seek(start + p);
+				return;
+			}
+			if(start == 0L) throw new StreamCorruptedException("No OGG page found");
+			end = start + 3L;
+		}
+	}
+
+	/**
+	 * Searches forward for the capture pattern of OGG pages in a seekable source, reading chunks with positional reads, so the current position of
+	 * the source is not changed.
+	 * @param src The source.
+	 * @param from The position where the search begins.
+	 * @return The position of the capture pattern.
+	 * @throws EOFException If the end of the source is reached before the capture pattern is found.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static long findCapturePattern(OggSource src, long from) throws IOException{
+		byte[] buf = new byte[SCAN_CHUNK];
+		for(long pos = from;; pos += buf.length - 3){
+			int n = readChunk(src, pos, buf, buf.length);
+			int p = OggBytes.indexOfCapturePattern(buf, 0, n);
+			if(p >= 0) return pos + p;
+			if(n < buf.length) throw new EOFException();
+		}
+	}
+
+	/**
+	 * Reads bytes at the given position of a source until the given number of bytes or the end of the source is reached, without changing the
+	 * current position.
+	 * @param src The source.
+	 * @param pos The position of the first byte.
+	 * @param b The buffer where the bytes are stored.
+	 * @param len The number of bytes to read.
+	 * @return The number of bytes read, which is less than the given number only if the end of the source was reached.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static int readChunk(OggSource src, long pos, byte[] b, int len) throws IOException{
+		int n = 0;
+		for(int r; n < len && (r = src.read(pos + n, b, n, len - n)) > 0;) n += r;
+		return n;
 	}
 
 	/**
@@ -287,7 +533,7 @@ public class OggUtils{
 	public static byte[] readByteArray(InputStream is, int length) throws IOException{
 		if(length < 0) throw new EOFException();
 		byte[] b = new byte[length];
-		if(is.read(b) < 0) throw new EOFException();
+		for(int off = 0, r; off < length; off += r) if((r = is.read(b, off, length - off)) < 0) throw new EOFException();
 		return b;
 	}
 
@@ -301,7 +547,7 @@ public class OggUtils{
 	public static byte[] readByteArray(RandomAccessFile file, int length) throws IOException{
 		if(length < 0) throw new EOFException();
 		byte[] b = new byte[length];
-		if(file.read(b) < 0) throw new EOFException();
+		file.readFully(b);
 		return b;
 	}
 
@@ -327,32 +573,41 @@ public class OggUtils{
 		return getPacketsFromPages(readOggPages(file));
 	}
 
+	/**
+	 * Reads an OGG page from the current position of the given source and the following pages in which its last packet continues, and
+	 * extracts their packets.
+	 * @param src The source, which must be positioned at the beginning of an OGG page.
+	 * @return The OGG packets.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or CRC checksum is verified and is not valid.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public static OggPacket[] getPacketsFromPages(OggSource src) throws StreamCorruptedException, IOException{
+		return getPacketsFromPages(readOggPages(src));
+	}
+
 	/**
 	 * 
 	 * @param pages
 	 * @return
 	 */
 	public static OggPacket[] getPacketsFromPages(OggPage... pages){
+		Object ev = OggTracing.beginPacketReassembly();
 		LinkedList<OggPacket> op = new LinkedList<>();
-		byte[] temp = null;
+		ArrayList<byte[]> parts = new ArrayList<>();
 		for(OggPage page : pages){
-			byte[][] st = page.getSegmentTable();
-			for(int c = 0; c < st.length; c++){
-				if(temp == null){
-					if(st[c].length < 255) op.add(new OggPacket(st[c]));
-					else temp = st[c];
-				}else{
-					byte[] temp2 = new byte[temp.length + st[c].length];
-					System.arraycopy(temp, 0, temp2, 0, temp.length);
-					System.arraycopy(st[c], 0, temp2, temp.length, st[c].length);
-					temp = temp2;
-					if(st[c].length < 255){
-						op.add(new OggPacket(temp));
-						temp = null;
+			for(int c = 0; c < page.getSegmentCount(); c++){
+				byte[] seg = page.getSegment(c);
+				if(parts.isEmpty() && seg.length < 255) op.add(new OggPacket(seg));
+				else{
+					parts.add(seg);
+					if(seg.length < 255){
+						op.add(new OggPacket(parts.toArray(new byte[parts.size()][])));
+						parts.clear();
 					}
 				}
 			}
 		}
+		if(ev != null) OggTracing.endPacketReassembly(ev, pages.length, op.size());
 		return op.toArray(new OggPacket[op.size()]);
 	}
 
@@ -374,7 +629,7 @@ public class OggUtils{
 	 */
 	public static short getShortFromByteArray(byte[] array, int offset){
 		if(array == null) return 0;
-		return new Integer((array[offset] & 0xff) | ((array[offset + 1] & 0xff) << 8)).shortValue();
+		return OggBytes.getShort(array, offset);
 	}
 
 	/**
@@ -403,7 +658,7 @@ public class OggUtils{
 	 */
 	public static int getIntFromByteArray(byte[] array, int offset){
 		if(array == null) return 0;
-		return (array[offset] & 0xff) | ((array[offset + 1] & 0xff) << 8) | ((array[offset + 2] & 0xff) << 16) | ((array[offset + 3] & 0xff) << 24);
+		return OggBytes.getInt(array, offset);
 	}
 
 	/**
@@ -412,7 +667,9 @@ public class OggUtils{
 	 * @return
 	 */
 	public static byte[] getByteArrayFromInt(int i){
-		return new byte[]{(byte) i, (byte) (i >>> 8), (byte) (i >>> 16), (byte) (i >>> 24)};
+		byte[] b = new byte[4];
+		OggBytes.putInt(b, 0, i);
+		return b;
 	}
 
 	/**
@@ -432,9 +689,7 @@ public class OggUtils{
 	 */
 	public static long getLongFromByteArray(byte[] array, int offset){
 		if(array == null) return 0L;
-		long gp = array[offset + 7] & 0xff;
-		for(int c = 6; c > -1; c--) gp = (gp << 8) | (array[offset + c] & 0xff);
-		return gp;
+		return OggBytes.getLong(array, offset);
 	}
 
 	/**
@@ -443,6 +698,8 @@ public class OggUtils{
 	 * @return
 	 */
 	public static byte[] getByteArrayFromLong(long l){
-		return new byte[]{(byte) l, (byte) (l >>> 8), (byte) (l >>> 16), (byte) (l >>> 24), (byte) (l >>> 32), (byte) (l >>> 40), (byte) (l >>> 44), (byte) (l >>> 48)};
+		byte[] b = new byte[8];
+		OggBytes.putLong(b, 0, l);
+		return b;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,736 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates the integrity of OGG files and collects statistics about their logical streams, using several threads.<br/><br/>
+ * The file is split in chunks, and each chunk is memory-mapped and scanned by its own thread, which finds the page boundaries and verifies the
+ * CRC checksum of each page. The results of the chunks are merged in order, checking the continuity of the page numbers and the monotonicity
+ * of the granule positions of each logical stream. Pages that begin in a chunk and end in the next one are handled by the chunk where they begin.
+ * @author Allan Taborda dos Santos
+ */
+public class OggValidator{
+	/** The maximum size in bytes of an OGG page, including its header. */
+	private static final int MAX_PAGE_SIZE = 27 + 255 + 255 * 255;
+	/** The maximum number of error messages kept in a report. */
+	private static final int MAX_ERRORS = 1000;
+	/** The maximum number of seconds of the bitrate series of a logical stream. */
+	private static final int MAX_SECONDS = 1 << 24;
+	/** Kind of invalid page whose CRC checksum does not match its content. */
+	private static final byte BAD_CRC = 0;
+	/** Kind of invalid page that extends beyond the end of the file. */
+	private static final byte TRUNCATED = 1;
+	/** Kind of invalid page with an unsupported stream structure version. */
+	private static final byte BAD_VERSION = 2;
+	/** Number of threads used to validate. */
+	private int threads;
+	/** Size in bytes of each chunk of the file scanned by a thread. */
+	private int chunkSize = 67108864;
+	/** Number of granule positions per second of the logical streams, used to compute the bitrate over time. */
+	private long granuleRate = 48000L;
+
+	/** Creates a validator that uses as many threads as available processors. */
+	public OggValidator(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a validator that uses the given number of threads.
+	 * @param threads The number of threads.
+	 * @throws IllegalArgumentException If the number of threads is less than one.
+	 */
+	public OggValidator(int threads){
+		if(threads < 1) throw new IllegalArgumentException("Invalid number of threads: " + threads);
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the size in bytes of each chunk of the file scanned by a thread.
+	 * @return The chunk size.
+	 */
+	public int getChunkSize(){
+		return chunkSize;
+	}
+
+	/**
+	 * Changes the size in bytes of each chunk of the file scanned by a thread. Each chunk is memory-mapped, so the chunk size
+	 * must not be greater than the maximum size of a memory mapping minus the maximum size of an OGG page.
+	 * @param size The new chunk size.
+	 */
+	public void setChunkSize(int size){
+		if(size < 1 || size > Integer.MAX_VALUE - MAX_PAGE_SIZE) throw new IllegalArgumentException("Invalid chunk size: " + size);
+		chunkSize = size;
+	}
+
+	/**
+	 * Returns the number of granule positions per second of the logical streams, used to compute the bitrate over time.
+	 * @return The granule rate.
+	 */
+	public long getGranuleRate(){
+		return granuleRate;
+	}
+
+	/**
+	 * Changes the number of granule positions per second of the logical streams, used to compute the bitrate over time. For audio
+	 * codecs, this is usually the sample rate (48000 for Opus, the sample rate of the audio for Vorbis, Speex and FLAC).
+	 * @param rate The new granule rate.
+	 */
+	public void setGranuleRate(long rate){
+		if(rate < 1L) throw new IllegalArgumentException("Invalid granule rate: " + rate);
+		granuleRate = rate;
+	}
+
+	/**
+	 * Validates the given OGG file.
+	 * @param f The OGG file.
+	 * @return The validation report.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public Report validate(File f) throws IOException{
+		long begin = System.nanoTime();
+		Report report = new Report(granuleRate);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<>(threads * 2);
+		try(FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ)){
+			long size = fc.size();
+			report.fileSize = size;
+			for(long start = 0L; start < size; start += chunkSize){
+				pending.add(executor.submit(new ChunkScanner(fc, size, start, Math.min(size, start + chunkSize))));
+				if(pending.size() >= threads * 2) report.merge(waitFor(pending.poll()));
+			}
+			while(!pending.isEmpty()) report.merge(waitFor(pending.poll()));
+			report.finish();
+		}finally{
+			for(Future<ChunkResult> fut : pending) fut.cancel(true);
+			executor.shutdownNow();
+		}
+		report.elapsedNanos = System.nanoTime() - begin;
+		return report;
+	}
+
+	/**
+	 * Waits for a chunk to be scanned.
+	 * @param chunk The chunk being scanned.
+	 * @return The result of the chunk scanning.
+	 * @throws IOException If scanning fails or I/O error occurs.
+	 */
+	private ChunkResult waitFor(Future<ChunkResult> chunk) throws IOException{
+		try{
+			return chunk.get();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Validation interrupted");
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException("Error while validating OGG file", e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the position of the given packet size in the packet size histogram.
+	 * @param size The packet size.
+	 * @return The histogram bucket.
+	 */
+	private static int bucket(int size){
+		return 32 - Integer.numberOfLeadingZeros(size);
+	}
+
+	/** Task that scans a chunk of the file, finding and verifying the OGG pages that begin in the chunk. */
+	private static class ChunkScanner implements Callable<ChunkResult>{
+		/** The channel of the OGG file. */
+		private FileChannel channel;
+		/** The size of the OGG file. */
+		private long fileSize;
+		/** The offset where the chunk begins. */
+		private long start;
+		/** The offset where the chunk ends. */
+		private long end;
+
+		/**
+		 * Creates a task that scans a chunk of the file.
+		 * @param fc The channel of the OGG file.
+		 * @param fs The size of the OGG file.
+		 * @param s The offset where the chunk begins.
+		 * @param e The offset where the chunk ends.
+		 */
+		ChunkScanner(FileChannel fc, long fs, long s, long e){
+			channel = fc;
+			fileSize = fs;
+			start = s;
+			end = e;
+		}
+
+		public ChunkResult call() throws IOException{
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(fileSize, end + MAX_PAGE_SIZE) - start).order(ByteOrder.LITTLE_ENDIAN);
+			ChunkResult result = new ChunkResult();
+			int limit = (int) (end - start), mapped = buf.limit(), p = 0;
+			while(p < limit){
+				if((p = OggBytes.indexOfCapturePattern(buf, p, Math.min(mapped, limit + 3))) < 0) break;
+				if(p + 27 > mapped){
+					result.addInvalid(start + p, TRUNCATED);
+					p++;
+					continue;
+				}
+				if(buf.get(p + 4) != 0){
+					result.addInvalid(start + p, BAD_VERSION);
+					p++;
+					continue;
+				}
+				int segments = buf.get(p + 26) & 0xff, size = 27 + segments;
+				if(p + size <= mapped) for(int c = 0; c < segments; c++) size += buf.get(p + 27 + c) & 0xff;
+				if(p + size > mapped){
+					result.addInvalid(start + p, TRUNCATED);
+					p++;
+					continue;
+				}
+				if(OggPage.computeCrcChecksum(buf, p, size) != buf.getInt(p + 22)){
+					result.addInvalid(start + p, BAD_CRC);
+					p++;
+					continue;
+				}
+				int cur = 0, finished = 0, head = 0;
+				for(int c = 0; c < segments; c++){
+					int lacing = buf.get(p + 27 + c) & 0xff;
+					cur += lacing;
+					if(lacing < 255){
+						if(finished++ == 0) head = cur;
+						else result.histogram[bucket(cur)]++;
+						cur = 0;
+					}
+				}
+				result.addPage(start + p, size, size - 27 - segments, buf.get(p + 5), buf.getLong(p + 6), buf.getInt(p + 14), buf.getInt(p + 18), finished, head, cur);
+				p += size;
+			}
+			return result;
+		}
+	}
+
+	/** The OGG pages and invalid pages found in a chunk of the file, in the order they appear. */
+	private static class ChunkResult{
+		/** Offsets of the OGG pages. */
+		long[] offsets = new long[1024];
+		/** Sizes of the OGG pages, including their headers. */
+		int[] sizes = new int[1024];
+		/** Body sizes of the OGG pages. */
+		int[] bodySizes = new int[1024];
+		/** Header types of the OGG pages. */
+		byte[] headerTypes = new byte[1024];
+		/** Granule positions of the OGG pages. */
+		long[] granules = new long[1024];
+		/** Serial numbers of the OGG pages. */
+		int[] serials = new int[1024];
+		/** Page numbers of the OGG pages. */
+		int[] pageNumbers = new int[1024];
+		/** Number of packets finished in each OGG page. */
+		int[] finished = new int[1024];
+		/** Bytes of each OGG page up to the end of the first finished packet, if any. */
+		int[] heads = new int[1024];
+		/** Bytes of each OGG page after the end of the last finished packet. */
+		int[] tails = new int[1024];
+		/** Number of OGG pages. */
+		int size;
+		/** Offsets of the invalid pages. */
+		long[] invalidOffsets = new long[16];
+		/** Kinds of the invalid pages. */
+		byte[] invalidKinds = new byte[16];
+		/** Number of invalid pages. */
+		int invalidSize;
+		/** Histogram of sizes of the packets that begin and end inside an OGG page, except the first finished packet of the page. */
+		long[] histogram = new long[33];
+
+		/**
+		 * Adds an OGG page.
+		 * @param offset The page offset.
+		 * @param pageSize The page size.
+		 * @param bodySize The page body size.
+		 * @param headerType The page header type.
+		 * @param granule The page granule position.
+		 * @param serial The page serial number.
+		 * @param pageNumber The page number.
+		 * @param packets The number of packets finished in the page.
+		 * @param head The bytes up to the end of the first finished packet.
+		 * @param tail The bytes after the end of the last finished packet.
+		 */
+		void addPage(long offset, int pageSize, int bodySize, byte headerType, long granule, int serial, int pageNumber, int packets, int head, int tail){
+			if(size == offsets.length){
+				int nc = size * 2;
+				offsets = Arrays.copyOf(offsets, nc);
+				sizes = Arrays.copyOf(sizes, nc);
+				bodySizes = Arrays.copyOf(bodySizes, nc);
+				headerTypes = Arrays.copyOf(headerTypes, nc);
+				granules = Arrays.copyOf(granules, nc);
+				serials = Arrays.copyOf(serials, nc);
+				pageNumbers = Arrays.copyOf(pageNumbers, nc);
+				finished = Arrays.copyOf(finished, nc);
+				heads = Arrays.copyOf(heads, nc);
+				tails = Arrays.copyOf(tails, nc);
+			}
+			offsets[size] = offset;
+			sizes[size] = pageSize;
+			bodySizes[size] = bodySize;
+			headerTypes[size] = headerType;
+			granules[size] = granule;
+			serials[size] = serial;
+			pageNumbers[size] = pageNumber;
+			finished[size] = packets;
+			heads[size] = head;
+			tails[size++] = tail;
+		}
+
+		/**
+		 * Adds an invalid page.
+		 * @param offset The page offset.
+		 * @param kind The kind of invalid page.
+		 */
+		void addInvalid(long offset, byte kind){
+			if(invalidSize == invalidOffsets.length){
+				invalidOffsets = Arrays.copyOf(invalidOffsets, invalidSize * 2);
+				invalidKinds = Arrays.copyOf(invalidKinds, invalidSize * 2);
+			}
+			invalidOffsets[invalidSize] = offset;
+			invalidKinds[invalidSize++] = kind;
+		}
+	}
+
+	/** The result of the validation of an OGG file. */
+	public static class Report{
+		/** The size of the file. */
+		private long fileSize;
+		/** The number of valid OGG pages. */
+		private long pages;
+		/** The total size of the bodies of the valid OGG pages. */
+		private long bodyBytes;
+		/** The number of OGG pages with invalid CRC checksum. */
+		private long crcFailures;
+		/** The number of OGG pages with unsupported stream structure version. */
+		private long badVersions;
+		/** The number of OGG pages that extend beyond the end of the file. */
+		private long truncatedPages;
+		/** The number of bytes that do not belong to valid OGG pages. */
+		private long resyncBytes;
+		/** The number of gaps in the sequence of page numbers. */
+		private long sequenceGaps;
+		/** The number of granule positions lesser than the previous granule position of the same logical stream. */
+		private long granuleViolations;
+		/** The number of packets. */
+		private long packets;
+		/** The histogram of packet sizes. */
+		private long[] histogram = new long[33];
+		/** The statistics of the logical streams, by serial number. */
+		private Map<Integer, StreamStats> streams = new LinkedHashMap<>();
+		/** The error messages. */
+		private List<String> errors = new ArrayList<>();
+		/** The time spent validating, in nanoseconds. */
+		private long elapsedNanos;
+		/** The offset where the next OGG page is expected, that is, the end of the last valid OGG page. */
+		private long expected;
+		/** The granule rate of the validator. */
+		private long granuleRate;
+
+		/**
+		 * Creates an empty report.
+		 * @param rate The granule rate of the validator.
+		 */
+		private Report(long rate){
+			granuleRate = rate;
+		}
+
+		/**
+		 * Merges the result of a chunk, which must be the chunk following the last merged chunk.
+		 * @param r The result of the chunk.
+		 */
+		private void merge(ChunkResult r){
+			for(int c = 0; c < histogram.length; c++) histogram[c] += r.histogram[c];
+			int i = 0;
+			for(int c = 0; c < r.size; c++){
+				long offset = r.offsets[c];
+				for(; i < r.invalidSize && r.invalidOffsets[i] < offset; i++) mergeInvalid(r.invalidOffsets[i], r.invalidKinds[i]);
+				if(offset < expected) continue;
+				if(offset > expected) resync(expected, offset);
+				mergePage(r, c);
+				expected = offset + r.sizes[c];
+			}
+			for(; i < r.invalidSize; i++) mergeInvalid(r.invalidOffsets[i], r.invalidKinds[i]);
+		}
+
+		/**
+		 * Merges an invalid page. Only the invalid pages found where a page is expected are taken in account, since the others can be false
+		 * capture patterns inside the body of valid pages.
+		 * @param offset The page offset.
+		 * @param kind The kind of invalid page.
+		 */
+		private void mergeInvalid(long offset, byte kind){
+			if(offset != expected) return;
+			switch(kind){
+				case BAD_CRC:
+					crcFailures++;
+					error("Invalid CRC checksum in OGG page at offset " + offset);
+					break;
+				case TRUNCATED:
+					truncatedPages++;
+					error("Truncated OGG page at offset " + offset);
+					break;
+				default:
+					badVersions++;
+					error("Unsupported stream structure version in OGG page at offset " + offset);
+			}
+		}
+
+		/**
+		 * Merges a valid OGG page.
+		 * @param r The result of the chunk containing the page.
+		 * @param c The position of the page in the chunk result.
+		 */
+		private void mergePage(ChunkResult r, int c){
+			int serial = r.serials[c];
+			StreamStats s = streams.get(serial);
+			if(s == null){
+				s = new StreamStats(serial);
+				s.beginningOfStream = (r.headerTypes[c] & 0b10) != 0;
+				streams.put(serial, s);
+			}else if(r.pageNumbers[c] != s.lastPageNumber + 1){
+				s.sequenceGaps++;
+				sequenceGaps++;
+				error("Page sequence gap in stream " + Integer.toHexString(serial) + " at offset " + r.offsets[c] + ": expected page " + (s.lastPageNumber + 1) + ", found " + r.pageNumbers[c]);
+			}
+			s.lastPageNumber = r.pageNumbers[c];
+			if((r.headerTypes[c] & 0b100) != 0) s.endOfStream = true;
+			s.pages++;
+			s.bytes += r.sizes[c];
+			pages++;
+			bodyBytes += r.bodySizes[c];
+			long granule = r.granules[c];
+			if(granule != -1L){
+				if(s.lastGranule != -1L && granule < s.lastGranule){
+					s.granuleViolations++;
+					granuleViolations++;
+					error("Granule position decreased in stream " + Integer.toHexString(serial) + " at offset " + r.offsets[c] + ": " + s.lastGranule + " to " + granule);
+				}
+				if(s.firstGranule == -1L) s.firstGranule = granule;
+				s.lastGranule = granule;
+				if(granule >= 0L && granule / granuleRate < MAX_SECONDS) s.second = (int) (granule / granuleRate);
+			}
+			s.addBytes(r.sizes[c]);
+			if((r.headerTypes[c] & 0b1) == 0) s.carry = 0;
+			int finished = r.finished[c];
+			if(finished > 0){
+				histogram[bucket(s.carry + r.heads[c])]++;
+				s.carry = r.tails[c];
+				s.packets += finished;
+				packets += finished;
+			}else s.carry += r.tails[c];
+		}
+
+		/**
+		 * Accounts bytes that do not belong to valid OGG pages.
+		 * @param from The offset where the bytes begin.
+		 * @param to The offset where the bytes end.
+		 */
+		private void resync(long from, long to){
+			resyncBytes += to - from;
+			error("Discarded " + (to - from) + " bytes at offset " + from);
+		}
+
+		/** Finishes the report after all chunks are merged. */
+		private void finish(){
+			if(expected < fileSize) resync(expected, fileSize);
+			errors = Collections.unmodifiableList(errors);
+			streams = Collections.unmodifiableMap(streams);
+		}
+
+		/**
+		 * Adds an error message, if the maximum number of messages is not reached.
+		 * @param message The error message.
+		 */
+		private void error(String message){
+			if(errors.size() < MAX_ERRORS) errors.add(message);
+		}
+
+		/**
+		 * Returns if the file is a valid OGG file, that is, a file with no invalid pages, discarded bytes, sequence gaps or granule position violations.
+		 * @return {@code true} if the file is valid, {@code false} otherwise.
+		 */
+		public boolean isValid(){
+			return pages > 0L && crcFailures == 0L && badVersions == 0L && truncatedPages == 0L && resyncBytes == 0L && sequenceGaps == 0L && granuleViolations == 0L;
+		}
+
+		/**
+		 * Returns the size of the file.
+		 * @return The file size.
+		 */
+		public long getFileSize(){
+			return fileSize;
+		}
+
+		/**
+		 * Returns the number of valid OGG pages.
+		 * @return The number of pages.
+		 */
+		public long getPageCount(){
+			return pages;
+		}
+
+		/**
+		 * Returns the number of OGG pages with invalid CRC checksum.
+		 * @return The number of CRC failures.
+		 */
+		public long getCrcFailures(){
+			return crcFailures;
+		}
+
+		/**
+		 * Returns the number of OGG pages with unsupported stream structure version.
+		 * @return The number of pages with unsupported version.
+		 */
+		public long getUnsupportedVersions(){
+			return badVersions;
+		}
+
+		/**
+		 * Returns the number of OGG pages that extend beyond the end of the file.
+		 * @return The number of truncated pages.
+		 */
+		public long getTruncatedPages(){
+			return truncatedPages;
+		}
+
+		/**
+		 * Returns the number of bytes that do not belong to valid OGG pages, including the bytes of invalid pages.
+		 * @return The number of discarded bytes.
+		 */
+		public long getResyncBytes(){
+			return resyncBytes;
+		}
+
+		/**
+		 * Returns the number of gaps in the sequence of page numbers of all logical streams.
+		 * @return The number of sequence gaps.
+		 */
+		public long getSequenceGaps(){
+			return sequenceGaps;
+		}
+
+		/**
+		 * Returns the number of granule positions lesser than the previous granule position of the same logical stream, in all logical streams.
+		 * @return The number of granule position violations.
+		 */
+		public long getGranuleViolations(){
+			return granuleViolations;
+		}
+
+		/**
+		 * Returns the number of packets finished in the valid OGG pages.
+		 * @return The number of packets.
+		 */
+		public long getPacketCount(){
+			return packets;
+		}
+
+		/**
+		 * Returns the histogram of packet sizes. The element {@code n} of the returned array is the number of packets whose size is
+		 * at least 2<sup>n-1</sup> and lesser than 2<sup>n</sup> bytes (the element zero is the number of empty packets).
+		 * @return The histogram of packet sizes.
+		 */
+		public long[] getPacketSizeHistogram(){
+			return histogram.clone();
+		}
+
+		/**
+		 * Returns the average fill ratio of the valid OGG pages, that is, the ratio between the body size of the pages and the maximum body size of a page.
+		 * @return The average page fill ratio, between 0 and 1.
+		 */
+		public double getPageFillRatio(){
+			return pages == 0L ? 0.0 : bodyBytes / (pages * 65025.0);
+		}
+
+		/**
+		 * Returns the statistics of the logical streams, by serial number, in the order the streams appear in the file.
+		 * @return The statistics of the logical streams.
+		 */
+		public Map<Integer, StreamStats> getStreams(){
+			return streams;
+		}
+
+		/**
+		 * Returns the error messages, in the order the errors appear in the file. Only the first 1000 messages are kept.
+		 * @return The error messages.
+		 */
+		public List<String> getErrors(){
+			return errors;
+		}
+
+		/**
+		 * Returns the time spent validating, in nanoseconds.
+		 * @return The elapsed time.
+		 */
+		public long getElapsedNanos(){
+			return elapsedNanos;
+		}
+	}
+
+	/** The statistics of a logical stream. */
+	public static class StreamStats{
+		/** The serial number. */
+		private int serialNumber;
+		/** The number of OGG pages. */
+		private long pages;
+		/** The total size of the OGG pages, including their headers. */
+		private long bytes;
+		/** The number of packets. */
+		private long packets;
+		/** The first granule position. */
+		private long firstGranule = -1L;
+		/** The last granule position. */
+		private long lastGranule = -1L;
+		/** The number of gaps in the sequence of page numbers. */
+		private long sequenceGaps;
+		/** The number of granule positions lesser than the previous granule position. */
+		private long granuleViolations;
+		/** Flag indicating if the first OGG page is the beginning of the stream. */
+		private boolean beginningOfStream;
+		/** Flag indicating if an OGG page with the end of stream flag was found. */
+		private boolean endOfStream;
+		/** Bytes of the OGG pages in each second of the stream. */
+		private long[] bytesPerSecond = new long[64];
+		/** Number of seconds with bytes. */
+		private int seconds;
+		/** The second of the stream where the current OGG page is. */
+		private int second;
+		/** The last page number. */
+		private int lastPageNumber;
+		/** Bytes of the packet not finished in the last OGG page. */
+		private int carry;
+
+		/**
+		 * Creates the statistics of a logical stream.
+		 * @param serial The serial number.
+		 */
+		private StreamStats(int serial){
+			serialNumber = serial;
+		}
+
+		/**
+		 * Accounts the bytes of an OGG page in the current second of the stream.
+		 * @param size The page size.
+		 */
+		private void addBytes(int size){
+			if(second >= bytesPerSecond.length) bytesPerSecond = Arrays.copyOf(bytesPerSecond, Math.max(second + 1, bytesPerSecond.length * 2));
+			bytesPerSecond[second] += size;
+			if(second >= seconds) seconds = second + 1;
+		}
+
+		/**
+		 * Returns the serial number of the logical stream.
+		 * @return The serial number.
+		 */
+		public int getSerialNumber(){
+			return serialNumber;
+		}
+
+		/**
+		 * Returns the number of OGG pages of the logical stream.
+		 * @return The number of pages.
+		 */
+		public long getPageCount(){
+			return pages;
+		}
+
+		/**
+		 * Returns the total size of the OGG pages of the logical stream, including their headers.
+		 * @return The size of the logical stream.
+		 */
+		public long getBytes(){
+			return bytes;
+		}
+
+		/**
+		 * Returns the number of packets of the logical stream.
+		 * @return The number of packets.
+		 */
+		public long getPacketCount(){
+			return packets;
+		}
+
+		/**
+		 * Returns the first granule position of the logical stream, ignoring pages with no granule position.
+		 * @return The first granule position, or -1 if no page has a granule position.
+		 */
+		public long getFirstGranulePosition(){
+			return firstGranule;
+		}
+
+		/**
+		 * Returns the last granule position of the logical stream, ignoring pages with no granule position.
+		 * @return The last granule position, or -1 if no page has a granule position.
+		 */
+		public long getLastGranulePosition(){
+			return lastGranule;
+		}
+
+		/**
+		 * Returns the number of gaps in the sequence of page numbers of the logical stream.
+		 * @return The number of sequence gaps.
+		 */
+		public long getSequenceGaps(){
+			return sequenceGaps;
+		}
+
+		/**
+		 * Returns the number of granule positions lesser than the previous granule position of the logical stream.
+		 * @return The number of granule position violations.
+		 */
+		public long getGranuleViolations(){
+			return granuleViolations;
+		}
+
+		/**
+		 * Returns if the first OGG page of the logical stream is flagged as the beginning of the stream.
+		 * @return {@code true} if the beginning of the stream was found, {@code false} otherwise.
+		 */
+		public boolean isBeginningOfStream(){
+			return beginningOfStream;
+		}
+
+		/**
+		 * Returns if an OGG page of the logical stream is flagged as the end of the stream.
+		 * @return {@code true} if the end of the stream was found, {@code false} otherwise.
+		 */
+		public boolean isEndOfStream(){
+			return endOfStream;
+		}
+
+		/**
+		 * Returns the bitrate over time of the logical stream, in bits per second, including the page headers. The element {@code n}
+		 * of the returned array is the bitrate of the second {@code n} of the stream, according to the granule rate of the validator.
+		 * @return The bitrate over time.
+		 */
+		public long[] getBitrates(){
+			long[] bitrates = new long[seconds];
+			for(int c = 0; c < seconds; c++) bitrates[c] = bytesPerSecond[c] * 8L;
+			return bitrates;
+		}
+	}
+}
\ No newline at end of file
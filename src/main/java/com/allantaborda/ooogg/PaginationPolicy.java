@@ -0,0 +1,124 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+/**
+ * Policy that decides when OGG packets are put in a new OGG page. Small pages reduce the latency of live streams, while
+ * large pages reduce the container overhead. Instances of this class are immutable.
+ * @author Allan Taborda dos Santos
+ */
+public class PaginationPolicy{
+	/** Default policy: pages with up to 4250 bytes of content and 240 segments, and packets split only if they don't fit in an empty page. */
+	public static final PaginationPolicy DEFAULT = new PaginationPolicy(4250, 240, 0L, false, false);
+	/** Policy for the lowest container overhead: pages filled up to the maximum of 255 segments, splitting packets between pages when necessary. */
+	public static final PaginationPolicy ARCHIVAL = new PaginationPolicy(65025, 255, 0L, false, true);
+	/** Policy for the lowest latency: each packet is flushed in its own page. */
+	public static final PaginationPolicy FLUSH_ON_PACKET = new PaginationPolicy(65025, 255, 0L, true, false);
+	/** Maximum number of content bytes per page. */
+	private final int maxBytes;
+	/** Maximum number of segments per page. */
+	private final int maxSegments;
+	/** Maximum difference between the granule positions of the last packet of the page and the last packet of the previous page, or zero if unlimited. */
+	private final long maxGranuleDuration;
+	/** Flag indicating if the page is flushed after each packet. */
+	private final boolean flushOnPacket;
+	/** Flag indicating if packets are split between pages to fill them up. */
+	private final boolean splitPackets;
+
+	/**
+	 * Creates a pagination policy.
+	 * @param maxBytes The maximum number of content bytes per page, from 255 to 65025.
+	 * @param maxSegments The maximum number of segments per page, from 1 to 255.
+	 * @param maxGranuleDuration The maximum difference between the granule positions of the last packet of the page and the last packet of the
+	 * previous page (for example, 4800 for pages of 100 ms in a 48 kHz audio stream), or zero if unlimited.
+	 * @param flushOnPacket {@code true} if the page is flushed after each packet, {@code false} otherwise.
+	 * @param splitPackets {@code true} if packets are split between pages to fill them up, {@code false} if a packet that doesn't fit in
+	 * the current page is put in a new page (packets that don't fit in an empty page are always split).
+	 * @throws IllegalArgumentException If any parameter is out of range.
+	 */
+	public PaginationPolicy(int maxBytes, int maxSegments, long maxGranuleDuration, boolean flushOnPacket, boolean splitPackets){
+		if(maxBytes < 255 || maxBytes > 65025) throw new IllegalArgumentException("Invalid maximum page size: " + maxBytes);
+		if(maxSegments < 1 || maxSegments > 255) throw new IllegalArgumentException("Invalid maximum segment number: " + maxSegments);
+		if(maxGranuleDuration < 0L) throw new IllegalArgumentException("Invalid maximum granule duration: " + maxGranuleDuration);
+		this.maxBytes = maxBytes;
+		this.maxSegments = maxSegments;
+		this.maxGranuleDuration = maxGranuleDuration;
+		this.flushOnPacket = flushOnPacket;
+		this.splitPackets = splitPackets;
+	}
+
+	/**
+	 * Creates a policy for low latency live streams, whose pages are flushed when they contain the given granule duration.
+	 * @param granuleDuration The granule duration of each page (for example, 4800 for pages of 100 ms in a 48 kHz audio stream).
+	 * @return The pagination policy.
+	 */
+	public static PaginationPolicy lowLatency(long granuleDuration){
+		return new PaginationPolicy(65025, 255, granuleDuration, false, false);
+	}
+
+	/**
+	 * Returns the maximum number of content bytes per page.
+	 * @return The maximum number of content bytes per page.
+	 */
+	public int getMaxBytes(){
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the maximum number of segments per page.
+	 * @return The maximum number of segments per page.
+	 */
+	public int getMaxSegments(){
+		return maxSegments;
+	}
+
+	/**
+	 * Returns the maximum granule duration of a page, or zero if unlimited.
+	 * @return The maximum granule duration of a page.
+	 */
+	public long getMaxGranuleDuration(){
+		return maxGranuleDuration;
+	}
+
+	/**
+	 * Returns the flag indicating if the page is flushed after each packet.
+	 * @return {@code true} if the page is flushed after each packet, {@code false} otherwise.
+	 */
+	public boolean isFlushOnPacket(){
+		return flushOnPacket;
+	}
+
+	/**
+	 * Returns the flag indicating if packets are split between pages to fill them up.
+	 * @return {@code true} if packets are split between pages, {@code false} otherwise.
+	 */
+	public boolean isSplitPackets(){
+		return splitPackets;
+	}
+
+	/**
+	 * Checks if a packet fits in the current page.
+	 * @param pageBytes The number of content bytes in the current page.
+	 * @param pageSegments The number of segments in the current page.
+	 * @param packetBytes The packet size.
+	 * @param packetSegments The number of segments of the packet.
+	 * @return {@code true} if the packet fits in the current page, {@code false} otherwise.
+	 */
+	public boolean fits(int pageBytes, int pageSegments, int packetBytes, int packetSegments){
+		return pageSegments + packetSegments <= maxSegments && pageBytes + packetBytes <= maxBytes;
+	}
+
+	/**
+	 * Checks if the current page must be flushed after a packet is added to it.
+	 * @param pageBytes The number of content bytes in the current page.
+	 * @param pageSegments The number of segments in the current page.
+	 * @param granuleDuration The difference between the granule positions of the last packet of the page and the last packet of the previous page.
+	 * @return {@code true} if the current page must be flushed, {@code false} otherwise.
+	 */
+	public boolean mustFlush(int pageBytes, int pageSegments, long granuleDuration){
+		return flushOnPacket || pageSegments >= maxSegments || pageBytes >= maxBytes || (maxGranuleDuration > 0L && granuleDuration >= maxGranuleDuration);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The fisbone packet of an Ogg Skeleton stream, which describes another logical stream of the file. All numeric fields are stored in little-endian byte order:
+ * <ul>
+ * <li>the magic string "fisbone\0" (8 bytes);</li>
+ * <li>the offset of the message header fields, relative to this field (4 bytes, always 44);</li>
+ * <li>the serial number of the described stream (4 bytes);</li>
+ * <li>the number of header packets of the described stream (4 bytes);</li>
+ * <li>the granule rate numerator and denominator (8 bytes each);</li>
+ * <li>the base granule (8 bytes);</li>
+ * <li>the preroll, in packets (4 bytes);</li>
+ * <li>the granule shift (1 byte), followed by 3 padding bytes;</li>
+ * <li>the message header fields, such as "Content-Type: audio/ogg; codecs=opus", each terminated by CR LF.</li>
+ * </ul>
+ * @author Allan Taborda dos Santos
+ */
+public class SkeletonBone implements OggPackable{
+	/** The magic string at the beginning of the packet. */
+	public static final String MAGIC = "fisbone\0";
+	/** The offset of the message header fields in the packet. */
+	private static final int HEADERS_OFFSET = 52;
+	/** The serial number of the described stream. */
+	private int serialNumber;
+	/** The number of header packets of the described stream. */
+	private int headerPackets;
+	/** The granule rate numerator. */
+	private long granuleRateNumerator;
+	/** The granule rate denominator. */
+	private long granuleRateDenominator;
+	/** The base granule. */
+	private long baseGranule;
+	/** The preroll, in packets. */
+	private int preroll;
+	/** The granule shift. */
+	private int granuleShift;
+	/** The message header fields. */
+	private String messageHeaders;
+	/** Flag indicating if data contained in this data structure is valid. */
+	private boolean valid = true;
+
+	/**
+	 * Creates a fisbone packet for the given logical stream, with base granule, preroll and granule shift zero.
+	 * @param serial The serial number of the described stream.
+	 * @param headerPackets The number of header packets of the described stream.
+	 * @param granuleRate The number of granule positions per second of the described stream.
+	 * @param contentType The content type of the described stream, such as "audio/ogg; codecs=opus".
+	 */
+	public SkeletonBone(int serial, int headerPackets, long granuleRate, String contentType){
+		serialNumber = serial;
+		this.headerPackets = headerPackets;
+		granuleRateNumerator = granuleRate;
+		granuleRateDenominator = 1L;
+		messageHeaders = "Content-Type: " + contentType + "\r\n";
+	}
+
+	/**
+	 * Creates a fisbone packet from the given OGG packet.
+	 * @param packet The OGG packet.
+	 */
+	public SkeletonBone(OggPacket packet){
+		byte[] b = packet.getContent();
+		if(b.length < HEADERS_OFFSET || !packet.headerMatches(MAGIC)) valid = false;
+		else{
+			serialNumber = OggUtils.getIntFromByteArray(b, 12);
+			headerPackets = OggUtils.getIntFromByteArray(b, 16);
+			granuleRateNumerator = OggUtils.getLongFromByteArray(b, 20);
+			granuleRateDenominator = OggUtils.getLongFromByteArray(b, 28);
+			baseGranule = OggUtils.getLongFromByteArray(b, 36);
+			preroll = OggUtils.getIntFromByteArray(b, 44);
+			granuleShift = b[48] & 0xff;
+			int start = Math.min(b.length, 8 + OggUtils.getIntFromByteArray(b, 8));
+			messageHeaders = new String(b, start, b.length - start, StandardCharsets.UTF_8);
+			if(granuleRateDenominator == 0L) valid = false;
+		}
+	}
+
+	/**
+	 * Returns the serial number of the described stream.
+	 * @return The serial number.
+	 */
+	public int getSerialNumber(){
+		return serialNumber;
+	}
+
+	/**
+	 * Returns the number of header packets of the described stream.
+	 * @return The number of header packets.
+	 */
+	public int getHeaderPackets(){
+		return headerPackets;
+	}
+
+	/**
+	 * Returns the granule rate numerator.
+	 * @return The granule rate numerator.
+	 */
+	public long getGranuleRateNumerator(){
+		return granuleRateNumerator;
+	}
+
+	/**
+	 * Returns the granule rate denominator.
+	 * @return The granule rate denominator.
+	 */
+	public long getGranuleRateDenominator(){
+		return granuleRateDenominator;
+	}
+
+	/**
+	 * Returns the base granule.
+	 * @return The base granule.
+	 */
+	public long getBaseGranule(){
+		return baseGranule;
+	}
+
+	/**
+	 * Returns the preroll, that is, the number of packets that must be decoded before a packet to decode it correctly.
+	 * @return The preroll, in packets.
+	 */
+	public int getPreroll(){
+		return preroll;
+	}
+
+	/**
+	 * Changes the preroll, that is, the number of packets that must be decoded before a packet to decode it correctly.
+	 * @param packets The new preroll, in packets.
+	 */
+	public void setPreroll(int packets){
+		preroll = packets;
+	}
+
+	/**
+	 * Returns the granule shift, that is, the number of lower bits of the granule position used for the offset to the last keyframe.
+	 * @return The granule shift.
+	 */
+	public int getGranuleShift(){
+		return granuleShift;
+	}
+
+	/**
+	 * Returns the message header fields, each terminated by CR LF.
+	 * @return The message header fields.
+	 */
+	public String getMessageHeaders(){
+		return messageHeaders;
+	}
+
+	/**
+	 * Returns the value of the Content-Type message header field.
+	 * @return The content type, or {@code null} if the field is not present.
+	 */
+	public String getContentType(){
+		for(String h : messageHeaders.split("\r\n")){
+			int colon = h.indexOf(':');
+			if(colon > 0 && h.substring(0, colon).trim().equalsIgnoreCase("Content-Type")) return h.substring(colon + 1).trim();
+		}
+		return null;
+	}
+
+	/**
+	 * Converts a granule position of the described stream to time, in units of the given timestamp denominator.
+	 * @param granule The granule position.
+	 * @param denominator The timestamp denominator (for example, 1000 for milliseconds).
+	 * @return The time.
+	 */
+	public long granuleToTime(long granule, long denominator){
+		long g = granuleShift == 0 ? granule : (granule >> granuleShift) + (granule & ((1L << granuleShift) - 1L));
+		return (long) ((double) (g - baseGranule) * granuleRateDenominator * denominator / granuleRateNumerator);
+	}
+
+	public boolean isValid(){
+		return valid;
+	}
+
+	public OggPacket toOggPacket(){
+		byte[] h = messageHeaders.getBytes(StandardCharsets.UTF_8), b = new byte[HEADERS_OFFSET + h.length];
+		for(int c = 0; c < MAGIC.length(); c++) b[c] = (byte) MAGIC.charAt(c);
+		OggSkeleton.putLong(b, 8, HEADERS_OFFSET - 8, 4);
+		OggSkeleton.putLong(b, 12, serialNumber, 4);
+		OggSkeleton.putLong(b, 16, headerPackets, 4);
+		OggSkeleton.putLong(b, 20, granuleRateNumerator, 8);
+		OggSkeleton.putLong(b, 28, granuleRateDenominator, 8);
+		OggSkeleton.putLong(b, 36, baseGranule, 8);
+		OggSkeleton.putLong(b, 44, preroll, 4);
+		b[48] = (byte) granuleShift;
+		System.arraycopy(h, 0, b, HEADERS_OFFSET, h.length);
+		return new OggPacket(b);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+/**
+ * The fishead packet of an Ogg Skeleton 4.0 stream, contained in the beginning of stream page of the Skeleton stream, which is the first page of
+ * the file. All numeric fields are stored in little-endian byte order:
+ * <ul>
+ * <li>the magic string "fishead\0" (8 bytes);</li>
+ * <li>the major and minor version numbers (2 bytes each);</li>
+ * <li>the presentation time numerator and denominator (8 bytes each);</li>
+ * <li>the base time numerator and denominator (8 bytes each);</li>
+ * <li>the UTC time (20 bytes);</li>
+ * <li>the size of the file in bytes (8 bytes, version 4.0 only);</li>
+ * <li>the offset of the first non-header page in the file (8 bytes, version 4.0 only).</li>
+ * </ul>
+ * @author Allan Taborda dos Santos
+ */
+public class SkeletonHead implements OggPackable{
+	/** The magic string at the beginning of the packet. */
+	public static final String MAGIC = "fishead\0";
+	/** The packet size in bytes of the version 4.0. */
+	private static final int SIZE = 80;
+	/** The major version number. */
+	private int versionMajor = 4;
+	/** The minor version number. */
+	private int versionMinor;
+	/** The presentation time numerator. */
+	private long presentationTimeNumerator;
+	/** The presentation time denominator. */
+	private long presentationTimeDenominator = 1000L;
+	/** The base time numerator. */
+	private long baseTimeNumerator;
+	/** The base time denominator. */
+	private long baseTimeDenominator = 1000L;
+	/** The UTC time. */
+	private byte[] utc = new byte[20];
+	/** The size of the file in bytes. */
+	private long segmentLength;
+	/** The offset of the first non-header page in the file. */
+	private long contentOffset;
+	/** Flag indicating if data contained in this data structure is valid. */
+	private boolean valid = true;
+
+	/** Creates a fishead packet of the version 4.0, with presentation and base times zero. */
+	public SkeletonHead(){}
+
+	/**
+	 * Creates a fishead packet from the given OGG packet.
+	 * @param packet The OGG packet.
+	 */
+	public SkeletonHead(OggPacket packet){
+		byte[] b = packet.getContent();
+		if(b.length < 64 || !packet.headerMatches(MAGIC)) valid = false;
+		else{
+			versionMajor = OggUtils.getShortFromByteArray(b, 8) & 0xffff;
+			versionMinor = OggUtils.getShortFromByteArray(b, 10) & 0xffff;
+			presentationTimeNumerator = OggUtils.getLongFromByteArray(b, 12);
+			presentationTimeDenominator = OggUtils.getLongFromByteArray(b, 20);
+			baseTimeNumerator = OggUtils.getLongFromByteArray(b, 28);
+			baseTimeDenominator = OggUtils.getLongFromByteArray(b, 36);
+			System.arraycopy(b, 44, utc, 0, 20);
+			if(versionMajor >= 4 && b.length >= SIZE){
+				segmentLength = OggUtils.getLongFromByteArray(b, 64);
+				contentOffset = OggUtils.getLongFromByteArray(b, 72);
+			}
+		}
+	}
+
+	/**
+	 * Returns the major version number.
+	 * @return The major version number.
+	 */
+	public int getVersionMajor(){
+		return versionMajor;
+	}
+
+	/**
+	 * Returns the minor version number.
+	 * @return The minor version number.
+	 */
+	public int getVersionMinor(){
+		return versionMinor;
+	}
+
+	/**
+	 * Returns the presentation time numerator.
+	 * @return The presentation time numerator.
+	 */
+	public long getPresentationTimeNumerator(){
+		return presentationTimeNumerator;
+	}
+
+	/**
+	 * Returns the presentation time denominator.
+	 * @return The presentation time denominator.
+	 */
+	public long getPresentationTimeDenominator(){
+		return presentationTimeDenominator;
+	}
+
+	/**
+	 * Returns the base time numerator.
+	 * @return The base time numerator.
+	 */
+	public long getBaseTimeNumerator(){
+		return baseTimeNumerator;
+	}
+
+	/**
+	 * Returns the base time denominator.
+	 * @return The base time denominator.
+	 */
+	public long getBaseTimeDenominator(){
+		return baseTimeDenominator;
+	}
+
+	/**
+	 * Returns the size of the file in bytes, as written when the file was finished.
+	 * @return The size of the file, or zero if unknown.
+	 */
+	public long getSegmentLength(){
+		return segmentLength;
+	}
+
+	/**
+	 * Changes the size of the file in bytes.
+	 * @param length The size of the file.
+	 */
+	public void setSegmentLength(long length){
+		segmentLength = length;
+	}
+
+	/**
+	 * Returns the offset of the first non-header page in the file.
+	 * @return The offset of the first non-header page, or zero if unknown.
+	 */
+	public long getContentOffset(){
+		return contentOffset;
+	}
+
+	/**
+	 * Changes the offset of the first non-header page in the file.
+	 * @param offset The offset of the first non-header page.
+	 */
+	public void setContentOffset(long offset){
+		contentOffset = offset;
+	}
+
+	public boolean isValid(){
+		return valid;
+	}
+
+	public OggPacket toOggPacket(){
+		byte[] b = new byte[SIZE];
+		for(int c = 0; c < MAGIC.length(); c++) b[c] = (byte) MAGIC.charAt(c);
+		OggSkeleton.putLong(b, 8, versionMajor | (versionMinor << 16), 4);
+		OggSkeleton.putLong(b, 12, presentationTimeNumerator, 8);
+		OggSkeleton.putLong(b, 20, presentationTimeDenominator, 8);
+		OggSkeleton.putLong(b, 28, baseTimeNumerator, 8);
+		OggSkeleton.putLong(b, 36, baseTimeDenominator, 8);
+		System.arraycopy(utc, 0, b, 44, 20);
+		OggSkeleton.putLong(b, 64, segmentLength, 8);
+		OggSkeleton.putLong(b, 72, contentOffset, 8);
+		return new OggPacket(b);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.util.Arrays;
+
+/**
+ * The keyframe index packet of an Ogg Skeleton 4.0 stream, which lists, for a logical stream of the file, the offsets of pages where decoding can
+ * begin and the presentation times of these pages. With the index, a reader locates the page of a seek target without probing the file.
+ * All numeric fields are stored in little-endian byte order:
+ * <ul>
+ * <li>the magic string "index\0" (6 bytes);</li>
+ * <li>the serial number of the indexed stream (4 bytes);</li>
+ * <li>the number of keypoints (8 bytes);</li>
+ * <li>the timestamp denominator (8 bytes);</li>
+ * <li>the presentation time numerator of the first sample (8 bytes);</li>
+ * <li>the presentation time numerator of the end of the last sample (8 bytes);</li>
+ * <li>the keypoints, each one stored as the differences of offset and time numerator from the previous keypoint, encoded as variable length
+ * integers with 7 bits per byte, least significant bits first, in which the last byte has the most significant bit set.</li>
+ * </ul>
+ * A written index may have padding bytes after the keypoints, so it can be rewritten in place when the file is finished.
+ * @author Allan Taborda dos Santos
+ */
+public class SkeletonIndex implements OggPackable{
+	/** The magic string at the beginning of the packet. */
+	public static final String MAGIC = "index\0";
+	/** The offset of the first keypoint in the packet. */
+	private static final int KEYPOINTS_OFFSET = 42;
+	/** The serial number of the indexed stream. */
+	private int serialNumber;
+	/** The timestamp denominator. */
+	private long timestampDenominator;
+	/** The presentation time numerator of the first sample. */
+	private long firstSampleTime;
+	/** The presentation time numerator of the end of the last sample. */
+	private long lastSampleEndTime;
+	/** The offsets of the keypoints. */
+	private long[] offsets = new long[64];
+	/** The time numerators of the keypoints. */
+	private long[] times = new long[64];
+	/** The number of keypoints. */
+	private int size;
+	/** The packet size, including padding, or zero if the packet has no padding. */
+	private int packetSize;
+	/** Flag indicating if data contained in this data structure is valid. */
+	private boolean valid = true;
+
+	/**
+	 * Creates an empty index for the given logical stream.
+	 * @param serial The serial number of the indexed stream.
+	 * @param denominator The timestamp denominator (for example, 1000 for times in milliseconds).
+	 */
+	public SkeletonIndex(int serial, long denominator){
+		serialNumber = serial;
+		timestampDenominator = denominator;
+	}
+
+	/**
+	 * Creates an index from the given OGG packet.
+	 * @param packet The OGG packet.
+	 */
+	public SkeletonIndex(OggPacket packet){
+		byte[] b = packet.getContent();
+		if(b.length < KEYPOINTS_OFFSET || !packet.headerMatches(MAGIC)) valid = false;
+		else{
+			serialNumber = OggUtils.getIntFromByteArray(b, 6);
+			long count = OggUtils.getLongFromByteArray(b, 10);
+			timestampDenominator = OggUtils.getLongFromByteArray(b, 18);
+			firstSampleTime = OggUtils.getLongFromByteArray(b, 26);
+			lastSampleEndTime = OggUtils.getLongFromByteArray(b, 34);
+			if(count < 0L || count > (b.length - KEYPOINTS_OFFSET) / 2 || timestampDenominator == 0L) valid = false;
+			else{
+				long[] pos = {KEYPOINTS_OFFSET};
+				long offset = 0L, time = 0L;
+				for(long c = 0L; c < count; c++){
+					offset += readVarint(b, pos);
+					time += readVarint(b, pos);
+					if(pos[0] > b.length || size > 0 && (offset < offsets[size - 1] || time < times[size - 1])){
+						valid = false;
+						break;
+					}
+					addKeypoint(offset, time);
+				}
+				packetSize = b.length;
+			}
+		}
+	}
+
+	/**
+	 * Returns the serial number of the indexed stream.
+	 * @return The serial number.
+	 */
+	public int getSerialNumber(){
+		return serialNumber;
+	}
+
+	/**
+	 * Returns the timestamp denominator, by which the time numerators are divided to obtain times in seconds.
+	 * @return The timestamp denominator.
+	 */
+	public long getTimestampDenominator(){
+		return timestampDenominator;
+	}
+
+	/**
+	 * Returns the presentation time numerator of the first sample.
+	 * @return The time of the first sample.
+	 */
+	public long getFirstSampleTime(){
+		return firstSampleTime;
+	}
+
+	/**
+	 * Changes the presentation time numerator of the first sample.
+	 * @param time The time of the first sample.
+	 */
+	public void setFirstSampleTime(long time){
+		firstSampleTime = time;
+	}
+
+	/**
+	 * Returns the presentation time numerator of the end of the last sample.
+	 * @return The time of the end of the last sample.
+	 */
+	public long getLastSampleEndTime(){
+		return lastSampleEndTime;
+	}
+
+	/**
+	 * Changes the presentation time numerator of the end of the last sample.
+	 * @param time The time of the end of the last sample.
+	 */
+	public void setLastSampleEndTime(long time){
+		lastSampleEndTime = time;
+	}
+
+	/**
+	 * Adds a keypoint to the end of the index.
+	 * @param offset The offset in the file of the page where decoding can begin.
+	 * @param time The presentation time numerator of the first sample that can be decoded from the page.
+	 * @throws IllegalArgumentException If offset or time is less than the offset or time of the last keypoint.
+	 */
+	public void addKeypoint(long offset, long time){
+		if(size > 0 && (offset < offsets[size - 1] || time < times[size - 1])) throw new IllegalArgumentException("Keypoints must be added in order");
+		if(size == offsets.length){
+			offsets = Arrays.copyOf(offsets, size * 2);
+			times = Arrays.copyOf(times, size * 2);
+		}
+		offsets[size] = offset;
+		times[size++] = time;
+	}
+
+	/**
+	 * Returns the number of keypoints.
+	 * @return The number of keypoints.
+	 */
+	public int getKeypointCount(){
+		return size;
+	}
+
+	/**
+	 * Returns the offset of the keypoint in the given position.
+	 * @param keypoint The position of the keypoint.
+	 * @return The offset of the keypoint.
+	 */
+	public long getKeypointOffset(int keypoint){
+		checkIndex(keypoint);
+		return offsets[keypoint];
+	}
+
+	/**
+	 * Returns the presentation time numerator of the keypoint in the given position.
+	 * @param keypoint The position of the keypoint.
+	 * @return The time of the keypoint.
+	 */
+	public long getKeypointTime(int keypoint){
+		checkIndex(keypoint);
+		return times[keypoint];
+	}
+
+	/**
+	 * Returns the position of the last keypoint whose time is equal or less than the given time, that is, the keypoint where decoding must begin to reach the given time.
+	 * @param time The presentation time numerator.
+	 * @return The position of the keypoint, or -1 if the time is before the first keypoint.
+	 */
+	public int findKeypoint(long time){
+		int lo = 0, hi = size - 1, found = -1;
+		while(lo <= hi){
+			int mid = (lo + hi) >>> 1;
+			if(times[mid] <= time){
+				found = mid;
+				lo = mid + 1;
+			}else hi = mid - 1;
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the packet size, including padding, used when this index is converted into an OGG packet.
+	 * @return The packet size, or zero if the packet has no padding.
+	 */
+	public int getPacketSize(){
+		return packetSize;
+	}
+
+	/**
+	 * Changes the packet size, including padding, used when this index is converted into an OGG packet. When the index is written before
+	 * the keypoints are known, a packet size must be reserved, so the index can be rewritten in place.
+	 * @param size The new packet size, or zero for no padding.
+	 */
+	public void setPacketSize(int size){
+		packetSize = size;
+	}
+
+	/**
+	 * Returns the size of the index without padding.
+	 * @return The size of the encoded index.
+	 */
+	public int getEncodedSize(){
+		int s = KEYPOINTS_OFFSET;
+		for(int c = 0; c < size; c++) s += varintSize(offsets[c] - (c == 0 ? 0L : offsets[c - 1])) + varintSize(times[c] - (c == 0 ? 0L : times[c - 1]));
+		return s;
+	}
+
+	/**
+	 * Removes every other keypoint, keeping the first one, until the encoded index fits in the packet size.
+	 * @return {@code true} if keypoints were removed, {@code false} otherwise.
+	 */
+	public boolean trimToPacketSize(){
+		boolean trimmed = false;
+		while(packetSize > 0 && size > 1 && getEncodedSize() > packetSize){
+			int n = 0;
+			for(int c = 0; c < size; c += 2){
+				offsets[n] = offsets[c];
+				times[n++] = times[c];
+			}
+			size = n;
+			trimmed = true;
+		}
+		return trimmed;
+	}
+
+	public boolean isValid(){
+		return valid && (packetSize == 0 || getEncodedSize() <= packetSize);
+	}
+
+	public OggPacket toOggPacket(){
+		byte[] b = new byte[Math.max(packetSize, getEncodedSize())];
+		for(int c = 0; c < MAGIC.length(); c++) b[c] = (byte) MAGIC.charAt(c);
+		OggSkeleton.putLong(b, 6, serialNumber, 4);
+		OggSkeleton.putLong(b, 10, size, 8);
+		OggSkeleton.putLong(b, 18, timestampDenominator, 8);
+		OggSkeleton.putLong(b, 26, firstSampleTime, 8);
+		OggSkeleton.putLong(b, 34, lastSampleEndTime, 8);
+		int pos = KEYPOINTS_OFFSET;
+		for(int c = 0; c < size; c++){
+			pos = writeVarint(b, pos, offsets[c] - (c == 0 ? 0L : offsets[c - 1]));
+			pos = writeVarint(b, pos, times[c] - (c == 0 ? 0L : times[c - 1]));
+		}
+		return new OggPacket(b);
+	}
+
+	/**
+	 * Reads a variable length integer.
+	 * @param b The packet content.
+	 * @param pos Single element array with the position of the integer, updated to the position after it. If the integer is incomplete, the position is set after the end of the content.
+	 * @return The integer.
+	 */
+	private static long readVarint(byte[] b, long[] pos){
+		long value = 0L;
+		for(int shift = 0; pos[0] < b.length && shift < 64; shift += 7){
+			int v = b[(int) pos[0]++];
+			value |= (long) (v & 0x7f) << shift;
+			if((v & 0x80) != 0) return value;
+		}
+		pos[0] = b.length + 1L;
+		return value;
+	}
+
+	/**
+	 * Writes a variable length integer.
+	 * @param b The packet content.
+	 * @param pos The position of the integer.
+	 * @param value The integer.
+	 * @return The position after the integer.
+	 */
+	private static int writeVarint(byte[] b, int pos, long value){
+		while(value >>> 7 != 0L){
+			b[pos++] = (byte) (value & 0x7f);
+			value >>>= 7;
+		}
+		b[pos++] = (byte) (value | 0x80);
+		return pos;
+	}
+
+	/**
+	 * Returns the number of bytes of a variable length integer.
+	 * @param value The integer.
+	 * @return The size of the encoded integer.
+	 */
+	private static int varintSize(long value){
+		int s = 1;
+		while((value >>>= 7) != 0L) s++;
+		return s;
+	}
+
+	/**
+	 * Checks if the given position is inside the keypoint bounds.
+	 * @param keypoint The position of the keypoint.
+	 * @throws IndexOutOfBoundsException If position is outside the keypoint bounds.
+	 */
+	private void checkIndex(int keypoint){
+		if(keypoint < 0 || keypoint >= size) throw new IndexOutOfBoundsException("Index: " + keypoint + ", Size: " + size);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+/**
+ * Bounded pool of idle codec instances (encoder boxes or decoding streams) that can be reused, avoiding the cost of creating and initializing new ones.
+ * @param <T> The type of the pooled instances.
+ * @author Allan Taborda dos Santos
+ */
+class CodecPool<T>{
+	/** The idle instances. */
+	private ArrayDeque<T> idle = new ArrayDeque<>();
+	/** Maximum number of idle instances stored in the pool. */
+	private int capacity;
+
+	/**
+	 * Creates a pool with the given capacity.
+	 * @param capacity The maximum number of idle instances stored in the pool.
+	 */
+	CodecPool(int capacity){
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Retrieves and removes an idle instance that satisfies the given condition.
+	 * @param condition The condition to be satisfied.
+	 * @return An idle instance, or {@code null} if no idle instance satisfies the condition.
+	 */
+	synchronized T poll(Predicate<T> condition){
+		for(Iterator<T> it = idle.iterator(); it.hasNext();){
+			T t = it.next();
+			if(condition.test(t)){
+				it.remove();
+				return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores an idle instance in the pool, if the pool is not full.
+	 * @param t The idle instance.
+	 * @return {@code true} if the instance was stored, {@code false} if the pool is full.
+	 */
+	synchronized boolean offer(T t){
+		if(idle.size() >= capacity || idle.contains(t)) return false;
+		idle.push(t);
+		return true;
+	}
+
+	/**
+	 * Changes the maximum number of idle instances stored in the pool. Exceeding idle instances are discarded.
+	 * @param capacity The new capacity.
+	 */
+	synchronized void setCapacity(int capacity){
+		this.capacity = capacity;
+		while(idle.size() > capacity) idle.removeLast();
+	}
+
+	/**
+	 * Returns the maximum number of idle instances stored in the pool.
+	 * @return The capacity.
+	 */
+	synchronized int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of idle instances stored in the pool.
+	 * @return The number of idle instances.
+	 */
+	synchronized int size(){
+		return idle.size();
+	}
+}
\ No newline at end of file
@@ -5,35 +5,76 @@
  */
 package com.allantaborda.ooogg.spi;
 
+import com.allantaborda.ooogg.OggPacket;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 import javax.sound.sampled.AudioFileFormat.Type;
 import javax.sound.sampled.AudioFormat.Encoding;
 
 /**
- * Service that returns installed service providers that provide support for audio formats stored in OGG containers, as well as data about these formats.
+ * Service that returns installed service providers that provide support for audio formats stored in OGG containers, as well as data about these formats.<br/><br/>
+ * The service is an immutable registry, built when it is used for the first time (so the service providers are only instantiated when an OGG-specific
+ * operation needs them) and safely shared by all threads without locking.
  * @author Allan Taborda dos Santos
  */
 class FormatProviderService{
-	/** Unique instance of this class. */
-	private static FormatProviderService singleton;
 	/** Map containing audio file types and its respective service providers. */
-	private HashMap<Type, OggFormatProvider> providerMap;
+	private Map<Type, OggFormatProvider> providerMap;
+	/** Map containing encodings and its respective service providers. */
+	private Map<Encoding, OggFormatProvider> encodingMap;
+	/** Map containing the first byte of header magic strings and the decoding service providers whose header magic string begins with this byte. */
+	private Map<Character, List<OggFormatProvider>> magicMap;
+	/** Decoding service providers that don't specify a header magic string. */
+	private List<OggFormatProvider> anyHeaderProviders;
+	/** The encodings related to the supported audio formats for playback. */
+	private Encoding[] encodings;
+	/** The supported audio file types for playback. */
+	private Type[] decodingTypes;
+	/** The supported audio file types for recording. */
+	private Type[] encodingTypes;
 
-	/** Private constructor that retrieves the service providers and stores its in map. */
+	/** Private constructor that retrieves the service providers and stores its in maps. */
 	private FormatProviderService(){
-		providerMap = new HashMap<>();
-		for(OggFormatProvider prov : ServiceLoader.load(OggFormatProvider.class)) providerMap.put(prov.getType(), prov);
+		Map<Type, OggFormatProvider> pm = new LinkedHashMap<>();
+		Map<Encoding, OggFormatProvider> em = new HashMap<>();
+		Map<Character, List<OggFormatProvider>> mm = new HashMap<>();
+		List<OggFormatProvider> ahp = new ArrayList<>();
+		List<Encoding> enc = new ArrayList<>();
+		List<Type> dt = new ArrayList<>(), et = new ArrayList<>();
+		for(OggFormatProvider prov : ServiceLoader.load(OggFormatProvider.class)){
+			if(pm.containsKey(prov.getType())) continue;
+			pm.put(prov.getType(), prov);
+			em.putIfAbsent(prov.getEncoding(), prov);
+			if(prov.hasDecoder()){
+				String magic = prov.getHeaderMagic();
+				if(magic == null || magic.isEmpty()) ahp.add(prov);
+				else mm.computeIfAbsent(magic.charAt(0), k -> new ArrayList<>()).add(prov);
+				enc.add(prov.getEncoding());
+				dt.add(prov.getType());
+			}
+			if(prov.hasEncoder()) et.add(prov.getType());
+		}
+		for(Map.Entry<Character, List<OggFormatProvider>> e : mm.entrySet()) e.setValue(Collections.unmodifiableList(e.getValue()));
+		providerMap = Collections.unmodifiableMap(pm);
+		encodingMap = Collections.unmodifiableMap(em);
+		magicMap = Collections.unmodifiableMap(mm);
+		anyHeaderProviders = Collections.unmodifiableList(ahp);
+		encodings = enc.toArray(new Encoding[enc.size()]);
+		decodingTypes = dt.toArray(new Type[dt.size()]);
+		encodingTypes = et.toArray(new Type[et.size()]);
 	}
 
 	/**
 	 * Returns the unique instance of this class.
 	 * @return The unique instance of this class.
 	 */
-	static synchronized FormatProviderService getInstance(){
-		if(singleton == null) singleton = new FormatProviderService();
-		return singleton;
+	static FormatProviderService getInstance(){
+		return Holder.INSTANCE;
 	}
 
 	/**
@@ -41,12 +82,7 @@ class FormatProviderService{
 	 * @return The supported encodings for audio playback.
 	 */
 	Encoding[] getEncodings(){
-		LinkedList<Encoding> x = new LinkedList<>();
-		for(Type t : providerMap.keySet()){
-			OggFormatProvider prov = providerMap.get(t);
-			if(prov.hasDecoder()) x.add(prov.getEncoding());
-		}
-		return x.toArray(new Encoding[x.size()]);
+		return encodings.clone();
 	}
 
 	/**
@@ -54,9 +90,7 @@ class FormatProviderService{
 	 * @return The supported audio file types for playback.
 	 */
 	Type[] getFormatsForDecoding(){
-		LinkedList<Type> x = new LinkedList<>();
-		for(Type t : providerMap.keySet()) if(providerMap.get(t).hasDecoder()) x.add(t);
-		return x.toArray(new Type[x.size()]);
+		return decodingTypes.clone();
 	}
 
 	/**
@@ -64,9 +98,32 @@ class FormatProviderService{
 	 * @return The supported audio file types for recording.
 	 */
 	Type[] getFormatsForEncoding(){
-		LinkedList<Type> x = new LinkedList<>();
-		for(Type t : providerMap.keySet()) if(providerMap.get(t).hasEncoder()) x.add(t);
-		return x.toArray(new Type[x.size()]);
+		return encodingTypes.clone();
+	}
+
+	/**
+	 * Checks if the given audio file type is supported for recording.
+	 * @param type The audio file type.
+	 * @return {@code true} if the audio file type is supported for recording, {@code false} otherwise.
+	 */
+	boolean isEncodingSupported(Type type){
+		OggFormatProvider prov = providerMap.get(type);
+		return prov != null && prov.hasEncoder();
+	}
+
+	/**
+	 * Returns the decoding service providers that can read an OGG file whose first OGG packet is the given packet. Providers whose
+	 * header magic string matches the beginning of the packet come first, followed by providers that don't specify a header magic string.
+	 * @param packet The first OGG packet of the OGG file.
+	 * @return The candidate service providers.
+	 */
+	List<OggFormatProvider> getDecodingProviders(OggPacket packet){
+		List<OggFormatProvider> candidates = packet.getSize() > 0 ? magicMap.get((char) (packet.getContent()[0] & 0xff)) : null;
+		if(candidates == null) return anyHeaderProviders;
+		List<OggFormatProvider> x = new ArrayList<>(candidates.size() + anyHeaderProviders.size());
+		for(OggFormatProvider prov : candidates) if(packet.headerMatches(prov.getHeaderMagic())) x.add(prov);
+		x.addAll(anyHeaderProviders);
+		return x;
 	}
 
 	/**
@@ -76,7 +133,8 @@ class FormatProviderService{
 	 * @throws IllegalArgumentException If selected audio file type is unsupported.
 	 */
 	OggFormatProvider getFormatProvider(Type type){
-		if(providerMap.containsKey(type)) return providerMap.get(type);
+		OggFormatProvider prov = providerMap.get(type);
+		if(prov != null) return prov;
 		throw new IllegalArgumentException("Unknown type: " + type.toString());
 	}
 
@@ -87,10 +145,14 @@ class FormatProviderService{
 	 * @throws IllegalArgumentException If selected encoding is unsupported.
 	 */
 	OggFormatProvider getFormatProvider(Encoding enc){
-		for(Type t : providerMap.keySet()){
-			OggFormatProvider prov = providerMap.get(t);
-			if(prov.getEncoding().equals(enc)) return prov;
-		}
+		OggFormatProvider prov = encodingMap.get(enc);
+		if(prov != null) return prov;
 		throw new IllegalArgumentException("Unknown encoding: " + enc.toString());
 	}
+
+	/** Holder of the unique instance, created when the holder class is initialized, that is, when {@link #getInstance()} is called for the first time. */
+	private static class Holder{
+		/** Unique instance of the service. */
+		static final FormatProviderService INSTANCE = new FormatProviderService();
+	}
 }
\ No newline at end of file
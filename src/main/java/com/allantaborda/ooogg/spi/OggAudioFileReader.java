@@ -7,6 +7,9 @@ package com.allantaborda.ooogg.spi;
 
 import com.allantaborda.ooogg.OggPackable;
 import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggSkeleton;
+import com.allantaborda.ooogg.OggSource;
 import com.allantaborda.ooogg.OggUtils;
 import com.allantaborda.ooogg.Tags;
 import java.io.BufferedInputStream;
@@ -29,19 +32,23 @@ import javax.sound.sampled.spi.AudioFileReader;
  * @author Allan Taborda dos Santos
  */
 public class OggAudioFileReader extends AudioFileReader{
-	/** Array of all OGG-based file types provided by installed service providers. */
-	public static final AudioFileFormat.Type[] TYPES = FormatProviderService.getInstance().getFormatsForDecoding();
+	/** Maximum number of bytes read before the stream is reset, large enough for header pages with embedded pictures. */
+	private static final int MARK_LIMIT = 16777216;
 
 	public AudioFileFormat getAudioFileFormat(InputStream is) throws UnsupportedAudioFileException, IOException{
 		return getAudioFileFormat(is, AudioSystem.NOT_SPECIFIED);
 	}
 
 	public AudioFileFormat getAudioFileFormat(File f) throws UnsupportedAudioFileException, IOException{
-		return getAudioFileFormat(new FileInputStream(f), f.length());
+		try(InputStream is = new FileInputStream(f)){
+			return getAudioFileFormat(is, f.length());
+		}
 	}
 
 	public AudioFileFormat getAudioFileFormat(URL url) throws UnsupportedAudioFileException, IOException{
-		return getAudioFileFormat(url.openStream(), AudioSystem.NOT_SPECIFIED);
+		try(OggSource src = OggSource.of(url)){
+			return getAudioFileFormat(src.asInputStream(), src.length());
+		}
 	}
 
 	public AudioInputStream getAudioInputStream(InputStream is) throws UnsupportedAudioFileException, IOException{
@@ -49,44 +56,119 @@ public class OggAudioFileReader extends AudioFileReader{
 	}
 
 	public AudioInputStream getAudioInputStream(File f) throws UnsupportedAudioFileException, IOException{
-		return getAudioInputStream(new FileInputStream(f), f.length());
+		InputStream is = new FileInputStream(f);
+		try{
+			return getAudioInputStream(is, f.length());
+		}catch(UnsupportedAudioFileException | IOException | RuntimeException e){
+			is.close();
+			throw e;
+		}
 	}
 
 	public AudioInputStream getAudioInputStream(URL url) throws UnsupportedAudioFileException, IOException{
-		return getAudioInputStream(url.openStream(), AudioSystem.NOT_SPECIFIED);
+		OggSource src = OggSource.of(url);
+		try{
+			return getAudioInputStream(src.asInputStream(), src.length());
+		}catch(UnsupportedAudioFileException | IOException | RuntimeException e){
+			src.close();
+			throw e;
+		}
 	}
 
+	/**
+	 * Reads the audio file format from the given stream, which is reset to its initial position before returning.
+	 * @param is The stream.
+	 * @param length The length of the file in bytes, or {@code AudioSystem.NOT_SPECIFIED}.
+	 * @return The audio file format.
+	 * @throws UnsupportedAudioFileException If the stream does not contain a supported OGG-based audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
 	private AudioFileFormat getAudioFileFormat(InputStream is, long length) throws UnsupportedAudioFileException, IOException{
-		BufferedInputStream bis = null;
+		BufferedInputStream bis = is instanceof BufferedInputStream ? (BufferedInputStream) is : new BufferedInputStream(is, 8192);
+		bis.mark(MARK_LIMIT);
 		try{
-			bis = is instanceof BufferedInputStream ? (BufferedInputStream) is : new BufferedInputStream(is, 8192);
-			bis.mark(8192);
-			try{
-				OggPacket packet = OggUtils.getPacketsFromPages(bis)[0];
-				for(AudioFileFormat.Type t : TYPES){
-					OggFormatProvider fps = FormatProviderService.getInstance().getFormatProvider(t);
-					OggPackable header = fps.getHeader(packet);
-					if(header.isValid()){
-						HashMap<String, Object> afProps = new HashMap<>(), affProps = new HashMap<>();
-						Tags coms = fps.getTags();
-						coms.fromOggPacket(OggUtils.getPacketsFromPages(bis)[0]);
-						coms.writeIntoMap(affProps);
-						afProps.put("vendor", coms.getVendor());
-						return fps.getAudioFileFormat(header, length, afProps, affProps);
-					}
-				}
-			}catch(StreamCorruptedException | EOFException e){}
-			throw new UnsupportedAudioFileException("OGG file is not valid");
+			return readAudioFileFormat(bis, length);
 		}finally{
-			if(bis != null) bis.reset();
+			bis.reset();
 		}
 	}
 
+	/**
+	 * Obtains an audio input stream from the given stream. The header pages are read only once, and they are carried by the returned stream,
+	 * so the decoder does not read them again. If the stream does not contain a supported OGG-based audio file, it is reset to its initial position.
+	 * @param is The stream.
+	 * @param length The length of the file in bytes, or {@code AudioSystem.NOT_SPECIFIED}.
+	 * @return The audio input stream.
+	 * @throws UnsupportedAudioFileException If the stream does not contain a supported OGG-based audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
 	private AudioInputStream getAudioInputStream(InputStream is, long length) throws UnsupportedAudioFileException, IOException{
-		BufferedInputStream bis = new BufferedInputStream(is, 8192);
-		bis.mark(8192);
-		AudioFileFormat fmt = getAudioFileFormat(bis, length);
-		bis.reset();
-		return new AudioInputStream(bis, fmt.getFormat(), fmt.getFrameLength());
+		BufferedInputStream bis = is instanceof BufferedInputStream ? (BufferedInputStream) is : new BufferedInputStream(is, 8192);
+		bis.mark(MARK_LIMIT);
+		OggFormatProvider.OGGAudioFileFormat fmt;
+		try{
+			fmt = readAudioFileFormat(bis, length);
+		}catch(UnsupportedAudioFileException | IOException e){
+			bis.reset();
+			throw e;
+		}
+		return new OggFileAudioInputStream(bis, fmt);
+	}
+
+	/**
+	 * Reads the header and the tags from the first OGG pages of the given stream. The header packet is dispatched to the providers whose
+	 * header magic string matches it. The parsed header, tags and header pages are stored in the returned audio file format. The pages
+	 * of a Skeleton stream, if present, are skipped.
+	 * @param is The stream.
+	 * @param length The length of the file in bytes, or {@code AudioSystem.NOT_SPECIFIED}.
+	 * @return The audio file format.
+	 * @throws UnsupportedAudioFileException If the stream does not contain a supported OGG-based audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private OggFormatProvider.OGGAudioFileFormat readAudioFileFormat(InputStream is, long length) throws UnsupportedAudioFileException, IOException{
+		try{
+			OggPage[] pages = OggUtils.readOggPages(is);
+			OggPage skeleton = OggSkeleton.isSkeletonHead(pages[0]) ? pages[0] : null;
+			if(skeleton != null) pages = readOggPages(is, skeleton);
+			OggPacket[] packets = OggUtils.getPacketsFromPages(pages);
+			OggPacket packet = packets[0];
+			for(OggFormatProvider fps : FormatProviderService.getInstance().getDecodingProviders(packet)){
+				OggPackable header = fps.getHeader(packet);
+				if(header.isValid()){
+					if(packets.length < 2){
+						OggPage[] cPages = readOggPages(is, skeleton);
+						packets = OggUtils.getPacketsFromPages(cPages);
+						OggPage[] hp = new OggPage[pages.length + cPages.length];
+						System.arraycopy(pages, 0, hp, 0, pages.length);
+						System.arraycopy(cPages, 0, hp, pages.length, cPages.length);
+						pages = hp;
+					}else packets = new OggPacket[]{packets[1]};
+					HashMap<String, Object> afProps = new HashMap<>(), affProps = new HashMap<>();
+					Tags coms = fps.getTags();
+					coms.fromOggPacket(packets[0]);
+					coms.writeIntoMap(affProps);
+					afProps.put("vendor", coms.getVendor());
+					OggFormatProvider.OGGAudioFileFormat fmt = fps.getAudioFileFormat(header, length, afProps, affProps);
+					fmt.setParsedHeaders(header, coms, pages);
+					if(skeleton != null) fmt.setSkeletonSerialNumber(skeleton.getSerialNumber());
+					return fmt;
+				}
+			}
+		}catch(StreamCorruptedException | EOFException | IndexOutOfBoundsException e){}
+		throw new UnsupportedAudioFileException("OGG file is not valid");
+	}
+
+	/**
+	 * Reads the next OGG pages of the given stream that don't belong to the Skeleton stream.
+	 * @param is The stream.
+	 * @param skeleton The first page of the Skeleton stream, or {@code null} if the file has no Skeleton stream.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static OggPage[] readOggPages(InputStream is, OggPage skeleton) throws StreamCorruptedException, IOException{
+		OggPage[] pages = OggUtils.readOggPages(is);
+		while(skeleton != null && pages[0].getSerialNumber() == skeleton.getSerialNumber()) pages = OggUtils.readOggPages(is);
+		return pages;
 	}
 }
\ No newline at end of file
@@ -6,14 +6,28 @@
 package com.allantaborda.ooogg.spi;
 
 import static javax.sound.sampled.AudioFormat.Encoding.PCM_SIGNED;
+import com.allantaborda.ooogg.OggBufferPool;
+import com.allantaborda.ooogg.OggMetrics;
+import com.allantaborda.ooogg.OggPackable;
+import com.allantaborda.ooogg.OggPacket;
 import com.allantaborda.ooogg.OggPage;
-import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.OggPaginator;
+import com.allantaborda.ooogg.OggTracing;
+import com.allantaborda.ooogg.PaginationPolicy;
+import com.allantaborda.ooogg.SkeletonBone;
+import com.allantaborda.ooogg.SkeletonHead;
+import com.allantaborda.ooogg.SkeletonIndex;
 import com.allantaborda.ooogg.Tags;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioFileFormat.Type;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.spi.AudioFileWriter;
@@ -23,92 +37,605 @@ import javax.sound.sampled.spi.AudioFileWriter;
  * @author Allan Taborda dos Santos
  */
 public class OggAudioFileWriter extends AudioFileWriter{
-	/** Array of all OGG-based file types provided by installed service providers. */
-	public static final Type[] TYPES = FormatProviderService.getInstance().getFormatsForEncoding();
+	/** The policy that decides when encoded packets are put in a new OGG page. */
+	private PaginationPolicy policy;
+	/** Flag indicating if a Skeleton stream is written with the audio stream. */
+	private boolean skeleton;
+	/** Duration in seconds of granule time of each segment file, or zero if the audio stream is written in a single file. */
+	private double segmentDuration;
+
+	/** Creates an OGG audio file writer that uses the default pagination policy. */
+	public OggAudioFileWriter(){
+		this(PaginationPolicy.DEFAULT);
+	}
+
+	/**
+	 * Creates an OGG audio file writer that uses the given pagination policy.
+	 * @param policy The pagination policy.
+	 */
+	public OggAudioFileWriter(PaginationPolicy policy){
+		setPaginationPolicy(policy);
+	}
+
+	/**
+	 * Returns the policy that decides when encoded packets are put in a new OGG page.
+	 * @return The pagination policy.
+	 */
+	public PaginationPolicy getPaginationPolicy(){
+		return policy;
+	}
+
+	/**
+	 * Changes the policy that decides when encoded packets are put in a new OGG page.
+	 * @param policy The new pagination policy.
+	 */
+	public void setPaginationPolicy(PaginationPolicy policy){
+		if(policy == null) throw new NullPointerException("Pagination policy is null");
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns if a Skeleton stream is written with the audio stream.
+	 * @return {@code true} if a Skeleton stream is written, {@code false} otherwise.
+	 */
+	public boolean isSkeletonEnabled(){
+		return skeleton;
+	}
+
+	/**
+	 * Enables or disables the writing of a Skeleton stream with the audio stream. When writing to a file, the Skeleton stream has a keyframe
+	 * index of the audio stream, which is written with reserved space and back-patched in place when the file is finished, so readers can
+	 * seek with a single read. When writing to an output stream, which cannot be rewritten, the Skeleton stream has no index.
+	 * @param enable {@code true} to write a Skeleton stream, {@code false} otherwise.
+	 */
+	public void setSkeletonEnabled(boolean enable){
+		skeleton = enable;
+	}
+
+	/**
+	 * Returns the duration of each segment file written in segmented mode.
+	 * @return The segment duration in seconds, or zero if segmented mode is disabled.
+	 */
+	public double getSegmentDuration(){
+		return segmentDuration;
+	}
+
+	/**
+	 * Enables or disables the segmented mode. In segmented mode, writing to a file rolls over to a new self-contained OGG file every time the
+	 * given duration of granule time is reached, so the segments can be delivered independently while the audio stream is still being encoded.
+	 * Each segment has its own serial number, the identification header and comment pages, and granule positions beginning at zero; segments
+	 * end on packet boundaries, so a segment may be slightly longer than the given duration. For a file named {@code name.ext}, the segments are
+	 * named {@code name-00000.ext}, {@code name-00001.ext} and so on, in the same directory, and a manifest named {@code name.segments} is
+	 * written with one line for each finished segment, containing the segment name and its start granule position separated by a tab.
+	 * Segmented mode does not apply to output streams, and segments are written without Skeleton stream.
+	 * @param seconds The segment duration in seconds, or zero to disable segmented mode.
+	 */
+	public void setSegmentDuration(double seconds){
+		if(!(seconds >= 0.0)) throw new IllegalArgumentException("Invalid segment duration: " + seconds);
+		segmentDuration = seconds;
+	}
 
 	public Type[] getAudioFileTypes(){
-		return TYPES;
+		return FormatProviderService.getInstance().getFormatsForEncoding();
 	}
 
 	public Type[] getAudioFileTypes(AudioInputStream ais){
 		if(!PCM_SIGNED.equals(ais.getFormat().getEncoding()) || ais.getFormat().getChannels() > 2 || ais.getFormat().getChannels() < 1) return new Type[0];
-		return TYPES;
+		return getAudioFileTypes();
 	}
 
 	public int write(AudioInputStream ais, Type type, File out) throws IOException{
-		return write(ais, type, new BufferedOutputStream(new FileOutputStream(out), 131072));
+		if(segmentDuration > 0.0) return writeSegments(ais, type, out);
+		if(!skeleton) return write(ais, type, new BufferedOutputStream(new FileOutputStream(out), 131072));
+		SkeletonStream sk = new SkeletonStream(ais, true);
+		int written = write(ais, type, new BufferedOutputStream(new FileOutputStream(out), 131072), sk);
+		try(RandomAccessFile raf = new RandomAccessFile(out, "rw")){
+			sk.patch(raf);
+		}
+		return written;
 	}
 
 	public int write(AudioInputStream ais, Type type, OutputStream out) throws IOException{
-		boolean supported = false;
-		for(Type t : TYPES){
-			if(t.equals(type)){
-				supported = true;
-				break;
-			}
-		}
-		if(supported){
+		return write(ais, type, out, skeleton ? new SkeletonStream(ais, false) : null);
+	}
+
+	/**
+	 * Writes an audio stream in an OGG-based audio file.
+	 * @param ais The audio stream.
+	 * @param type The audio file type.
+	 * @param out The output stream, which is closed after writing.
+	 * @param sk The Skeleton stream written with the audio stream, or {@code null} if no Skeleton stream is written.
+	 * @return The number of bytes written.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private int write(AudioInputStream ais, Type type, OutputStream out, SkeletonStream sk) throws IOException{
+		if(FormatProviderService.getInstance().isEncodingSupported(type)){
 			OggFormatProvider prov = FormatProviderService.getInstance().getFormatProvider(type);
-			OggFormatProvider.EncoderBox eb = prov.newEncoderBox();
+			OggFormatProvider.EncoderBox eb = prov.acquireEncoderBox();
 			int sn = (int) (Math.random() * Integer.MAX_VALUE);
-			OggPage page = new OggPage();
-			page.setBeginningOfStream(true);
-			page.setGranulePosition(0L);
-			page.setSerialNumber(sn);
-			page.setPageNumber(0);
-			page.addPacket(eb.getHeader(ais.getFormat()));
-			page.computeAndSetCrcChecksum();
-			Tags coms = prov.getTags();
 			String encName = prov.getEncoderName();
-			if(encName != null) coms.setVendor(encName + " (using OOOGG - Object-Oriented OGG Container)");
-			int totalBytesWritten = 0, pageNumber = 1, segmentCount = 0, pageContentSize = 0;
+			long totalBytesWritten = 0L;
+			boolean done = false;
+			byte[] buf = OggBufferPool.getShared().acquire(OggPage.MAX_SIZE);
 			try{
-				byte[] b = page.getBytes();
-				out.write(b);
-				totalBytesWritten += b.length;
-				for(OggPage p : OggUtils.toOggPages(sn, 1, coms)){
-					b = p.getBytes();
-					out.write(b);
-					totalBytesWritten += b.length;
+				OggPage page = headerPage(eb.getHeader(ais.getFormat()), sn);
+				Tags coms = getTags(prov);
+				if(sk != null){
+					sk.describe(sn, prov, ais.getFormat());
+					totalBytesWritten += sk.writeHead(out);
 				}
-				page = new OggPage();
-				page.setSerialNumber(sn);
-				page.setPageNumber(++pageNumber);
-				eb.initEncoder();
-				while(ais.read(eb.getPCMBuffer()) > 0){
-					if(pageContentSize > 4250 || segmentCount > 240){
-						pageContentSize = 0;
-						segmentCount = 0;
-						page.setGranulePosition(eb.getGranulePosision());
-						page.computeAndSetCrcChecksum();
-						b = page.getBytes();
-						out.write(b);
-						totalBytesWritten += b.length;
-						page = new OggPage();
-						page.setSerialNumber(sn);
-						page.setPageNumber(++pageNumber);
-					}
-					eb.encode();
-					pageContentSize += eb.getSize();
-					segmentCount += eb.getSegmentNumber();
-					page.addPacket(eb);
+				int size = page.getBytes(buf, 0);
+				out.write(buf, 0, size);
+				totalBytesWritten += size;
+				if(sk != null) totalBytesWritten += sk.writeBones(out, totalBytesWritten);
+				OggPaginator pag = new OggPaginator(sn, 1, policy);
+				totalBytesWritten += writePages(out, pag, pag.addPacket(coms, 0L), null, 0L, buf);
+				totalBytesWritten += writePages(out, pag, pag.flush(false), null, 0L, buf);
+				if(sk != null) totalBytesWritten += sk.writeEnd(out, totalBytesWritten);
+				eb.prepare(ais.getFormat());
+				for(int n; (n = readPCM(ais, eb.getPCMBuffer())) > 0;){
+					encode(eb, n, encName, sn);
+					boolean metrics = OggMetrics.isEnabled();
+					long t = metrics ? System.nanoTime() : 0L;
+					totalBytesWritten += writePages(out, pag, pag.addPacket(eb, eb.getGranulePosision()), sk, totalBytesWritten, buf);
+					if(metrics) OggMetrics.recordWrite(System.nanoTime() - t);
 				}
-				page.setGranulePosition(eb.getGranulePosision());
-				page.setEndOfStream(true);
-				page.computeAndSetCrcChecksum();
-				b = page.getBytes();
-				out.write(b);
-				totalBytesWritten += b.length;
+				totalBytesWritten += writePages(out, pag, pag.flush(true), sk, totalBytesWritten, buf);
+				if(sk != null) sk.finish(totalBytesWritten);
+				done = true;
 			}catch(IOException e){
 				throw e;
 			}catch(Exception e){
 				throw new IOException("Error while encoding audio file", e);
 			}finally{
+				release(prov, eb, done);
+				OggBufferPool.getShared().release(buf);
 				out.flush();
 				out.close();
 			}
-			return totalBytesWritten;
+			return (int) Math.min(Integer.MAX_VALUE, totalBytesWritten);
 		}
 		throw new IllegalArgumentException("File type " + type + " not supported");
 	}
+
+	/**
+	 * Writes an audio stream in segment files of an OGG-based audio file type, and the manifest of the segments.
+	 * @param ais The audio stream.
+	 * @param type The audio file type.
+	 * @param out The file whose name and directory are used to name the segments and the manifest.
+	 * @return The number of bytes written in all segments.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private int writeSegments(AudioInputStream ais, Type type, File out) throws IOException{
+		if(FormatProviderService.getInstance().isEncodingSupported(type)){
+			OggFormatProvider prov = FormatProviderService.getInstance().getFormatProvider(type);
+			OggFormatProvider.EncoderBox eb = prov.acquireEncoderBox();
+			AudioFormat fmt = ais.getFormat();
+			String encName = prov.getEncoderName();
+			long granules = Math.max(1L, (long) Math.ceil(segmentDuration * prov.getGranuleRate(fmt)));
+			SegmentedOutput so = null;
+			boolean done = false;
+			try{
+				so = new SegmentedOutput(out, eb.getHeader(fmt).toOggPacket(), getTags(prov), policy, granules);
+				eb.prepare(fmt);
+				for(int n; (n = readPCM(ais, eb.getPCMBuffer())) > 0;){
+					encode(eb, n, encName, so.serialNumber);
+					boolean metrics = OggMetrics.isEnabled();
+					long t = metrics ? System.nanoTime() : 0L;
+					so.write(eb, eb.getGranulePosision());
+					if(metrics) OggMetrics.recordWrite(System.nanoTime() - t);
+				}
+				so.finish();
+				done = true;
+			}catch(IOException e){
+				throw e;
+			}catch(Exception e){
+				throw new IOException("Error while encoding audio file", e);
+			}finally{
+				release(prov, eb, done);
+				if(so != null) so.close();
+			}
+			return (int) Math.min(Integer.MAX_VALUE, so.written);
+		}
+		throw new IllegalArgumentException("File type " + type + " not supported");
+	}
+
+	/**
+	 * Returns an encoder box to the pool of its provider after a successful encoding, or discards it after a failed encoding, whose encoder state
+	 * is unknown. In both cases the PCM buffer of a discarded encoder box returns to the shared buffer pool.
+	 * @param prov The provider of the encoder box.
+	 * @param eb The encoder box.
+	 * @param done {@code true} if the encoding was completed, {@code false} if it failed.
+	 */
+	private static void release(OggFormatProvider prov, OggFormatProvider.EncoderBox eb, boolean done){
+		if(done) prov.releaseEncoderBox(eb);
+		else eb.releasePCMBuffer();
+	}
+
+	/**
+	 * Encodes the uncompressed audio data stored in the PCM buffer of an encoder box, recording the encoding in metrics and tracing.
+	 * @param eb The encoder box.
+	 * @param n The number of bytes of uncompressed audio data.
+	 * @param encName The encoder name, or {@code null} if unknown.
+	 * @param sn The serial number of the encoded stream.
+	 * @throws Exception If an encoding error occurs.
+	 */
+	private static void encode(OggFormatProvider.EncoderBox eb, int n, String encName, int sn) throws Exception{
+		eb.setPCMDataLength(n);
+		boolean metrics = OggMetrics.isEnabled();
+		long t = metrics ? System.nanoTime() : 0L;
+		Object ev = OggTracing.beginEncode();
+		eb.encode();
+		if(ev != null) OggTracing.endEncode(ev, encName == null ? eb.getClass().getName() : encName, sn, n, eb.getSize());
+		if(metrics) OggMetrics.recordEncode(System.nanoTime() - t);
+	}
+
+	/**
+	 * Creates the beginning of stream page of the audio stream, which contains the identification header.
+	 * @param header The identification header.
+	 * @param sn The serial number of the audio stream.
+	 * @return The OGG page.
+	 */
+	private static OggPage headerPage(OggPackable header, int sn){
+		OggPage page = new OggPage();
+		page.setBeginningOfStream(true);
+		page.setGranulePosition(0L);
+		page.setSerialNumber(sn);
+		page.setPageNumber(0);
+		page.addPacket(header);
+		page.computeAndSetCrcChecksum();
+		return page;
+	}
+
+	/**
+	 * Returns the comments written in the audio stream, with the vendor string naming the encoder.
+	 * @param prov The provider that encodes the audio stream.
+	 * @return The comments.
+	 */
+	private static Tags getTags(OggFormatProvider prov){
+		Tags coms = prov.getTags();
+		String encName = prov.getEncoderName();
+		if(encName != null) coms.setVendor(encName + " (using OOOGG - Object-Oriented OGG Container)");
+		return coms;
+	}
+
+	/**
+	 * Reads uncompressed audio data from an audio stream until the PCM buffer is full or the end of the stream is reached, so only the last packet is partially filled.
+	 * @param ais The audio stream.
+	 * @param buf The PCM buffer.
+	 * @return The number of bytes read, or zero if the end of the stream was reached.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private int readPCM(AudioInputStream ais, byte[] buf) throws IOException{
+		int c = 0;
+		for(int n; c < buf.length && (n = ais.read(buf, c, buf.length - c)) > 0;) c += n;
+		return c;
+	}
+
+	/**
+	 * Writes OGG pages of the audio stream in an output stream, adding them to the keyframe index of the Skeleton stream, and returns the written pages
+	 * to the paginator, so they are reused for the following pages.
+	 * @param out The output stream.
+	 * @param pag The paginator that created the pages.
+	 * @param pages The OGG pages to be written.
+	 * @param sk The Skeleton stream, or {@code null} if no Skeleton stream is written.
+	 * @param offset The offset in the file where the pages are written.
+	 * @param buf The buffer where each page is serialized, with at least {@link OggPage#MAX_SIZE} bytes.
+	 * @return The number of bytes written.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static int writePages(OutputStream out, OggPaginator pag, OggPage[] pages, SkeletonStream sk, long offset, byte[] buf) throws IOException{
+		int written = 0;
+		for(OggPage p : pages){
+			if(sk != null) sk.pageWritten(p, offset + written);
+			int n = p.getBytes(buf, 0);
+			out.write(buf, 0, n);
+			written += n;
+		}
+		pag.recycle(pages);
+		return written;
+	}
+
+	/** The segment files written in segmented mode, and their manifest. */
+	private static class SegmentedOutput{
+		/** The directory of the segments. */
+		private File dir;
+		/** The segment name before the segment number. */
+		private String prefix;
+		/** The segment name after the segment number, that is, the extension. */
+		private String suffix;
+		/** The manifest of the segments. */
+		private Writer manifest;
+		/** The identification header of the audio stream. */
+		private OggPacket header;
+		/** The comments of the audio stream. */
+		private Tags coms;
+		/** The pagination policy. */
+		private PaginationPolicy policy;
+		/** The duration of each segment, in granule positions. */
+		private long duration;
+		/** The serial number of the current segment. */
+		private int serialNumber = (int) (Math.random() * Integer.MAX_VALUE);
+		/** The number of segments. */
+		private int count;
+		/** The name of the current segment. */
+		private String name;
+		/** The output stream of the current segment, or {@code null} if no segment is open. */
+		private OutputStream out;
+		/** The paginator of the current segment. */
+		private OggPaginator pag;
+		/** The granule position where the current segment begins. */
+		private long start;
+		/** The granule position of the last written packet. */
+		private long granule;
+		/** The number of bytes written in all segments. */
+		private long written;
+		/** The buffer where each page is serialized, borrowed from the shared buffer pool. */
+		private byte[] buf = OggBufferPool.getShared().acquire(OggPage.MAX_SIZE);
+
+		/**
+		 * Creates the manifest of the segments.
+		 * @param out The file whose name and directory are used to name the segments and the manifest.
+		 * @param header The identification header of the audio stream.
+		 * @param coms The comments of the audio stream.
+		 * @param policy The pagination policy.
+		 * @param duration The duration of each segment, in granule positions.
+		 * @throws IOException If the manifest cannot be created.
+		 */
+		SegmentedOutput(File out, OggPacket header, Tags coms, PaginationPolicy policy, long duration) throws IOException{
+			dir = out.getAbsoluteFile().getParentFile();
+			String n = out.getName();
+			int dot = n.lastIndexOf('.');
+			prefix = (dot > 0 ? n.substring(0, dot) : n) + '-';
+			suffix = dot > 0 ? n.substring(dot) : "";
+			manifest = new OutputStreamWriter(new FileOutputStream(new File(dir, prefix.substring(0, prefix.length() - 1) + ".segments")), StandardCharsets.UTF_8);
+			this.header = header;
+			this.coms = coms;
+			this.policy = policy;
+			this.duration = duration;
+		}
+
+		/**
+		 * Writes an encoded packet, opening a new segment if none is open and finishing the segment if its duration was reached.
+		 * @param packet The encoded packet.
+		 * @param gp The granule position of the packet in the audio stream.
+		 * @throws IOException If I/O error occurs.
+		 */
+		void write(OggPackable packet, long gp) throws IOException{
+			if(out == null) open();
+			written += writePages(pag.addPacket(packet, gp - start));
+			granule = gp;
+			if(gp - start >= duration) closeSegment();
+		}
+
+		/**
+		 * Finishes the last segment. If no packet was written, a segment with only the header pages is written.
+		 * @throws IOException If I/O error occurs.
+		 */
+		void finish() throws IOException{
+			if(out == null && count == 0) open();
+			if(out != null) closeSegment();
+		}
+
+		/**
+		 * Opens a new segment, beginning at the granule position of the last written packet, and writes its header pages.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void open() throws IOException{
+			if(count > 0) serialNumber = (int) (Math.random() * Integer.MAX_VALUE);
+			name = prefix + String.format("%05d", count++) + suffix;
+			out = new BufferedOutputStream(new FileOutputStream(new File(dir, name)), 131072);
+			start = granule;
+			int n = headerPage(header, serialNumber).getBytes(buf, 0);
+			out.write(buf, 0, n);
+			written += n;
+			pag = new OggPaginator(serialNumber, 1, policy);
+			written += writePages(pag.addPacket(coms, 0L));
+			written += writePages(pag.flush(false));
+		}
+
+		/**
+		 * Finishes the current segment with an end of stream page, closes it and adds it to the manifest.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private void closeSegment() throws IOException{
+			written += writePages(pag.flush(true));
+			OutputStream o = out;
+			out = null;
+			o.close();
+			manifest.write(name + '\t' + start + '\n');
+			manifest.flush();
+		}
+
+		/**
+		 * Writes OGG pages in the current segment and returns them to the paginator, so they are reused for the following pages.
+		 * @param pages The OGG pages to be written.
+		 * @return The number of bytes written.
+		 * @throws IOException If I/O error occurs.
+		 */
+		private int writePages(OggPage[] pages) throws IOException{
+			return OggAudioFileWriter.writePages(out, pag, pages, null, 0L, buf);
+		}
+
+		/**
+		 * Closes the current segment, if any, and the manifest, and returns the page buffer to the shared buffer pool.
+		 * @throws IOException If I/O error occurs.
+		 */
+		void close() throws IOException{
+			try{
+				if(out != null) out.close();
+			}finally{
+				OggBufferPool.getShared().release(buf);
+				buf = null;
+				manifest.close();
+			}
+		}
+	}
+
+	/** The Skeleton stream written with the audio stream. */
+	private static class SkeletonStream{
+		/** Minimum time in milliseconds between keypoints of the index. */
+		private static final long KEYPOINT_INTERVAL = 1000L;
+		/** Size in bytes reserved for the index when the duration of the audio stream is unknown. */
+		private static final int DEFAULT_INDEX_SIZE = 16384;
+		/** Maximum size in bytes of the index, so it fits in a single OGG page. */
+		private static final int MAX_INDEX_SIZE = 65024;
+		/** The serial number of the Skeleton stream. */
+		private int serialNumber = (int) (Math.random() * Integer.MAX_VALUE);
+		/** The fishead packet. */
+		private SkeletonHead head = new SkeletonHead();
+		/** The fisbone packet of the audio stream. */
+		private SkeletonBone bone;
+		/** The keyframe index of the audio stream, or {@code null} if no index is written. */
+		private SkeletonIndex index;
+		/** The number of the next page of the Skeleton stream. */
+		private int pageNumber;
+		/** The offset in the file of the index page. */
+		private long indexOffset;
+		/** The granule position at the end of the last written page of the audio stream. */
+		private long granule;
+		/** The time of the last keypoint, or -1 if no keypoint was added. */
+		private long lastKeypoint = -1L;
+		/** The size in bytes reserved for the index. */
+		private int indexSize;
+
+		/**
+		 * Creates a Skeleton stream.
+		 * @param ais The audio stream, used to estimate the size of the index.
+		 * @param indexed {@code true} if the index is written, {@code false} otherwise.
+		 */
+		SkeletonStream(AudioInputStream ais, boolean indexed){
+			if(indexed){
+				AudioFormat fmt = ais.getFormat();
+				long frames = ais.getFrameLength();
+				if(frames > 0L && fmt.getFrameRate() > 0f) indexSize = (int) Math.max(170L, Math.min(MAX_INDEX_SIZE, 42L + 8L * ((long) (frames / fmt.getFrameRate()) + 2L)));
+				else indexSize = DEFAULT_INDEX_SIZE;
+			}
+		}
+
+		/**
+		 * Describes the audio stream in the Skeleton stream.
+		 * @param serial The serial number of the audio stream.
+		 * @param prov The provider that encodes the audio stream.
+		 * @param fmt The format of the encoded audio.
+		 */
+		void describe(int serial, OggFormatProvider prov, AudioFormat fmt){
+			bone = new SkeletonBone(serial, 2, prov.getGranuleRate(fmt), prov.getContentType());
+			if(indexSize > 0){
+				index = new SkeletonIndex(serial, 1000L);
+				index.setPacketSize(indexSize);
+			}
+		}
+
+		/**
+		 * Creates a page of the Skeleton stream containing a single packet.
+		 * @param number The page number.
+		 * @param packet The packet.
+		 * @return The OGG page.
+		 */
+		private OggPage page(int number, OggPackable packet){
+			OggPage page = new OggPage();
+			page.setBeginningOfStream(number == 0);
+			page.setGranulePosition(0L);
+			page.setSerialNumber(serialNumber);
+			page.setPageNumber(number);
+			page.addPacket(packet);
+			page.computeAndSetCrcChecksum();
+			return page;
+		}
+
+		/**
+		 * Writes the beginning of stream page, which must be the first page of the file.
+		 * @param out The output stream.
+		 * @return The number of bytes written.
+		 * @throws IOException If I/O error occurs.
+		 */
+		int writeHead(OutputStream out) throws IOException{
+			byte[] b = page(pageNumber++, head).getBytes();
+			out.write(b);
+			return b.length;
+		}
+
+		/**
+		 * Writes the fisbone and index pages, which must be written after the beginning of stream pages of all streams.
+		 * @param out The output stream.
+		 * @param offset The offset in the file where the pages are written.
+		 * @return The number of bytes written.
+		 * @throws IOException If I/O error occurs.
+		 */
+		int writeBones(OutputStream out, long offset) throws IOException{
+			byte[] b = page(pageNumber++, bone).getBytes();
+			out.write(b);
+			int written = b.length;
+			if(index != null){
+				indexOffset = offset + written;
+				b = page(pageNumber++, index).getBytes();
+				out.write(b);
+				written += b.length;
+			}
+			return written;
+		}
+
+		/**
+		 * Writes the end of stream page, which must be written after the header pages of all streams.
+		 * @param out The output stream.
+		 * @param offset The offset in the file where the page is written, which is the offset of the first non-header page.
+		 * @return The number of bytes written.
+		 * @throws IOException If I/O error occurs.
+		 */
+		int writeEnd(OutputStream out, long offset) throws IOException{
+			OggPage page = new OggPage();
+			page.setEndOfStream(true);
+			page.setGranulePosition(0L);
+			page.setSerialNumber(serialNumber);
+			page.setPageNumber(pageNumber++);
+			page.addPacket(new OggPacket(new byte[0]));
+			page.computeAndSetCrcChecksum();
+			byte[] b = page.getBytes();
+			out.write(b);
+			head.setContentOffset(offset + b.length);
+			return b.length;
+		}
+
+		/**
+		 * Adds a written page of the audio stream to the index, if a packet begins in the page and the last keypoint is old enough.
+		 * @param page The OGG page.
+		 * @param offset The offset in the file of the page.
+		 */
+		void pageWritten(OggPage page, long offset){
+			if(index != null && !page.isContinuation()){
+				long time = bone.granuleToTime(granule, 1000L);
+				if(lastKeypoint < 0L || time - lastKeypoint >= KEYPOINT_INTERVAL){
+					index.addKeypoint(offset, time);
+					lastKeypoint = time;
+				}
+			}
+			if(page.getGranulePosition() >= 0L) granule = page.getGranulePosition();
+		}
+
+		/**
+		 * Finishes the Skeleton stream after the last page of the audio stream is written.
+		 * @param length The size of the file.
+		 */
+		void finish(long length){
+			head.setSegmentLength(length);
+			if(index != null) index.setLastSampleEndTime(bone.granuleToTime(granule, 1000L));
+		}
+
+		/**
+		 * Rewrites the beginning of stream page and the index page in place, with the size of the file, the offset of the first non-header page and the
+		 * keypoints. If the keypoints don't fit in the reserved space, every other keypoint is removed until they fit.
+		 * @param file The written file.
+		 * @throws IOException If I/O error occurs.
+		 */
+		void patch(RandomAccessFile file) throws IOException{
+			file.seek(0L);
+			file.write(page(0, head).getBytes());
+			if(index != null){
+				index.trimToPacketSize();
+				file.seek(indexOffset);
+				file.write(page(2, index).getBytes());
+			}
+		}
+	}
 }
\ No newline at end of file
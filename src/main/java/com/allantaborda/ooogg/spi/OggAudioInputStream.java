@@ -5,13 +5,25 @@
  */
 package com.allantaborda.ooogg.spi;
 
+import com.allantaborda.ooogg.CrcPolicy;
+import com.allantaborda.ooogg.OggBufferPool;
+import com.allantaborda.ooogg.OggMetrics;
+import com.allantaborda.ooogg.OggPackable;
 import com.allantaborda.ooogg.OggPacket;
 import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggSkeleton;
+import com.allantaborda.ooogg.OggTracing;
 import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.Tags;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StreamCorruptedException;
 import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 
@@ -20,22 +32,58 @@ import javax.sound.sampled.AudioInputStream;
  * @author Allan Taborda dos Santos
  */
 public abstract class OggAudioInputStream extends AudioInputStream{
+	/**
+	 * Key of the {@code AudioFormat} property that enables the low latency startup mode, in which the stream starts with a small read buffer that
+	 * grows as audio data is read. The value must be a {@code Boolean}. This property should be set in the target format of the conversion.
+	 */
+	public static final String LOW_LATENCY = "ooogg.lowLatency";
+	/**
+	 * Key of the {@code AudioFormat} property that sets the CRC verification policy of the OGG pages read by the stream. The value must be a
+	 * {@code CrcPolicy}; if not set, the default policy is used. This property should be set in the target format of the conversion.
+	 */
+	public static final String CRC_POLICY = "ooogg.crcPolicy";
+	/** Initial size of the read buffer in low latency startup mode. */
+	private static final int LOW_LATENCY_BUFFER_SIZE = 4096;
+	/** Size of the read buffer, or maximum size of the read buffer in low latency startup mode. */
+	private static final int BUFFER_SIZE = 524288;
 	/** Initial OGG pages. */
 	private OggPage[] headerPages;
 	/** OGG packet queue. */
 	private ArrayDeque<OggPacket> queue;
 	/** Stream which contains undecoded audio data. */
-	private BufferedInputStream is;
+	private SourceInputStream is;
 	/** Flag indicating whether new OGG packages still need to be extracted. */
 	private boolean extractMore = true;
 	/** Position in buffer where audio data is read. */
 	private int pRead;
 	/** Position in buffer where audio data is written. */
-	private int pWrite;
+	private int pWrite = -1;
+	/** Expected number of the next OGG page, or -1 if unknown. Used to count gaps in the page sequence. */
+	private int nextPageNumber = -1;
+	/** Serial number of the logical stream of the last OGG pages read. */
+	private int serialNumber;
+	/** Flag indicating if the source stream has a Skeleton stream, whose pages are skipped. */
+	private boolean skeleton;
+	/** The serial number of the Skeleton stream. */
+	private int skeletonSerialNumber;
 	/** Channel number. */
 	private int channels;
+	/** The CRC verification policy of the OGG pages read by this stream. */
+	private CrcPolicy crcPolicy;
 	/** Buffer where decoded audio data is stored temporarily. */
 	private byte[] buf;
+	/** The provider whose pool receives this stream when closed, or {@code null} if this stream is not reused. */
+	private OggFormatProvider owner;
+	/** Flag indicating whether this stream was closed. */
+	private boolean closed;
+	/** The audio file format read by {@code OggAudioFileReader}, or {@code null} if the source stream was not obtained from it. */
+	private OggFormatProvider.OGGAudioFileFormat fileFormat;
+	/** Value of {@code System.nanoTime()} when the stream was opened. */
+	private long openTime;
+	/** Time in nanoseconds from the stream opening until the first audio packet is decoded, or -1 if no packet was decoded yet. */
+	private long startupLatency = -1L;
+	/** Lock that guards the reading of decoded audio data. A lock is used instead of the monitor so virtual threads blocked on reading and decoding don't pin their carrier threads. */
+	private final ReentrantLock lock = new ReentrantLock();
 
 	/**
 	 * Constructs an {@code OggAudioInputStream} that has the requested format, using audio data from the specified audio input stream. 
@@ -45,23 +93,64 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 	 * @throws IOException If I/O error occurs.
 	 */
 	public OggAudioInputStream(AudioFormat fmt, AudioInputStream ais) throws StreamCorruptedException, IOException{
-		this(fmt, new BufferedInputStream(ais, 524288));
+		this(fmt, ais, Boolean.TRUE.equals(fmt.getProperty(LOW_LATENCY)) ? new SourceInputStream(ais, LOW_LATENCY_BUFFER_SIZE, BUFFER_SIZE) : new SourceInputStream(ais, BUFFER_SIZE, BUFFER_SIZE));
 	}
 
 	/**
 	 * Private constructor used by public construtor above. Used to encapsulate {@code AudioInputStream} in a {@code BufferedInputStream}.
 	 * @param fmt The format of this stream's audio data.
+	 * @param ais The audio input stream on which this {@code OggAudioInputStream} object is based.
 	 * @param bis The {@code BufferedInputStream} that encapsulates the {@code AudioInputStream}.
 	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
 	 * @throws IOException If I/O error occurs.
 	 */
-	private OggAudioInputStream(AudioFormat fmt, BufferedInputStream bis) throws StreamCorruptedException, IOException{
+	private OggAudioInputStream(AudioFormat fmt, AudioInputStream ais, SourceInputStream bis) throws StreamCorruptedException, IOException{
 		super(bis, fmt, -1);
+		openTime = System.nanoTime();
 		channels = fmt.getChannels();
+		crcPolicy = toCrcPolicy(fmt);
 		is = bis;
+		useFileFormat(ais);
 		init(false);
 	}
 
+	/**
+	 * Constructor used by {@code PooledAudioInputStream}, which reads no OGG pages, since it delegates to a pooled decoding stream.
+	 * @param fmt The format of this stream's audio data.
+	 */
+	OggAudioInputStream(AudioFormat fmt){
+		super(new ByteArrayInputStream(new byte[0]), fmt, -1);
+		channels = fmt.getChannels();
+		pRead = -1;
+	}
+
+	/**
+	 * If the given stream was returned by {@code OggAudioFileReader}, takes the header pages and the parsed header and tags carried by its audio file format,
+	 * since these header pages were already read from the stream.
+	 * @param ais The audio input stream on which this stream is based.
+	 */
+	private void useFileFormat(AudioInputStream ais){
+		if(ais instanceof OggFileAudioInputStream){
+			fileFormat = ((OggFileAudioInputStream) ais).getFileFormat();
+			headerPages = fileFormat.getHeaderPages();
+			skeleton = fileFormat.hasSkeleton();
+			skeletonSerialNumber = fileFormat.getSkeletonSerialNumber();
+		}else{
+			fileFormat = null;
+			skeleton = false;
+		}
+	}
+
+	/**
+	 * Returns the CRC verification policy set in the given audio format, or the default policy if the format has no policy.
+	 * @param fmt The audio format.
+	 * @return The CRC verification policy.
+	 */
+	private static CrcPolicy toCrcPolicy(AudioFormat fmt){
+		Object policy = fmt.getProperty(CRC_POLICY);
+		return policy instanceof CrcPolicy ? (CrcPolicy) policy : CrcPolicy.getDefault();
+	}
+
 	/**
 	 * Initializes the OGG packet queue.
 	 * @param searchForNextPage If {@code true}, the next OGG page is searched in stream if file pointer does not point to the beginning of OGG magic number.
@@ -70,9 +159,13 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 	 * @throws IOException If I/O error occurs.
 	 */
 	private void init(boolean searchForNextPage) throws StreamCorruptedException, IOException{
-		queue = new ArrayDeque<>(120);
-		OggPage[] pages = OggUtils.readOggPages(is, searchForNextPage);
-		while(pages[0].getGranulePosition() < 1L){
+		if(queue == null) queue = new ArrayDeque<>(120);
+		else queue.clear();
+		nextPageNumber = headerPages == null ? -1 : headerPages[headerPages.length - 1].getPageNumber() + 1;
+		OggPage[] pages = readOggPages(searchForNextPage);
+		if(searchForNextPage) nextPageNumber = -1;
+		if(OggMetrics.isEnabled()) checkSequence(pages);
+		while(isHeader(pages)){
 			if(headerPages == null) headerPages = pages;
 			else{
 				OggPage[] hp = headerPages;
@@ -80,11 +173,142 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 				System.arraycopy(hp, 0, headerPages, 0, hp.length);
 				System.arraycopy(pages, 0, headerPages, hp.length, pages.length);
 			}
-			pages = OggUtils.readOggPages(is);
+			pages = readOggPages(false);
+			if(OggMetrics.isEnabled()) checkSequence(pages);
 		}
+		serialNumber = pages[0].getSerialNumber();
 		for(OggPacket p : OggUtils.getPacketsFromPages(pages)) queue.offer(p);
 	}
 
+	/**
+	 * Checks if the given OGG pages, read by {@link #readOggPages(boolean)}, contain header packets. The header packets end in pages with granule
+	 * position zero; pages with granule position -1, in which no packet ends, belong to the packet that ends in the first following page that has
+	 * a granule position, so an audio packet larger than a page is not taken as a header packet.
+	 * @param pages The OGG pages.
+	 * @return {@code true} if the pages contain header packets, {@code false} otherwise.
+	 */
+	private static boolean isHeader(OggPage[] pages){
+		for(OggPage p : pages) if(p.getGranulePosition() != -1L) return p.getGranulePosition() == 0L;
+		return false;
+	}
+
+	/**
+	 * Reads the next OGG pages of the source stream, skipping the pages of the Skeleton stream.
+	 * @param searchForNextPage If {@code true}, the next OGG page is searched in stream if file pointer does not point to the beginning of OGG magic number.
+	 * @return The OGG pages.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private OggPage[] readOggPages(boolean searchForNextPage) throws StreamCorruptedException, IOException{
+		OggPage[] pages = OggUtils.readOggPages(is, searchForNextPage, crcPolicy);
+		while(true){
+			if(OggSkeleton.isSkeletonHead(pages[0])){
+				skeleton = true;
+				skeletonSerialNumber = pages[0].getSerialNumber();
+			}else if(!skeleton || pages[0].getSerialNumber() != skeletonSerialNumber) return pages;
+			pages = OggUtils.readOggPages(is, false, crcPolicy);
+		}
+	}
+
+	/**
+	 * Counts the gaps in the page sequence in the metrics.
+	 * @param pages The OGG pages read from the stream.
+	 */
+	private void checkSequence(OggPage[] pages){
+		for(OggPage p : pages){
+			if(nextPageNumber >= 0 && p.getPageNumber() != nextPageNumber) OggMetrics.recordSequenceGap();
+			nextPageNumber = p.getPageNumber() + 1;
+		}
+	}
+
+	/**
+	 * Reinitializes this closed stream to decode another OGG stream, keeping its buffers. The header pages are read
+	 * from the new source stream and {@link #resetDecoder()} is called, so the decoder can reconfigure itself.
+	 * @param fmt The format of this stream's audio data.
+	 * @param ais The audio input stream on which this stream is now based.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or data structure is not an OGG container.
+	 * @throws IOException If I/O error occurs.
+	 */
+	void reuse(AudioFormat fmt, AudioInputStream ais) throws StreamCorruptedException, IOException{
+		format = fmt;
+		frameLength = -1L;
+		framePos = 0L;
+		openTime = System.nanoTime();
+		startupLatency = -1L;
+		channels = fmt.getChannels();
+		crcPolicy = toCrcPolicy(fmt);
+		is.setSource(ais);
+		headerPages = null;
+		useFileFormat(ais);
+		closed = false;
+		extractMore = true;
+		pRead = 0;
+		pWrite = -1;
+		init(false);
+		resetDecoder();
+	}
+
+	/**
+	 * Sets the provider whose pool receives this stream when closed.
+	 * @param prov The provider.
+	 */
+	void setOwner(OggFormatProvider prov){
+		owner = prov;
+	}
+
+	/**
+	 * Returns if this stream can be reused to decode another OGG stream after being closed. Providers that support reuse must override
+	 * this method, returning {@code true}, and must override {@link #resetDecoder()}.
+	 * @return {@code true} if this stream can be reused, {@code false} otherwise.
+	 */
+	protected boolean isReusable(){
+		return false;
+	}
+
+	/**
+	 * Resets the decoder state when this stream is reused to decode another OGG stream. When this method is called, the header pages
+	 * of the new OGG stream were already read and are available through {@link #getHeaderPages()}. Implementations that support reuse
+	 * must override this method, reconfiguring the decoder according to the new header pages.
+	 * @throws StreamCorruptedException If the header pages are not valid for this decoder.
+	 */
+	protected void resetDecoder() throws StreamCorruptedException{}
+
+	/**
+	 * Returns a copy of the given audio format with the {@link #LOW_LATENCY} property enabled. The returned format can be used as target
+	 * format in {@code AudioSystem.getAudioInputStream(AudioFormat, AudioInputStream)} to request the low latency startup mode.
+	 * @param fmt The audio format.
+	 * @return The audio format with the low latency startup mode enabled.
+	 */
+	public static AudioFormat toLowLatencyFormat(AudioFormat fmt){
+		Map<String, Object> props = new HashMap<>(fmt.properties());
+		props.put(LOW_LATENCY, Boolean.TRUE);
+		return new AudioFormat(fmt.getEncoding(), fmt.getSampleRate(), fmt.getSampleSizeInBits(), fmt.getChannels(), fmt.getFrameSize(), fmt.getFrameRate(), fmt.isBigEndian(), props);
+	}
+
+	/**
+	 * Returns the time from the opening of this stream until its first audio packet was decoded, that is, the time to the first sample.
+	 * @return The startup latency in nanoseconds, or -1 if no audio packet was decoded yet.
+	 */
+	public long getStartupLatency(){
+		return startupLatency;
+	}
+
+	/**
+	 * Returns the OGG file header parsed by {@code OggAudioFileReader} when the source stream was obtained, so decoders don't need to parse it again.
+	 * @return The parsed OGG file header, or {@code null} if the source stream was not obtained from {@code OggAudioFileReader}.
+	 */
+	public OggPackable getHeader(){
+		return fileFormat == null ? null : fileFormat.getHeader();
+	}
+
+	/**
+	 * Returns the tags parsed by {@code OggAudioFileReader} when the source stream was obtained, so decoders don't need to parse them again.
+	 * @return The parsed tags, or {@code null} if the source stream was not obtained from {@code OggAudioFileReader}.
+	 */
+	public Tags getTags(){
+		return fileFormat == null ? null : fileFormat.getTags();
+	}
+
 	/**
 	 * Returns the initial OGG pages.
 	 * @return The initial OGG pages.
@@ -101,21 +325,50 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 		return channels;
 	}
 
-	public synchronized int read() throws IOException{
-		if(pRead < 0) return -1;
-		byte b = buf[pRead++];
-		if(pRead == buf.length) initBuffer();
-		return b;
+	public int read() throws IOException{
+		lock.lock();
+		try{
+			if(pRead >= 0 && pRead == buf.length) initBuffer();
+			if(pRead < 0) return -1;
+			return buf[pRead++] & 0xff;
+		}finally{
+			lock.unlock();
+		}
 	}
 
-	public synchronized int read(byte[] b, int off, int len) throws IOException{
-		if(pRead < 0) return -1;
-		int c;
-		for(c = 0; c < len; c++) b[off++] = (byte) read();
-		return c;
+	/**
+	 * Reads decoded audio data. If some data was already read and no more data can be decoded without blocking, the read data is returned
+	 * before filling the whole array.
+	 * @param b The array where the read data is stored.
+	 * @param off The offset in the array where the data is stored.
+	 * @param len The maximum number of bytes to be read.
+	 * @return The number of bytes read, or -1 if the end of the stream was reached.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException{
+		lock.lock();
+		try{
+			if(pRead < 0) return -1;
+			int c = 0;
+			while(c < len && pRead >= 0){
+				if(pRead == buf.length){
+					if(c > 0 && queue.isEmpty() && !sourceAvailable()) break;
+					initBuffer();
+					continue;
+				}
+				int n = Math.min(len - c, buf.length - pRead);
+				System.arraycopy(buf, pRead, b, off + c, n);
+				pRead += n;
+				c += n;
+			}
+			return c == 0 && pRead < 0 ? -1 : c;
+		}finally{
+			lock.unlock();
+		}
 	}
 
 	public long skip(long n) throws IOException{
+		if(closed) throw new IOException("Stream closed");
 		n = is.skip(n);
 		init(true);
 		return n;
@@ -126,29 +379,107 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 		return buf.length - pRead;
 	}
 
+	public boolean markSupported(){
+		return false;
+	}
+
+	public void mark(int readlimit){}
+
+	public void reset() throws IOException{
+		throw new IOException("Mark/reset not supported");
+	}
+
+	/**
+	 * Closes this stream and its source stream. If this stream is reusable and was obtained from a provider, it returns to the pool of the provider;
+	 * in this case, the stream was handed to its user behind a {@code PooledAudioInputStream}, so a later call of {@code close()} by the previous user
+	 * never reaches the next one. Otherwise, the decoded audio buffer returns to the shared buffer pool. Closing a closed stream has no effect.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void close() throws IOException{
+		lock.lock();
+		try{
+			if(closed) return;
+			closed = true;
+			extractMore = false;
+			pRead = -1;
+			queue.clear();
+		}finally{
+			lock.unlock();
+		}
+		try{
+			is.closeSource();
+		}finally{
+			OggFormatProvider prov = owner;
+			owner = null;
+			if(prov == null || !prov.releaseAudioInputStream(this)){
+				OggBufferPool.getShared().release(buf);
+				buf = null;
+			}
+		}
+	}
+
 	/** Initializes the decoded audio buffer and decodes an OGG packet. */
 	public final void initBuffer(){
-		boolean decode;
+		decodeNextPacket();
+	}
+
+	/** Decodes the next OGG packet in the decoded audio buffer. Overridden by {@code PooledAudioInputStream}, which delegates to the pooled decoding stream. */
+	void decodeNextPacket(){
 		OggPacket packet = queue.poll();
-		if(extractMore && queue.size() < 8){
+		while(packet == null && extractMore){
+			extract();
+			packet = queue.poll();
+		}
+		boolean decode;
+		Object ev = packet == null ? null : OggTracing.beginDecode();
+		if(packet != null && OggMetrics.isEnabled()){
+			long t = System.nanoTime();
+			decode = decode(packet);
+			OggMetrics.recordDecode(System.nanoTime() - t);
+		}else decode = packet != null && decode(packet);
+		if(ev != null) OggTracing.endDecode(ev, getClass().getName(), serialNumber, packet.getSize(), decode);
+		if(decode && startupLatency < 0L) startupLatency = System.nanoTime() - openTime;
+		if(queue.size() < 8 && sourceAvailable()) extract();
+		pRead = decode ? 0 : -1;
+		pWrite = -1;
+	}
+
+	/**
+	 * Checks if the source stream has data that can be read without blocking. The OGG packet queue is filled in advance only in this case, so a stream
+	 * following a file that is still being written (see {@code OggFollowInputStream}) returns the decoded audio without waiting for the next page.
+	 * @return {@code true} if the source stream has data available, {@code false} otherwise.
+	 */
+	private boolean sourceAvailable(){
+		try{
+			return !closed && is.available() > 0;
+		}catch(IOException e){
+			return false;
+		}
+	}
+
+	/** Extracts the OGG packets of the next OGG pages and puts them in the OGG packet queue. */
+	private void extract(){
+		if(extractMore){
 			try{
-				for(OggPacket p : OggUtils.getPacketsFromPages(is)) queue.offer(p);
+				OggPage[] pages = readOggPages(false);
+				if(OggMetrics.isEnabled()) checkSequence(pages);
+				serialNumber = pages[0].getSerialNumber();
+				for(OggPacket p : OggUtils.getPacketsFromPages(pages)) queue.offer(p);
 			}catch(Exception e){
 				extractMore = false;
 			}
 		}
-		if(packet == null) decode = false;
-		else decode = decode(packet);
-		pRead = decode ? 0 : -1;
-		pWrite = -1;
 	}
 
 	/**
-	 * Creates the buffer where decoded audio data is stored temporarily, with specified capacity.
+	 * Creates the buffer where decoded audio data is stored temporarily, with specified capacity, borrowed from the shared buffer pool.
 	 * @param capacity The buffer capacity.
 	 */
 	public final void createBuffer(int capacity){
-		buf = new byte[capacity];
+		if(buf == null || buf.length != capacity){
+			OggBufferPool.getShared().release(buf);
+			buf = OggBufferPool.getShared().acquire(capacity);
+		}
 	}
 
 	/**
@@ -159,6 +490,18 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 		if(++pWrite < buf.length) buf[pWrite] = value;
 	}
 
+	/**
+	 * Puts a sequence of bytes in the decoded audio buffer. Bytes that don't fit in the buffer are ignored.
+	 * @param values The array containing the bytes to be inserted.
+	 * @param off The offset of the first byte in the array.
+	 * @param len The number of bytes to be inserted.
+	 */
+	public final void putInBuffer(byte[] values, int off, int len){
+		int n = Math.max(0, Math.min(len, buf.length - pWrite - 1));
+		System.arraycopy(values, off, buf, pWrite + 1, n);
+		pWrite += len;
+	}
+
 	/**
 	 * Puts a short value in the decoded audio buffer.
 	 * @param value The short value to be inserted.
@@ -174,4 +517,67 @@ public abstract class OggAudioInputStream extends AudioInputStream{
 	 * @return {@code true} if decoding is successfully, {@code false} otherwise.
 	 */
 	protected abstract boolean decode(OggPacket packet);
+
+	/**
+	 * A {@code BufferedInputStream} whose source stream can be replaced, so its buffer can be reused with another source stream.
+	 * The buffer starts with an initial size and doubles each time it is refilled, until it reaches the maximum size.
+	 */
+	private static class SourceInputStream extends BufferedInputStream{
+		/** The maximum buffer size. */
+		private int maxSize;
+
+		/**
+		 * Creates a buffered input stream with the given source stream and buffer sizes.
+		 * @param in The source stream.
+		 * @param size The initial buffer size.
+		 * @param maxSize The maximum buffer size.
+		 */
+		SourceInputStream(InputStream in, int size, int maxSize){
+			super(in, size);
+			this.maxSize = maxSize;
+		}
+
+		public synchronized int read() throws IOException{
+			grow();
+			return super.read();
+		}
+
+		public synchronized int read(byte[] b, int off, int len) throws IOException{
+			grow();
+			return super.read(b, off, len);
+		}
+
+		/** Doubles the buffer size, if the buffer was filled and fully read, no mark is set and the buffer size is less than the maximum size. */
+		private void grow(){
+			if(count > 0 && pos >= count && markpos < 0 && buf != null && buf.length < maxSize){
+				buf = new byte[Math.min(maxSize, buf.length * 2)];
+				pos = 0;
+				count = 0;
+			}
+		}
+
+		/**
+		 * Replaces the source stream, discarding buffered data.
+		 * @param src The new source stream.
+		 */
+		synchronized void setSource(InputStream src){
+			in = src;
+			pos = 0;
+			count = 0;
+			markpos = -1;
+		}
+
+		/**
+		 * Closes the source stream, keeping the buffer.
+		 * @throws IOException If I/O error occurs.
+		 */
+		synchronized void closeSource() throws IOException{
+			InputStream src = in;
+			in = null;
+			pos = 0;
+			count = 0;
+			markpos = -1;
+			if(src != null) src.close();
+		}
+	}
 }
\ No newline at end of file
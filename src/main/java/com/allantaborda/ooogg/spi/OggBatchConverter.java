@@ -0,0 +1,292 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Converts audio files to OGG-based audio files concurrently, using a bounded number of threads.<br/><br/>
+ * Source files in OGG-based formats are decoded by {@code OggFormatConversionProvider}, other formats are decoded by the installed
+ * {@code AudioSystem} services, and the uncompressed PCM audio is encoded by {@code OggAudioFileWriter}. The number of threads limits
+ * the CPU usage, and each running job reserves a fixed amount of memory from a global memory limit before starting. The memory actually
+ * used by a job is not measured nor estimated from its source file, so the memory limit works as a second cap on the number of running jobs,
+ * the memory limit divided by the memory per job, which is useful when the limit of threads is higher. The number of jobs waiting to run is
+ * also limited, so {@link #submit(File, File, AudioFileFormat.Type)} blocks when too many jobs are waiting.
+ * @author Allan Taborda dos Santos
+ */
+public class OggBatchConverter implements AutoCloseable{
+	/** The executor that runs the jobs. */
+	private ExecutorService executor;
+	/** Semaphore whose permits are the kilobytes of memory available to running jobs. */
+	private Semaphore memory;
+	/** Semaphore whose permits are the jobs that can be submitted before blocking. */
+	private Semaphore slots;
+	/** Memory in kilobytes reserved by each running job. */
+	private int jobMemory;
+	/** The submitted jobs that did not finish yet. */
+	private Set<Job> jobs = ConcurrentHashMap.newKeySet();
+
+	/** Creates a batch converter that uses as many threads as available processors and a memory limit of 64 MB. */
+	public OggBatchConverter(){
+		this(Runtime.getRuntime().availableProcessors(), 67108864L);
+	}
+
+	/**
+	 * Creates a batch converter with the given limits. Each running job reserves 1 MB of memory, so at most one job per megabyte of the memory
+	 * limit runs at the same time.
+	 * @param maxThreads The maximum number of jobs running at the same time.
+	 * @param maxMemory The maximum amount of memory in bytes used by the running jobs.
+	 * @throws IllegalArgumentException If any limit is less than one, or if maximum memory is not enough for a job.
+	 */
+	public OggBatchConverter(int maxThreads, long maxMemory){
+		this(maxThreads, maxMemory, 1048576);
+	}
+
+	/**
+	 * Creates a batch converter with the given limits. At most {@code maxMemory / memoryPerJob} jobs run at the same time, besides the limit of
+	 * threads; the memory per job should be the expected peak memory of a conversion, which depends on the formats being converted.
+	 * @param maxThreads The maximum number of jobs running at the same time.
+	 * @param maxMemory The maximum amount of memory in bytes reserved by the running jobs.
+	 * @param memoryPerJob The amount of memory in bytes reserved by each running job.
+	 * @throws IllegalArgumentException If any limit is less than one, or if maximum memory is not enough for a job.
+	 */
+	public OggBatchConverter(int maxThreads, long maxMemory, int memoryPerJob){
+		if(maxThreads < 1) throw new IllegalArgumentException("Invalid number of threads: " + maxThreads);
+		if(memoryPerJob < 1 || maxMemory < memoryPerJob) throw new IllegalArgumentException("Invalid memory limits: " + maxMemory + ", " + memoryPerJob);
+		jobMemory = (memoryPerJob + 1023) / 1024;
+		memory = new Semaphore((int) Math.min(Integer.MAX_VALUE, maxMemory / 1024), true);
+		slots = new Semaphore(maxThreads * 4);
+		executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+	}
+
+	/**
+	 * Submits a job that converts the given source file to the given OGG-based audio file type. If too many jobs are waiting to run, this method blocks until a job finishes.
+	 * @param in The source audio file.
+	 * @param out The OGG-based audio file to be written.
+	 * @param type The OGG-based audio file type.
+	 * @return The submitted job.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public Job submit(File in, File out, AudioFileFormat.Type type) throws InterruptedException{
+		slots.acquire();
+		Job job = new Job(in, out, type);
+		jobs.add(job);
+		try{
+			executor.execute(job.task);
+		}catch(RuntimeException e){
+			job.task.cancel(false);
+			throw e;
+		}
+		return job;
+	}
+
+	/**
+	 * Stops accepting jobs, waits for the submitted jobs to finish and releases the threads. If interrupted while waiting, this method returns
+	 * with the interrupt status set, and the submitted jobs keep running.
+	 */
+	public void close(){
+		executor.shutdown();
+		try{
+			while(!executor.awaitTermination(1L, TimeUnit.MINUTES));
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Stops accepting jobs, cancels all submitted jobs, interrupting the running ones, and releases the threads. */
+	public void cancelAll(){
+		for(Runnable r : executor.shutdownNow()) ((FutureTask<?>) r).cancel(false);
+		for(Job job : jobs) job.cancel(true);
+	}
+
+	/** A conversion job. As a {@code Future}, its result is the number of bytes written to the OGG-based audio file. */
+	public class Job implements Future<Integer>{
+		/** The source audio file. */
+		private File input;
+		/** The OGG-based audio file to be written. */
+		private File output;
+		/** The OGG-based audio file type. */
+		private AudioFileFormat.Type fileType;
+		/** The task that runs the conversion. */
+		private FutureTask<Integer> task;
+		/** Number of bytes read from the source audio file. */
+		private volatile long bytesRead;
+		/** Flag indicating if the job was cancelled. */
+		private volatile boolean cancelled;
+
+		/**
+		 * Creates a conversion job.
+		 * @param in The source audio file.
+		 * @param out The OGG-based audio file to be written.
+		 * @param type The OGG-based audio file type.
+		 */
+		Job(File in, File out, AudioFileFormat.Type type){
+			input = in;
+			output = out;
+			fileType = type;
+			task = new FutureTask<Integer>(this::run){
+				protected void done(){
+					jobs.remove(Job.this);
+					slots.release();
+				}
+			};
+		}
+
+		/**
+		 * Runs the conversion. If the conversion fails, the OGG-based audio file is deleted, unless it existed before the conversion.
+		 * @return The number of bytes written to the OGG-based audio file.
+		 * @throws Exception If conversion fails.
+		 */
+		private Integer run() throws Exception{
+			boolean reserved = false, created = false, done = false;
+			try{
+				memory.acquire(jobMemory);
+				reserved = true;
+				try(AudioInputStream src = AudioSystem.getAudioInputStream(new BufferedInputStream(new ProgressInputStream(new FileInputStream(input)), 65536)); AudioInputStream pcm = toPCM(src)){
+					created = !output.exists();
+					int written = new OggAudioFileWriter().write(pcm, fileType, output);
+					done = true;
+					return written;
+				}
+			}finally{
+				if(reserved) memory.release(jobMemory);
+				if(created && !done) output.delete();
+			}
+		}
+
+		/**
+		 * Converts the source audio stream to uncompressed PCM audio.
+		 * @param src The source audio stream.
+		 * @return The uncompressed PCM audio stream.
+		 * @throws UnsupportedAudioFileException If source audio stream cannot be decoded.
+		 */
+		private AudioInputStream toPCM(AudioInputStream src) throws UnsupportedAudioFileException{
+			AudioFormat.Encoding enc = src.getFormat().getEncoding();
+			if(AudioFormat.Encoding.PCM_SIGNED.equals(enc)) return src;
+			OggFormatConversionProvider ofcp = new OggFormatConversionProvider();
+			if(ofcp.isConversionSupported(AudioFormat.Encoding.PCM_SIGNED, src.getFormat())) return ofcp.getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, src);
+			if(AudioSystem.isConversionSupported(AudioFormat.Encoding.PCM_SIGNED, src.getFormat())) return AudioSystem.getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, src);
+			throw new UnsupportedAudioFileException("Unable to decode " + input + " (" + enc + ")");
+		}
+
+		/**
+		 * Returns the source audio file.
+		 * @return The source audio file.
+		 */
+		public File getInput(){
+			return input;
+		}
+
+		/**
+		 * Returns the OGG-based audio file to be written.
+		 * @return The OGG-based audio file.
+		 */
+		public File getOutput(){
+			return output;
+		}
+
+		/**
+		 * Returns the number of bytes read from the source audio file.
+		 * @return The number of bytes read.
+		 */
+		public long getBytesRead(){
+			return bytesRead;
+		}
+
+		/**
+		 * Returns the progress of the job, from 0.0 (not started) to 1.0 (source audio file fully read), according to the bytes read from the source audio file.
+		 * @return The progress of the job.
+		 */
+		public double getProgress(){
+			if(task.isDone()) return 1.0;
+			long length = input.length();
+			return length < 1L ? 0.0 : Math.min(1.0, (double) bytesRead / length);
+		}
+
+		public boolean cancel(boolean mayInterruptIfRunning){
+			cancelled = true;
+			return task.cancel(mayInterruptIfRunning);
+		}
+
+		public boolean isCancelled(){
+			return task.isCancelled();
+		}
+
+		public boolean isDone(){
+			return task.isDone();
+		}
+
+		public Integer get() throws InterruptedException, ExecutionException{
+			return task.get();
+		}
+
+		public Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException{
+			return task.get(timeout, unit);
+		}
+
+		/** Input stream that counts the bytes read from the source audio file and aborts reading when the job is cancelled. */
+		private class ProgressInputStream extends FilterInputStream{
+			/**
+			 * Creates a progress input stream.
+			 * @param is The source audio file stream.
+			 */
+			ProgressInputStream(InputStream is){
+				super(is);
+			}
+
+			public int read() throws IOException{
+				checkCancelled();
+				int b = super.read();
+				if(b >= 0) bytesRead++;
+				return b;
+			}
+
+			public int read(byte[] b, int off, int len) throws IOException{
+				checkCancelled();
+				int r = super.read(b, off, len);
+				if(r > 0) bytesRead += r;
+				return r;
+			}
+
+			public long skip(long n) throws IOException{
+				checkCancelled();
+				long s = super.skip(n);
+				bytesRead += s;
+				return s;
+			}
+
+			/**
+			 * Aborts reading if the job was cancelled.
+			 * @throws InterruptedIOException If the job was cancelled.
+			 */
+			private void checkCancelled() throws InterruptedIOException{
+				if(cancelled) throw new InterruptedIOException("Job cancelled");
+			}
+		}
+	}
+}
\ No newline at end of file
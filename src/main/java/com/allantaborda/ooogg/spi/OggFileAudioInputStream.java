@@ -0,0 +1,37 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import java.io.InputStream;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * {@code AudioInputStream} returned by {@code OggAudioFileReader}. The header pages were already read from the underlying stream,
+ * and they are carried, with the parsed header and tags, by the audio file format, so the decoder does not read them again.
+ * @author Allan Taborda dos Santos
+ */
+class OggFileAudioInputStream extends AudioInputStream{
+	/** The audio file format, which carries the parsed header, tags and header pages. */
+	private OggFormatProvider.OGGAudioFileFormat fileFormat;
+
+	/**
+	 * Constructs an audio input stream whose header pages were already read.
+	 * @param is The underlying stream, positioned after the header pages.
+	 * @param fmt The audio file format, which carries the parsed header, tags and header pages.
+	 */
+	OggFileAudioInputStream(InputStream is, OggFormatProvider.OGGAudioFileFormat fmt){
+		super(is, fmt.getFormat(), fmt.getFrameLength());
+		fileFormat = fmt;
+	}
+
+	/**
+	 * Returns the audio file format, which carries the parsed header, tags and header pages.
+	 * @return The audio file format.
+	 */
+	OggFormatProvider.OGGAudioFileFormat getFileFormat(){
+		return fileFormat;
+	}
+}
\ No newline at end of file
@@ -17,24 +17,11 @@ import javax.sound.sampled.spi.FormatConversionProvider;
  * @author Allan Taborda dos Santos
  */
 public class OggFormatConversionProvider extends FormatConversionProvider{
-	/** Array of all OGG-based encodings provided by installed service providers. */
-	private static final AudioFormat.Encoding[] srcEnc = FormatProviderService.getInstance().getEncodings();
 	/** Array containing the only target encoding, which is {@code AudioFormat.Encoding.PCM_SIGNED}. */
 	private static final AudioFormat.Encoding[] trgEnc = {AudioFormat.Encoding.PCM_SIGNED};
-	/** Array of all OGG-based source formats provided by installed service providers. */
-	private static final AudioFormat[] srcFormats;
-
-	static{
-		int c = -1;
-		srcFormats = new AudioFormat[srcEnc.length * 2];
-		for(AudioFormat.Encoding enc : srcEnc){
-			srcFormats[++c] = new AudioFormat(enc, -1.0F, -1, 1, -1, -1.0F, false);
-			srcFormats[++c] = new AudioFormat(enc, -1.0F, -1, 2, -1, -1.0F, false);
-		}
-	}
 
 	public AudioFormat.Encoding[] getSourceEncodings(){
-		return srcEnc;
+		return Sources.srcEnc.clone();
 	}
 
 	public AudioFormat.Encoding[] getTargetEncodings(){
@@ -42,16 +29,17 @@ public class OggFormatConversionProvider extends FormatConversionProvider{
 	}
 
 	public AudioFormat.Encoding[] getTargetEncodings(AudioFormat srcFormat){
-		for(AudioFormat sf : srcFormats) if(sf.matches(srcFormat)) return trgEnc;
+		int ch = srcFormat.getChannels();
+		if(ch == 2 || ch == 1) for(AudioFormat.Encoding enc : Sources.srcEnc) if(enc.equals(srcFormat.getEncoding())) return trgEnc;
 		return new AudioFormat.Encoding[0];
 	}
 
 	public AudioFormat[] getTargetFormats(AudioFormat.Encoding trgEnc, AudioFormat srcFormat){
 		int ch = srcFormat.getChannels();
 		if(AudioFormat.Encoding.PCM_SIGNED.equals(trgEnc) && (ch == 2 || ch == 1)){
-			for(AudioFormat.Encoding enc : srcEnc){
+			for(AudioFormat.Encoding enc : Sources.srcEnc){
 				if(enc.equals(srcFormat.getEncoding())){
-					return new AudioFormat[]{new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, -1.0F, 16, ch, ch * 2, -1.0F, false)};
+					return new AudioFormat[]{new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, srcFormat.getSampleRate(), 16, ch, ch * 2, srcFormat.getSampleRate(), false)};
 				}
 			}
 		}
@@ -59,16 +47,23 @@ public class OggFormatConversionProvider extends FormatConversionProvider{
 	}
 
 	public AudioInputStream getAudioInputStream(AudioFormat.Encoding trgEnc, AudioInputStream srcStream){
-		return getAudioInputStream(new AudioFormat(trgEnc, -1.0F, 16, srcStream.getFormat().getChannels(), srcStream.getFormat().getChannels() * 2, -1.0F, false), srcStream);
+		AudioFormat sf = srcStream.getFormat();
+		return getAudioInputStream(new AudioFormat(trgEnc, sf.getSampleRate(), 16, sf.getChannels(), sf.getChannels() * 2, sf.getSampleRate(), false), srcStream);
 	}
 
 	public AudioInputStream getAudioInputStream(AudioFormat trgFormat, AudioInputStream srcStream){
 		try{
-			OggAudioInputStream ais = FormatProviderService.getInstance().getFormatProvider(srcStream.getFormat().getEncoding()).getAudioInputStream(trgFormat, srcStream);
+			OggAudioInputStream ais = FormatProviderService.getInstance().getFormatProvider(srcStream.getFormat().getEncoding()).acquireAudioInputStream(trgFormat, srcStream);
 			ais.initBuffer();
 			return ais;
 		}catch(IOException e){
 			throw new IllegalArgumentException("Invalid OGG file", e);
 		}
 	}
+
+	/** Holder of the source encodings, initialized when they are used for the first time. */
+	private static class Sources{
+		/** Array of all OGG-based encodings provided by installed service providers. */
+		static final AudioFormat.Encoding[] srcEnc = FormatProviderService.getInstance().getEncodings();
+	}
 }
\ No newline at end of file
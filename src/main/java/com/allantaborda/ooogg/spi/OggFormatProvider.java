@@ -5,8 +5,10 @@
  */
 package com.allantaborda.ooogg.spi;
 
+import com.allantaborda.ooogg.OggBufferPool;
 import com.allantaborda.ooogg.OggPackable;
 import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggPage;
 import com.allantaborda.ooogg.Tags;
 import java.io.IOException;
 import java.util.Collections;
@@ -27,6 +29,10 @@ public abstract class OggFormatProvider{
 	private boolean dec;
 	/** Flag indicating if the service provider implements a encoder. */
 	private boolean enc;
+	/** Pool of idle encoder boxes. */
+	private CodecPool<EncoderBox> encoderPool = new CodecPool<>(8);
+	/** Pool of idle decoding streams. */
+	private CodecPool<OggAudioInputStream> decoderPool = new CodecPool<>(8);
 
 	/**
 	 * Constructs a provider that support file reading (decoding) and writing (encoding) services (or both).
@@ -74,6 +80,26 @@ public abstract class OggFormatProvider{
 		return null;
 	}
 
+	/**
+	 * Returns the content type of the streams written by this provider, written in the Skeleton stream when it is enabled in the
+	 * writer. Providers that implement writing services should override this method, adding the codec (for example, "audio/ogg; codecs=opus").
+	 * @return The content type.
+	 */
+	public String getContentType(){
+		return "audio/ogg";
+	}
+
+	/**
+	 * Returns the number of granule positions per second of the streams written by this provider from audio with the given format, written
+	 * in the Skeleton stream when it is enabled in the writer. The default implementation returns the sample rate, which is the granule rate
+	 * of codecs whose granule position counts the encoded frames. Providers of codecs with other granule rates must override this method.
+	 * @param fmt The format of the encoded audio.
+	 * @return The granule rate.
+	 */
+	public long getGranuleRate(AudioFormat fmt){
+		return Math.round(fmt.getSampleRate());
+	}
+
 	/**
 	 * Returns a new instance of {@code Tags} class, according to the file format. If file format provided by the
 	 * implementation of this class has tags with header and/or framing bit, the provider must override this method.
@@ -83,6 +109,16 @@ public abstract class OggFormatProvider{
 		return new Tags();
 	}
 
+	/**
+	 * Returns the magic string at the beginning of the first OGG packet of a supported OGG file (for example, "OpusHead" for Opus files). It
+	 * is used to select the provider that reads a file without trying the other providers. Providers that implement reading services should
+	 * override this method. If this method returns {@code null}, the provider is tried for every file whose first packet matches no other provider.
+	 * @return The magic string, or {@code null} if the provider doesn't specify it.
+	 */
+	public String getHeaderMagic(){
+		return null;
+	}
+
 	/**
 	 * Returns an instance of the class that implement the header structure contained in the first OGG packet in an supported OGG file.
 	 * This class must implement {@code OggPackable} interface. Providers that implement reading services must override this method.
@@ -124,14 +160,86 @@ public abstract class OggFormatProvider{
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * Returns an encoder box, reusing an idle one from the pool of this provider if available, or creating a new one otherwise. Only encoder boxes
+	 * whose {@link EncoderBox#isReusable()} method returns {@code true} are kept in the pool. The encoder box should be returned with
+	 * {@link #releaseEncoderBox(EncoderBox)} when the encoding is done.
+	 * @return An encoder box.
+	 */
+	public EncoderBox acquireEncoderBox(){
+		EncoderBox eb = encoderPool.poll(e -> true);
+		return eb == null ? newEncoderBox() : eb;
+	}
+
+	/**
+	 * Returns an encoder box to the pool of this provider, so it can be reused by another encoding. If the encoder box is not reusable or the pool
+	 * is full, the encoder box is discarded and its PCM buffer returns to the shared buffer pool.
+	 * @param eb The encoder box that is no longer in use.
+	 */
+	public void releaseEncoderBox(EncoderBox eb){
+		if(!eb.isReusable() || !encoderPool.offer(eb)) eb.releasePCMBuffer();
+	}
+
+	/**
+	 * Obtains an audio input stream with the specified format from the given audio input stream, reusing an idle stream with the same format
+	 * from the pool of this provider if available, or calling {@link #getAudioInputStream(AudioFormat, AudioInputStream)} otherwise. A reusable
+	 * stream is returned behind a new {@code PooledAudioInputStream}, which is the handle of this acquisition: closing it returns the stream to
+	 * the pool, and later calls on the closed handle never reach the stream. Streams in the low latency startup mode are not reused.
+	 * @param trgFormat The format of this stream's audio data.
+	 * @param srcStream The stream from which data to be processed should be read.
+	 * @return The stream from which processed data with the specified format may be read.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public OggAudioInputStream acquireAudioInputStream(AudioFormat trgFormat, AudioInputStream srcStream) throws IOException{
+		if(Boolean.TRUE.equals(trgFormat.getProperty(OggAudioInputStream.LOW_LATENCY))) return getAudioInputStream(trgFormat, srcStream);
+		OggAudioInputStream ais = decoderPool.poll(s -> s.getFormat().matches(trgFormat));
+		if(ais != null) ais.reuse(trgFormat, srcStream);
+		else ais = getAudioInputStream(trgFormat, srcStream);
+		if(!ais.isReusable()) return ais;
+		ais.setOwner(this);
+		return new PooledAudioInputStream(ais);
+	}
+
+	/**
+	 * Returns a closed decoding stream to the pool of this provider. If the pool is full, the stream is discarded.
+	 * @param ais The closed decoding stream.
+	 * @return {@code true} if the stream was stored in the pool, {@code false} if it was discarded.
+	 */
+	boolean releaseAudioInputStream(OggAudioInputStream ais){
+		return decoderPool.offer(ais);
+	}
+
+	/**
+	 * Returns the maximum number of idle encoder boxes and idle decoding streams kept by this provider for reuse.
+	 * @return The pool capacity.
+	 */
+	public int getPoolCapacity(){
+		return encoderPool.getCapacity();
+	}
+
+	/**
+	 * Changes the maximum number of idle encoder boxes and idle decoding streams kept by this provider for reuse. Zero disables reuse.
+	 * @param capacity The new pool capacity.
+	 * @throws IllegalArgumentException If capacity is negative.
+	 */
+	public void setPoolCapacity(int capacity){
+		if(capacity < 0) throw new IllegalArgumentException("Invalid pool capacity: " + capacity);
+		encoderPool.setCapacity(capacity);
+		decoderPool.setCapacity(capacity);
+	}
+
 	/** Base class for all encoder box implementations. Providers that implement writing services must create a concrete implementation of this class. */
 	public static abstract class EncoderBox implements OggPackable{
 		/** The granule position to be recorded in OGG packet. */
 		private long granulePosision;
 		/** The PCM buffer where uncompressed data is stored temporarily. */
 		private byte[] pcmBuffer;
+		/** Number of bytes of uncompressed data stored in the PCM buffer. */
+		private int pcmDataLength;
 		/** The processed data generated by encoder. */
 		private byte[] processedData;
+		/** The audio format for which the encoder was initialized, or {@code null} if the encoder is not initialized. */
+		private AudioFormat initFormat;
 
 		/**
 		 * Returns an instance of the class that implement the header structure contained in the first OGG packet in an supported OGG file.
@@ -147,18 +255,81 @@ public abstract class OggFormatProvider{
 		public abstract void initEncoder() throws Exception;
 
 		/**
-		 * Encodes audio data in OGG packet. This method must call {@code setProcessedData(byte[])} and {@code incrementGranulePosision(long)} methods after encoding.
+		 * Resets the encoder state, so the encoder box can encode another audio stream with the same audio format without being initialized again.
+		 * The PCM buffer is kept. Implementations that keep state between encoded packets must override this method and call the superclass method.
+		 */
+		public void reset(){
+			granulePosision = 0L;
+			processedData = null;
+		}
+
+		/**
+		 * Checks if this encoder box can be reused by another encoding after being reset by {@link #reset()}. Encoder boxes are not reused by default,
+		 * since the state kept by an encoder may not be cleared by the reset; implementations whose reset clears all the encoder state must override
+		 * this method to return {@code true}.
+		 * @return {@code true} if this encoder box can be kept in the pool of its provider, {@code false} otherwise.
+		 */
+		public boolean isReusable(){
+			return false;
+		}
+
+		/**
+		 * Prepares the encoder box to encode an audio stream with the given audio format, initializing the encoder if it was not
+		 * initialized for this audio format yet, or resetting its state otherwise.
+		 * @param fmt The audio format to be encoded.
+		 * @throws Exception If any error occurs.
+		 */
+		void prepare(AudioFormat fmt) throws Exception{
+			if(initFormat != null && initFormat.matches(fmt)) reset();
+			else{
+				initFormat = null;
+				reset();
+				initEncoder();
+				initFormat = fmt;
+			}
+		}
+
+		/**
+		 * Encodes audio data in OGG packet. The audio data to be encoded is stored in the first {@code getPCMDataLength()} bytes of the PCM buffer, which are
+		 * less than the buffer size only in the last packet of the stream. This method must call {@code setProcessedData(byte[])} and {@code incrementGranulePosision(long)} methods after encoding.
 		 * @throws Exception If any error occurs.
 		 */
 		public abstract void encode() throws Exception;
 
 		/**
-		 * Creates a new PCM buffer with the given size per channel and channel number.
+		 * Creates a new PCM buffer with the given size per channel and channel number, borrowed from the shared buffer pool.
 		 * @param sizePerChannel The size per channel.
 		 * @param channels The channel number.
 		 */
 		public void initPCMBuffer(int sizePerChannel, int channels){
-			pcmBuffer = new byte[sizePerChannel * channels];
+			if(pcmBuffer == null || pcmBuffer.length != sizePerChannel * channels){
+				OggBufferPool.getShared().release(pcmBuffer);
+				pcmBuffer = OggBufferPool.getShared().acquire(sizePerChannel * channels);
+			}
+			pcmDataLength = pcmBuffer.length;
+		}
+
+		/** Returns the PCM buffer to the shared buffer pool, when this encoder box is discarded. */
+		void releasePCMBuffer(){
+			OggBufferPool.getShared().release(pcmBuffer);
+			pcmBuffer = null;
+			initFormat = null;
+		}
+
+		/**
+		 * Returns the number of bytes of uncompressed data stored in the PCM buffer, to be encoded by {@link #encode()}.
+		 * @return The number of bytes of uncompressed data.
+		 */
+		public int getPCMDataLength(){
+			return pcmDataLength;
+		}
+
+		/**
+		 * Changes the number of bytes of uncompressed data stored in the PCM buffer.
+		 * @param length The number of bytes of uncompressed data.
+		 */
+		void setPCMDataLength(int length){
+			pcmDataLength = length;
 		}
 
 		/**
@@ -218,6 +389,16 @@ public abstract class OggFormatProvider{
 	public static class OGGAudioFileFormat extends AudioFileFormat{
 		/** Unmodifiable map of properties. */
 		private Map<String, Object> props;
+		/** The parsed OGG file header. */
+		private OggPackable header;
+		/** The parsed tags. */
+		private Tags tags;
+		/** The OGG pages read while parsing the header and the tags. */
+		private OggPage[] headerPages;
+		/** Flag indicating if the file has a Skeleton stream. */
+		private boolean skeleton;
+		/** The serial number of the Skeleton stream. */
+		private int skeletonSerialNumber;
 
 		/**
 		 * Constructs an OGG audio file format object.
@@ -234,5 +415,66 @@ public abstract class OggFormatProvider{
 		public Map<String,Object> properties(){
 			return props;
 		}
+
+		/**
+		 * Stores the structures parsed while reading the audio file format, so they can be used by the decoder without parsing them again.
+		 * @param hdr The parsed OGG file header.
+		 * @param tgs The parsed tags.
+		 * @param pages The OGG pages read while parsing the header and the tags.
+		 */
+		void setParsedHeaders(OggPackable hdr, Tags tgs, OggPage[] pages){
+			header = hdr;
+			tags = tgs;
+			headerPages = pages;
+		}
+
+		/**
+		 * Stores the serial number of the Skeleton stream found while reading the audio file format, so the decoder skips its pages.
+		 * @param serial The serial number of the Skeleton stream.
+		 */
+		void setSkeletonSerialNumber(int serial){
+			skeleton = true;
+			skeletonSerialNumber = serial;
+		}
+
+		/**
+		 * Returns if a Skeleton stream was found while reading the audio file format.
+		 * @return {@code true} if the file has a Skeleton stream, {@code false} otherwise.
+		 */
+		public boolean hasSkeleton(){
+			return skeleton;
+		}
+
+		/**
+		 * Returns the serial number of the Skeleton stream found while reading the audio file format.
+		 * @return The serial number of the Skeleton stream, or zero if the file has no Skeleton stream.
+		 */
+		public int getSkeletonSerialNumber(){
+			return skeletonSerialNumber;
+		}
+
+		/**
+		 * Returns the OGG file header parsed while reading the audio file format.
+		 * @return The parsed OGG file header, or {@code null} if this audio file format was not read from a file.
+		 */
+		public OggPackable getHeader(){
+			return header;
+		}
+
+		/**
+		 * Returns the tags parsed while reading the audio file format.
+		 * @return The parsed tags, or {@code null} if this audio file format was not read from a file.
+		 */
+		public Tags getTags(){
+			return tags;
+		}
+
+		/**
+		 * Returns the OGG pages read while parsing the header and the tags. These are the first pages of the file.
+		 * @return The OGG pages, or {@code null} if this audio file format was not read from a file.
+		 */
+		public OggPage[] getHeaderPages(){
+			return headerPages == null ? null : headerPages.clone();
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.OggPageIndex;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Decodes a whole OGG-based audio file to uncompressed PCM audio using several threads.<br/><br/>
+ * The audio pages of the file are split in chunks at page boundaries where no packet continues, so each chunk ends with the end of a packet.
+ * Each chunk is decoded by its own decoder, created from the header pages of the file followed by some pages preceding the chunk (the
+ * pre-roll), so the decoder state is warmed up when the chunk begins. The pre-roll begins at a page that begins a packet and has a granule
+ * position. The audio decoded from the pre-roll pages is dropped, according to the granule positions of the pages, and the decoded chunks are
+ * written in order.
+ * @author Allan Taborda dos Santos
+ */
+public class OggParallelDecoder{
+	/** Number of threads used to decode. */
+	private int threads;
+	/** Number of OGG pages decoded before each chunk and dropped after decoding. */
+	private int prerollPages = 4;
+	/** Approximate size in bytes of each chunk of OGG pages. */
+	private long chunkSize = 4194304L;
+
+	/** Creates a parallel decoder that uses as many threads as available processors. */
+	public OggParallelDecoder(){
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a parallel decoder that uses the given number of threads.
+	 * @param threads The number of threads.
+	 * @throws IllegalArgumentException If the number of threads is less than one.
+	 */
+	public OggParallelDecoder(int threads){
+		if(threads < 1) throw new IllegalArgumentException("Invalid number of threads: " + threads);
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the number of OGG pages decoded before each chunk and dropped after decoding.
+	 * @return The number of pre-roll OGG pages.
+	 */
+	public int getPrerollPages(){
+		return prerollPages;
+	}
+
+	/**
+	 * Changes the number of OGG pages decoded before each chunk and dropped after decoding. Codecs whose decoder depends on
+	 * previous packets (such as codecs with overlapped transforms) need, at least, one pre-roll page.
+	 * @param pages The new number of pre-roll OGG pages.
+	 */
+	public void setPrerollPages(int pages){
+		if(pages < 0) throw new IllegalArgumentException("Invalid number of pre-roll pages: " + pages);
+		prerollPages = pages;
+	}
+
+	/**
+	 * Returns the approximate size in bytes of each chunk of OGG pages decoded by a thread.
+	 * @return The chunk size.
+	 */
+	public long getChunkSize(){
+		return chunkSize;
+	}
+
+	/**
+	 * Changes the approximate size in bytes of each chunk of OGG pages decoded by a thread. The decoded audio of the
+	 * chunks being decoded is held in memory, so this value and the number of threads limit the memory usage.
+	 * @param size The new chunk size.
+	 */
+	public void setChunkSize(long size){
+		if(size < 1L) throw new IllegalArgumentException("Invalid chunk size: " + size);
+		chunkSize = size;
+	}
+
+	/**
+	 * Decodes the given OGG-based audio file, writing the uncompressed PCM audio in the given output stream. The output stream is not closed.
+	 * @param f The OGG-based audio file.
+	 * @param out The output stream where decoded audio is written.
+	 * @return The format of the decoded audio.
+	 * @throws UnsupportedAudioFileException If the file is not a supported OGG-based audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public AudioFormat decode(File f, OutputStream out) throws UnsupportedAudioFileException, IOException{
+		AudioFileFormat aff = new OggAudioFileReader().getAudioFileFormat(f);
+		AudioFormat srcFormat = aff.getFormat();
+		OggPageIndex index;
+		try(RandomAccessFile raf = new RandomAccessFile(f, "r")){
+			index = OggPageIndex.build(raf);
+		}
+		byte[] headerBytes;
+		OggPage[] headerPages;
+		AudioFormat trgFormat;
+		try(AudioInputStream ais = new OggFormatConversionProvider().getAudioInputStream(AudioFormat.Encoding.PCM_SIGNED, new AudioInputStream(new FileInputStream(f), srcFormat, AudioSystem.NOT_SPECIFIED))){
+			trgFormat = ais.getFormat();
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(8192);
+			headerPages = ((OggAudioInputStream) ais).getHeaderPages();
+			for(OggPage p : headerPages) baos.write(p.getBytes());
+			headerBytes = baos.toByteArray();
+		}
+		int firstAudioPage = 0, serial = headerPages[0].getSerialNumber(), lastHeaderPage = headerPages[headerPages.length - 1].getPageNumber();
+		while(firstAudioPage < index.size() && (index.getSerialNumber(firstAudioPage) != serial || index.getPageNumber(firstAudioPage) <= lastHeaderPage)) firstAudioPage++;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>(threads * 2);
+		try{
+			int start = firstAudioPage;
+			while(start < index.size()){
+				int end = start + 1;
+				long limit = index.getOffset(start) + chunkSize;
+				while(end < index.size() && (index.getOffset(end) < limit || index.isContinuation(end))) end++;
+				pending.add(executor.submit(new ChunkDecoder(f, srcFormat, trgFormat, headerBytes, index, firstAudioPage, start, end)));
+				if(pending.size() >= threads * 2) writeChunk(pending.poll(), out);
+				start = end;
+			}
+			while(!pending.isEmpty()) writeChunk(pending.poll(), out);
+		}finally{
+			for(Future<byte[]> fut : pending) fut.cancel(true);
+			executor.shutdownNow();
+		}
+		return trgFormat;
+	}
+
+	/**
+	 * Decodes the given OGG-based audio file, returning the uncompressed PCM audio in a byte array.
+	 * @param f The OGG-based audio file.
+	 * @return The decoded audio.
+	 * @throws UnsupportedAudioFileException If the file is not a supported OGG-based audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public byte[] decode(File f) throws UnsupportedAudioFileException, IOException{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(1048576);
+		decode(f, baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Waits for a chunk to be decoded and writes its decoded audio in the output stream.
+	 * @param chunk The chunk being decoded.
+	 * @param out The output stream where decoded audio is written.
+	 * @throws IOException If decoding fails or I/O error occurs.
+	 */
+	private void writeChunk(Future<byte[]> chunk, OutputStream out) throws IOException{
+		try{
+			out.write(chunk.get());
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Decoding interrupted");
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException("Error while decoding audio file", e.getCause());
+		}
+	}
+
+	/** Task that decodes a chunk of OGG pages. */
+	private class ChunkDecoder implements Callable<byte[]>{
+		/** The OGG-based audio file. */
+		private File file;
+		/** The format of the OGG-based audio file. */
+		private AudioFormat srcFormat;
+		/** The format of the decoded audio. */
+		private AudioFormat trgFormat;
+		/** The header pages in bytes. */
+		private byte[] headerBytes;
+		/** The OGG page index of the file. */
+		private OggPageIndex index;
+		/** The position in the index of the first audio page of the file. */
+		private int firstAudioPage;
+		/** The position in the index of the first page of the chunk. */
+		private int start;
+		/** The position in the index of the first page after the chunk. */
+		private int end;
+
+		/**
+		 * Creates a task that decodes a chunk of OGG pages.
+		 * @param f The OGG-based audio file.
+		 * @param sf The format of the OGG-based audio file.
+		 * @param tf The format of the decoded audio.
+		 * @param hb The header pages in bytes.
+		 * @param idx The OGG page index of the file.
+		 * @param fap The position in the index of the first audio page of the file.
+		 * @param s The position in the index of the first page of the chunk.
+		 * @param e The position in the index of the first page after the chunk.
+		 */
+		ChunkDecoder(File f, AudioFormat sf, AudioFormat tf, byte[] hb, OggPageIndex idx, int fap, int s, int e){
+			file = f;
+			srcFormat = sf;
+			trgFormat = tf;
+			headerBytes = hb;
+			index = idx;
+			firstAudioPage = fap;
+			start = s;
+			end = e;
+		}
+
+		public byte[] call() throws IOException{
+			int preStart = Math.max(firstAudioPage, start - prerollPages);
+			while(preStart > firstAudioPage && (index.isContinuation(preStart) || index.getGranulePosition(preStart) == -1L)) preStart--;
+			long from = index.getOffset(preStart), to = end == index.size() ? index.getEnd() : index.getOffset(end);
+			ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, (to - index.getOffset(start)) * 12));
+			try(FileInputStream fis = new FileInputStream(file)){
+				fis.getChannel().position(from);
+				InputStream is = new SequenceInputStream(new ByteArrayInputStream(headerBytes), new LimitedInputStream(fis, to - from));
+				try(AudioInputStream ais = new OggFormatConversionProvider().getAudioInputStream(trgFormat, new AudioInputStream(is, srcFormat, AudioSystem.NOT_SPECIFIED))){
+					byte[] b = new byte[65536];
+					int r;
+					while((r = ais.read(b)) > 0){
+						if(Thread.interrupted()) throw new InterruptedIOException("Decoding interrupted");
+						baos.write(b, 0, r);
+					}
+				}
+			}
+			byte[] pcm = baos.toByteArray();
+			if(start == firstAudioPage) return pcm;
+			long expected = (lastGranule(end - 1) - lastGranule(start - 1)) * trgFormat.getFrameSize();
+			if(expected < 0L || expected > pcm.length) throw new StreamCorruptedException("Decoded " + pcm.length + " bytes from pages " + start + " to " + (end - 1) + ", expected at least " + expected);
+			if(expected == pcm.length) return pcm;
+			byte[] trimmed = new byte[(int) expected];
+			System.arraycopy(pcm, pcm.length - trimmed.length, trimmed, 0, trimmed.length);
+			return trimmed;
+		}
+
+		/**
+		 * Returns the granule position of the given OGG page or, if the page has no granule position, the granule position of the last page that has one.
+		 * @param page The position of the OGG page in the index.
+		 * @return The granule position.
+		 */
+		private long lastGranule(int page){
+			for(; page >= firstAudioPage; page--){
+				long g = index.getGranulePosition(page);
+				if(g != -1L) return g;
+			}
+			return 0L;
+		}
+	}
+
+	/** Input stream that reads, at most, a limited number of bytes from another input stream. */
+	private static class LimitedInputStream extends InputStream{
+		/** The encapsulated input stream. */
+		private InputStream is;
+		/** Number of bytes that still can be read. */
+		private long remaining;
+
+		/**
+		 * Creates an input stream that reads, at most, the given number of bytes from the given input stream.
+		 * @param in The encapsulated input stream.
+		 * @param limit The maximum number of bytes to be read.
+		 */
+		LimitedInputStream(InputStream in, long limit){
+			is = in;
+			remaining = limit;
+		}
+
+		public int read() throws IOException{
+			if(remaining <= 0L) return -1;
+			int b = is.read();
+			if(b >= 0) remaining--;
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException{
+			if(remaining <= 0L) return -1;
+			int r = is.read(b, off, (int) Math.min(len, remaining));
+			if(r > 0) remaining -= r;
+			return r;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,622 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import com.allantaborda.ooogg.Tags;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Persistent inverted index of the Vorbis Comments of a library of OGG-based audio files, which finds the files whose tags have a given value, or
+ * a value beginning with a given prefix, without reading the files. Each term of the index is a key, upper case as stored by {@code Tags} (the
+ * constants of {@code TagKeys} and custom keys), and a value normalized by {@link #normalize(String)}.<br/><br/>
+ * The index is stored in a single file with a compact binary format: a table of the indexed files, a table of the terms sorted by their UTF-8
+ * bytes, the postings (the files of each term) and a pool of UTF-8 strings. The tables have fixed-size entries, so the file is memory-mapped and
+ * queried in place with binary searches, and opening the index reads nothing but its header.<br/><br/>
+ * The index is updated incrementally by {@link #update(Collection)}: the tags are read only from new files and files whose size or modification
+ * time changed, the terms of the unchanged files are taken from the index, the files that are no longer in the library are dropped, and the
+ * index file is replaced atomically. The tags are read by {@code OggAudioFileReader}, which parses only the header pages, using several threads.
+ * Files that are not supported OGG-based audio files are indexed without terms, so they are not read again until they change, and values longer
+ * than {@link #MAX_VALUE_LENGTH} characters, such as embedded pictures, are not indexed.
+ * @author Allan Taborda dos Santos
+ */
+public class OggTagIndex implements Closeable{
+	/** Maximum length of an indexed value. Longer values are not indexed. */
+	public static final int MAX_VALUE_LENGTH = 1024;
+	/** Magic number of the index files ("OTIX"). */
+	private static final int MAGIC = 0x4f544958;
+	/** Version of the format of the index files. */
+	private static final int VERSION = 1;
+	/** Size of the header: magic number, version and the number of files, terms, postings and bytes of the string pool. */
+	private static final int HEADER_SIZE = 24;
+	/** Size of an entry of the file table: size, modification time, and offset and length of the path in the string pool. */
+	private static final int FILE_ENTRY_SIZE = 24;
+	/** Size of an entry of the term table: offset and length of the term in the string pool, and offset and number of its postings. */
+	private static final int TERM_ENTRY_SIZE = 16;
+	/** Separator between the key and the value of a term, which cannot appear in keys. */
+	private static final char SEPARATOR = '=';
+	/** The index file. */
+	private final File file;
+	/** Number of threads used to read tags. */
+	private final int threads;
+	/** Lock that serializes the updates. */
+	private final ReentrantLock updateLock = new ReentrantLock();
+	/** The mapped content of the index file, replaced after each update. */
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Opens the given index file, using as many threads to read tags as available processors. If the file doesn't exist, the index is empty
+	 * and the file is created by the first update.
+	 * @param f The index file.
+	 * @throws IOException If the file is not a valid index file or I/O error occurs.
+	 */
+	public OggTagIndex(File f) throws IOException{
+		this(f, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Opens the given index file. If the file doesn't exist, the index is empty and the file is created by the first update.
+	 * @param f The index file.
+	 * @param threads The number of threads used to read tags.
+	 * @throws IllegalArgumentException If the number of threads is less than one.
+	 * @throws IOException If the file is not a valid index file or I/O error occurs.
+	 */
+	public OggTagIndex(File f, int threads) throws IOException{
+		if(threads < 1) throw new IllegalArgumentException("Invalid number of threads: " + threads);
+		file = f;
+		this.threads = threads;
+		snapshot = f.exists() ? Snapshot.map(f) : Snapshot.empty();
+	}
+
+	/**
+	 * Returns the index file.
+	 * @return The index file.
+	 */
+	public File getFile(){
+		return file;
+	}
+
+	/**
+	 * Returns the number of indexed files, including the files without terms.
+	 * @return The number of indexed files.
+	 */
+	public int size(){
+		return snapshot.files;
+	}
+
+	/**
+	 * Finds the files with the given value for the given key.
+	 * @param key The key (e.g., TITLE, ALBUM, ARTIST, etc.)
+	 * @param value The value, which is normalized before the search.
+	 * @return The files, in the order they were given to the update.
+	 */
+	public List<File> find(String key, String value){
+		return find(term(key, normalize(value)), false);
+	}
+
+	/**
+	 * Finds the files with a value beginning with the given prefix for the given key. An empty prefix finds all files with the key.
+	 * @param key The key (e.g., TITLE, ALBUM, ARTIST, etc.)
+	 * @param prefix The prefix, which is normalized before the search.
+	 * @return The files, in the order they were given to the update.
+	 */
+	public List<File> findPrefix(String key, String prefix){
+		return find(term(key, normalize(prefix)), true);
+	}
+
+	/**
+	 * Returns the keys that have indexed values, sorted.
+	 * @return The keys.
+	 */
+	public List<String> getKeys(){
+		Snapshot s = snapshot;
+		List<String> keys = new ArrayList<>();
+		for(int c = 0; c < s.terms;){
+			String term = s.getTerm(c), key = term.substring(0, term.indexOf(SEPARATOR));
+			keys.add(key);
+			c = s.lowerBound((key + (char) (SEPARATOR + 1)).getBytes(UTF_8));
+		}
+		return keys;
+	}
+
+	/**
+	 * Updates the index with the given files, which replace the files of the index. The tags are read only from the files that are not in the
+	 * index or whose size or modification time changed. Files that don't exist or can't be read are left out of the index, so they are read
+	 * again by the next update. The index file is replaced when the update finishes; queries made during the update use the previous index.
+	 * @param files The files of the library.
+	 * @return The number of files whose tags were read.
+	 * @throws InterruptedIOException If interrupted while waiting for the tags to be read.
+	 * @throws IOException If the index file cannot be written.
+	 */
+	public int update(Collection<File> files) throws IOException{
+		updateLock.lock();
+		try{
+			Snapshot old = snapshot;
+			Map<String, Integer> oldIds = new HashMap<>(old.files * 2);
+			for(int c = 0; c < old.files; c++) oldIds.put(old.getPath(c), c);
+			LinkedHashMap<String, File> unique = new LinkedHashMap<>();
+			for(File f : files) unique.putIfAbsent(f.getAbsolutePath(), f);
+			Builder builder = new Builder();
+			ArrayDeque<Entry> pending = new ArrayDeque<>();
+			ExecutorService executor = null;
+			int[][] oldTermsByFile = null;
+			String[] oldTerms = null;
+			int read = 0;
+			try{
+				for(Map.Entry<String, File> u : unique.entrySet()){
+					File f = u.getValue();
+					if(!f.isFile()) continue;
+					Entry e = new Entry(u.getKey(), f.length(), f.lastModified());
+					Integer id = oldIds.get(e.path);
+					if(id != null && old.getSize(id) == e.size && old.getModified(id) == e.modified){
+						if(oldTermsByFile == null){
+							oldTermsByFile = old.getTermsByFile();
+							oldTerms = new String[old.terms];
+						}
+						int[] ts = oldTermsByFile[id];
+						e.terms = new String[ts.length];
+						for(int c = 0; c < ts.length; c++){
+							if(oldTerms[ts[c]] == null) oldTerms[ts[c]] = old.getTerm(ts[c]);
+							e.terms[c] = oldTerms[ts[c]];
+						}
+					}else{
+						if(executor == null) executor = Executors.newFixedThreadPool(threads);
+						e.reading = executor.submit(() -> readTerms(f));
+						read++;
+					}
+					pending.add(e);
+					while(!pending.isEmpty() && (pending.peek().reading == null || pending.size() > threads * 4)) builder.add(waitFor(pending.poll()));
+				}
+				while(!pending.isEmpty()) builder.add(waitFor(pending.poll()));
+			}finally{
+				for(Entry e : pending) if(e.reading != null) e.reading.cancel(true);
+				if(executor != null) executor.shutdownNow();
+			}
+			File tmp = new File(file.getPath() + ".tmp");
+			builder.write(tmp);
+			try{
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}catch(AtomicMoveNotSupportedException ex){
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			snapshot = Snapshot.map(file);
+			return read;
+		}finally{
+			updateLock.unlock();
+		}
+	}
+
+	/** Releases the mapped index file. The index is empty after it is closed. */
+	public void close(){
+		snapshot = Snapshot.empty();
+	}
+
+	/**
+	 * Normalizes a value for indexing and searching: the value is converted to the Unicode normalization form NFKC and to lower case, leading and
+	 * trailing white space is removed and each sequence of white space characters is replaced by a single space.
+	 * @param value The value.
+	 * @return The normalized value.
+	 */
+	public static String normalize(String value){
+		String n = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+		StringBuilder sb = new StringBuilder(n.length());
+		boolean space = false;
+		for(int c = 0; c < n.length(); c++){
+			char ch = n.charAt(c);
+			if(Character.isWhitespace(ch)) space = sb.length() > 0;
+			else{
+				if(space) sb.append(' ');
+				space = false;
+				sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Finds the files of the terms equal to, or beginning with, the given term.
+	 * @param term The UTF-8 bytes of the term.
+	 * @param prefix {@code true} to find the terms beginning with the given term, {@code false} to find the term equal to it.
+	 * @return The files.
+	 */
+	private List<File> find(byte[] term, boolean prefix){
+		Snapshot s = snapshot;
+		BitSet ids = new BitSet(s.files);
+		for(int c = s.lowerBound(term); c < s.terms && s.compareTerm(c, term, prefix) == 0; c++){
+			s.addPostings(c, ids);
+			if(!prefix) break;
+		}
+		List<File> result = new ArrayList<>(ids.cardinality());
+		for(int c = ids.nextSetBit(0); c >= 0; c = ids.nextSetBit(c + 1)) result.add(new File(s.getPath(c)));
+		return result;
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of the term of the given key and normalized value.
+	 * @param key The key.
+	 * @param value The normalized value.
+	 * @return The UTF-8 bytes of the term.
+	 */
+	private static byte[] term(String key, String value){
+		return (key.toUpperCase(Locale.ROOT) + SEPARATOR + value).getBytes(UTF_8);
+	}
+
+	/**
+	 * Reads the tags of a file and returns its terms.
+	 * @param f The file.
+	 * @return The terms, which are empty if the file is not a supported OGG-based audio file, or {@code null} if the file cannot be read.
+	 */
+	private static String[] readTerms(File f){
+		LinkedHashSet<String> terms = new LinkedHashSet<>();
+		try{
+			AudioFileFormat aff = new OggAudioFileReader().getAudioFileFormat(f);
+			Tags tags = aff instanceof OggFormatProvider.OGGAudioFileFormat ? ((OggFormatProvider.OGGAudioFileFormat) aff).getTags() : null;
+			if(tags != null) for(String key : tags.getKeys()) for(String value : tags.getList(key)){
+				if(value.length() > MAX_VALUE_LENGTH) continue;
+				String n = normalize(value);
+				if(!n.isEmpty()) terms.add(key.toUpperCase(Locale.ROOT) + SEPARATOR + n);
+			}
+			return terms.toArray(new String[terms.size()]);
+		}catch(UnsupportedAudioFileException e){
+			return new String[0];
+		}catch(IOException | RuntimeException e){
+			return null;
+		}
+	}
+
+	/**
+	 * Waits for the tags of a file to be read.
+	 * @param e The file entry.
+	 * @return The file entry, or {@code null} if the file cannot be read.
+	 * @throws InterruptedIOException If interrupted while waiting.
+	 */
+	private static Entry waitFor(Entry e) throws InterruptedIOException{
+		if(e.reading == null) return e;
+		try{
+			e.terms = e.reading.get();
+		}catch(InterruptedException ex){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading tags");
+		}catch(ExecutionException ex){
+			e.terms = null;
+		}
+		return e.terms == null ? null : e;
+	}
+
+	/**
+	 * Compares two byte arrays as unsigned bytes, which for UTF-8 strings is the order of their code points.
+	 * @param a The first array.
+	 * @param b The second array.
+	 * @return A negative number, zero or a positive number if the first array is less than, equal to or greater than the second array.
+	 */
+	private static int compare(byte[] a, byte[] b){
+		for(int c = 0, n = Math.min(a.length, b.length); c < n; c++){
+			int d = (a[c] & 0xff) - (b[c] & 0xff);
+			if(d != 0) return d;
+		}
+		return a.length - b.length;
+	}
+
+	/** A file being indexed. */
+	private static class Entry{
+		/** The absolute path of the file. */
+		private String path;
+		/** The size of the file. */
+		private long size;
+		/** The modification time of the file. */
+		private long modified;
+		/** The terms of the file, or {@code null} if they are still being read. */
+		private String[] terms;
+		/** The reading of the terms of the file, or {@code null} if the terms were taken from the index. */
+		private Future<String[]> reading;
+
+		/**
+		 * Creates a file entry.
+		 * @param path The absolute path of the file.
+		 * @param size The size of the file.
+		 * @param modified The modification time of the file.
+		 */
+		private Entry(String path, long size, long modified){
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+
+	/** The postings of a term, that is, the identifiers of its files, in ascending order. */
+	private static class Postings{
+		/** The file identifiers. */
+		private int[] ids = new int[2];
+		/** The number of file identifiers. */
+		private int count;
+
+		/**
+		 * Adds a file identifier, which is greater than the identifiers already added.
+		 * @param id The file identifier.
+		 */
+		private void add(int id){
+			if(count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+			ids[count++] = id;
+		}
+	}
+
+	/** Collects the files and the postings of the terms of a new index file, and writes it. */
+	private static class Builder{
+		/** The indexed files, whose positions are their identifiers. */
+		private List<Entry> entries = new ArrayList<>();
+		/** The postings of each term. */
+		private Map<String, Postings> postings = new HashMap<>();
+		/** The total number of postings. */
+		private long postingCount;
+
+		/**
+		 * Adds a file.
+		 * @param e The file entry, or {@code null} if the file cannot be read and is left out of the index.
+		 */
+		private void add(Entry e){
+			if(e == null) return;
+			int id = entries.size();
+			entries.add(e);
+			for(String term : e.terms) postings.computeIfAbsent(term, k -> new Postings()).add(id);
+			postingCount += e.terms.length;
+			e.terms = null;
+		}
+
+		/**
+		 * Writes the index file.
+		 * @param f The index file.
+		 * @throws IOException If the index is too large for the format or I/O error occurs.
+		 */
+		private void write(File f) throws IOException{
+			byte[][] paths = new byte[entries.size()][];
+			for(int c = 0; c < paths.length; c++) paths[c] = entries.get(c).path.getBytes(UTF_8);
+			List<Map.Entry<byte[], Postings>> terms = new ArrayList<>(postings.size());
+			for(Map.Entry<String, Postings> t : postings.entrySet()) terms.add(new AbstractMap.SimpleImmutableEntry<>(t.getKey().getBytes(UTF_8), t.getValue()));
+			terms.sort((a, b) -> compare(a.getKey(), b.getKey()));
+			long pool = 0L;
+			for(byte[] p : paths) pool += p.length;
+			for(Map.Entry<byte[], Postings> t : terms) pool += t.getKey().length;
+			long size = HEADER_SIZE + (long) paths.length * FILE_ENTRY_SIZE + (long) terms.size() * TERM_ENTRY_SIZE + postingCount * 4L + pool;
+			if(size > Integer.MAX_VALUE) throw new IOException("Tag index too large: " + size + " bytes");
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 65536))){
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(paths.length);
+				out.writeInt(terms.size());
+				out.writeInt((int) postingCount);
+				out.writeInt((int) pool);
+				int off = 0;
+				for(int c = 0; c < paths.length; c++){
+					Entry e = entries.get(c);
+					out.writeLong(e.size);
+					out.writeLong(e.modified);
+					out.writeInt(off);
+					out.writeInt(paths[c].length);
+					off += paths[c].length;
+				}
+				int post = 0;
+				for(Map.Entry<byte[], Postings> t : terms){
+					out.writeInt(off);
+					out.writeInt(t.getKey().length);
+					out.writeInt(post);
+					out.writeInt(t.getValue().count);
+					off += t.getKey().length;
+					post += t.getValue().count;
+				}
+				for(Map.Entry<byte[], Postings> t : terms) for(int c = 0; c < t.getValue().count; c++) out.writeInt(t.getValue().ids[c]);
+				for(byte[] p : paths) out.write(p);
+				for(Map.Entry<byte[], Postings> t : terms) out.write(t.getKey());
+			}
+		}
+	}
+
+	/** The content of an index file, read in place from its mapping. */
+	private static class Snapshot{
+		/** The content of the index file. */
+		private ByteBuffer buf;
+		/** The number of files. */
+		private int files;
+		/** The number of terms. */
+		private int terms;
+		/** The offset of the term table. */
+		private int termsOffset;
+		/** The offset of the postings. */
+		private int postingsOffset;
+		/** The offset of the string pool. */
+		private int poolOffset;
+
+		/**
+		 * Reads the header of an index file.
+		 * @param b The content of the index file.
+		 * @throws IOException If the content is not a valid index file.
+		 */
+		private Snapshot(ByteBuffer b) throws IOException{
+			buf = b;
+			if(b.capacity() < HEADER_SIZE || b.getInt(0) != MAGIC) throw new IOException("Not a tag index file");
+			if(b.getInt(4) != VERSION) throw new IOException("Unsupported tag index version: " + b.getInt(4));
+			files = b.getInt(8);
+			terms = b.getInt(12);
+			long t = HEADER_SIZE + (long) files * FILE_ENTRY_SIZE, p = t + (long) terms * TERM_ENTRY_SIZE, s = p + (b.getInt(16) & 0xffffffffL) * 4L;
+			if(files < 0 || terms < 0 || s + (b.getInt(20) & 0xffffffffL) != b.capacity()) throw new IOException("Corrupted tag index file");
+			termsOffset = (int) t;
+			postingsOffset = (int) p;
+			poolOffset = (int) s;
+		}
+
+		/**
+		 * Maps an index file.
+		 * @param f The index file.
+		 * @return The content of the index file.
+		 * @throws IOException If the file is not a valid index file or I/O error occurs.
+		 */
+		private static Snapshot map(File f) throws IOException{
+			try(FileChannel fc = FileChannel.open(f.toPath(), StandardOpenOption.READ)){
+				if(fc.size() > Integer.MAX_VALUE) throw new IOException("Tag index file too large: " + f);
+				return new Snapshot(fc.map(FileChannel.MapMode.READ_ONLY, 0L, fc.size()));
+			}
+		}
+
+		/**
+		 * Returns the content of an empty index.
+		 * @return The content of an empty index.
+		 */
+		private static Snapshot empty(){
+			try{
+				return new Snapshot(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC).putInt(4, VERSION));
+			}catch(IOException e){
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Returns the size of a file.
+		 * @param id The file identifier.
+		 * @return The size of the file.
+		 */
+		private long getSize(int id){
+			return buf.getLong(HEADER_SIZE + id * FILE_ENTRY_SIZE);
+		}
+
+		/**
+		 * Returns the modification time of a file.
+		 * @param id The file identifier.
+		 * @return The modification time of the file.
+		 */
+		private long getModified(int id){
+			return buf.getLong(HEADER_SIZE + id * FILE_ENTRY_SIZE + 8);
+		}
+
+		/**
+		 * Returns the absolute path of a file.
+		 * @param id The file identifier.
+		 * @return The path of the file.
+		 */
+		private String getPath(int id){
+			int e = HEADER_SIZE + id * FILE_ENTRY_SIZE;
+			return getString(buf.getInt(e + 16), buf.getInt(e + 20));
+		}
+
+		/**
+		 * Returns a term.
+		 * @param t The position of the term in the term table.
+		 * @return The term.
+		 */
+		private String getTerm(int t){
+			int e = termsOffset + t * TERM_ENTRY_SIZE;
+			return getString(buf.getInt(e), buf.getInt(e + 4));
+		}
+
+		/**
+		 * Decodes a string of the string pool.
+		 * @param off The offset of the string in the pool.
+		 * @param len The length of the string in bytes.
+		 * @return The string.
+		 */
+		private String getString(int off, int len){
+			byte[] b = new byte[len];
+			ByteBuffer d = buf.duplicate();
+			d.position(poolOffset + off);
+			d.get(b);
+			return new String(b, UTF_8);
+		}
+
+		/**
+		 * Compares a term of the term table with the given term.
+		 * @param t The position of the term in the term table.
+		 * @param term The UTF-8 bytes of the given term.
+		 * @param prefix {@code true} if a term of the table beginning with the given term is considered equal to it.
+		 * @return A negative number, zero or a positive number if the term of the table is less than, equal to or greater than the given term.
+		 */
+		private int compareTerm(int t, byte[] term, boolean prefix){
+			int e = termsOffset + t * TERM_ENTRY_SIZE, off = poolOffset + buf.getInt(e), len = buf.getInt(e + 4);
+			for(int c = 0, n = Math.min(len, term.length); c < n; c++){
+				int d = (buf.get(off + c) & 0xff) - (term[c] & 0xff);
+				if(d != 0) return d;
+			}
+			return prefix && len >= term.length ? 0 : len - term.length;
+		}
+
+		/**
+		 * Searches for the first term of the term table that is not less than the given term.
+		 * @param term The UTF-8 bytes of the given term.
+		 * @return The position of the term in the term table, or the number of terms if all terms are less than the given term.
+		 */
+		private int lowerBound(byte[] term){
+			int lo = 0, hi = terms;
+			while(lo < hi){
+				int mid = (lo + hi) >>> 1;
+				if(compareTerm(mid, term, false) < 0) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo;
+		}
+
+		/**
+		 * Adds the files of a term to a set of file identifiers.
+		 * @param t The position of the term in the term table.
+		 * @param ids The set of file identifiers.
+		 */
+		private void addPostings(int t, BitSet ids){
+			int e = termsOffset + t * TERM_ENTRY_SIZE, off = postingsOffset + buf.getInt(e + 8) * 4;
+			for(int c = 0, n = buf.getInt(e + 12); c < n; c++) ids.set(buf.getInt(off + c * 4));
+		}
+
+		/**
+		 * Inverts the postings, returning the terms of each file.
+		 * @return The positions in the term table of the terms of each file, indexed by the file identifiers.
+		 */
+		private int[][] getTermsByFile(){
+			int[] counts = new int[files];
+			for(int t = 0; t < terms; t++){
+				int e = termsOffset + t * TERM_ENTRY_SIZE, off = postingsOffset + buf.getInt(e + 8) * 4;
+				for(int c = 0, n = buf.getInt(e + 12); c < n; c++) counts[buf.getInt(off + c * 4)]++;
+			}
+			int[][] byFile = new int[files][];
+			for(int c = 0; c < files; c++) byFile[c] = new int[counts[c]];
+			Arrays.fill(counts, 0);
+			for(int t = 0; t < terms; t++){
+				int e = termsOffset + t * TERM_ENTRY_SIZE, off = postingsOffset + buf.getInt(e + 8) * 4;
+				for(int c = 0, n = buf.getInt(e + 12); c < n; c++){
+					int id = buf.getInt(off + c * 4);
+					byFile[id][counts[id]++] = t;
+				}
+			}
+			return byFile;
+		}
+	}
+}
\ No newline at end of file
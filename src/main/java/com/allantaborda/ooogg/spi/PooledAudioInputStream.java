@@ -0,0 +1,136 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi;
+
+import com.allantaborda.ooogg.OggPackable;
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggPage;
+import com.allantaborda.ooogg.Tags;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@code OggAudioInputStream} returned by {@code OggFormatProvider.acquireAudioInputStream} for reusable decoding streams. Each acquisition gets
+ * its own handle, which delegates to the pooled decoding stream until it is closed. Closing the handle closes the decoding stream, returning it
+ * to the pool, exactly once; after that the handle behaves as a closed stream, so a late call by its user never reaches the next user of the
+ * decoding stream.
+ * @author Allan Taborda dos Santos
+ */
+final class PooledAudioInputStream extends OggAudioInputStream{
+	/** The pooled decoding stream, or {@code null} if this handle was closed. */
+	private OggAudioInputStream decoder;
+	/** The initial OGG pages of the decoded stream. */
+	private OggPage[] headerPages;
+	/** The OGG file header parsed by {@code OggAudioFileReader}, or {@code null} if not available. */
+	private OggPackable header;
+	/** The tags parsed by {@code OggAudioFileReader}, or {@code null} if not available. */
+	private Tags tags;
+	/** The startup latency of the decoding stream when this handle was closed. */
+	private long startupLatency = -1L;
+	/** Lock that guards the delegation to the decoding stream, so it is not closed while another thread reads through this handle. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Constructs a handle of the given decoding stream.
+	 * @param decoder The pooled decoding stream, already initialized with its source stream.
+	 */
+	PooledAudioInputStream(OggAudioInputStream decoder){
+		super(decoder.getFormat());
+		this.decoder = decoder;
+		headerPages = decoder.getHeaderPages();
+		header = decoder.getHeader();
+		tags = decoder.getTags();
+	}
+
+	public long getStartupLatency(){
+		lock.lock();
+		try{
+			return decoder == null ? startupLatency : decoder.getStartupLatency();
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public OggPackable getHeader(){
+		return header;
+	}
+
+	public Tags getTags(){
+		return tags;
+	}
+
+	public OggPage[] getHeaderPages(){
+		return headerPages;
+	}
+
+	public int read() throws IOException{
+		lock.lock();
+		try{
+			return decoder == null ? -1 : decoder.read();
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException{
+		lock.lock();
+		try{
+			return decoder == null ? -1 : decoder.read(b, off, len);
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public long skip(long n) throws IOException{
+		lock.lock();
+		try{
+			if(decoder == null) throw new IOException("Stream closed");
+			return decoder.skip(n);
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	public int available() throws IOException{
+		lock.lock();
+		try{
+			return decoder == null ? 0 : decoder.available();
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes this handle and the decoding stream, which returns to the pool of its provider. Closing a closed handle has no effect.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public void close() throws IOException{
+		OggAudioInputStream d;
+		lock.lock();
+		try{
+			d = decoder;
+			if(d == null) return;
+			decoder = null;
+			startupLatency = d.getStartupLatency();
+		}finally{
+			lock.unlock();
+		}
+		d.close();
+	}
+
+	void decodeNextPacket(){
+		lock.lock();
+		try{
+			if(decoder != null) decoder.initBuffer();
+		}finally{
+			lock.unlock();
+		}
+	}
+
+	protected boolean decode(OggPacket packet){
+		return false;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi.pcm;
+
+import com.allantaborda.ooogg.OggPackable;
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.OggUtils;
+import com.allantaborda.ooogg.spi.OggAudioInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * Decoding stream of OggPCM audio files. The samples are converted to signed 16-bit little-endian PCM audio; 16-bit little-endian samples
+ * are copied without conversion, so the container overhead can be measured in isolation. This stream can be reused after being closed.
+ * @author Allan Taborda dos Santos
+ */
+public class OggPcmAudioInputStream extends OggAudioInputStream{
+	/** The identification header of the stream being decoded. */
+	private OggPcmHeader header;
+
+	/**
+	 * Constructs a decoding stream.
+	 * @param fmt The format of this stream's audio data.
+	 * @param ais The audio input stream that contains the OggPCM audio file.
+	 * @throws StreamCorruptedException If OGG structure is corrupted or the stream does not contain an OggPCM audio file.
+	 * @throws IOException If I/O error occurs.
+	 */
+	public OggPcmAudioInputStream(AudioFormat fmt, AudioInputStream ais) throws StreamCorruptedException, IOException{
+		super(fmt, ais);
+		readHeader();
+	}
+
+	/**
+	 * Obtains the identification header, from {@code OggAudioFileReader} if it was already parsed, or from the header pages otherwise.
+	 * @throws StreamCorruptedException If the identification header is not valid.
+	 */
+	private void readHeader() throws StreamCorruptedException{
+		OggPackable h = getHeader();
+		header = h instanceof OggPcmHeader ? (OggPcmHeader) h : new OggPcmHeader(OggUtils.getPacketsFromPages(getHeaderPages())[0]);
+		if(!header.isValid()) throw new StreamCorruptedException("Invalid OggPCM header");
+	}
+
+	protected boolean isReusable(){
+		return true;
+	}
+
+	protected void resetDecoder() throws StreamCorruptedException{
+		readHeader();
+	}
+
+	protected boolean decode(OggPacket packet){
+		byte[] b = packet.getContent();
+		int pcmFormat = header.getPcmFormat(), sampleSize = header.getSampleSizeInBits() / 8, samples = b.length / sampleSize;
+		if(samples == 0) return false;
+		createBuffer(samples * 2);
+		if(pcmFormat == OggPcmHeader.S16_LE) putInBuffer(b, 0, samples * 2);
+		else if(pcmFormat == OggPcmHeader.S8) for(int c = 0; c < samples; c++) putInBuffer((short) (b[c] << 8));
+		else if(pcmFormat == OggPcmHeader.U8) for(int c = 0; c < samples; c++) putInBuffer((short) (((b[c] & 0xff) - 128) << 8));
+		else{
+			int msb = header.isBigEndian() ? 0 : sampleSize - 1, next = header.isBigEndian() ? 1 : sampleSize - 2;
+			for(int c = 0, pos = 0; c < samples; c++, pos += sampleSize) putInBuffer((short) (b[pos + msb] << 8 | b[pos + next] & 0xff));
+		}
+		return true;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi.pcm;
+
+import com.allantaborda.ooogg.OggPackable;
+import com.allantaborda.ooogg.OggPacket;
+import com.allantaborda.ooogg.spi.OggAudioInputStream;
+import com.allantaborda.ooogg.spi.OggFormatProvider;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Provider of the OggPCM format, which stores uncompressed PCM audio in OGG packets. The first packet is the identification header, the second
+ * packet is the comment header (Vorbis Comments with no packet header and no framing bit), and each audio packet contains raw PCM frames.<br/><br/>
+ * This format requires no native codec, so it is useful as a lossless baseline to measure the overhead of the OGG container and of the
+ * {@code javax.sound} services.
+ * @author Allan Taborda dos Santos
+ */
+public class OggPcmFormatProvider extends OggFormatProvider{
+	/** The OggPCM audio file type. */
+	public static final AudioFileFormat.Type OGG_PCM = new AudioFileFormat.Type("OggPCM", "oga");
+	/** The OggPCM audio encoding. */
+	public static final AudioFormat.Encoding OGG_PCM_ENCODING = new AudioFormat.Encoding("OGG_PCM");
+	/** Maximum number of frames in each audio packet. */
+	public static final int FRAMES_PER_PACKET = 1024;
+
+	/** Creates the OggPCM provider, which supports reading and writing services. */
+	public OggPcmFormatProvider(){
+		super(true, true);
+	}
+
+	public AudioFileFormat.Type getType(){
+		return OGG_PCM;
+	}
+
+	public AudioFormat.Encoding getEncoding(){
+		return OGG_PCM_ENCODING;
+	}
+
+	public String getEncoderName(){
+		return "OggPCM";
+	}
+
+	public String getHeaderMagic(){
+		return OggPcmHeader.MAGIC;
+	}
+
+	public OggPackable getHeader(OggPacket packet){
+		return new OggPcmHeader(packet);
+	}
+
+	public OGGAudioFileFormat getAudioFileFormat(OggPackable header, long length, Map<String, Object> afProps, Map<String, Object> affProps){
+		OggPcmHeader h = (OggPcmHeader) header;
+		// The frame size is not specified because the OGG stream is not aligned to PCM frames, so AudioInputStream must not read it frame by frame.
+		AudioFormat fmt = new AudioFormat(OGG_PCM_ENCODING, h.getSampleRate(), h.getSampleSizeInBits(), h.getChannels(), AudioSystem.NOT_SPECIFIED, h.getSampleRate(), h.isBigEndian(), afProps);
+		return new OGGAudioFileFormat(OGG_PCM, fmt, length, affProps);
+	}
+
+	public OggAudioInputStream getAudioInputStream(AudioFormat trgFormat, AudioInputStream srcStream) throws IOException{
+		return new OggPcmAudioInputStream(trgFormat, srcStream);
+	}
+
+	public EncoderBox newEncoderBox(){
+		return new PcmEncoderBox();
+	}
+
+	/** Encoder box of the OggPCM format, which copies the PCM frames to the audio packets. It keeps no encoder state, so it is reusable. */
+	private static class PcmEncoderBox extends EncoderBox{
+		/** The identification header of the stream being encoded. */
+		private OggPcmHeader header;
+
+		public OggPackable getHeader(AudioFormat fmt){
+			header = new OggPcmHeader(fmt, FRAMES_PER_PACKET);
+			return header;
+		}
+
+		public void initEncoder(){
+			initPCMBuffer(FRAMES_PER_PACKET * header.getSampleSizeInBits() / 8, header.getChannels());
+		}
+
+		public void encode(){
+			int len = getPCMDataLength();
+			setProcessedData(Arrays.copyOf(getPCMBuffer(), len));
+			incrementGranulePosision(len / header.getFrameSize());
+		}
+
+		public boolean isReusable(){
+			return true;
+		}
+	}
+}
\ No newline at end of file
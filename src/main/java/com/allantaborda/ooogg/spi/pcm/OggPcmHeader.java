@@ -0,0 +1,233 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg.spi.pcm;
+
+import com.allantaborda.ooogg.OggPackable;
+import com.allantaborda.ooogg.OggPacket;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * The identification header of an OggPCM stream, contained in its first OGG packet. All numeric fields are stored in big-endian byte order:
+ * <ul>
+ * <li>the magic string "PCM     " (8 bytes);</li>
+ * <li>the major and minor version numbers (2 bytes each, both zero);</li>
+ * <li>the PCM sample format (4 bytes);</li>
+ * <li>the sample rate (4 bytes);</li>
+ * <li>the number of significant bits per sample (1 byte);</li>
+ * <li>the channel number (1 byte);</li>
+ * <li>the maximum number of frames per packet (2 bytes);</li>
+ * <li>the number of extra header packets after the comment header (4 bytes).</li>
+ * </ul>
+ * @author Allan Taborda dos Santos
+ */
+public class OggPcmHeader implements OggPackable{
+	/** The magic string at the beginning of the header. */
+	public static final String MAGIC = "PCM     ";
+	/** Sample format: signed 8-bit. */
+	public static final int S8 = 0x00;
+	/** Sample format: unsigned 8-bit. */
+	public static final int U8 = 0x01;
+	/** Sample format: signed 16-bit, little-endian. */
+	public static final int S16_LE = 0x02;
+	/** Sample format: signed 16-bit, big-endian. */
+	public static final int S16_BE = 0x03;
+	/** Sample format: signed 24-bit, little-endian. */
+	public static final int S24_LE = 0x04;
+	/** Sample format: signed 24-bit, big-endian. */
+	public static final int S24_BE = 0x05;
+	/** Sample format: signed 32-bit, little-endian. */
+	public static final int S32_LE = 0x06;
+	/** Sample format: signed 32-bit, big-endian. */
+	public static final int S32_BE = 0x07;
+	/** The header size in bytes. */
+	private static final int SIZE = 28;
+	/** The PCM sample format. */
+	private int pcmFormat;
+	/** The sample rate. */
+	private int sampleRate;
+	/** The number of significant bits per sample. */
+	private int significantBits;
+	/** The channel number. */
+	private int channels;
+	/** The maximum number of frames per packet. */
+	private int maxFramesPerPacket;
+	/** The number of extra header packets. */
+	private int extraHeaders;
+	/** Flag indicating if data contained in this data structure is valid. */
+	private boolean valid = true;
+
+	/**
+	 * Creates a header for the given audio format.
+	 * @param fmt The audio format, which must be signed PCM with 8, 16, 24 or 32 bits per sample.
+	 * @param maxFramesPerPacket The maximum number of frames per packet, from 1 to 65535.
+	 * @throws IllegalArgumentException If audio format is not supported or maximum number of frames per packet is out of range.
+	 */
+	public OggPcmHeader(AudioFormat fmt, int maxFramesPerPacket){
+		if(!AudioFormat.Encoding.PCM_SIGNED.equals(fmt.getEncoding())) throw new IllegalArgumentException("Unsupported encoding: " + fmt.getEncoding());
+		if(maxFramesPerPacket < 1 || maxFramesPerPacket > 65535) throw new IllegalArgumentException("Invalid number of frames per packet: " + maxFramesPerPacket);
+		switch(fmt.getSampleSizeInBits()){
+			case 8:
+				pcmFormat = S8;
+				break;
+			case 16:
+				pcmFormat = fmt.isBigEndian() ? S16_BE : S16_LE;
+				break;
+			case 24:
+				pcmFormat = fmt.isBigEndian() ? S24_BE : S24_LE;
+				break;
+			case 32:
+				pcmFormat = fmt.isBigEndian() ? S32_BE : S32_LE;
+				break;
+			default:
+				throw new IllegalArgumentException("Unsupported sample size: " + fmt.getSampleSizeInBits());
+		}
+		if(fmt.getChannels() < 1 || fmt.getChannels() > 255) throw new IllegalArgumentException("Unsupported channel number: " + fmt.getChannels());
+		sampleRate = Math.round(fmt.getSampleRate());
+		significantBits = fmt.getSampleSizeInBits();
+		channels = fmt.getChannels();
+		this.maxFramesPerPacket = maxFramesPerPacket;
+	}
+
+	/**
+	 * Creates a header from the given OGG packet.
+	 * @param packet The OGG packet.
+	 */
+	public OggPcmHeader(OggPacket packet){
+		byte[] b = packet.getContent();
+		if(b.length < SIZE || !packet.headerMatches(MAGIC) || getShort(b, 8) != 0) valid = false;
+		else{
+			pcmFormat = getInt(b, 12);
+			sampleRate = getInt(b, 16);
+			significantBits = b[20] & 0xff;
+			channels = b[21] & 0xff;
+			maxFramesPerPacket = getShort(b, 22);
+			extraHeaders = getInt(b, 24);
+			if(pcmFormat < S8 || pcmFormat > S32_BE || sampleRate < 1 || channels < 1 || significantBits > getSampleSizeInBits()) valid = false;
+		}
+	}
+
+	/**
+	 * Returns the PCM sample format, which is one of the sample format constants of this class.
+	 * @return The PCM sample format.
+	 */
+	public int getPcmFormat(){
+		return pcmFormat;
+	}
+
+	/**
+	 * Returns the sample rate.
+	 * @return The sample rate.
+	 */
+	public int getSampleRate(){
+		return sampleRate;
+	}
+
+	/**
+	 * Returns the number of significant bits per sample.
+	 * @return The number of significant bits per sample.
+	 */
+	public int getSignificantBits(){
+		return significantBits;
+	}
+
+	/**
+	 * Returns the number of bits per sample, according to the PCM sample format.
+	 * @return The number of bits per sample.
+	 */
+	public int getSampleSizeInBits(){
+		return (pcmFormat / 2 + 1) * 8;
+	}
+
+	/**
+	 * Returns the channel number.
+	 * @return The channel number.
+	 */
+	public int getChannels(){
+		return channels;
+	}
+
+	/**
+	 * Returns the frame size in bytes.
+	 * @return The frame size.
+	 */
+	public int getFrameSize(){
+		return getSampleSizeInBits() / 8 * channels;
+	}
+
+	/**
+	 * Returns if the samples are stored in big-endian byte order.
+	 * @return {@code true} if the samples are big-endian, {@code false} otherwise.
+	 */
+	public boolean isBigEndian(){
+		return pcmFormat > U8 && pcmFormat % 2 == 1;
+	}
+
+	/**
+	 * Returns the maximum number of frames per packet.
+	 * @return The maximum number of frames per packet.
+	 */
+	public int getMaxFramesPerPacket(){
+		return maxFramesPerPacket;
+	}
+
+	/**
+	 * Returns the number of extra header packets after the comment header.
+	 * @return The number of extra header packets.
+	 */
+	public int getExtraHeaders(){
+		return extraHeaders;
+	}
+
+	public boolean isValid(){
+		return valid;
+	}
+
+	public OggPacket toOggPacket(){
+		byte[] b = new byte[SIZE];
+		for(int c = 0; c < MAGIC.length(); c++) b[c] = (byte) MAGIC.charAt(c);
+		putInt(b, 12, pcmFormat);
+		putInt(b, 16, sampleRate);
+		b[20] = (byte) significantBits;
+		b[21] = (byte) channels;
+		b[22] = (byte) (maxFramesPerPacket >> 8);
+		b[23] = (byte) maxFramesPerPacket;
+		putInt(b, 24, extraHeaders);
+		return new OggPacket(b);
+	}
+
+	/**
+	 * Reads an unsigned big-endian 16-bit value from a byte array.
+	 * @param b The byte array.
+	 * @param off The position of the value in the array.
+	 * @return The value.
+	 */
+	private static int getShort(byte[] b, int off){
+		return (b[off] & 0xff) << 8 | b[off + 1] & 0xff;
+	}
+
+	/**
+	 * Reads a big-endian 32-bit value from a byte array.
+	 * @param b The byte array.
+	 * @param off The position of the value in the array.
+	 * @return The value.
+	 */
+	private static int getInt(byte[] b, int off){
+		return getShort(b, off) << 16 | getShort(b, off + 2);
+	}
+
+	/**
+	 * Writes a big-endian 32-bit value in a byte array.
+	 * @param b The byte array.
+	 * @param off The position of the value in the array.
+	 * @param value The value.
+	 */
+	private static void putInt(byte[] b, int off, int value){
+		b[off] = (byte) (value >> 24);
+		b[off + 1] = (byte) (value >> 16);
+		b[off + 2] = (byte) (value >> 8);
+		b[off + 3] = (byte) value;
+	}
+}
\ No newline at end of file
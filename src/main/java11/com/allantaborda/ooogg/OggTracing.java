@@ -0,0 +1,267 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emits Java Flight Recorder events for page reading, packet reassembly, resync scans, decoding and encoding. This is the Java 11
+ * implementation, loaded from the multi-release jar, which emits the events when they are enabled in a recording.<br/><br/>
+ * Each {@code begin} method returns an event handle, or {@code null} if the event is disabled, and the corresponding {@code end}
+ * method must be called with the handle only if it is not {@code null}, so disabled events cost a single check.
+ * @author Allan Taborda dos Santos
+ */
+public final class OggTracing{
+	/** Type of the page read event. */
+	private static final EventType PAGE_READ = EventType.getEventType(PageReadEvent.class);
+	/** Type of the packet reassembly event. */
+	private static final EventType PACKET_REASSEMBLY = EventType.getEventType(PacketReassemblyEvent.class);
+	/** Type of the resync event. */
+	private static final EventType RESYNC = EventType.getEventType(ResyncEvent.class);
+	/** Type of the decode event. */
+	private static final EventType DECODE = EventType.getEventType(DecodeEvent.class);
+	/** Type of the encode event. */
+	private static final EventType ENCODE = EventType.getEventType(EncodeEvent.class);
+
+	/** This class only has static methods. */
+	private OggTracing(){}
+
+	/**
+	 * Begins a page read event, which covers reading and parsing an OGG page.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginPageRead(){
+		return PAGE_READ.isEnabled() ? begin(new PageReadEvent()) : null;
+	}
+
+	/**
+	 * Ends a page read event.
+	 * @param event The event handle.
+	 * @param offset The position of the page in the file, or -1 if unknown.
+	 * @param page The read page.
+	 * @param size The page size in bytes, including the header.
+	 * @param crcOk {@code true} if the CRC checksum is valid, {@code false} otherwise.
+	 */
+	public static void endPageRead(Object event, long offset, OggPage page, int size, boolean crcOk){
+		PageReadEvent e = (PageReadEvent) event;
+		e.offset = offset;
+		e.serialNumber = page.getSerialNumber();
+		e.pageNumber = page.getPageNumber();
+		e.granulePosition = page.getGranulePosition();
+		e.size = size;
+		e.crcOk = crcOk;
+		e.commit();
+	}
+
+	/**
+	 * Begins a packet reassembly event, which covers the extraction of the packets of a group of OGG pages.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginPacketReassembly(){
+		return PACKET_REASSEMBLY.isEnabled() ? begin(new PacketReassemblyEvent()) : null;
+	}
+
+	/**
+	 * Ends a packet reassembly event.
+	 * @param event The event handle.
+	 * @param pages The number of OGG pages.
+	 * @param packets The number of extracted packets.
+	 */
+	public static void endPacketReassembly(Object event, int pages, int packets){
+		PacketReassemblyEvent e = (PacketReassemblyEvent) event;
+		e.pages = pages;
+		e.packets = packets;
+		e.commit();
+	}
+
+	/**
+	 * Begins a resync event, which covers the search for the next OGG page. The event is only recorded if bytes were discarded.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginResync(){
+		return RESYNC.isEnabled() ? begin(new ResyncEvent()) : null;
+	}
+
+	/**
+	 * Ends a resync event.
+	 * @param event The event handle.
+	 * @param discarded The number of bytes discarded before the next OGG page.
+	 */
+	public static void endResync(Object event, long discarded){
+		if(discarded > 0L){
+			ResyncEvent e = (ResyncEvent) event;
+			e.discarded = discarded;
+			e.commit();
+		}
+	}
+
+	/**
+	 * Begins a decode event, which covers the decoding of an audio packet.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginDecode(){
+		return DECODE.isEnabled() ? begin(new DecodeEvent()) : null;
+	}
+
+	/**
+	 * Ends a decode event.
+	 * @param event The event handle.
+	 * @param decoder The name of the decoder class.
+	 * @param serialNumber The serial number of the logical stream.
+	 * @param packetSize The packet size in bytes.
+	 * @param success {@code true} if the packet was decoded, {@code false} otherwise.
+	 */
+	public static void endDecode(Object event, String decoder, int serialNumber, int packetSize, boolean success){
+		DecodeEvent e = (DecodeEvent) event;
+		e.decoder = decoder;
+		e.serialNumber = serialNumber;
+		e.packetSize = packetSize;
+		e.success = success;
+		e.commit();
+	}
+
+	/**
+	 * Begins an encode event, which covers the encoding of an audio packet.
+	 * @return The event handle, or {@code null} if the event is disabled.
+	 */
+	public static Object beginEncode(){
+		return ENCODE.isEnabled() ? begin(new EncodeEvent()) : null;
+	}
+
+	/**
+	 * Ends an encode event.
+	 * @param event The event handle.
+	 * @param encoder The name of the encoder.
+	 * @param serialNumber The serial number of the logical stream.
+	 * @param pcmBytes The number of bytes of uncompressed audio.
+	 * @param packetSize The size in bytes of the encoded packet.
+	 */
+	public static void endEncode(Object event, String encoder, int serialNumber, int pcmBytes, int packetSize){
+		EncodeEvent e = (EncodeEvent) event;
+		e.encoder = encoder;
+		e.serialNumber = serialNumber;
+		e.pcmBytes = pcmBytes;
+		e.packetSize = packetSize;
+		e.commit();
+	}
+
+	/**
+	 * Starts the timing of an event.
+	 * @param e The event.
+	 * @return The event.
+	 */
+	private static Event begin(Event e){
+		e.begin();
+		return e;
+	}
+
+	/** Event of reading and parsing an OGG page. */
+	@Name("com.allantaborda.ooogg.PageRead")
+	@Label("OGG Page Read")
+	@Category({"OOOGG", "Container"})
+	@Description("Reading and parsing of an OGG page")
+	@StackTrace(false)
+	static class PageReadEvent extends Event{
+		/** The position of the page in the file, or -1 if unknown. */
+		@Label("Offset")
+		long offset;
+		/** The serial number of the logical stream. */
+		@Label("Serial Number")
+		int serialNumber;
+		/** The page number. */
+		@Label("Page Number")
+		int pageNumber;
+		/** The granule position. */
+		@Label("Granule Position")
+		long granulePosition;
+		/** The page size. */
+		@Label("Size")
+		@DataAmount
+		int size;
+		/** Flag indicating if the CRC checksum is valid. */
+		@Label("CRC OK")
+		boolean crcOk;
+	}
+
+	/** Event of extracting the packets of a group of OGG pages. */
+	@Name("com.allantaborda.ooogg.PacketReassembly")
+	@Label("OGG Packet Reassembly")
+	@Category({"OOOGG", "Container"})
+	@Description("Extraction of the packets of a group of OGG pages")
+	@StackTrace(false)
+	static class PacketReassemblyEvent extends Event{
+		/** The number of OGG pages. */
+		@Label("Pages")
+		int pages;
+		/** The number of extracted packets. */
+		@Label("Packets")
+		int packets;
+	}
+
+	/** Event of searching for the next OGG page, discarding bytes. */
+	@Name("com.allantaborda.ooogg.Resync")
+	@Label("OGG Resync")
+	@Category({"OOOGG", "Container"})
+	@Description("Search for the next OGG page, discarding bytes that are not part of a page")
+	static class ResyncEvent extends Event{
+		/** The number of discarded bytes. */
+		@Label("Discarded")
+		@DataAmount
+		long discarded;
+	}
+
+	/** Event of decoding an audio packet. */
+	@Name("com.allantaborda.ooogg.Decode")
+	@Label("OGG Packet Decode")
+	@Category({"OOOGG", "Codec"})
+	@Description("Decoding of an audio packet")
+	@StackTrace(false)
+	static class DecodeEvent extends Event{
+		/** The name of the decoder class. */
+		@Label("Decoder")
+		String decoder;
+		/** The serial number of the logical stream. */
+		@Label("Serial Number")
+		int serialNumber;
+		/** The packet size. */
+		@Label("Packet Size")
+		@DataAmount
+		int packetSize;
+		/** Flag indicating if the packet was decoded. */
+		@Label("Success")
+		boolean success;
+	}
+
+	/** Event of encoding an audio packet. */
+	@Name("com.allantaborda.ooogg.Encode")
+	@Label("OGG Packet Encode")
+	@Category({"OOOGG", "Codec"})
+	@Description("Encoding of an audio packet")
+	@StackTrace(false)
+	static class EncodeEvent extends Event{
+		/** The name of the encoder. */
+		@Label("Encoder")
+		String encoder;
+		/** The serial number of the logical stream. */
+		@Label("Serial Number")
+		int serialNumber;
+		/** The size of the uncompressed audio. */
+		@Label("PCM Bytes")
+		@DataAmount
+		int pcmBytes;
+		/** The size of the encoded packet. */
+		@Label("Packet Size")
+		@DataAmount
+		int packetSize;
+	}
+}
\ No newline at end of file
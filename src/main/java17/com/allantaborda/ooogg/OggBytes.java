@@ -0,0 +1,161 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads and writes the little-endian numeric fields of OGG structures and searches for the capture pattern of OGG pages. This is the Java 17
+ * implementation, loaded from the multi-release jar, which reads and writes whole fields with little-endian array views, and scans for the
+ * capture pattern eight bytes at a time, testing only the words that contain the first byte of the pattern.
+ * @author Allan Taborda dos Santos
+ */
+final class OggBytes{
+	/** Little-endian short view of byte arrays. */
+	private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+	/** Little-endian int view of byte arrays. */
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	/** Little-endian long view of byte arrays. */
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	/** Little-endian int view of byte buffers. */
+	private static final VarHandle BUFFER_INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	/** Little-endian long view of byte buffers. */
+	private static final VarHandle BUFFER_LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	/** The capture pattern read as a little-endian int. */
+	private static final int CAPTURE = 'O' | 'g' << 8 | 'g' << 16 | 'S' << 24;
+	/** The first byte of the capture pattern repeated in the eight bytes of a long. */
+	private static final long FIRST = 0x4f4f4f4f4f4f4f4fL;
+	/** The least significant bit of each byte of a long. */
+	private static final long LOW_BITS = 0x0101010101010101L;
+	/** The most significant bit of each byte of a long. */
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	/** This class only has static methods. */
+	private OggBytes(){}
+
+	/**
+	 * Reads a little-endian short.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The short value.
+	 */
+	static short getShort(byte[] b, int off){
+		return (short) SHORT.get(b, off);
+	}
+
+	/**
+	 * Reads a little-endian int.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The int value.
+	 */
+	static int getInt(byte[] b, int off){
+		return (int) INT.get(b, off);
+	}
+
+	/**
+	 * Reads a little-endian long.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @return The long value.
+	 */
+	static long getLong(byte[] b, int off){
+		return (long) LONG.get(b, off);
+	}
+
+	/**
+	 * Writes a little-endian int.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @param v The int value.
+	 */
+	static void putInt(byte[] b, int off, int v){
+		INT.set(b, off, v);
+	}
+
+	/**
+	 * Writes a little-endian long.
+	 * @param b The array.
+	 * @param off The position of the field in the array.
+	 * @param v The long value.
+	 */
+	static void putLong(byte[] b, int off, long v){
+		LONG.set(b, off, v);
+	}
+
+	/**
+	 * Checks if the capture pattern of OGG pages is at the given position of an array.
+	 * @param b The array.
+	 * @param off The position in the array.
+	 * @return {@code true} if the four bytes at the position are the capture pattern, {@code false} otherwise.
+	 */
+	static boolean isCapturePattern(byte[] b, int off){
+		return (int) INT.get(b, off) == CAPTURE;
+	}
+
+	/**
+	 * Searches for the first capture pattern of OGG pages in a range of an array.
+	 * @param b The array.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int indexOfCapturePattern(byte[] b, int from, int to){
+		int p = from, last = to - 4;
+		for(; p + 8 <= to; p += 8){
+			if(hasFirstByte((long) LONG.get(b, p))) for(int c = p; c < p + 8 && c <= last; c++) if((int) INT.get(b, c) == CAPTURE) return c;
+		}
+		for(; p <= last; p++) if((int) INT.get(b, p) == CAPTURE) return p;
+		return -1;
+	}
+
+	/**
+	 * Searches for the last capture pattern of OGG pages in a range of an array.
+	 * @param b The array.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int lastIndexOfCapturePattern(byte[] b, int from, int to){
+		int p = to - 4;
+		for(; p - 8 >= from; p -= 8){
+			if(hasFirstByte((long) LONG.get(b, p - 7))) for(int c = p; c > p - 8; c--) if((int) INT.get(b, c) == CAPTURE) return c;
+		}
+		for(; p >= from; p--) if((int) INT.get(b, p) == CAPTURE) return p;
+		return -1;
+	}
+
+	/**
+	 * Searches for the first capture pattern of OGG pages in a range of a byte buffer, using absolute positions. The position and limit of the
+	 * buffer are not changed.
+	 * @param buf The byte buffer.
+	 * @param from The position of the first byte of the range.
+	 * @param to The position after the last byte of the range. The capture pattern must end before this position.
+	 * @return The position of the capture pattern, or -1 if not found.
+	 */
+	static int indexOfCapturePattern(ByteBuffer buf, int from, int to){
+		int p = from, last = to - 4;
+		for(; p + 8 <= to; p += 8){
+			if(hasFirstByte((long) BUFFER_LONG.get(buf, p))) for(int c = p; c < p + 8 && c <= last; c++) if((int) BUFFER_INT.get(buf, c) == CAPTURE) return c;
+		}
+		for(; p <= last; p++) if((int) BUFFER_INT.get(buf, p) == CAPTURE) return p;
+		return -1;
+	}
+
+	/**
+	 * Checks if any byte of a long is the first byte of the capture pattern, with the classic test for zero bytes applied to the long XOR the
+	 * repeated first byte. The test may report bytes that follow a match, but never misses a match, so the reported words are verified.
+	 * @param word The eight bytes.
+	 * @return {@code true} if any byte may be the first byte of the capture pattern, {@code false} if none is.
+	 */
+	private static boolean hasFirstByte(long word){
+		long v = word ^ FIRST;
+		return ((v - LOW_BITS) & ~v & HIGH_BITS) != 0L;
+	}
+}
\ No newline at end of file
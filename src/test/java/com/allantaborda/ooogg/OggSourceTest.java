@@ -0,0 +1,218 @@
+/* OOOGG - Object-Oriented OGG Container
+ * Copyright (c) 2016, Allan Taborda
+ * This software is distributed under the BSD 3-Clause license.
+ * See https://github.com/allantaborda/ooogg/blob/master/LICENSE for more details.
+ */
+package com.allantaborda.ooogg;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the sources of range readers: the coalescing of small reads in read-ahead blocks, the reuse of the least recently used cached block,
+ * the end of data of unknown length, and the HTTP sources created from URLs, with and without support of range requests.
+ * @author Allan Taborda dos Santos
+ */
+public class OggSourceTest{
+	/** The block size used by the tests. */
+	private static final int READ_AHEAD = 1024;
+	/** The test data. */
+	private static final byte[] DATA = data(10000);
+	/** The HTTP server, or {@code null} if the test does not use it. */
+	private HttpServer server;
+
+	@AfterEach
+	public void stopServer(){
+		if(server != null) server.stop(0);
+	}
+
+	@Test
+	public void smallReadsAreCoalescedInBlocks() throws IOException{
+		CountingReader reader = new CountingReader(DATA);
+		OggSource src = OggSource.of(reader, DATA.length, READ_AHEAD);
+		byte[] b = new byte[3000];
+		for(int c = 0; c < b.length; c++) b[c] = src.readByte();
+		assertArrayEquals(Arrays.copyOf(DATA, 3000), b);
+		assertEquals(3, reader.requests.get());
+		src.seek(100L);
+		src.readFully(b, 0, 500);
+		assertEquals(3, reader.requests.get());
+	}
+
+	@Test
+	public void largeReadsAreSentDirectly() throws IOException{
+		CountingReader reader = new CountingReader(DATA);
+		OggSource src = OggSource.of(reader, DATA.length, READ_AHEAD);
+		byte[] b = new byte[READ_AHEAD * 3];
+		src.seek(500L);
+		src.readFully(b, 0, b.length);
+		assertArrayEquals(Arrays.copyOfRange(DATA, 500, 500 + b.length), b);
+		assertEquals(1, reader.requests.get());
+	}
+
+	@Test
+	public void leastRecentlyUsedBlockIsReused() throws IOException{
+		CountingReader reader = new CountingReader(DATA);
+		OggSource src = OggSource.of(reader, DATA.length, READ_AHEAD);
+		byte[] b = new byte[1];
+		for(int c = 0; c < 4; c++) src.read(c * READ_AHEAD, b, 0, 1);
+		assertEquals(4, reader.requests.get());
+		src.read(0L, b, 0, 1);
+		assertEquals(4, reader.requests.get());
+		src.read(4L * READ_AHEAD, b, 0, 1);
+		assertEquals(5, reader.requests.get());
+		src.read(0L, b, 0, 1);
+		src.read(2L * READ_AHEAD, b, 0, 1);
+		src.read(3L * READ_AHEAD, b, 0, 1);
+		assertEquals(5, reader.requests.get());
+		src.read(READ_AHEAD + 10L, b, 0, 1);
+		assertEquals(DATA[READ_AHEAD + 10], b[0]);
+		assertEquals(6, reader.requests.get());
+	}
+
+	@Test
+	public void unknownLengthEndsAtShortBlock() throws IOException{
+		byte[] data = data(2500);
+		CountingReader reader = new CountingReader(data);
+		OggSource src = OggSource.of(reader, -1L, READ_AHEAD);
+		assertEquals(-1L, src.length());
+		byte[] b = new byte[data.length + 100];
+		int n = 0;
+		for(int r; (r = src.read(b, n, 100)) > 0;) n += r;
+		assertEquals(data.length, n);
+		assertArrayEquals(data, Arrays.copyOf(b, n));
+		assertEquals(data.length, src.length());
+		assertEquals(4, reader.requests.get());
+		assertEquals(-1, src.read(b, 0, 1));
+		assertThrows(EOFException.class, src::readByte);
+		assertEquals(-1, src.read(data.length + 5000L, b, 0, 1));
+		assertEquals(4, reader.requests.get());
+	}
+
+	@Test
+	public void httpRangeRequestsAreUsedWhenSupported() throws IOException{
+		AtomicInteger requests = new AtomicInteger();
+		URL url = startServer(true, requests);
+		try(OggSource src = OggSource.of(url)){
+			assertTrue(src.isSeekable());
+			assertEquals(DATA.length, src.length());
+			assertEquals(1, requests.get());
+			byte[] b = new byte[200];
+			src.seek(5000L);
+			src.readFully(b, 0, b.length);
+			assertArrayEquals(Arrays.copyOfRange(DATA, 5000, 5200), b);
+			src.seek(0L);
+			src.readFully(b, 0, b.length);
+			assertArrayEquals(Arrays.copyOf(DATA, 200), b);
+			assertEquals(1, requests.get());
+		}
+	}
+
+	@Test
+	public void httpFallsBackToStreamWithoutRangeSupport() throws IOException{
+		AtomicInteger requests = new AtomicInteger();
+		URL url = startServer(false, requests);
+		try(OggSource src = OggSource.of(url)){
+			assertFalse(src.isSeekable());
+			assertEquals(-1L, src.length());
+			byte[] b = new byte[DATA.length];
+			src.readFully(b, 0, b.length);
+			assertArrayEquals(DATA, b);
+			assertEquals(-1, src.read(b, 0, 1));
+			assertEquals(1, requests.get());
+		}
+	}
+
+	/**
+	 * Starts an HTTP server that serves the test data.
+	 * @param ranges {@code true} if the server answers range requests with partial content, {@code false} if it always sends the whole data.
+	 * @param requests Counter of the requests received by the server.
+	 * @return The URL of the test data.
+	 * @throws IOException If the server cannot be started.
+	 */
+	private URL startServer(boolean ranges, AtomicInteger requests) throws IOException{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/data.ogg", ex -> {
+			requests.incrementAndGet();
+			String range = ex.getRequestHeaders().getFirst("Range");
+			if(ranges && range != null && range.startsWith("bytes=")){
+				String[] bounds = range.substring(6).split("-");
+				int start = Integer.parseInt(bounds[0]), end = Math.min(DATA.length - 1, Integer.parseInt(bounds[1]));
+				if(start >= DATA.length){
+					ex.sendResponseHeaders(416, -1L);
+					ex.close();
+					return;
+				}
+				ex.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + DATA.length);
+				send(ex, 206, Arrays.copyOfRange(DATA, start, end + 1));
+			}else send(ex, 200, DATA);
+		});
+		server.start();
+		return new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getAddress().getPort(), "/data.ogg");
+	}
+
+	/**
+	 * Sends a response with the given status code and body.
+	 * @param ex The HTTP exchange.
+	 * @param code The status code.
+	 * @param body The response body.
+	 * @throws IOException If I/O error occurs.
+	 */
+	private static void send(HttpExchange ex, int code, byte[] body) throws IOException{
+		ex.sendResponseHeaders(code, body.length);
+		try(OutputStream os = ex.getResponseBody()){
+			os.write(body);
+		}
+	}
+
+	/**
+	 * Creates test data whose bytes differ from their neighbours.
+	 * @param length The length of the data.
+	 * @return The data.
+	 */
+	private static byte[] data(int length){
+		byte[] b = new byte[length];
+		for(int c = 0; c < length; c++) b[c] = (byte) (c * 31 + c / 251);
+		return b;
+	}
+
+	/** Range reader of a byte array that counts its requests. */
+	private static class CountingReader implements OggSource.RangeReader{
+		/** The data. */
+		private byte[] data;
+		/** The number of requests. */
+		private AtomicInteger requests = new AtomicInteger();
+
+		/**
+		 * Creates a range reader of the given data.
+		 * @param data The data.
+		 */
+		CountingReader(byte[] data){
+			this.data = data;
+		}
+
+		public int read(long pos, byte[] b, int off, int len){
+			requests.incrementAndGet();
+			if(pos >= data.length) return -1;
+			int n = (int) Math.min(len, data.length - pos);
+			System.arraycopy(data, (int) pos, b, off, n);
+			return n;
+		}
+	}
+}
\ No newline at end of file